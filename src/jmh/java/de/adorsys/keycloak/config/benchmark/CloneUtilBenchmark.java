@@ -0,0 +1,115 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2021 adorsys GmbH & Co. KG @ https://adorsys.com
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.benchmark;
+
+import de.adorsys.keycloak.config.model.RealmImport;
+import de.adorsys.keycloak.config.util.CloneUtil;
+import de.adorsys.keycloak.config.util.JsonUtil;
+import org.keycloak.representations.idm.ClientRepresentation;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link CloneUtil} on the largest client and user of <code>benchmark.yaml</code>, compared the same way as the import services do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CloneUtilBenchmark {
+    @Param({"client", "user"})
+    String entity;
+
+    private Object origin;
+    private Object changed;
+    private String[] ignoredProperties;
+
+    @Setup
+    public void setup() {
+        RealmImport realmImport = Fixtures.readRealmImport("benchmark.yaml");
+
+        if ("client".equals(entity)) {
+            ClientRepresentation client = realmImport.getClients().stream()
+                    .max(Comparator.comparingInt(c -> JsonUtil.toJson(c).length()))
+                    .orElseThrow();
+
+            ClientRepresentation changedClient = CloneUtil.deepClone(client);
+            changedClient.setDescription("changed by benchmark");
+            List<String> redirectUris = new ArrayList<>(changedClient.getRedirectUris() == null ? List.of() : changedClient.getRedirectUris());
+            redirectUris.add("https://benchmark.example.com/*");
+            changedClient.setRedirectUris(redirectUris);
+
+            origin = client;
+            changed = changedClient;
+            ignoredProperties = new String[]{"id", "access"};
+        } else {
+            UserRepresentation user = realmImport.getUsers().stream()
+                    .max(Comparator.comparingInt(u -> JsonUtil.toJson(u).length()))
+                    .orElseThrow();
+
+            UserRepresentation changedUser = CloneUtil.deepClone(user);
+            changedUser.setEmail("changed@benchmark.example.com");
+            changedUser.setAttributes(Map.of("benchmark", List.of("changed")));
+
+            origin = user;
+            changed = changedUser;
+            ignoredProperties = new String[]{"realmRoles", "clientRoles"};
+        }
+    }
+
+    @Benchmark
+    public Object deepClone() {
+        return CloneUtil.deepClone(origin, ignoredProperties);
+    }
+
+    @Benchmark
+    public Object patch() {
+        return CloneUtil.patch(origin, changed, ignoredProperties);
+    }
+
+    @Benchmark
+    public boolean deepEqualsUnchanged() {
+        return CloneUtil.deepEquals(origin, origin, ignoredProperties);
+    }
+
+    @Benchmark
+    public boolean deepEqualsChanged() {
+        return CloneUtil.deepEquals(origin, changed, ignoredProperties);
+    }
+}
@@ -0,0 +1,77 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2021 adorsys GmbH & Co. KG @ https://adorsys.com
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.benchmark;
+
+import de.adorsys.keycloak.config.model.RealmImport;
+import de.adorsys.keycloak.config.properties.ImportConfigProperties;
+import de.adorsys.keycloak.config.properties.ImportConfigProperties.ImportFilesProperties;
+import de.adorsys.keycloak.config.properties.ImportConfigProperties.ImportVarSubstitutionProperties;
+import de.adorsys.keycloak.config.provider.KeycloakImportProvider;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+final class Fixtures {
+    private static final Path FIXTURE_DIRECTORY = Path.of(System.getProperty("benchmark.fixtures", "contrib/example-config"));
+
+    private Fixtures() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    static Path path(String fixture) {
+        Path path = FIXTURE_DIRECTORY.resolve(fixture).toAbsolutePath();
+
+        if (!Files.isRegularFile(path)) {
+            throw new IllegalStateException("Benchmark fixture '" + path + "' not found, run the benchmarks from the project directory.");
+        }
+
+        return path;
+    }
+
+    static String location(String fixture) {
+        return path(fixture).toUri().toString();
+    }
+
+    static KeycloakImportProvider createKeycloakImportProvider(boolean varSubstitution) {
+        ImportConfigProperties importConfigProperties = mock(ImportConfigProperties.class);
+        when(importConfigProperties.getFiles())
+                .thenReturn(new ImportFilesProperties(Collections.emptyList(), Collections.emptyList(), false));
+        when(importConfigProperties.getVarSubstitution())
+                .thenReturn(new ImportVarSubstitutionProperties(varSubstitution, false, false, "$(", ")"));
+
+        return new KeycloakImportProvider(new StandardEnvironment(), new PathMatchingResourcePatternResolver(), importConfigProperties);
+    }
+
+    static RealmImport readRealmImport(String fixture) {
+        return createKeycloakImportProvider(false)
+                .readFromLocations(location(fixture))
+                .getRealmImports()
+                .values().iterator().next()
+                .values().iterator().next()
+                .get(0);
+    }
+}
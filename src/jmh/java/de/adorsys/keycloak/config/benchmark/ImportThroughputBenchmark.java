@@ -0,0 +1,221 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2021 adorsys GmbH & Co. KG @ https://adorsys.com
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.benchmark;
+
+import de.adorsys.keycloak.config.KeycloakConfigApplication;
+import de.adorsys.keycloak.config.KeycloakConfigRunner;
+import de.adorsys.keycloak.config.test.util.KeycloakAdminApiStub;
+import de.adorsys.keycloak.config.test.util.RealmGenerator;
+import de.adorsys.keycloak.config.util.JsonUtil;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+/**
+ * End-to-end runs of the {@link KeycloakConfigRunner} against the {@link KeycloakAdminApiStub}.
+ *
+ * <p>Each scenario imports a realm of the {@link RealmGenerator} with one kind of entity, first into an empty stub (create) and then again
+ * unchanged (update). The admin API calls of an empty realm are subtracted to get the calls per entity. The wall time
+ * covers the runner only, without the startup of the application context.
+ *
+ * <p>Arguments: <code>entities=100 latency=5 parallel=false,true result=target/import-benchmark.json</code>
+ */
+public class ImportThroughputBenchmark {
+    private static final String REALM = "benchmark";
+
+    private final int entities;
+    private final Duration latency;
+    private final List<Boolean> parallelSettings;
+    private final Path resultFile;
+
+    ImportThroughputBenchmark(Map<String, String> arguments) {
+        this.entities = Integer.parseInt(arguments.getOrDefault("entities", "100"));
+        this.latency = Duration.ofMillis(Long.parseLong(arguments.getOrDefault("latency", "5")));
+        this.parallelSettings = Arrays.stream(arguments.getOrDefault("parallel", "false,true").split(","))
+                .map(Boolean::parseBoolean)
+                .collect(Collectors.toList());
+        this.resultFile = Path.of(arguments.getOrDefault("result", "target/import-benchmark.json"));
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> arguments = Arrays.stream(args)
+                .map(arg -> arg.split("=", 2))
+                .collect(Collectors.toMap(arg -> arg[0], arg -> arg.length > 1 ? arg[1] : ""));
+
+        new ImportThroughputBenchmark(arguments).run();
+    }
+
+    void run() throws IOException {
+        Map<String, UnaryOperator<RealmGenerator>> scenarios = new LinkedHashMap<>();
+        scenarios.put("users", generator -> generator.users(entities));
+        scenarios.put("groups", generator -> generator.groups(entities, 3));
+        scenarios.put("clients", generator -> generator.clients(entities));
+        scenarios.put("authz", generator -> generator.clients(entities).resources(2));
+        scenarios.put("roles", generator -> generator.roles(entities, 0));
+        scenarios.put("composites", generator -> generator.roles(entities, 3));
+
+        List<Result> results = new ArrayList<>();
+
+        for (boolean parallel : parallelSettings) {
+            Result[] baseline = runScenario("empty", 0, UnaryOperator.identity(), parallel);
+
+            for (Map.Entry<String, UnaryOperator<RealmGenerator>> scenario : scenarios.entrySet()) {
+                Result[] result = runScenario(scenario.getKey(), entities, scenario.getValue(), parallel);
+
+                for (int i = 0; i < result.length; i++) {
+                    result[i].callsPerEntity = (double) (result[i].calls - baseline[i].calls) / entities;
+                    results.add(result[i]);
+                }
+            }
+        }
+
+        print(results);
+
+        Files.createDirectories(resultFile.toAbsolutePath().getParent());
+        Files.writeString(resultFile, JsonUtil.toJson(results));
+        System.out.println("Benchmark result is saved to " + resultFile.toAbsolutePath());
+    }
+
+    private Result[] runScenario(String name, int count, UnaryOperator<RealmGenerator> scenario, boolean parallel) throws IOException {
+        Path importFile = Files.createTempFile("kcc-benchmark-" + name, ".json");
+        scenario.apply(new RealmGenerator(REALM)).write(importFile);
+
+        try (KeycloakAdminApiStub stub = new KeycloakAdminApiStub(latency)) {
+            return new Result[]{
+                    runImport(stub, importFile, new Result(name, "create", count, parallel)),
+                    runImport(stub, importFile, new Result(name, "update", count, parallel)),
+            };
+        } finally {
+            Files.delete(importFile);
+        }
+    }
+
+    private Result runImport(KeycloakAdminApiStub stub, Path importFile, Result result) {
+        long[] startTime = new long[1];
+
+        SpringApplicationBuilder application = new SpringApplicationBuilder(KeycloakConfigApplication.class)
+                .web(WebApplicationType.NONE)
+                .listeners((ApplicationListener<ApplicationStartedEvent>) event -> {
+                    stub.resetCallCounts();
+                    startTime[0] = System.nanoTime();
+                })
+                .listeners((ApplicationListener<ApplicationReadyEvent>) event ->
+                        result.wallTimeMillis = Duration.ofNanos(System.nanoTime() - startTime[0]).toMillis()
+                );
+
+        String[] properties = {
+                "--spring.main.banner-mode=off",
+                "--spring.main.log-startup-info=false",
+                "--logging.level.root=WARN",
+                "--logging.level.kcc=WARN",
+                "--keycloak.url=" + stub.getUrl(),
+                "--keycloak.user=admin",
+                "--keycloak.password=admin",
+                "--import.cache.enabled=false",
+                "--import.parallel=" + result.parallel,
+                "--import.files.locations=" + importFile.toUri(),
+        };
+
+        try (ConfigurableApplicationContext context = application.run(properties)) {
+            if (context.getBean(KeycloakConfigRunner.class).getExitCode() != 0) {
+                throw new IllegalStateException("Import of scenario '" + result.scenario + "' failed");
+            }
+        }
+
+        result.latencyMillis = latency.toMillis();
+        result.calls = stub.getCallCount();
+        return result;
+    }
+
+    private static void print(List<Result> results) {
+        System.out.printf("%-10s %-8s %8s %8s %10s %8s %14s%n", "scenario", "mode", "entities", "parallel", "wall (ms)", "calls", "calls/entity");
+        for (Result result : results) {
+            System.out.printf("%-10s %-8s %8d %8s %10d %8d %14.2f%n", result.scenario, result.mode, result.entities, result.parallel,
+                    result.wallTimeMillis, result.calls, result.callsPerEntity);
+        }
+    }
+
+    @SuppressWarnings("unused")
+    static class Result {
+        private final String scenario;
+        private final String mode;
+        private final int entities;
+        private final boolean parallel;
+        private long latencyMillis;
+        private long wallTimeMillis;
+        private long calls;
+        private double callsPerEntity;
+
+        Result(String scenario, String mode, int entities, boolean parallel) {
+            this.scenario = scenario;
+            this.mode = mode;
+            this.entities = entities;
+            this.parallel = parallel;
+        }
+
+        public String getScenario() {
+            return scenario;
+        }
+
+        public String getMode() {
+            return mode;
+        }
+
+        public int getEntities() {
+            return entities;
+        }
+
+        public boolean isParallel() {
+            return parallel;
+        }
+
+        public long getLatencyMillis() {
+            return latencyMillis;
+        }
+
+        public long getWallTimeMillis() {
+            return wallTimeMillis;
+        }
+
+        public long getCalls() {
+            return calls;
+        }
+
+        public double getCallsPerEntity() {
+            return callsPerEntity;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2021 adorsys GmbH & Co. KG @ https://adorsys.com
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.benchmark;
+
+import de.adorsys.keycloak.config.model.KeycloakImport;
+import de.adorsys.keycloak.config.provider.KeycloakImportProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Reading and parsing of the example configurations. With variable substitution, all boolean values of the fixture
+ * are replaced by placeholders like <code>$(env:KCC_BENCHMARK_UNDEFINED:-true)</code> which resolve to their default.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KeycloakImportProviderBenchmark {
+    private static final Pattern BOOLEAN_VALUE = Pattern.compile("(:\\s*)(true|false)(?=\\s*(,|}|$))", Pattern.MULTILINE);
+
+    @Param({"benchmark.yaml", "moped.json"})
+    String fixture;
+
+    @Param({"false", "true"})
+    boolean varSubstitution;
+
+    private KeycloakImportProvider keycloakImportProvider;
+    private String location;
+
+    @Setup
+    public void setup() throws IOException {
+        keycloakImportProvider = Fixtures.createKeycloakImportProvider(varSubstitution);
+        location = varSubstitution ? createFixtureWithPlaceholders() : Fixtures.location(fixture);
+    }
+
+    @Benchmark
+    public KeycloakImport readFromLocations() {
+        return keycloakImportProvider.readFromLocations(location);
+    }
+
+    private String createFixtureWithPlaceholders() throws IOException {
+        String content = BOOLEAN_VALUE.matcher(Files.readString(Fixtures.path(fixture)))
+                .replaceAll("$1\"\\$(env:KCC_BENCHMARK_UNDEFINED:-$2)\"");
+
+        Path path = Files.createTempFile("kcc-benchmark", fixture);
+        path.toFile().deleteOnExit();
+        Files.writeString(path, content);
+
+        return path.toUri().toString();
+    }
+}
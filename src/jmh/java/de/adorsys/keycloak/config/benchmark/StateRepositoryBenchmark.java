@@ -0,0 +1,106 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2021 adorsys GmbH & Co. KG @ https://adorsys.com
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.benchmark;
+
+import de.adorsys.keycloak.config.properties.ImportConfigProperties;
+import de.adorsys.keycloak.config.properties.ImportConfigProperties.ImportCacheProperties;
+import de.adorsys.keycloak.config.properties.ImportConfigProperties.ImportRemoteStateProperties;
+import de.adorsys.keycloak.config.repository.RealmRepository;
+import de.adorsys.keycloak.config.repository.StateRepository;
+import org.keycloak.representations.idm.RealmRepresentation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Serialization, optional encryption and chunking of the remote state into realm attributes and back.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StateRepositoryBenchmark {
+    private static final String REALM = "benchmark";
+    private static final String ENTITY = "clients";
+
+    @Param({"10", "1000"})
+    int entries;
+
+    @Param({"false", "true"})
+    boolean encrypted;
+
+    private StateRepository stateRepository;
+    private List<String> state;
+
+    @Setup
+    public void setup() {
+        RealmRepresentation realm = new RealmRepresentation();
+        realm.setRealm(REALM);
+        realm.setAttributes(new HashMap<>(Map.of("frontendUrl", "https://benchmark.example.com")));
+
+        RealmRepository realmRepository = mock(RealmRepository.class);
+        when(realmRepository.get(REALM)).thenReturn(realm);
+
+        ImportConfigProperties importConfigProperties = mock(ImportConfigProperties.class);
+        when(importConfigProperties.getCache()).thenReturn(new ImportCacheProperties(true, "default"));
+        when(importConfigProperties.getRemoteState()).thenReturn(new ImportRemoteStateProperties(
+                true, encrypted ? "benchmark-encryption-key" : null, "2B521C795FBE2F2425DB150CD3700BA9"
+        ));
+
+        stateRepository = new StateRepository(realmRepository, importConfigProperties);
+        stateRepository.loadCustomAttributes(REALM);
+
+        state = IntStream.range(0, entries)
+                .mapToObj(i -> "benchmark-client-" + i)
+                .collect(Collectors.toList());
+        stateRepository.setState(ENTITY, state);
+    }
+
+    @Benchmark
+    public void setState() {
+        stateRepository.setState(ENTITY, state);
+    }
+
+    @Benchmark
+    public List<String> getState() {
+        return stateRepository.getState(ENTITY);
+    }
+}
@@ -24,7 +24,16 @@ import de.adorsys.keycloak.config.model.KeycloakImport;
 import de.adorsys.keycloak.config.model.RealmImport;
 import de.adorsys.keycloak.config.properties.ImportConfigProperties;
 import de.adorsys.keycloak.config.provider.KeycloakImportProvider;
+import de.adorsys.keycloak.config.provider.KeycloakProvider;
 import de.adorsys.keycloak.config.service.RealmImportService;
+import de.adorsys.keycloak.config.service.metrics.AdminApiMetricsService;
+import de.adorsys.keycloak.config.service.metrics.ImportReportService;
+import de.adorsys.keycloak.config.service.metrics.MetricsExportService;
+import de.adorsys.keycloak.config.service.metrics.SlowCallService;
+import de.adorsys.keycloak.config.service.tracing.TracingService;
+import de.adorsys.keycloak.config.util.FutureUtil;
+import io.opentelemetry.api.common.Attributes;
+import org.keycloak.admin.client.Keycloak;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -37,6 +46,9 @@ import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static de.adorsys.keycloak.config.service.tracing.TracingService.REALM;
 
 @Component
 public class KeycloakConfigRunner implements CommandLineRunner, ExitCodeGenerator {
@@ -44,19 +56,37 @@ public class KeycloakConfigRunner implements CommandLineRunner, ExitCodeGenerato
     private static final long START_TIME = System.currentTimeMillis();
 
     private final KeycloakImportProvider keycloakImportProvider;
+    private final KeycloakProvider keycloakProvider;
     private final RealmImportService realmImportService;
     private final ImportConfigProperties importConfigProperties;
+    private final AdminApiMetricsService adminApiMetricsService;
+    private final ImportReportService importReportService;
+    private final MetricsExportService metricsExportService;
+    private final SlowCallService slowCallService;
+    private final TracingService tracingService;
 
     private int exitCode = 0;
 
     @Autowired
     public KeycloakConfigRunner(
             KeycloakImportProvider keycloakImportProvider,
+            KeycloakProvider keycloakProvider,
             RealmImportService realmImportService,
-            ImportConfigProperties importConfigProperties) {
+            ImportConfigProperties importConfigProperties,
+            AdminApiMetricsService adminApiMetricsService,
+            ImportReportService importReportService,
+            MetricsExportService metricsExportService,
+            SlowCallService slowCallService,
+            TracingService tracingService) {
         this.keycloakImportProvider = keycloakImportProvider;
+        this.keycloakProvider = keycloakProvider;
         this.realmImportService = realmImportService;
         this.importConfigProperties = importConfigProperties;
+        this.adminApiMetricsService = adminApiMetricsService;
+        this.importReportService = importReportService;
+        this.metricsExportService = metricsExportService;
+        this.slowCallService = slowCallService;
+        this.tracingService = tracingService;
     }
 
     @Override
@@ -66,20 +96,12 @@ public class KeycloakConfigRunner implements CommandLineRunner, ExitCodeGenerato
 
     @Override
     public void run(String... args) {
-        try {
-            Collection<String> importLocations = importConfigProperties.getFiles().getLocations();
-            KeycloakImport keycloakImport = keycloakImportProvider.readFromLocations(importLocations);
+        boolean successful = false;
 
-            Map<String, Map<String, List<RealmImport>>> realmImports = keycloakImport.getRealmImports();
+        try {
+            tracingService.inSpan("run", Attributes.empty(), this::importLocations);
 
-            for (Map<String, List<RealmImport>> realmImportLocations : realmImports.values()) {
-                for (Map.Entry<String, List<RealmImport>> realmImport : realmImportLocations.entrySet()) {
-                    logger.info("Importing file '{}'", realmImport.getKey());
-                    for (RealmImport realmImportParts : realmImport.getValue()) {
-                        realmImportService.doImport(realmImportParts);
-                    }
-                }
-            }
+            successful = true;
         } catch (NullPointerException e) {
             throw e;
         } catch (Exception e) {
@@ -91,9 +113,45 @@ public class KeycloakConfigRunner implements CommandLineRunner, ExitCodeGenerato
                 throw e;
             }
         } finally {
+            adminApiMetricsService.logSummary();
+            slowCallService.logSummary();
+
             long totalTime = System.currentTimeMillis() - START_TIME;
+            importReportService.writeReport(START_TIME, totalTime, successful);
+            metricsExportService.export(totalTime, successful);
+
             String formattedTime = new SimpleDateFormat("mm:ss.SSS").format(new Date(totalTime));
             logger.info("keycloak-config-cli running in {}.", formattedTime);
         }
     }
+
+    private void importLocations() {
+        Collection<String> importLocations = importConfigProperties.getFiles().getLocations();
+
+        // logs in while the files are parsed
+        CompletableFuture<Keycloak> connection = keycloakProvider.connectAsync();
+        KeycloakImport keycloakImport;
+
+        try {
+            keycloakImport = keycloakImportProvider.readFromLocations(importLocations);
+        } catch (RuntimeException e) {
+            // the provider is closed after the run, a login still in progress would create a session which is never logged out
+            connection.exceptionally(loginError -> null).join();
+            throw e;
+        }
+
+        FutureUtil.join(connection);
+
+        Map<String, Map<String, List<RealmImport>>> realmImports = keycloakImport.getRealmImports();
+
+        for (Map<String, List<RealmImport>> realmImportLocations : realmImports.values()) {
+            for (Map.Entry<String, List<RealmImport>> realmImport : realmImportLocations.entrySet()) {
+                logger.info("Importing file '{}'", realmImport.getKey());
+                for (RealmImport realmImportParts : realmImport.getValue()) {
+                    tracingService.inSpan("realm", Attributes.of(REALM, realmImportParts.getRealm()),
+                            () -> realmImportService.doImport(realmImportParts));
+                }
+            }
+        }
+    }
 }
@@ -20,7 +20,10 @@
 
 package de.adorsys.keycloak.config.configuration;
 
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.io.ResourceLoader;
@@ -39,4 +42,10 @@ public class KeycloakConfigConfiguration {
     public PathMatchingResourcePatternResolver patternResolver() {
         return new PathMatchingResourcePatternResolver(this.resourceLoader);
     }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public PrometheusMeterRegistry meterRegistry() {
+        return new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+    }
 }
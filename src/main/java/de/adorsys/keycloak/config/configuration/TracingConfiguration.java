@@ -0,0 +1,80 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2021 adorsys GmbH & Co. KG @ https://adorsys.com
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.configuration;
+
+import de.adorsys.keycloak.config.properties.ImportConfigProperties;
+import de.adorsys.keycloak.config.properties.ImportConfigProperties.ImportTracingProperties;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.propagation.ContextPropagators;
+import io.opentelemetry.exporter.logging.LoggingSpanExporter;
+import io.opentelemetry.exporter.otlp.http.trace.OtlpHttpSpanExporter;
+import io.opentelemetry.exporter.otlp.trace.OtlpGrpcSpanExporter;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.resources.Resource;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.export.BatchSpanProcessor;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Creates the OpenTelemetry SDK if tracing is enabled. Without this configuration, no {@link OpenTelemetry} bean exists
+ * and the import runs without any tracing instrumentation.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "import.tracing", name = "enabled", havingValue = "true")
+public class TracingConfiguration {
+    private static final AttributeKey<String> SERVICE_NAME = AttributeKey.stringKey("service.name");
+
+    @Bean(destroyMethod = "close")
+    public SdkTracerProvider sdkTracerProvider(ImportConfigProperties importConfigProperties) {
+        Resource resource = Resource.getDefault().merge(Resource.create(Attributes.of(SERVICE_NAME, "keycloak-config-cli")));
+
+        return SdkTracerProvider.builder()
+                .setResource(resource)
+                .addSpanProcessor(BatchSpanProcessor.builder(createExporter(importConfigProperties.getTracing())).build())
+                .build();
+    }
+
+    @Bean
+    public OpenTelemetry openTelemetry(SdkTracerProvider sdkTracerProvider) {
+        return OpenTelemetrySdk.builder()
+                .setTracerProvider(sdkTracerProvider)
+                .setPropagators(ContextPropagators.create(W3CTraceContextPropagator.getInstance()))
+                .build();
+    }
+
+    private static SpanExporter createExporter(ImportTracingProperties properties) {
+        switch (properties.getExporter()) {
+            case LOGGING:
+                return LoggingSpanExporter.create();
+            case OTLP_HTTP:
+                return OtlpHttpSpanExporter.builder().setEndpoint(properties.getEndpoint()).build();
+            case OTLP:
+            default:
+                return OtlpGrpcSpanExporter.builder().setEndpoint(properties.getEndpoint()).build();
+        }
+    }
+}
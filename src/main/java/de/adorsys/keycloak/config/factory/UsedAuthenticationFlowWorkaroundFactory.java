@@ -62,6 +62,10 @@ public class UsedAuthenticationFlowWorkaroundFactory {
      * which is currently in use.
      * So we have to disable our top-level-flow by use a temporary created flow as long as updating the considered flow.
      * This code could be maybe replace by a better update-algorithm of top-level-flows
+     * <p>
+     * One instance is meant to be used for a whole realm import: the flow bindings of the realm and its identity-providers
+     * are fetched once on first use and kept up-to-date locally. All realm flow bindings are changed by one realm update,
+     * which only contains the flow bindings, so other realm settings changed in the meantime are not reverted.
      */
     public class UsedAuthenticationFlowWorkaround {
         private static final String TEMPORARY_CREATED_AUTH_FLOW = "TEMPORARY_CREATED_AUTH_FLOW";
@@ -76,361 +80,282 @@ public class UsedAuthenticationFlowWorkaroundFactory {
         private String registrationFlow;
         private String resetCredentialsFlow;
 
+        private RealmRepresentation realmFlowBindings;
+        private Map<String, IdentityProviderRepresentation> existingIdentityProviders;
+        private Boolean temporaryCreatedFlowExists;
+
         private UsedAuthenticationFlowWorkaround(RealmImport realmImport) {
             this.realmImport = realmImport;
         }
 
         public void disableTopLevelFlowIfNeeded(String topLevelFlowAlias) {
-            RealmRepresentation existingRealm = realmRepository.get(realmImport.getRealm());
-
-            disableBrowserFlowIfNeeded(topLevelFlowAlias, existingRealm);
-            disableDirectGrantFlowIfNeeded(topLevelFlowAlias, existingRealm);
-            disableClientAuthenticationFlowIfNeeded(topLevelFlowAlias, existingRealm);
-            disableDockerAuthenticationFlowIfNeeded(topLevelFlowAlias, existingRealm);
-            disableRegistrationFlowIfNeeded(topLevelFlowAlias, existingRealm);
-            disableResetCredentialsFlowIfNeeded(topLevelFlowAlias, existingRealm);
-            disableFirstBrokerLoginFlowsIfNeeded(topLevelFlowAlias, existingRealm);
-            disablePostBrokerLoginFlowsIfNeeded(topLevelFlowAlias, existingRealm);
+            RealmRepresentation realm = getRealmFlowBindings();
+
+            disableBrowserFlowIfNeeded(topLevelFlowAlias, realm);
+            disableDirectGrantFlowIfNeeded(topLevelFlowAlias, realm);
+            disableClientAuthenticationFlowIfNeeded(topLevelFlowAlias, realm);
+            disableDockerAuthenticationFlowIfNeeded(topLevelFlowAlias, realm);
+            disableRegistrationFlowIfNeeded(topLevelFlowAlias, realm);
+            disableResetCredentialsFlowIfNeeded(topLevelFlowAlias, realm);
+
+            if (hasRealmFlowsToReset()) {
+                createTemporaryCreatedFlowIfNeeded();
+                realmRepository.update(realm);
+            }
+
+            for (IdentityProviderRepresentation identityProvider : getExistingIdentityProviders().values()) {
+                boolean disabledFirstBrokerLoginFlow = disableFirstBrokerLoginFlowIfNeeded(topLevelFlowAlias, identityProvider);
+                boolean disabledPostBrokerLoginFlow = disablePostBrokerLoginFlowIfNeeded(topLevelFlowAlias, identityProvider);
+
+                if (disabledFirstBrokerLoginFlow || disabledPostBrokerLoginFlow) {
+                    createTemporaryCreatedFlowIfNeeded();
+                    identityProviderRepository.update(realm.getRealm(), identityProvider);
+                }
+            }
         }
 
-        private void disableBrowserFlowIfNeeded(String topLevelFlowAlias, RealmRepresentation existingRealm) {
-            if (Objects.equals(existingRealm.getBrowserFlow(), topLevelFlowAlias)) {
+        private void disableBrowserFlowIfNeeded(String topLevelFlowAlias, RealmRepresentation realm) {
+            if (Objects.equals(realm.getBrowserFlow(), topLevelFlowAlias)) {
                 logger.debug(
                         "Temporary disable browser-flow in realm '{}' which is '{}'",
                         realmImport.getRealm(), topLevelFlowAlias
                 );
-                disableBrowserFlow(existingRealm);
+
+                browserFlow = realm.getBrowserFlow();
+                realm.setBrowserFlow(TEMPORARY_CREATED_AUTH_FLOW);
             }
         }
 
-        private void disableDirectGrantFlowIfNeeded(String topLevelFlowAlias, RealmRepresentation existingRealm) {
-            if (Objects.equals(existingRealm.getDirectGrantFlow(), topLevelFlowAlias)) {
+        private void disableDirectGrantFlowIfNeeded(String topLevelFlowAlias, RealmRepresentation realm) {
+            if (Objects.equals(realm.getDirectGrantFlow(), topLevelFlowAlias)) {
                 logger.debug(
                         "Temporary disable direct-grant-flow in realm '{}' which is '{}'",
                         realmImport.getRealm(), topLevelFlowAlias
                 );
-                disableDirectGrantFlow(existingRealm);
+
+                directGrantFlow = realm.getDirectGrantFlow();
+                realm.setDirectGrantFlow(TEMPORARY_CREATED_AUTH_FLOW);
             }
         }
 
-        private void disableClientAuthenticationFlowIfNeeded(String topLevelFlowAlias, RealmRepresentation existingRealm) {
-            if (Objects.equals(existingRealm.getClientAuthenticationFlow(), topLevelFlowAlias)) {
+        private void disableClientAuthenticationFlowIfNeeded(String topLevelFlowAlias, RealmRepresentation realm) {
+            if (Objects.equals(realm.getClientAuthenticationFlow(), topLevelFlowAlias)) {
                 logger.debug(
                         "Temporary disable client-authentication-flow in realm '{}' which is '{}'",
                         realmImport.getRealm(), topLevelFlowAlias
                 );
-                disableClientAuthenticationFlow(existingRealm);
+
+                clientAuthenticationFlow = realm.getClientAuthenticationFlow();
+                realm.setClientAuthenticationFlow(TEMPORARY_CREATED_AUTH_FLOW);
             }
         }
 
-        private void disableDockerAuthenticationFlowIfNeeded(String topLevelFlowAlias, RealmRepresentation existingRealm) {
-            if (Objects.equals(existingRealm.getDockerAuthenticationFlow(), topLevelFlowAlias)) {
+        private void disableDockerAuthenticationFlowIfNeeded(String topLevelFlowAlias, RealmRepresentation realm) {
+            if (Objects.equals(realm.getDockerAuthenticationFlow(), topLevelFlowAlias)) {
                 logger.debug(
                         "Temporary disable docker-authentication-flow in realm '{}' which is '{}'",
                         realmImport.getRealm(), topLevelFlowAlias
                 );
-                disableDockerAuthenticationFlow(existingRealm);
+
+                dockerAuthenticationFlow = realm.getDockerAuthenticationFlow();
+                realm.setDockerAuthenticationFlow(TEMPORARY_CREATED_AUTH_FLOW);
             }
         }
 
-        private void disableRegistrationFlowIfNeeded(String topLevelFlowAlias, RealmRepresentation existingRealm) {
-            if (Objects.equals(existingRealm.getRegistrationFlow(), topLevelFlowAlias)) {
+        private void disableRegistrationFlowIfNeeded(String topLevelFlowAlias, RealmRepresentation realm) {
+            if (Objects.equals(realm.getRegistrationFlow(), topLevelFlowAlias)) {
                 logger.debug(
                         "Temporary disable registration-flow in realm '{}' which is '{}'",
                         realmImport.getRealm(), topLevelFlowAlias
                 );
-                disableRegistrationFlow(existingRealm);
+
+                registrationFlow = realm.getRegistrationFlow();
+                realm.setRegistrationFlow(TEMPORARY_CREATED_AUTH_FLOW);
             }
         }
 
-        private void disableResetCredentialsFlowIfNeeded(String topLevelFlowAlias, RealmRepresentation existingRealm) {
-            if (Objects.equals(existingRealm.getResetCredentialsFlow(), topLevelFlowAlias)) {
+        private void disableResetCredentialsFlowIfNeeded(String topLevelFlowAlias, RealmRepresentation realm) {
+            if (Objects.equals(realm.getResetCredentialsFlow(), topLevelFlowAlias)) {
                 logger.debug(
                         "Temporary disable reset-credentials-flow in realm '{}' which is '{}'",
                         realmImport.getRealm(), topLevelFlowAlias
                 );
-                disableResetCredentialsFlow(existingRealm);
-            }
-        }
 
-        private void disableFirstBrokerLoginFlowsIfNeeded(String topLevelFlowAlias, RealmRepresentation existingRealm) {
-            List<IdentityProviderRepresentation> identityProviders = existingRealm.getIdentityProviders();
-            if (identityProviders != null) {
-                for (IdentityProviderRepresentation identityProvider : identityProviders) {
-                    if (Objects.equals(identityProvider.getFirstBrokerLoginFlowAlias(), topLevelFlowAlias)) {
-                        logger.debug(
-                                "Temporary disable first-broker-login-flow for "
-                                        + "identity-provider '{}' in realm '{}' which is '{}'",
-                                identityProvider.getAlias(), realmImport.getRealm(), topLevelFlowAlias
-                        );
-
-                        disableFirstBrokerLoginFlow(existingRealm.getRealm(), identityProvider);
-                    }
-                }
+                resetCredentialsFlow = realm.getResetCredentialsFlow();
+                realm.setResetCredentialsFlow(TEMPORARY_CREATED_AUTH_FLOW);
             }
         }
 
-        private void disablePostBrokerLoginFlowsIfNeeded(String topLevelFlowAlias, RealmRepresentation existingRealm) {
-            List<IdentityProviderRepresentation> identityProviders = existingRealm.getIdentityProviders();
-            if (identityProviders != null) {
-                for (IdentityProviderRepresentation identityProvider : identityProviders) {
-                    if (Objects.equals(identityProvider.getPostBrokerLoginFlowAlias(), topLevelFlowAlias)) {
-                        logger.debug(
-                                "Temporary disable post-broker-login-flow for "
-                                        + "identity-provider '{}' in realm '{}' which is '{}'",
-                                identityProvider.getAlias(), realmImport.getRealm(), topLevelFlowAlias
-                        );
-
-                        disablePostBrokerLoginFlow(existingRealm.getRealm(), identityProvider);
-                    }
-                }
+        private boolean disableFirstBrokerLoginFlowIfNeeded(String topLevelFlowAlias, IdentityProviderRepresentation identityProvider) {
+            if (!Objects.equals(identityProvider.getFirstBrokerLoginFlowAlias(), topLevelFlowAlias)) {
+                return false;
             }
-        }
-
-        private void disableBrowserFlow(RealmRepresentation existingRealm) {
-            String otherFlowAlias = searchTemporaryCreatedTopLevelFlowForReplacement();
-
-            browserFlow = existingRealm.getBrowserFlow();
-
-            existingRealm.setBrowserFlow(otherFlowAlias);
-            realmRepository.update(existingRealm);
-        }
-
-        private void disableDirectGrantFlow(RealmRepresentation existingRealm) {
-            String otherFlowAlias = searchTemporaryCreatedTopLevelFlowForReplacement();
-
-            directGrantFlow = existingRealm.getDirectGrantFlow();
-
-            existingRealm.setDirectGrantFlow(otherFlowAlias);
-            realmRepository.update(existingRealm);
-        }
-
-        private void disableClientAuthenticationFlow(RealmRepresentation existingRealm) {
-            String otherFlowAlias = searchTemporaryCreatedTopLevelFlowForReplacement();
 
-            clientAuthenticationFlow = existingRealm.getClientAuthenticationFlow();
+            logger.debug(
+                    "Temporary disable first-broker-login-flow for identity-provider '{}' in realm '{}' which is '{}'",
+                    identityProvider.getAlias(), realmImport.getRealm(), topLevelFlowAlias
+            );
 
-            existingRealm.setClientAuthenticationFlow(otherFlowAlias);
-            realmRepository.update(existingRealm);
+            resetFirstBrokerLoginFlow.put(identityProvider.getAlias(), identityProvider.getFirstBrokerLoginFlowAlias());
+            identityProvider.setFirstBrokerLoginFlowAlias(TEMPORARY_CREATED_AUTH_FLOW);
+            return true;
         }
 
-        private void disableDockerAuthenticationFlow(RealmRepresentation existingRealm) {
-            String otherFlowAlias = searchTemporaryCreatedTopLevelFlowForReplacement();
-
-            dockerAuthenticationFlow = existingRealm.getDockerAuthenticationFlow();
-
-            existingRealm.setDockerAuthenticationFlow(otherFlowAlias);
-            realmRepository.update(existingRealm);
-        }
-
-        private void disableRegistrationFlow(RealmRepresentation existingRealm) {
-            String otherFlowAlias = searchTemporaryCreatedTopLevelFlowForReplacement();
-
-            registrationFlow = existingRealm.getRegistrationFlow();
-
-            existingRealm.setRegistrationFlow(otherFlowAlias);
-            realmRepository.update(existingRealm);
-        }
-
-        private void disableResetCredentialsFlow(RealmRepresentation existingRealm) {
-            String otherFlowAlias = searchTemporaryCreatedTopLevelFlowForReplacement();
+        private boolean disablePostBrokerLoginFlowIfNeeded(String topLevelFlowAlias, IdentityProviderRepresentation identityProvider) {
+            if (!Objects.equals(identityProvider.getPostBrokerLoginFlowAlias(), topLevelFlowAlias)) {
+                return false;
+            }
 
-            resetCredentialsFlow = existingRealm.getResetCredentialsFlow();
+            logger.debug(
+                    "Temporary disable post-broker-login-flow for identity-provider '{}' in realm '{}' which is '{}'",
+                    identityProvider.getAlias(), realmImport.getRealm(), topLevelFlowAlias
+            );
 
-            existingRealm.setResetCredentialsFlow(otherFlowAlias);
-            realmRepository.update(existingRealm);
+            resetPostBrokerLoginFlow.put(identityProvider.getAlias(), identityProvider.getPostBrokerLoginFlowAlias());
+            identityProvider.setPostBrokerLoginFlowAlias(TEMPORARY_CREATED_AUTH_FLOW);
+            return true;
         }
 
-        private void disableFirstBrokerLoginFlow(String realmName, IdentityProviderRepresentation identityProvider) {
-            String otherFlowAlias = searchTemporaryCreatedTopLevelFlowForReplacement();
-
-            resetFirstBrokerLoginFlow.put(identityProvider.getAlias(), identityProvider
-                    .getFirstBrokerLoginFlowAlias());
-
-            identityProvider.setFirstBrokerLoginFlowAlias(otherFlowAlias);
-            identityProviderRepository.update(realmName, identityProvider);
-        }
+        private void createTemporaryCreatedFlowIfNeeded() {
+            if (temporaryCreatedFlowExists == null) {
+                temporaryCreatedFlowExists = authenticationFlowRepository.getTopLevelFlows(realmImport.getRealm())
+                        .stream()
+                        .anyMatch(f -> Objects.equals(f.getAlias(), TEMPORARY_CREATED_AUTH_FLOW));
+            }
 
-        private void disablePostBrokerLoginFlow(String realmName, IdentityProviderRepresentation identityProvider) {
-            String otherFlowAlias = searchTemporaryCreatedTopLevelFlowForReplacement();
+            if (Boolean.TRUE.equals(temporaryCreatedFlowExists)) return;
 
-            resetPostBrokerLoginFlow.put(identityProvider.getAlias(), identityProvider
-                    .getPostBrokerLoginFlowAlias());
+            logger.debug(
+                    "Create top-level-flow '{}' in realm '{}' to be used temporarily",
+                    TEMPORARY_CREATED_AUTH_FLOW, realmImport.getRealm()
+            );
 
-            identityProvider.setPostBrokerLoginFlowAlias(otherFlowAlias);
-            identityProviderRepository.update(realmName, identityProvider);
+            authenticationFlowRepository.createTopLevel(realmImport.getRealm(), setupTemporaryCreatedFlow());
+            temporaryCreatedFlowExists = true;
         }
 
-        private String searchTemporaryCreatedTopLevelFlowForReplacement() {
-            AuthenticationFlowRepresentation otherFlow;
-
-            Optional<AuthenticationFlowRepresentation> maybeTemporaryCreatedFlow = searchForTemporaryCreatedFlow();
-
-            if (maybeTemporaryCreatedFlow.isPresent()) {
-                otherFlow = maybeTemporaryCreatedFlow.get();
-            } else {
-                logger.debug(
-                        "Create top-level-flow '{}' in realm '{}' to be used temporarily",
-                        realmImport.getRealm(), TEMPORARY_CREATED_AUTH_FLOW
-                );
+        public void resetFlowIfNeeded() {
+            if (!hasToResetFlows()) return;
 
-                AuthenticationFlowRepresentation temporaryCreatedFlow = setupTemporaryCreatedFlow();
-                authenticationFlowRepository.createTopLevel(realmImport.getRealm(), temporaryCreatedFlow);
+            RealmRepresentation realm = getRealmFlowBindings();
 
-                otherFlow = temporaryCreatedFlow;
+            if (hasRealmFlowsToReset()) {
+                resetFlows(realm);
+                realmRepository.update(realm);
             }
 
-            return otherFlow.getAlias();
-        }
-
-        private Optional<AuthenticationFlowRepresentation> searchForTemporaryCreatedFlow() {
-            List<AuthenticationFlowRepresentation> existingTopLevelFlows = authenticationFlowRepository
-                    .getTopLevelFlows(realmImport.getRealm());
-
-            return existingTopLevelFlows.stream()
-                    .filter(f -> Objects.equals(f.getAlias(), TEMPORARY_CREATED_AUTH_FLOW))
-                    .findFirst();
-        }
-
-        public void resetFlowIfNeeded() {
-            if (hasToResetFlows()) {
-                RealmRepresentation existingRealm = realmRepository.get(realmImport.getRealm());
-
-                resetFlows(existingRealm);
-                realmRepository.update(existingRealm);
+            resetBrokerLoginFlowsIfNeeded(realm.getRealm());
 
-                if (!flowInUse()) {
-                    deleteTemporaryCreatedFlow();
-                }
+            if (!flowInUse()) {
+                deleteTemporaryCreatedFlow();
             }
         }
 
         private boolean flowInUse() {
-            RealmRepresentation existingRealm = realmRepository.get(realmImport.getRealm());
-            return existingRealm.getBrowserFlow().equals(TEMPORARY_CREATED_AUTH_FLOW)
-                    || existingRealm.getDirectGrantFlow().equals(TEMPORARY_CREATED_AUTH_FLOW)
-                    || existingRealm.getClientAuthenticationFlow().equals(TEMPORARY_CREATED_AUTH_FLOW)
-                    || existingRealm.getDockerAuthenticationFlow().equals(TEMPORARY_CREATED_AUTH_FLOW)
-                    || existingRealm.getRegistrationFlow().equals(TEMPORARY_CREATED_AUTH_FLOW)
-                    || existingRealm.getResetCredentialsFlow().equals(TEMPORARY_CREATED_AUTH_FLOW);
+            RealmRepresentation realm = getRealmFlowBindings();
+
+            return Objects.equals(realm.getBrowserFlow(), TEMPORARY_CREATED_AUTH_FLOW)
+                    || Objects.equals(realm.getDirectGrantFlow(), TEMPORARY_CREATED_AUTH_FLOW)
+                    || Objects.equals(realm.getClientAuthenticationFlow(), TEMPORARY_CREATED_AUTH_FLOW)
+                    || Objects.equals(realm.getDockerAuthenticationFlow(), TEMPORARY_CREATED_AUTH_FLOW)
+                    || Objects.equals(realm.getRegistrationFlow(), TEMPORARY_CREATED_AUTH_FLOW)
+                    || Objects.equals(realm.getResetCredentialsFlow(), TEMPORARY_CREATED_AUTH_FLOW)
+                    || getExistingIdentityProviders().values().stream().anyMatch(identityProvider ->
+                    Objects.equals(identityProvider.getFirstBrokerLoginFlowAlias(), TEMPORARY_CREATED_AUTH_FLOW)
+                            || Objects.equals(identityProvider.getPostBrokerLoginFlowAlias(), TEMPORARY_CREATED_AUTH_FLOW));
         }
 
         private boolean hasToResetFlows() {
+            return hasRealmFlowsToReset()
+                    || !resetFirstBrokerLoginFlow.isEmpty()
+                    || !resetPostBrokerLoginFlow.isEmpty();
+        }
+
+        private boolean hasRealmFlowsToReset() {
             return Strings.isNotBlank(browserFlow)
                     || Strings.isNotBlank(directGrantFlow)
                     || Strings.isNotBlank(clientAuthenticationFlow)
                     || Strings.isNotBlank(dockerAuthenticationFlow)
                     || Strings.isNotBlank(registrationFlow)
-                    || Strings.isNotBlank(resetCredentialsFlow)
-                    || !resetFirstBrokerLoginFlow.isEmpty()
-                    || !resetPostBrokerLoginFlow.isEmpty();
-        }
-
-        private void resetFlows(RealmRepresentation existingRealm) {
-            resetBrowserFlowIfNeeded(existingRealm);
-            resetDirectGrantFlowIfNeeded(existingRealm);
-            resetClientAuthenticationFlowIfNeeded(existingRealm);
-            resetDockerAuthenticationFlowIfNeeded(existingRealm);
-            resetRegistrationFlowIfNeeded(existingRealm);
-            resetCredentialsFlowIfNeeded(existingRealm);
-            resetFirstBrokerLoginFlowsIfNeeded(existingRealm);
-            resetPostBrokerLoginFlowsIfNeeded(existingRealm);
+                    || Strings.isNotBlank(resetCredentialsFlow);
         }
 
-        private void resetBrowserFlowIfNeeded(RealmRepresentation existingRealm) {
+        private void resetFlows(RealmRepresentation realm) {
             if (Strings.isNotBlank(browserFlow)) {
-                logger.debug(
-                        "Reset browser-flow in realm '{}' to '{}'",
-                        realmImport.getRealm(), browserFlow
-                );
+                logger.debug("Reset browser-flow in realm '{}' to '{}'", realmImport.getRealm(), browserFlow);
 
-                existingRealm.setBrowserFlow(browserFlow);
+                realm.setBrowserFlow(browserFlow);
+                browserFlow = null;
             }
-        }
 
-        private void resetDirectGrantFlowIfNeeded(RealmRepresentation existingRealm) {
             if (Strings.isNotBlank(directGrantFlow)) {
-                logger.debug(
-                        "Reset direct-grant-flow in realm '{}' to '{}'",
-                        realmImport.getRealm(), directGrantFlow
-                );
+                logger.debug("Reset direct-grant-flow in realm '{}' to '{}'", realmImport.getRealm(), directGrantFlow);
 
-                existingRealm.setDirectGrantFlow(directGrantFlow);
+                realm.setDirectGrantFlow(directGrantFlow);
+                directGrantFlow = null;
             }
-        }
 
-        private void resetClientAuthenticationFlowIfNeeded(RealmRepresentation existingRealm) {
             if (Strings.isNotBlank(clientAuthenticationFlow)) {
-                logger.debug(
-                        "Reset client-authentication-flow in realm '{}' to '{}'",
-                        realmImport.getRealm(), clientAuthenticationFlow
-                );
+                logger.debug("Reset client-authentication-flow in realm '{}' to '{}'", realmImport.getRealm(), clientAuthenticationFlow);
 
-                existingRealm.setClientAuthenticationFlow(clientAuthenticationFlow);
+                realm.setClientAuthenticationFlow(clientAuthenticationFlow);
+                clientAuthenticationFlow = null;
             }
-        }
 
-        private void resetDockerAuthenticationFlowIfNeeded(RealmRepresentation existingRealm) {
             if (Strings.isNotBlank(dockerAuthenticationFlow)) {
-                logger.debug(
-                        "Reset docker-authentication-flow in realm '{}' to '{}'",
-                        realmImport.getRealm(), dockerAuthenticationFlow
-                );
+                logger.debug("Reset docker-authentication-flow in realm '{}' to '{}'", realmImport.getRealm(), dockerAuthenticationFlow);
 
-                existingRealm.setDockerAuthenticationFlow(dockerAuthenticationFlow);
+                realm.setDockerAuthenticationFlow(dockerAuthenticationFlow);
+                dockerAuthenticationFlow = null;
             }
-        }
 
-        private void resetRegistrationFlowIfNeeded(RealmRepresentation existingRealm) {
             if (Strings.isNotBlank(registrationFlow)) {
-                logger.debug(
-                        "Reset registration-flow in realm '{}' to '{}'",
-                        realmImport.getRealm(), registrationFlow
-                );
+                logger.debug("Reset registration-flow in realm '{}' to '{}'", realmImport.getRealm(), registrationFlow);
 
-                existingRealm.setRegistrationFlow(registrationFlow);
+                realm.setRegistrationFlow(registrationFlow);
+                registrationFlow = null;
             }
-        }
 
-        private void resetCredentialsFlowIfNeeded(RealmRepresentation existingRealm) {
             if (Strings.isNotBlank(resetCredentialsFlow)) {
-                logger.debug(
-                        "Reset reset-credentials-flow in realm '{}' to '{}'",
-                        realmImport.getRealm(), resetCredentialsFlow
-                );
+                logger.debug("Reset reset-credentials-flow in realm '{}' to '{}'", realmImport.getRealm(), resetCredentialsFlow);
 
-                existingRealm.setResetCredentialsFlow(resetCredentialsFlow);
+                realm.setResetCredentialsFlow(resetCredentialsFlow);
+                resetCredentialsFlow = null;
             }
         }
 
-        private void resetFirstBrokerLoginFlowsIfNeeded(RealmRepresentation existingRealm) {
-            for (Map.Entry<String, String> entry : resetFirstBrokerLoginFlow.entrySet()) {
-                logger.debug(
-                        "Reset first-broker-login-flow for identity-provider '{}' in realm '{}' to '{}'",
-                        entry.getKey(), realmImport.getRealm(), resetCredentialsFlow
-                );
+        private void resetBrokerLoginFlowsIfNeeded(String realmName) {
+            Set<String> identityProviderAliases = new TreeSet<>(resetFirstBrokerLoginFlow.keySet());
+            identityProviderAliases.addAll(resetPostBrokerLoginFlow.keySet());
 
-                IdentityProviderRepresentation identityProviderRepresentation = identityProviderRepository
-                        .getByAlias(existingRealm.getRealm(), entry.getKey());
+            for (String identityProviderAlias : identityProviderAliases) {
+                IdentityProviderRepresentation identityProvider = getExistingIdentityProviders().get(identityProviderAlias);
 
-                identityProviderRepresentation.setFirstBrokerLoginFlowAlias(entry.getValue());
-                identityProviderRepository.update(existingRealm.getRealm(), identityProviderRepresentation);
-            }
-        }
+                if (resetFirstBrokerLoginFlow.containsKey(identityProviderAlias)) {
+                    String firstBrokerLoginFlow = resetFirstBrokerLoginFlow.get(identityProviderAlias);
+                    logger.debug(
+                            "Reset first-broker-login-flow for identity-provider '{}' in realm '{}' to '{}'",
+                            identityProviderAlias, realmName, firstBrokerLoginFlow
+                    );
 
-        private void resetPostBrokerLoginFlowsIfNeeded(RealmRepresentation existingRealm) {
-            for (Map.Entry<String, String> entry : resetPostBrokerLoginFlow.entrySet()) {
-                logger.debug(
-                        "Reset post-broker-login-flow for identity-provider '{}' in realm '{}' to '{}'",
-                        entry.getKey(), realmImport.getRealm(), resetCredentialsFlow
-                );
+                    identityProvider.setFirstBrokerLoginFlowAlias(firstBrokerLoginFlow);
+                }
 
-                IdentityProviderRepresentation identityProviderRepresentation = identityProviderRepository
-                        .getByAlias(existingRealm.getRealm(), entry.getKey());
+                if (resetPostBrokerLoginFlow.containsKey(identityProviderAlias)) {
+                    String postBrokerLoginFlow = resetPostBrokerLoginFlow.get(identityProviderAlias);
+                    logger.debug(
+                            "Reset post-broker-login-flow for identity-provider '{}' in realm '{}' to '{}'",
+                            identityProviderAlias, realmName, postBrokerLoginFlow
+                    );
 
-                identityProviderRepresentation.setPostBrokerLoginFlowAlias(entry.getValue());
-                identityProviderRepository.update(existingRealm.getRealm(), identityProviderRepresentation);
+                    identityProvider.setPostBrokerLoginFlowAlias(postBrokerLoginFlow);
+                }
+
+                identityProviderRepository.update(realmName, identityProvider);
             }
+
+            resetFirstBrokerLoginFlow.clear();
+            resetPostBrokerLoginFlow.clear();
         }
 
         private void deleteTemporaryCreatedFlow() {
@@ -441,6 +366,37 @@ public class UsedAuthenticationFlowWorkaroundFactory {
                     .getByAlias(realmImport.getRealm(), TEMPORARY_CREATED_AUTH_FLOW);
 
             authenticationFlowRepository.delete(realmImport.getRealm(), existingTemporaryCreatedFlow.getId());
+            temporaryCreatedFlowExists = false;
+        }
+
+        private RealmRepresentation getRealmFlowBindings() {
+            if (realmFlowBindings == null) {
+                RealmRepresentation existingRealm = realmRepository.get(realmImport.getRealm());
+
+                realmFlowBindings = new RealmRepresentation();
+                realmFlowBindings.setId(existingRealm.getId());
+                realmFlowBindings.setRealm(existingRealm.getRealm());
+                realmFlowBindings.setBrowserFlow(existingRealm.getBrowserFlow());
+                realmFlowBindings.setDirectGrantFlow(existingRealm.getDirectGrantFlow());
+                realmFlowBindings.setClientAuthenticationFlow(existingRealm.getClientAuthenticationFlow());
+                realmFlowBindings.setDockerAuthenticationFlow(existingRealm.getDockerAuthenticationFlow());
+                realmFlowBindings.setRegistrationFlow(existingRealm.getRegistrationFlow());
+                realmFlowBindings.setResetCredentialsFlow(existingRealm.getResetCredentialsFlow());
+            }
+
+            return realmFlowBindings;
+        }
+
+        private Map<String, IdentityProviderRepresentation> getExistingIdentityProviders() {
+            if (existingIdentityProviders == null) {
+                existingIdentityProviders = new LinkedHashMap<>();
+
+                for (IdentityProviderRepresentation identityProvider : identityProviderRepository.getAll(realmImport.getRealm())) {
+                    existingIdentityProviders.put(identityProvider.getAlias(), identityProvider);
+                }
+            }
+
+            return existingIdentityProviders;
         }
 
         private AuthenticationFlowRepresentation setupTemporaryCreatedFlow() {
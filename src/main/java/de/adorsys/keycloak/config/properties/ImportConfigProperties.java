@@ -24,6 +24,7 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.context.properties.ConstructorBinding;
 import org.springframework.validation.annotation.Validated;
 
+import java.time.Duration;
 import java.util.Collection;
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
@@ -62,10 +63,23 @@ public class ImportConfigProperties {
     @Valid
     private final ImportRemoteStateProperties remoteState;
 
+    @Valid
+    private final ImportReportProperties report;
+
+    @Valid
+    private final ImportMetricsProperties metrics;
+
+    @Valid
+    private final ImportTracingProperties tracing;
+
+    @Valid
+    private final ImportSlowLogProperties slowLog;
+
     public ImportConfigProperties(boolean validate, boolean parallel,
                                   ImportFilesProperties files, ImportVarSubstitutionProperties varSubstitution,
                                   ImportBehaviorsProperties behaviors, ImportCacheProperties cache, ImportManagedProperties managed,
-                                  ImportRemoteStateProperties remoteState
+                                  ImportRemoteStateProperties remoteState, ImportReportProperties report,
+                                  ImportMetricsProperties metrics, ImportTracingProperties tracing, ImportSlowLogProperties slowLog
     ) {
         this.validate = validate;
         this.parallel = parallel;
@@ -75,6 +89,10 @@ public class ImportConfigProperties {
         this.cache = cache;
         this.managed = managed;
         this.remoteState = remoteState;
+        this.report = report;
+        this.metrics = metrics;
+        this.tracing = tracing;
+        this.slowLog = slowLog;
     }
 
     public boolean isValidate() {
@@ -109,6 +127,22 @@ public class ImportConfigProperties {
         return remoteState;
     }
 
+    public ImportReportProperties getReport() {
+        return report;
+    }
+
+    public ImportMetricsProperties getMetrics() {
+        return metrics;
+    }
+
+    public ImportTracingProperties getTracing() {
+        return tracing;
+    }
+
+    public ImportSlowLogProperties getSlowLog() {
+        return slowLog;
+    }
+
     @SuppressWarnings("unused")
     public static class ImportManagedProperties {
         @NotNull
@@ -310,14 +344,28 @@ public class ImportConfigProperties {
         @NotNull
         private final boolean syncUserFederation;
 
+        @NotNull
+        private final SyncUserFederationAction syncUserFederationAction;
+
+        @NotNull
+        private final boolean syncUserFederationAsync;
+
         @NotNull
         private final boolean removeDefaultRoleFromUser;
 
         @NotNull
         private final boolean skipAttributesForFederatedUser;
 
-        public ImportBehaviorsProperties(boolean syncUserFederation, boolean removeDefaultRoleFromUser, boolean skipAttributesForFederatedUser) {
+        public ImportBehaviorsProperties(
+                boolean syncUserFederation,
+                SyncUserFederationAction syncUserFederationAction,
+                boolean syncUserFederationAsync,
+                boolean removeDefaultRoleFromUser,
+                boolean skipAttributesForFederatedUser
+        ) {
             this.syncUserFederation = syncUserFederation;
+            this.syncUserFederationAction = syncUserFederationAction;
+            this.syncUserFederationAsync = syncUserFederationAsync;
             this.removeDefaultRoleFromUser = removeDefaultRoleFromUser;
             this.skipAttributesForFederatedUser = skipAttributesForFederatedUser;
         }
@@ -326,6 +374,14 @@ public class ImportConfigProperties {
             return syncUserFederation;
         }
 
+        public SyncUserFederationAction getSyncUserFederationAction() {
+            return syncUserFederationAction;
+        }
+
+        public boolean isSyncUserFederationAsync() {
+            return syncUserFederationAsync;
+        }
+
         public boolean isRemoveDefaultRoleFromUser() {
             return removeDefaultRoleFromUser;
         }
@@ -333,6 +389,20 @@ public class ImportConfigProperties {
         public boolean isSkipAttributesForFederatedUser() {
             return skipAttributesForFederatedUser;
         }
+
+        public enum SyncUserFederationAction {
+            FULL("triggerFullSync"), CHANGED_USERS("triggerChangedUsersSync");
+
+            private final String action;
+
+            SyncUserFederationAction(String action) {
+                this.action = action;
+            }
+
+            public String getAction() {
+                return action;
+            }
+        }
     }
 
     @SuppressWarnings("unused")
@@ -385,4 +455,125 @@ public class ImportConfigProperties {
             return encryptionSalt;
         }
     }
+
+    @SuppressWarnings("unused")
+    public static class ImportReportProperties {
+        @NotNull
+        private final boolean enabled;
+
+        @NotNull
+        private final String file;
+
+        public ImportReportProperties(boolean enabled, String file) {
+            this.enabled = enabled;
+            this.file = file;
+        }
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public String getFile() {
+            return file;
+        }
+    }
+
+    @SuppressWarnings("unused")
+    public static class ImportMetricsProperties {
+        private final String file;
+
+        private final String pushUrl;
+
+        @NotNull
+        private final String job;
+
+        public ImportMetricsProperties(String file, String pushUrl, String job) {
+            this.file = file;
+            this.pushUrl = pushUrl;
+            this.job = job;
+        }
+
+        public String getFile() {
+            return file;
+        }
+
+        public String getPushUrl() {
+            return pushUrl;
+        }
+
+        public String getJob() {
+            return job;
+        }
+    }
+
+    @SuppressWarnings("unused")
+    public static class ImportTracingProperties {
+        private final boolean enabled;
+
+        @NotNull
+        private final TracingExporter exporter;
+
+        @NotNull
+        private final String endpoint;
+
+        public ImportTracingProperties(boolean enabled, TracingExporter exporter, String endpoint) {
+            this.enabled = enabled;
+            this.exporter = exporter;
+            this.endpoint = endpoint;
+        }
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public TracingExporter getExporter() {
+            return exporter;
+        }
+
+        public String getEndpoint() {
+            return endpoint;
+        }
+
+        public enum TracingExporter {
+            OTLP, OTLP_HTTP, LOGGING
+        }
+    }
+
+    @SuppressWarnings("unused")
+    public static class ImportSlowLogProperties {
+        @NotNull
+        private final boolean enabled;
+
+        @NotNull
+        private final Duration callThreshold;
+
+        @NotNull
+        private final int maxCallsPerEntity;
+
+        @NotNull
+        private final int top;
+
+        public ImportSlowLogProperties(boolean enabled, Duration callThreshold, int maxCallsPerEntity, int top) {
+            this.enabled = enabled;
+            this.callThreshold = callThreshold;
+            this.maxCallsPerEntity = maxCallsPerEntity;
+            this.top = top;
+        }
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public Duration getCallThreshold() {
+            return callThreshold;
+        }
+
+        public int getMaxCallsPerEntity() {
+            return maxCallsPerEntity;
+        }
+
+        public int getTop() {
+            return top;
+        }
+    }
 }
@@ -22,10 +22,12 @@ package de.adorsys.keycloak.config.properties;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.context.properties.ConstructorBinding;
+import org.springframework.util.unit.DataSize;
 import org.springframework.validation.annotation.Validated;
 
 import java.net.URL;
 import java.time.Duration;
+import java.util.Set;
 import javax.validation.Valid;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
@@ -69,6 +71,21 @@ public class KeycloakConfigProperties {
     @Valid
     private final KeycloakAvailabilityCheck availabilityCheck;
 
+    @Valid
+    private final KeycloakHttpClient httpClient;
+
+    @Valid
+    private final KeycloakConcurrencyLimit concurrencyLimit;
+
+    @Valid
+    private final KeycloakRetry retry;
+
+    @Valid
+    private final KeycloakTokenRefresh tokenRefresh;
+
+    @Valid
+    private final KeycloakTokenCache tokenCache;
+
     public KeycloakConfigProperties(
             String loginRealm,
             String clientId,
@@ -81,7 +98,12 @@ public class KeycloakConfigProperties {
             URL httpProxy,
             KeycloakAvailabilityCheck availabilityCheck,
             Duration connectTimeout,
-            Duration readTimeout
+            Duration readTimeout,
+            KeycloakHttpClient httpClient,
+            KeycloakConcurrencyLimit concurrencyLimit,
+            KeycloakRetry retry,
+            KeycloakTokenRefresh tokenRefresh,
+            KeycloakTokenCache tokenCache
     ) {
         this.loginRealm = loginRealm;
         this.clientId = clientId;
@@ -96,6 +118,11 @@ public class KeycloakConfigProperties {
         this.availabilityCheck = availabilityCheck;
         this.connectTimeout = connectTimeout;
         this.readTimeout = readTimeout;
+        this.httpClient = httpClient;
+        this.concurrencyLimit = concurrencyLimit;
+        this.retry = retry;
+        this.tokenRefresh = tokenRefresh;
+        this.tokenCache = tokenCache;
     }
 
     public String getLoginRealm() {
@@ -150,6 +177,26 @@ public class KeycloakConfigProperties {
         return readTimeout;
     }
 
+    public KeycloakHttpClient getHttpClient() {
+        return httpClient;
+    }
+
+    public KeycloakConcurrencyLimit getConcurrencyLimit() {
+        return concurrencyLimit;
+    }
+
+    public KeycloakRetry getRetry() {
+        return retry;
+    }
+
+    public KeycloakTokenRefresh getTokenRefresh() {
+        return tokenRefresh;
+    }
+
+    public KeycloakTokenCache getTokenCache() {
+        return tokenCache;
+    }
+
     public static class KeycloakAvailabilityCheck {
         @NotNull
         private final boolean enabled;
@@ -160,11 +207,15 @@ public class KeycloakConfigProperties {
         @NotNull
         private final Duration retryDelay;
 
+        @NotNull
+        private final AvailabilityProbe probe;
+
         @SuppressWarnings("unused")
-        public KeycloakAvailabilityCheck(boolean enabled, Duration timeout, Duration retryDelay) {
+        public KeycloakAvailabilityCheck(boolean enabled, Duration timeout, Duration retryDelay, AvailabilityProbe probe) {
             this.enabled = enabled;
             this.timeout = timeout;
             this.retryDelay = retryDelay;
+            this.probe = probe;
         }
 
         public boolean isEnabled() {
@@ -178,5 +229,267 @@ public class KeycloakConfigProperties {
         public Duration getRetryDelay() {
             return retryDelay;
         }
+
+        public AvailabilityProbe getProbe() {
+            return probe;
+        }
+
+        public enum AvailabilityProbe {
+            SERVER_INFO, WELL_KNOWN, HEALTH
+        }
+    }
+
+    public static class KeycloakHttpClient {
+        @NotNull
+        private final HttpEngine engine;
+
+        @NotNull
+        private final int connectionPoolSize;
+
+        @NotNull
+        private final int maxConnectionsPerRoute;
+
+        @NotNull
+        private final Duration keepAlive;
+
+        @NotNull
+        private final Duration idleTimeout;
+
+        @NotNull
+        private final boolean tcpNoDelay;
+
+        @NotNull
+        private final boolean responseCompression;
+
+        @NotNull
+        private final boolean requestCompression;
+
+        @NotNull
+        private final DataSize requestCompressionThreshold;
+
+        @NotNull
+        private final boolean strictAffinity;
+
+        @SuppressWarnings("unused")
+        public KeycloakHttpClient(HttpEngine engine, int connectionPoolSize, int maxConnectionsPerRoute,
+                                  Duration keepAlive, Duration idleTimeout, boolean tcpNoDelay,
+                                  boolean responseCompression, boolean requestCompression, DataSize requestCompressionThreshold,
+                                  boolean strictAffinity) {
+            this.engine = engine;
+            this.connectionPoolSize = connectionPoolSize;
+            this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+            this.keepAlive = keepAlive;
+            this.idleTimeout = idleTimeout;
+            this.tcpNoDelay = tcpNoDelay;
+            this.responseCompression = responseCompression;
+            this.requestCompression = requestCompression;
+            this.requestCompressionThreshold = requestCompressionThreshold;
+            this.strictAffinity = strictAffinity;
+        }
+
+        public HttpEngine getEngine() {
+            return engine;
+        }
+
+        public int getConnectionPoolSize() {
+            return connectionPoolSize;
+        }
+
+        public int getMaxConnectionsPerRoute() {
+            return maxConnectionsPerRoute;
+        }
+
+        public Duration getKeepAlive() {
+            return keepAlive;
+        }
+
+        public Duration getIdleTimeout() {
+            return idleTimeout;
+        }
+
+        public boolean isTcpNoDelay() {
+            return tcpNoDelay;
+        }
+
+        public boolean isResponseCompression() {
+            return responseCompression;
+        }
+
+        public boolean isRequestCompression() {
+            return requestCompression;
+        }
+
+        public DataSize getRequestCompressionThreshold() {
+            return requestCompressionThreshold;
+        }
+
+        public boolean isStrictAffinity() {
+            return strictAffinity;
+        }
+
+        public enum HttpEngine {
+            APACHE, JDK
+        }
+    }
+
+    public static class KeycloakConcurrencyLimit {
+        @NotNull
+        private final boolean enabled;
+
+        @NotNull
+        private final int initialLimit;
+
+        @NotNull
+        private final int minLimit;
+
+        @NotNull
+        private final int maxLimit;
+
+        @NotNull
+        private final double backoffRatio;
+
+        @NotNull
+        private final double latencyTolerance;
+
+        @SuppressWarnings("unused")
+        public KeycloakConcurrencyLimit(boolean enabled, int initialLimit, int minLimit, int maxLimit,
+                                        double backoffRatio, double latencyTolerance) {
+            this.enabled = enabled;
+            this.initialLimit = initialLimit;
+            this.minLimit = minLimit;
+            this.maxLimit = maxLimit;
+            this.backoffRatio = backoffRatio;
+            this.latencyTolerance = latencyTolerance;
+        }
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public int getInitialLimit() {
+            return initialLimit;
+        }
+
+        public int getMinLimit() {
+            return minLimit;
+        }
+
+        public int getMaxLimit() {
+            return maxLimit;
+        }
+
+        public double getBackoffRatio() {
+            return backoffRatio;
+        }
+
+        public double getLatencyTolerance() {
+            return latencyTolerance;
+        }
+    }
+
+    public static class KeycloakRetry {
+        @NotNull
+        private final boolean enabled;
+
+        @NotNull
+        private final int maxAttempts;
+
+        @NotNull
+        private final Duration delay;
+
+        @NotNull
+        private final Duration maxDelay;
+
+        @NotNull
+        private final double jitter;
+
+        @NotNull
+        private final Set<Integer> statuses;
+
+        @SuppressWarnings("unused")
+        public KeycloakRetry(boolean enabled, int maxAttempts, Duration delay, Duration maxDelay, double jitter, Set<Integer> statuses) {
+            this.enabled = enabled;
+            this.maxAttempts = maxAttempts;
+            this.delay = delay;
+            this.maxDelay = maxDelay;
+            this.jitter = jitter;
+            this.statuses = statuses;
+        }
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public int getMaxAttempts() {
+            return maxAttempts;
+        }
+
+        public Duration getDelay() {
+            return delay;
+        }
+
+        public Duration getMaxDelay() {
+            return maxDelay;
+        }
+
+        public double getJitter() {
+            return jitter;
+        }
+
+        public Set<Integer> getStatuses() {
+            return statuses;
+        }
+    }
+
+    public static class KeycloakTokenRefresh {
+        @NotNull
+        private final boolean enabled;
+
+        @NotNull
+        private final Duration beforeExpiry;
+
+        @SuppressWarnings("unused")
+        public KeycloakTokenRefresh(boolean enabled, Duration beforeExpiry) {
+            this.enabled = enabled;
+            this.beforeExpiry = beforeExpiry;
+        }
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public Duration getBeforeExpiry() {
+            return beforeExpiry;
+        }
+    }
+
+    public static class KeycloakTokenCache {
+        @NotNull
+        private final boolean enabled;
+
+        @NotNull
+        private final String directory;
+
+        @NotNull
+        private final Duration ttl;
+
+        @SuppressWarnings("unused")
+        public KeycloakTokenCache(boolean enabled, String directory, Duration ttl) {
+            this.enabled = enabled;
+            this.directory = directory;
+            this.ttl = ttl;
+        }
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public String getDirectory() {
+            return directory;
+        }
+
+        public Duration getTtl() {
+            return ttl;
+        }
     }
 }
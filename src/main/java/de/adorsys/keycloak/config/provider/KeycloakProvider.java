@@ -21,25 +21,50 @@
 package de.adorsys.keycloak.config.provider;
 
 import de.adorsys.keycloak.config.exception.KeycloakProviderException;
+import de.adorsys.keycloak.config.properties.ImportConfigProperties;
 import de.adorsys.keycloak.config.properties.KeycloakConfigProperties;
+import de.adorsys.keycloak.config.properties.KeycloakConfigProperties.KeycloakAvailabilityCheck.AvailabilityProbe;
+import de.adorsys.keycloak.config.properties.KeycloakConfigProperties.KeycloakConcurrencyLimit;
+import de.adorsys.keycloak.config.properties.KeycloakConfigProperties.KeycloakRetry;
+import de.adorsys.keycloak.config.properties.KeycloakConfigProperties.KeycloakTokenCache;
+import de.adorsys.keycloak.config.resource.AsyncAdminApi;
+import de.adorsys.keycloak.config.service.metrics.ImportMetricsService;
+import de.adorsys.keycloak.config.service.metrics.SlowCallService;
 import de.adorsys.keycloak.config.util.ResteasyUtil;
+import de.adorsys.keycloak.config.util.resteasy.AimdConcurrencyLimiter;
+import de.adorsys.keycloak.config.util.resteasy.InvocationInterceptor;
+import de.adorsys.keycloak.config.util.resteasy.RetryInterceptor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.opentelemetry.api.OpenTelemetry;
 import net.jodah.failsafe.Failsafe;
 import net.jodah.failsafe.RetryPolicy;
 import org.jboss.resteasy.client.jaxrs.ResteasyClient;
 import org.jboss.resteasy.client.jaxrs.ResteasyWebTarget;
 import org.jboss.resteasy.client.jaxrs.internal.BasicAuthentication;
+import org.keycloak.admin.client.Config;
 import org.keycloak.admin.client.Keycloak;
 import org.keycloak.admin.client.KeycloakBuilder;
+import org.keycloak.admin.client.token.TokenManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
 
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.file.Path;
 import java.text.MessageFormat;
 import java.time.Duration;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.core.Form;
@@ -53,56 +78,237 @@ import javax.ws.rs.core.Response;
 public class KeycloakProvider implements AutoCloseable {
     private static final Logger logger = LoggerFactory.getLogger(KeycloakProvider.class);
 
+    private static final int DEFAULT_CONNECTION_POOL_SIZE = 10;
+
     private final KeycloakConfigProperties properties;
     private final ResteasyClient resteasyClient;
+    private final SharedTokenManager sharedTokenManager;
+    private final TokenCache tokenCache;
+    private final ForkJoinPool importPool;
+
+    private volatile Keycloak keycloak;
+
+    private volatile AsyncAdminApi asyncAdminApi;
 
-    private Keycloak keycloak;
+    private volatile String version;
 
-    private String version;
+    private volatile CompletableFuture<Void> versionCheck;
 
     @Autowired
-    private KeycloakProvider(KeycloakConfigProperties properties) {
+    private KeycloakProvider(
+            KeycloakConfigProperties properties,
+            ImportConfigProperties importConfigProperties,
+            MeterRegistry meterRegistry,
+            ImportMetricsService importMetricsService,
+            SlowCallService slowCallService,
+            ObjectProvider<OpenTelemetry> openTelemetry
+    ) {
         this.properties = properties;
+
+        int connectionPoolSize = getConnectionPoolSize(properties.getHttpClient().getConnectionPoolSize(), importConfigProperties.isParallel());
+        AimdConcurrencyLimiter concurrencyLimiter = getConcurrencyLimiter(properties.getConcurrencyLimit(), connectionPoolSize, meterRegistry);
+
         this.resteasyClient = ResteasyUtil.getClient(
                 !this.properties.isSslVerify(),
                 this.properties.getHttpProxy(),
                 this.properties.getConnectTimeout(),
-                this.properties.getReadTimeout()
+                this.properties.getReadTimeout(),
+                this.properties.getHttpClient(),
+                connectionPoolSize,
+                getInvocationInterceptor(properties.getRetry(), concurrencyLimiter, meterRegistry),
+                importMetricsService::withCurrentContext,
+                meterRegistry,
+                slowCallService,
+                openTelemetry.getIfAvailable()
         );
+
+        if (properties.getTokenRefresh().isEnabled()) {
+            this.sharedTokenManager = new SharedTokenManager(
+                    new Config(
+                            properties.getUrl().toString(),
+                            properties.getLoginRealm(),
+                            properties.getUser(),
+                            properties.getPassword(),
+                            properties.getClientId(),
+                            properties.getClientSecret(),
+                            properties.getGrantType(),
+                            null
+                    ),
+                    resteasyClient,
+                    properties.getTokenRefresh().getBeforeExpiry(),
+                    meterRegistry
+            );
+            this.resteasyClient.register(sharedTokenManager.getAuthFilter());
+        } else {
+            this.sharedTokenManager = null;
+        }
+
+        this.tokenCache = getTokenCache(properties, sharedTokenManager != null, meterRegistry);
+
+        // the common fork join pool would cap the calls in flight at its parallelism, so the limiter could not raise the limit beyond it
+        this.importPool = concurrencyLimiter != null && importConfigProperties.isParallel()
+                ? new ForkJoinPool(concurrencyLimiter.getMaxLimit())
+                : null;
+    }
+
+    // parallel imports run on the common fork join pool, including the calling thread. Each of them needs a connection.
+    static int getConnectionPoolSize(int configuredPoolSize, boolean parallel) {
+        if (configuredPoolSize > 0) return configuredPoolSize;
+        if (!parallel) return DEFAULT_CONNECTION_POOL_SIZE;
+
+        return Math.max(DEFAULT_CONNECTION_POOL_SIZE, ForkJoinPool.getCommonPoolParallelism() + 1);
+    }
+
+    // each retry waits for a free slot of the concurrency limit again, so the delay between the attempts does not block other calls
+    private static InvocationInterceptor getInvocationInterceptor(
+            KeycloakRetry retryProperties,
+            AimdConcurrencyLimiter concurrencyLimiter,
+            MeterRegistry meterRegistry
+    ) {
+        RetryInterceptor retry = getRetryInterceptor(retryProperties, meterRegistry);
+
+        if (retry == null) return concurrencyLimiter;
+        if (concurrencyLimiter == null) return retry;
+
+        return retry.andThen(concurrencyLimiter);
+    }
+
+    private static RetryInterceptor getRetryInterceptor(KeycloakRetry retry, MeterRegistry meterRegistry) {
+        if (!retry.isEnabled()) return null;
+
+        return new RetryInterceptor(
+                retry.getMaxAttempts(),
+                retry.getDelay(),
+                retry.getMaxDelay(),
+                retry.getJitter(),
+                retry.getStatuses(),
+                meterRegistry
+        );
+    }
+
+    // the session is continued with the refresh token by the shared token manager, the TokenManager of keycloak can not take it
+    static TokenCache getTokenCache(KeycloakConfigProperties properties, boolean tokenRefresh, MeterRegistry meterRegistry) {
+        KeycloakTokenCache tokenCache = properties.getTokenCache();
+        if (!tokenCache.isEnabled()) return null;
+
+        if (!tokenRefresh) {
+            logger.warn("keycloak.token-cache.enabled requires keycloak.token-refresh.enabled, the token cache is disabled");
+            return null;
+        }
+
+        // the file is encrypted with a key derived from the credentials, without them anybody could decrypt it
+        if (!StringUtils.hasLength(properties.getPassword()) && !StringUtils.hasLength(properties.getClientSecret())) {
+            logger.warn("keycloak.token-cache.enabled requires keycloak.password or keycloak.client-secret, the token cache is disabled");
+            return null;
+        }
+
+        String identity = String.join("\n", properties.getUrl().toString(), properties.getLoginRealm(), properties.getClientId(),
+                properties.getGrantType(), Objects.toString(properties.getUser(), ""));
+        String secret = String.join("\n", Objects.toString(properties.getPassword(), ""), Objects.toString(properties.getClientSecret(), ""));
+
+        return new TokenCache(Path.of(tokenCache.getDirectory()), tokenCache.getTtl(), identity, secret, meterRegistry);
+    }
+
+    // without a configured maximum, the limit may grow until each call has its own pooled connection
+    private static AimdConcurrencyLimiter getConcurrencyLimiter(
+            KeycloakConcurrencyLimit concurrencyLimit,
+            int connectionPoolSize,
+            MeterRegistry meterRegistry
+    ) {
+        if (!concurrencyLimit.isEnabled()) return null;
+
+        return new AimdConcurrencyLimiter(
+                concurrencyLimit.getInitialLimit(),
+                concurrencyLimit.getMinLimit(),
+                concurrencyLimit.getMaxLimit() > 0 ? concurrencyLimit.getMaxLimit() : connectionPoolSize,
+                concurrencyLimit.getBackoffRatio(),
+                concurrencyLimit.getLatencyTolerance(),
+                meterRegistry
+        );
+    }
+
+    /**
+     * Runs the action for each of the items in parallel. With a concurrency limit, the items are processed by a pool with
+     * a thread per call the limit may allow, so the limiter alone decides how many calls are in flight. Otherwise, the
+     * common fork join pool is used like by parallel streams.
+     */
+    public <T> void forEachParallel(Collection<T> items, Consumer<T> action) {
+        if (importPool == null) {
+            items.parallelStream().forEach(action);
+            return;
+        }
+
+        importPool.invoke(ForkJoinTask.adapt(() -> items.parallelStream().forEach(action)));
     }
 
     public Keycloak getInstance() {
-        if (keycloak == null || keycloak.isClosed()) {
-            keycloak = createKeycloak();
+        Keycloak instance = keycloak;
+        if (instance != null && !instance.isClosed()) return instance;
 
-            checkServerVersion();
+        // the first calls of a parallel import or of connectAsync may arrive at the same time, only one of them logs in
+        synchronized (this) {
+            if (keycloak == null || keycloak.isClosed()) {
+                keycloak = createKeycloak();
+                asyncAdminApi = getCustomApiProxy(keycloak, AsyncAdminApi.class);
+
+                versionCheck = CompletableFuture.runAsync(this::checkServerVersion, daemonThread("kcc-version-check"));
+            }
+
+            return keycloak;
         }
+    }
 
-        return keycloak;
+    /**
+     * Logs in to keycloak in the background, e.g. while the import files are parsed. The returned future completes
+     * with the instance or the failure of the login.
+     */
+    public CompletableFuture<Keycloak> connectAsync() {
+        return CompletableFuture.supplyAsync(this::getInstance, daemonThread("kcc-connect"));
     }
 
     public String getKeycloakVersion() {
-        if (version == null) {
-            version = getInstance().serverInfo().getInfo().getSystemInfo().getVersion();
-        }
+        if (version != null) return version;
+
+        // the background version check and the import may ask at the same time, only one of them fetches the server info
+        synchronized (this) {
+            if (version == null) {
+                version = getInstance().serverInfo().getInfo().getSystemInfo().getVersion();
+            }
 
-        return version;
+            return version;
+        }
     }
 
     public void refreshToken() {
-        getInstance().tokenManager().refreshToken();
+        getTokenManager(getInstance()).refreshToken();
     }
 
     public <T> T getCustomApiProxy(Class<T> proxyClass) {
+        return getCustomApiProxy(getInstance(), proxyClass);
+    }
+
+    private <T> T getCustomApiProxy(Keycloak keycloakInstance, Class<T> proxyClass) {
         try {
             URI uri = properties.getUrl().toURI();
-            return getInstance().proxy(proxyClass, uri);
+            return keycloakInstance.proxy(proxyClass, uri);
         } catch (URISyntaxException e) {
             throw new KeycloakProviderException(e);
         }
     }
 
+    /**
+     * The proxy is created once per login, as it is used for each entity of an import.
+     */
+    public AsyncAdminApi getAsyncAdminApi() {
+        getInstance();
+        return asyncAdminApi;
+    }
+
     private Keycloak createKeycloak() {
+        if (tokenCache != null) {
+            restoreSession();
+        }
+
         Keycloak result;
         if (properties.getAvailabilityCheck().isEnabled()) {
             result = getKeycloakWithRetry();
@@ -125,10 +331,20 @@ public class KeycloakProvider implements AutoCloseable {
 
         logger.info("Wait {} seconds until {} is available ...", timeout.getSeconds(), properties.getUrl());
 
+        AvailabilityProbe probe = properties.getAvailabilityCheck().getProbe();
+
         try {
             return Failsafe.with(retryPolicy).get(() -> {
+                if (probe != AvailabilityProbe.SERVER_INFO) {
+                    checkReadiness(probe);
+                }
+
                 Keycloak obj = getKeycloak();
-                obj.serverInfo().getInfo();
+
+                if (probe == AvailabilityProbe.SERVER_INFO) {
+                    version = obj.serverInfo().getInfo().getSystemInfo().getVersion();
+                }
+
                 return obj;
             });
         } catch (Exception e) {
@@ -137,16 +353,40 @@ public class KeycloakProvider implements AutoCloseable {
         }
     }
 
+    // the openid configuration of the login realm and the readiness of keycloak are small responses without login,
+    // unlike the server info with all providers and themes
+    private void checkReadiness(AvailabilityProbe probe) {
+        String path = probe == AvailabilityProbe.HEALTH
+                ? "/health/ready"
+                : "/realms/" + properties.getLoginRealm() + "/.well-known/openid-configuration";
+
+        try (Response response = resteasyClient.target(properties.getUrl().toString()).path(path).request().get()) {
+            if (response.getStatusInfo().getFamily() != Response.Status.Family.SUCCESSFUL) {
+                throw new KeycloakProviderException(MessageFormat.format("{0} responded with status {1}", path, response.getStatus()));
+            }
+        }
+    }
+
     private Keycloak getKeycloak() {
         URL serverUrl = properties.getUrl();
 
         Keycloak keycloakInstance = getKeycloakInstance(serverUrl.toString());
-        keycloakInstance.tokenManager().getAccessToken();
+        getTokenManager(keycloakInstance).getAccessToken();
 
         return keycloakInstance;
     }
 
     private Keycloak getKeycloakInstance(String serverUrl) {
+        // the token given here is replaced by the current token of the shared token manager on each call
+        if (sharedTokenManager != null) {
+            return KeycloakBuilder.builder()
+                    .serverUrl(serverUrl)
+                    .realm(properties.getLoginRealm())
+                    .authorization(sharedTokenManager.getAccessTokenString())
+                    .resteasyClient(resteasyClient)
+                    .build();
+        }
+
         return KeycloakBuilder.builder()
                 .serverUrl(serverUrl)
                 .realm(properties.getLoginRealm())
@@ -159,9 +399,33 @@ public class KeycloakProvider implements AutoCloseable {
                 .build();
     }
 
+    // continues the session of a previous run. If keycloak does not accept the refresh token anymore, the admin client logs in again.
+    private void restoreSession() {
+        tokenCache.load().ifPresent(session -> {
+            if (session.getRefreshToken() != null) {
+                sharedTokenManager.restore(session.getRefreshToken(), session.getExpiresAt());
+            }
+
+            if (session.getVersion() != null) {
+                version = session.getVersion();
+            }
+        });
+    }
+
+    private TokenManager getTokenManager(Keycloak keycloakInstance) {
+        return sharedTokenManager != null ? sharedTokenManager : keycloakInstance.tokenManager();
+    }
+
     private void checkServerVersion() {
         if (properties.getVersion().equals("@keycloak.version@")) return;
 
+        try {
+            getKeycloakVersion();
+        } catch (RuntimeException e) {
+            logger.warn("Unable to check the version of keycloak: {}", e.getMessage());
+            return;
+        }
+
         String kccKeycloakMajorVersion = properties.getVersion().split("\\.")[0];
 
         if (!getKeycloakVersion().startsWith(kccKeycloakMajorVersion)) {
@@ -174,12 +438,40 @@ public class KeycloakProvider implements AutoCloseable {
         }
     }
 
+    // a daemon thread does not keep the run alive if it ends before the background task, e.g. on invalid import files
+    private static Executor daemonThread(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            thread.start();
+        };
+    }
+
     @Override
     public void close() {
+        // the version check is a single call, waiting for it keeps its warning within the log of the run
+        if (versionCheck != null) {
+            versionCheck.join();
+        }
+
         if (!isClosed()) {
-            logout();
+            // a cached session stays open for the next run
+            if (tokenCache != null) {
+                tokenCache.save(sharedTokenManager.getRefreshToken(), sharedTokenManager.getRefreshExpiresAt(), version);
+            } else {
+                logout();
+            }
+
+            if (sharedTokenManager != null) {
+                sharedTokenManager.close();
+            }
+
             keycloak.close();
         }
+
+        if (importPool != null) {
+            importPool.shutdown();
+        }
     }
 
     // see: https://github.com/keycloak/keycloak/blob/8ea09d38168c22937363cf77a07f9de5dc7b48b0/services/src/main/java/org/keycloak/protocol/oidc/endpoints/LogoutEndpoint.java#L207-L220
@@ -197,7 +489,7 @@ public class KeycloakProvider implements AutoCloseable {
      * returns 204 if successful, 400 if not with a json error response.
      */
     private void logout() {
-        String refreshToken = this.keycloak.tokenManager().getAccessToken().getRefreshToken();
+        String refreshToken = getTokenManager(this.keycloak).getAccessToken().getRefreshToken();
         // if we do not have a refreshToken, we are not able ot logout (grant_type=client_credentials)
         if (refreshToken == null) {
             return;
@@ -0,0 +1,352 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2021 adorsys GmbH & Co. KG @ https://adorsys.com
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.provider;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.keycloak.OAuth2Constants;
+import org.keycloak.admin.client.Config;
+import org.keycloak.admin.client.Keycloak;
+import org.keycloak.admin.client.resource.BasicAuthFilter;
+import org.keycloak.admin.client.token.TokenManager;
+import org.keycloak.admin.client.token.TokenService;
+import org.keycloak.representations.AccessTokenResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import javax.annotation.Priority;
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientRequestFilter;
+import javax.ws.rs.client.ClientResponseContext;
+import javax.ws.rs.client.ClientResponseFilter;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.Form;
+import javax.ws.rs.core.HttpHeaders;
+
+// The TokenManager of the keycloak admin client refreshes the access token lazily. Each call takes its monitor to check
+// the expiry, so parallel imports contend on it and all of them block while one call refreshes the token. This token
+// manager refreshes the token in the background ahead of its expiry and publishes it in a volatile field, which the
+// calls read without a lock. A call only falls back to a synchronized refresh if the token is about to expire anyway,
+// e.g. because the background refresh failed. The token requests are the same as the ones of the TokenManager, but the
+// state is kept here, so a session can be continued with a refresh token of a previous run.
+public class SharedTokenManager extends TokenManager implements AutoCloseable {
+    public static final String REFRESHES_METRIC = "kcc.token.refreshes";
+    public static final String VALIDITY_METRIC = "kcc.token.validity";
+
+    private static final Logger logger = LoggerFactory.getLogger(SharedTokenManager.class);
+
+    // a token is not sent anymore if it expires within this time, since the call may take a while to reach keycloak
+    private static final Duration MIN_VALIDITY = Duration.ofSeconds(5);
+    private static final Duration RETRY_DELAY = Duration.ofSeconds(5);
+
+    private static final ThreadLocal<Boolean> BACKGROUND = ThreadLocal.withInitial(() -> false);
+
+    private final Config config;
+    private final TokenService tokenService;
+    private final Duration refreshBeforeExpiry;
+    private final MeterRegistry meterRegistry;
+    private final ScheduledThreadPoolExecutor executor;
+
+    private volatile CurrentToken currentToken;
+    private ScheduledFuture<?> scheduledRefresh;
+
+    public SharedTokenManager(Config config, Client client, Duration refreshBeforeExpiry, MeterRegistry meterRegistry) {
+        super(config, client);
+
+        this.config = config;
+        this.refreshBeforeExpiry = refreshBeforeExpiry;
+        this.meterRegistry = meterRegistry;
+
+        WebTarget target = client.target(config.getServerUrl());
+        if (!config.isPublicClient()) {
+            target.register(new BasicAuthFilter(config.getClientId(), config.getClientSecret()));
+        }
+        this.tokenService = Keycloak.getClientProvider().targetProxy(target, TokenService.class);
+
+        // the refresh thread ends while no refresh is scheduled, so it does not outlive the run
+        this.executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "kcc-token-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.setKeepAliveTime(1, TimeUnit.SECONDS);
+        this.executor.allowCoreThreadTimeOut(true);
+        this.executor.setRemoveOnCancelPolicy(true);
+
+        Gauge.builder(VALIDITY_METRIC, this, SharedTokenManager::getValidityInSeconds)
+                .description("Remaining validity of the access token of the keycloak admin client in seconds")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String getAccessTokenString() {
+        CurrentToken token = currentToken;
+        if (token != null && token.isValidAt(Instant.now().plus(MIN_VALIDITY))) {
+            return token.getResponse().getToken();
+        }
+
+        return getAccessToken().getToken();
+    }
+
+    @Override
+    public synchronized AccessTokenResponse getAccessToken() {
+        CurrentToken token = currentToken;
+        if (token == null) return grantToken();
+        if (!token.isValidAt(Instant.now().plus(MIN_VALIDITY))) return refreshToken();
+
+        return token.getResponse();
+    }
+
+    @Override
+    public synchronized AccessTokenResponse grantToken() {
+        Form form = new Form().param(OAuth2Constants.GRANT_TYPE, config.getGrantType());
+
+        if (OAuth2Constants.PASSWORD.equals(config.getGrantType())) {
+            form.param(OAuth2Constants.USERNAME, config.getUsername())
+                    .param(OAuth2Constants.PASSWORD, config.getPassword());
+        }
+
+        if (config.getScope() != null) {
+            form.param(OAuth2Constants.SCOPE, config.getScope());
+        }
+
+        if (config.isPublicClient()) {
+            form.param(OAuth2Constants.CLIENT_ID, config.getClientId());
+        }
+
+        return publish("grant", () -> tokenService.grantToken(config.getRealm(), form.asMap()));
+    }
+
+    @Override
+    public synchronized AccessTokenResponse refreshToken() {
+        CurrentToken token = currentToken;
+        if (token == null || !token.isRefreshableAt(Instant.now())) return grantToken();
+
+        Form form = new Form()
+                .param(OAuth2Constants.GRANT_TYPE, OAuth2Constants.REFRESH_TOKEN)
+                .param(OAuth2Constants.REFRESH_TOKEN, token.getResponse().getRefreshToken());
+
+        if (config.isPublicClient()) {
+            form.param(OAuth2Constants.CLIENT_ID, config.getClientId());
+        }
+
+        try {
+            return publish("refresh", () -> tokenService.refreshToken(config.getRealm(), form.asMap()));
+        } catch (BadRequestException e) {
+            // the session of the refresh token has ended, e.g. by a logout or a restart of keycloak
+            return grantToken();
+        }
+    }
+
+    @Override
+    public synchronized void invalidate(String token) {
+        CurrentToken current = currentToken;
+        if (current != null && token.equals(current.getResponse().getToken())) {
+            currentToken = current.expired();
+        }
+    }
+
+    /**
+     * Continues the session of a refresh token, e.g. of a previous run. The next call refreshes the access token with it,
+     * or logs in again if keycloak does not accept the refresh token anymore.
+     */
+    public synchronized void restore(String refreshToken, Instant refreshExpiresAt) {
+        AccessTokenResponse response = new AccessTokenResponse();
+        response.setRefreshToken(refreshToken);
+
+        currentToken = new CurrentToken(response, Instant.EPOCH, refreshExpiresAt);
+    }
+
+    /**
+     * Returns the refresh token of the current session, or {@code null} if there is none, e.g. for client credentials.
+     */
+    public String getRefreshToken() {
+        CurrentToken current = currentToken;
+        return current != null ? current.getResponse().getRefreshToken() : null;
+    }
+
+    /**
+     * Returns the expiry of the refresh token of the current session, or {@link Instant#MAX} if it does not expire.
+     */
+    public Instant getRefreshExpiresAt() {
+        CurrentToken current = currentToken;
+        return current != null ? current.getRefreshExpiresAt() : Instant.MAX;
+    }
+
+    /**
+     * Returns a filter which sends the current token with each call of the admin client. It replaces the token which
+     * was given to the keycloak admin client on creation, and invalidates the token if keycloak rejects it.
+     */
+    public ClientRequestFilter getAuthFilter() {
+        return new AuthFilter();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduledRefresh != null) {
+            scheduledRefresh.cancel(false);
+            scheduledRefresh = null;
+        }
+
+        currentToken = null;
+    }
+
+    private AccessTokenResponse publish(String type, Supplier<AccessTokenResponse> request) {
+        String trigger = Boolean.TRUE.equals(BACKGROUND.get()) ? "background" : "caller";
+
+        AccessTokenResponse response;
+        try {
+            response = request.get();
+        } catch (RuntimeException e) {
+            refreshCounter(type, trigger, "failure").increment();
+            throw e;
+        }
+
+        Instant now = Instant.now();
+        Duration lifetime = Duration.ofSeconds(response.getExpiresIn());
+        // a refresh token without expiry, like an offline token, is valid until the session ends
+        Instant refreshExpiresAt = response.getRefreshExpiresIn() > 0 ? now.plusSeconds(response.getRefreshExpiresIn()) : Instant.MAX;
+
+        currentToken = new CurrentToken(response, now.plus(lifetime), refreshExpiresAt);
+        refreshCounter(type, trigger, "success").increment();
+
+        // refresh before the expiry, but not more often than twice per lifetime of a token
+        Duration refreshAhead = refreshBeforeExpiry.compareTo(lifetime.dividedBy(2)) < 0 ? refreshBeforeExpiry : lifetime.dividedBy(2);
+        // a token without a lifetime would schedule one immediate refresh after another, it is requested by the callers instead
+        if (!lifetime.isNegative() && !lifetime.isZero()) {
+            scheduleRefresh(lifetime.minus(refreshAhead));
+        }
+
+        return response;
+    }
+
+    private synchronized void scheduleRefresh(Duration delay) {
+        if (scheduledRefresh != null) {
+            scheduledRefresh.cancel(false);
+        }
+
+        scheduledRefresh = executor.schedule(this::refreshInBackground, delay.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void refreshInBackground() {
+        BACKGROUND.set(true);
+        try {
+            refreshToken();
+        } catch (RuntimeException e) {
+            logger.warn("Unable to refresh the access token of the keycloak admin client: {}", e.getMessage());
+
+            CurrentToken current = currentToken;
+            if (current != null && current.isValidAt(Instant.now().plus(RETRY_DELAY).plus(MIN_VALIDITY))) {
+                scheduleRefresh(RETRY_DELAY);
+            }
+        } finally {
+            BACKGROUND.remove();
+        }
+    }
+
+    private Counter refreshCounter(String type, String trigger, String outcome) {
+        return Counter.builder(REFRESHES_METRIC)
+                .description("Access token requests of the keycloak admin client")
+                .tag("type", type)
+                .tag("trigger", trigger)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private double getValidityInSeconds() {
+        CurrentToken current = currentToken;
+        if (current == null) return 0;
+
+        return Math.max(0, Duration.between(Instant.now(), current.getExpiresAt()).toMillis() / 1000.0);
+    }
+
+    // runs after the BearerAuthFilter of the keycloak admin client, which has the default priority
+    @Priority(Priorities.USER + 1)
+    private class AuthFilter implements ClientRequestFilter, ClientResponseFilter {
+        private static final String BEARER = "Bearer ";
+
+        @Override
+        public void filter(ClientRequestContext requestContext) {
+            String authorization = requestContext.getHeaderString(HttpHeaders.AUTHORIZATION);
+
+            // leaves the calls of the token endpoint alone, which are authenticated by the client credentials
+            if (authorization != null && authorization.startsWith(BEARER)) {
+                requestContext.getHeaders().putSingle(HttpHeaders.AUTHORIZATION, BEARER + getAccessTokenString());
+            }
+        }
+
+        @Override
+        public void filter(ClientRequestContext requestContext, ClientResponseContext responseContext) {
+            String authorization = requestContext.getHeaderString(HttpHeaders.AUTHORIZATION);
+
+            if (responseContext.getStatus() == 401 && authorization != null && authorization.startsWith(BEARER)) {
+                invalidate(authorization.substring(BEARER.length()));
+            }
+        }
+    }
+
+    private static class CurrentToken {
+        private final AccessTokenResponse response;
+        private final Instant expiresAt;
+        private final Instant refreshExpiresAt;
+
+        CurrentToken(AccessTokenResponse response, Instant expiresAt, Instant refreshExpiresAt) {
+            this.response = response;
+            this.expiresAt = expiresAt;
+            this.refreshExpiresAt = refreshExpiresAt;
+        }
+
+        AccessTokenResponse getResponse() {
+            return response;
+        }
+
+        Instant getExpiresAt() {
+            return expiresAt;
+        }
+
+        Instant getRefreshExpiresAt() {
+            return refreshExpiresAt;
+        }
+
+        boolean isValidAt(Instant instant) {
+            return instant.isBefore(expiresAt);
+        }
+
+        boolean isRefreshableAt(Instant instant) {
+            return response.getRefreshToken() != null && instant.isBefore(refreshExpiresAt);
+        }
+
+        CurrentToken expired() {
+            return new CurrentToken(response, Instant.EPOCH, refreshExpiresAt);
+        }
+    }
+}
@@ -0,0 +1,251 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2021 adorsys GmbH & Co. KG @ https://adorsys.com
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.provider;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+
+// Keeps the refresh token and the keycloak version of a run on disk, so a following run against the same keycloak can
+// continue the session instead of logging in again and skips the server info call of the version check. The file is
+// encrypted with AES-GCM by a key derived from the password and client secret of the admin client, so it is useless
+// without the credentials and a change of the credentials invalidates it. The url, realm, client and user are bound
+// to the file as associated data and are part of its name.
+public class TokenCache {
+    public static final String CACHE_METRIC = "kcc.token.cache";
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenCache.class);
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private static final int SALT_LENGTH = 16;
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_LENGTH = 128;
+    private static final int KEY_LENGTH = 256;
+    private static final int KEY_ITERATIONS = 65_536;
+
+    private final Path directory;
+    private final Path file;
+    private final Duration ttl;
+    private final byte[] identity;
+    private final char[] secret;
+    private final MeterRegistry meterRegistry;
+
+    public TokenCache(Path directory, Duration ttl, String identity, String secret, MeterRegistry meterRegistry) {
+        this.identity = identity.getBytes(StandardCharsets.UTF_8);
+        this.directory = directory;
+        this.file = directory.resolve("token-" + String.format("%064x", new BigInteger(1, sha256(this.identity))));
+        this.ttl = ttl;
+        this.secret = secret.toCharArray();
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Reads the cached session. An expired, unreadable or foreign file is deleted and treated as a miss.
+     */
+    public Optional<Entry> load() {
+        if (!Files.isRegularFile(file)) {
+            return miss("missing");
+        }
+
+        try {
+            Entry entry = decrypt(Files.readAllBytes(file));
+
+            if (!Instant.now().isBefore(entry.getExpiresAt())) {
+                delete();
+                return miss("expired");
+            }
+
+            cacheCounter("hit").increment();
+            logger.debug("Continue keycloak session cached in '{}'", file);
+            return Optional.of(entry);
+        } catch (IOException | GeneralSecurityException e) {
+            logger.warn("Cannot read token cache '{}', it is ignored: {}", file, e.getMessage());
+            delete();
+            return miss("invalid");
+        }
+    }
+
+    /**
+     * Writes the session of this run. It expires after the ttl of the cache, or earlier with the refresh token.
+     */
+    public void save(String refreshToken, Instant refreshExpiresAt, String version) {
+        Instant expiresAt = Instant.now().plus(ttl);
+        if (refreshToken != null && refreshExpiresAt.isBefore(expiresAt)) {
+            expiresAt = refreshExpiresAt;
+        }
+
+        try {
+            Files.createDirectories(directory);
+
+            Path tempFile = Files.createTempFile(directory, "token-", ".tmp");
+            if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+                Files.setPosixFilePermissions(tempFile, PosixFilePermissions.fromString("rw-------"));
+            }
+
+            Files.write(tempFile, encrypt(new Entry(refreshToken, version, expiresAt)));
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.debug("Keycloak session cached in '{}' until {}", file, expiresAt);
+        } catch (IOException | GeneralSecurityException e) {
+            logger.warn("Cannot write token cache '{}': {}", file, e.getMessage());
+        }
+    }
+
+    public void delete() {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("Cannot delete token cache '{}': {}", file, e.getMessage());
+        }
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    private byte[] encrypt(Entry entry) throws IOException, GeneralSecurityException {
+        Map<String, Object> content = new LinkedHashMap<>();
+        content.put("refreshToken", entry.getRefreshToken());
+        content.put("version", entry.getVersion());
+        content.put("expiresAt", entry.getExpiresAt().getEpochSecond());
+
+        byte[] salt = randomBytes(SALT_LENGTH);
+        byte[] iv = randomBytes(IV_LENGTH);
+
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, deriveKey(salt), new GCMParameterSpec(TAG_LENGTH, iv));
+        cipher.updateAAD(identity);
+        byte[] encrypted = cipher.doFinal(OBJECT_MAPPER.writeValueAsBytes(content));
+
+        return ByteBuffer.allocate(SALT_LENGTH + IV_LENGTH + encrypted.length).put(salt).put(iv).put(encrypted).array();
+    }
+
+    private Entry decrypt(byte[] data) throws IOException, GeneralSecurityException {
+        if (data.length <= SALT_LENGTH + IV_LENGTH) {
+            throw new IOException("File is truncated");
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        byte[] salt = new byte[SALT_LENGTH];
+        byte[] iv = new byte[IV_LENGTH];
+        byte[] encrypted = new byte[data.length - SALT_LENGTH - IV_LENGTH];
+        buffer.get(salt).get(iv).get(encrypted);
+
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.DECRYPT_MODE, deriveKey(salt), new GCMParameterSpec(TAG_LENGTH, iv));
+        cipher.updateAAD(identity);
+
+        Map<?, ?> content = OBJECT_MAPPER.readValue(cipher.doFinal(encrypted), Map.class);
+
+        return new Entry(
+                (String) content.get("refreshToken"),
+                (String) content.get("version"),
+                Instant.ofEpochSecond(((Number) content.get("expiresAt")).longValue())
+        );
+    }
+
+    private SecretKey deriveKey(byte[] salt) throws GeneralSecurityException {
+        PBEKeySpec keySpec = new PBEKeySpec(secret, salt, KEY_ITERATIONS, KEY_LENGTH);
+        try {
+            byte[] key = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(keySpec).getEncoded();
+            return new SecretKeySpec(key, "AES");
+        } finally {
+            keySpec.clearPassword();
+        }
+    }
+
+    private Optional<Entry> miss(String reason) {
+        cacheCounter(reason).increment();
+        return Optional.empty();
+    }
+
+    private Counter cacheCounter(String result) {
+        return Counter.builder(CACHE_METRIC)
+                .description("Lookups of the keycloak session cached by a previous run")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        RANDOM.nextBytes(bytes);
+        return bytes;
+    }
+
+    private static byte[] sha256(byte[] value) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(value);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static class Entry {
+        private final String refreshToken;
+        private final String version;
+        private final Instant expiresAt;
+
+        Entry(String refreshToken, String version, Instant expiresAt) {
+            this.refreshToken = refreshToken;
+            this.version = version;
+            this.expiresAt = expiresAt;
+        }
+
+        public String getRefreshToken() {
+            return refreshToken;
+        }
+
+        public String getVersion() {
+            return version;
+        }
+
+        public Instant getExpiresAt() {
+            return expiresAt;
+        }
+    }
+}
@@ -102,7 +102,26 @@ public class AuthenticationFlowRepository {
         try {
             flowsResource.updateFlow(flow.getId(), flow);
         } catch (WebApplicationException error) {
-            String errorMessage = String.format("Cannot update top-level-flow '%s' in realm '%s'.", flow.getAlias(), realmName);
+            String errorMessage = String.format(
+                    "Cannot update top-level-flow '%s' in realm '%s': %s",
+                    flow.getAlias(), realmName, ResponseUtil.getErrorMessage(error)
+            );
+
+            throw new ImportProcessingException(errorMessage, error);
+        }
+    }
+
+    public void updateNonTopLevel(String realmName, AuthenticationFlowRepresentation flow) {
+        logger.trace("Update non-top-level-flow '{}' in realm '{}'", flow.getAlias(), realmName);
+
+        AuthenticationManagementResource flowsResource = getFlowResources(realmName);
+        try {
+            flowsResource.updateFlow(flow.getId(), flow);
+        } catch (WebApplicationException error) {
+            String errorMessage = String.format(
+                    "Cannot update non-top-level-flow '%s' in realm '%s': %s",
+                    flow.getAlias(), realmName, ResponseUtil.getErrorMessage(error)
+            );
 
             throw new ImportProcessingException(errorMessage, error);
         }
@@ -25,15 +25,12 @@ import de.adorsys.keycloak.config.exception.KeycloakRepositoryException;
 import de.adorsys.keycloak.config.util.ResponseUtil;
 import org.keycloak.admin.client.CreatedResponseUtil;
 import org.keycloak.admin.client.resource.ComponentsResource;
-import org.keycloak.admin.client.resource.RealmResource;
 import org.keycloak.representations.idm.ComponentRepresentation;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.Collections;
 import java.util.List;
-import java.util.Objects;
-import java.util.Optional;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Response;
 
@@ -83,15 +80,18 @@ public class ComponentRepository {
         return component;
     }
 
-    public List<ComponentRepresentation> getAll(String realmName, String parentId) {
-        if (parentId == null) {
-            RealmResource realmResource = realmRepository.getResource(realmName);
-            parentId = realmResource.toRepresentation().getId();
+    public List<ComponentRepresentation> getAll(String realmName) {
+        List<ComponentRepresentation> components = getComponentsResource(realmName).query();
+
+        if (components == null) {
+            return Collections.emptyList();
         }
 
-        RealmResource realmResource = realmRepository.getResource(realmName);
+        return components;
+    }
 
-        List<ComponentRepresentation> subComponents = realmResource.components().query(parentId);
+    public List<ComponentRepresentation> getByParentId(String realmName, String parentId) {
+        List<ComponentRepresentation> subComponents = getComponentsResource(realmName).query(parentId);
 
         if (subComponents == null) {
             return Collections.emptyList();
@@ -100,19 +100,6 @@ public class ComponentRepository {
         return subComponents;
     }
 
-    public Optional<ComponentRepresentation> search(String realmName, String type, String subType, String name) {
-        return search(realmName, type, subType, name, null);
-    }
-
-    public Optional<ComponentRepresentation> search(String realmName, String type, String subType, String name, String parentId) {
-        List<ComponentRepresentation> component = getComponentsResource(realmName)
-                .query(parentId, type, name);
-
-        return component.stream()
-                .filter(item -> Objects.equals(subType, item.getSubType()))
-                .findFirst();
-    }
-
     private ComponentsResource getComponentsResource(String realmName) {
         return realmRepository.getResource(realmName).components();
     }
@@ -142,6 +142,20 @@ public class ExecutionFlowRepository {
                 realmName, subFlowAlias);
     }
 
+    public void delete(String realmName, String executionId) {
+        logger.trace("Delete flow-execution '{}' in realm '{}'", executionId, realmName);
+
+        AuthenticationManagementResource flowsResource = authenticationFlowRepository.getFlowResources(realmName);
+        flowsResource.removeExecution(executionId);
+    }
+
+    public void raisePriority(String realmName, String executionId) {
+        logger.trace("Raise priority of flow-execution '{}' in realm '{}'", executionId, realmName);
+
+        AuthenticationManagementResource flowsResource = authenticationFlowRepository.getFlowResources(realmName);
+        flowsResource.raisePriority(executionId);
+    }
+
     private List<AuthenticationExecutionInfoRepresentation> searchByAlias(
             String realmName,
             String topLevelFlowAlias,
@@ -21,12 +21,13 @@
 package de.adorsys.keycloak.config.repository;
 
 import de.adorsys.keycloak.config.exception.ImportProcessingException;
+import de.adorsys.keycloak.config.resource.AsyncAdminApi;
+import de.adorsys.keycloak.config.util.CloneUtil;
 import org.keycloak.admin.client.CreatedResponseUtil;
 import org.keycloak.admin.client.resource.GroupResource;
 import org.keycloak.admin.client.resource.GroupsResource;
 import org.keycloak.admin.client.resource.RoleMappingResource;
 import org.keycloak.admin.client.resource.RoleScopeResource;
-import org.keycloak.admin.client.resource.UserResource;
 import org.keycloak.representations.idm.ClientRepresentation;
 import org.keycloak.representations.idm.GroupRepresentation;
 import org.keycloak.representations.idm.ManagementPermissionRepresentation;
@@ -35,9 +36,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import javax.ws.rs.core.Response;
 
@@ -47,25 +51,36 @@ public class GroupRepository {
     private final RealmRepository realmRepository;
     private final RoleRepository roleRepository;
     private final ClientRepository clientRepository;
-    private final UserRepository userRepository;
+
+    private final Map<String, GroupTree> groupTrees = new ConcurrentHashMap<>();
 
     @Autowired
     public GroupRepository(
             RealmRepository realmRepository,
             RoleRepository roleRepository,
-            ClientRepository clientRepository,
-            UserRepository userRepository) {
+            ClientRepository clientRepository) {
         this.realmRepository = realmRepository;
         this.roleRepository = roleRepository;
         this.clientRepository = clientRepository;
-        this.userRepository = userRepository;
     }
 
-    public List<GroupRepresentation> getAll(String realmName) {
-        GroupsResource groupsResource = realmRepository.getResource(realmName)
-                .groups();
+    /**
+     * Loads the whole group hierarchy of the realm by one request. All group lookups of this repository are answered
+     * from this snapshot, which is kept up-to-date by every group change done through this repository.
+     */
+    public void loadGroupTree(String realmName) {
+        groupTrees.put(realmName, fetchGroupTree(realmName));
+    }
+
+    /**
+     * Drops the snapshot of the group hierarchy, groups could be changed outside of this repository between two imports of a realm.
+     */
+    public void evictGroupTree(String realmName) {
+        groupTrees.remove(realmName);
+    }
 
-        return groupsResource.groups();
+    public List<GroupRepresentation> getAll(String realmName) {
+        return getGroupTree(realmName).getTopLevelGroups();
     }
 
     public List<GroupRepresentation> findGroupsByGroupPath(String realmName, List<String> groupPaths) {
@@ -86,37 +101,33 @@ public class GroupRepository {
     }
 
     public Optional<GroupRepresentation> searchByName(String realmName, String groupName) {
-        GroupsResource groupsResource = realmRepository.getResource(realmName)
-                .groups();
-
-        return groupsResource.groups()
-                .stream()
-                .filter(g -> Objects.equals(g.getName(), groupName))
-                .findFirst();
+        return Optional.ofNullable(getGroupTree(realmName).searchTopLevelGroupByName(groupName));
     }
 
     public void createGroup(String realmName, GroupRepresentation group) {
         GroupsResource groupsResource = realmRepository.getResource(realmName).groups();
+        String groupId;
+
         try (Response response = groupsResource.add(group)) {
-            CreatedResponseUtil.getCreatedId(response);
+            groupId = CreatedResponseUtil.getCreatedId(response);
         }
+
+        getGroupTree(realmName).add(null, toCreatedGroup(groupId, group));
     }
 
     public void addSubGroup(String realmName, String parentGroupId, GroupRepresentation subGroup) {
         GroupResource groupResource = getResourceById(realmName, parentGroupId);
+        String subGroupId;
+
         try (Response response = groupResource.subGroup(subGroup)) {
-            CreatedResponseUtil.getCreatedId(response);
+            subGroupId = CreatedResponseUtil.getCreatedId(response);
         }
+
+        getGroupTree(realmName).add(parentGroupId, toCreatedGroup(subGroupId, subGroup));
     }
 
     public GroupRepresentation getSubGroupByName(String realmName, String parentGroupId, String name) {
-        GroupRepresentation existingGroup = getResourceById(realmName, parentGroupId).toRepresentation();
-
-        return existingGroup.getSubGroups()
-                .stream()
-                .filter(subgroup -> Objects.equals(subgroup.getName(), name))
-                .findFirst()
-                .orElse(null);
+        return getGroupTree(realmName).getSubGroupByName(parentGroupId, name);
     }
 
     public void addRealmRoles(String realmName, String groupId, List<String> roleNames) {
@@ -129,6 +140,7 @@ public class GroupRepository {
                 .collect(Collectors.toList());
 
         groupRealmRoles.add(existingRealmRoles);
+        getGroupTree(realmName).addRealmRoles(groupId, roleNames);
     }
 
     public void removeRealmRoles(String realmName, String groupId, List<String> roleNames) {
@@ -141,25 +153,29 @@ public class GroupRepository {
                 .collect(Collectors.toList());
 
         groupRealmRoles.remove(existingRealmRoles);
+        getGroupTree(realmName).removeRealmRoles(groupId, roleNames);
     }
 
     public void deleteGroup(String realmName, String id) {
         GroupResource groupResource = getResourceById(realmName, id);
         groupResource.remove();
+        getGroupTree(realmName).remove(id);
     }
 
-    public void addGroupsToUser(String realmName, String username, List<GroupRepresentation> groups) {
-        UserResource userResource = userRepository.getResource(realmName, username);
-        for (GroupRepresentation group : groups) {
-            userResource.joinGroup(group.getId());
-        }
+    public CompletableFuture<Void> addGroupsToUserAsync(String realmName, String userId, List<GroupRepresentation> groups) {
+        AsyncAdminApi asyncAdminApi = realmRepository.getAsyncResource();
+
+        return CompletableFuture.allOf(groups.stream()
+                .map(group -> asyncAdminApi.joinGroup(realmName, userId, group.getId()).toCompletableFuture())
+                .toArray(CompletableFuture[]::new));
     }
 
-    public void removeGroupsFromUser(String realmName, String username, List<GroupRepresentation> groups) {
-        UserResource userResource = userRepository.getResource(realmName, username);
-        for (GroupRepresentation group : groups) {
-            userResource.leaveGroup(group.getId());
-        }
+    public CompletableFuture<Void> removeGroupsFromUserAsync(String realmName, String userId, List<GroupRepresentation> groups) {
+        AsyncAdminApi asyncAdminApi = realmRepository.getAsyncResource();
+
+        return CompletableFuture.allOf(groups.stream()
+                .map(group -> asyncAdminApi.leaveGroup(realmName, userId, group.getId()).toCompletableFuture())
+                .toArray(CompletableFuture[]::new));
     }
 
 
@@ -172,6 +188,7 @@ public class GroupRepository {
 
         List<RoleRepresentation> clientRoles = roleRepository.getClientRolesByName(realmName, clientId, roleNames);
         groupClientRolesResource.add(clientRoles);
+        getGroupTree(realmName).addClientRoles(groupId, clientId, roleNames);
     }
 
     public void removeClientRoles(String realmName, String groupId, String clientId, List<String> roleNames) {
@@ -183,30 +200,39 @@ public class GroupRepository {
 
         List<RoleRepresentation> clientRoles = roleRepository.getClientRolesByName(realmName, clientId, roleNames);
         groupClientRolesResource.remove(clientRoles);
+        getGroupTree(realmName).removeClientRoles(groupId, clientId, roleNames);
     }
 
     public void update(String realmName, GroupRepresentation group) {
         GroupResource groupResource = getResourceById(realmName, group.getId());
         groupResource.update(group);
+        getGroupTree(realmName).update(group);
     }
 
     public GroupRepresentation getGroupByName(String realmName, String groupName) {
-        GroupResource groupResource = getResourceByName(realmName, groupName);
-
-        if (groupResource == null) {
-            return null;
-        }
-
-        return groupResource.toRepresentation();
+        return getGroupTree(realmName).getTopLevelGroupByName(groupName);
     }
 
     public GroupRepresentation getGroupById(String realmName, String groupId) {
-        GroupResource groupResource = getResourceById(realmName, groupId);
-        return groupResource.toRepresentation();
+        GroupRepresentation group = getGroupTree(realmName).getById(groupId);
+
+        if (group == null) {
+            GroupResource groupResource = getResourceById(realmName, groupId);
+            return groupResource.toRepresentation();
+        }
+
+        return group;
     }
 
     public GroupRepresentation getGroupByPath(String realmName, String groupPath) {
-        return realmRepository.getResource(realmName).getGroupByPath(groupPath);
+        GroupRepresentation group = getGroupTree(realmName).getByPath(groupPath);
+
+        // groups could be created outside of this repository, e.g. by a user federation sync
+        if (group == null) {
+            return realmRepository.getResource(realmName).getGroupByPath(groupPath);
+        }
+
+        return group;
     }
 
     public void enablePermission(String realmName, String id) {
@@ -221,16 +247,32 @@ public class GroupRepository {
         return groupResource.getPermissions().isEnabled();
     }
 
-    private GroupResource getResourceByName(String realmName, String groupName) {
-        Optional<GroupRepresentation> maybeGroup = searchByName(realmName, groupName);
+    private GroupTree getGroupTree(String realmName) {
+        return groupTrees.computeIfAbsent(realmName, this::fetchGroupTree);
+    }
 
-        GroupRepresentation existingGroup = maybeGroup.orElse(null);
+    private GroupTree fetchGroupTree(String realmName) {
+        List<GroupRepresentation> groups = realmRepository.getResource(realmName)
+                .groups()
+                .groups(null, null, null, false);
 
-        if (existingGroup == null) {
-            return null;
-        }
+        GroupTree groupTree = new GroupTree();
+        groups.forEach(group -> groupTree.add(null, group));
+        return groupTree;
+    }
 
-        return getResourceById(realmName, existingGroup.getId());
+    /**
+     * Keycloak only takes name and attributes of a new group, role mappings and sub-groups are created separately.
+     */
+    private GroupRepresentation toCreatedGroup(String groupId, GroupRepresentation group) {
+        GroupRepresentation createdGroup = new GroupRepresentation();
+        createdGroup.setId(groupId);
+        createdGroup.setName(group.getName());
+        createdGroup.setAttributes(group.getAttributes() != null ? CloneUtil.deepClone(group).getAttributes() : new HashMap<>());
+        createdGroup.setRealmRoles(new ArrayList<>());
+        createdGroup.setClientRoles(new HashMap<>());
+        createdGroup.setSubGroups(new ArrayList<>());
+        return createdGroup;
     }
 
     private GroupResource getResourceById(String realmName, String groupId) {
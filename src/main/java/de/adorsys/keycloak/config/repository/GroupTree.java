@@ -0,0 +1,257 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2021 adorsys GmbH & Co. KG @ https://adorsys.com
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.repository;
+
+import de.adorsys.keycloak.config.util.CloneUtil;
+import org.keycloak.representations.idm.GroupRepresentation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Group hierarchy of a realm, indexed by id and path. The stored representations don't contain sub-groups.
+ * Lookups by id and name return copies which contain the whole sub-group hierarchy like keycloak would return it,
+ * lookups by path and listings only return id, name and path of the groups.
+ */
+final class GroupTree {
+    private final Map<String, GroupRepresentation> groupsById = new HashMap<>();
+    private final Map<String, String> groupIdsByPath = new HashMap<>();
+    private final Map<String, String> parentGroupIdsById = new HashMap<>();
+    private final Map<String, List<String>> subGroupIdsById = new HashMap<>();
+    private final List<String> topLevelGroupIds = new ArrayList<>();
+
+    synchronized void add(String parentGroupId, GroupRepresentation group) {
+        GroupRepresentation groupWithoutSubGroups = CloneUtil.deepClone(group, "subGroups");
+        groupWithoutSubGroups.setSubGroups(new ArrayList<>());
+        if (parentGroupId == null || groupsById.containsKey(parentGroupId)) {
+            groupWithoutSubGroups.setPath(getPath(parentGroupId, group.getName()));
+        }
+
+        groupsById.put(group.getId(), groupWithoutSubGroups);
+        groupIdsByPath.put(groupWithoutSubGroups.getPath(), group.getId());
+        subGroupIdsById.put(group.getId(), new ArrayList<>());
+
+        if (parentGroupId == null) {
+            topLevelGroupIds.add(group.getId());
+        } else {
+            parentGroupIdsById.put(group.getId(), parentGroupId);
+            subGroupIdsById.computeIfAbsent(parentGroupId, k -> new ArrayList<>()).add(group.getId());
+        }
+
+        if (group.getSubGroups() != null) {
+            group.getSubGroups().forEach(subGroup -> add(group.getId(), subGroup));
+        }
+    }
+
+    synchronized void remove(String groupId) {
+        GroupRepresentation group = groupsById.remove(groupId);
+        if (group == null) return;
+
+        // keycloak removes the sub-groups together with their parent
+        new ArrayList<>(subGroupIdsById.getOrDefault(groupId, Collections.emptyList())).forEach(this::remove);
+
+        groupIdsByPath.remove(group.getPath());
+        subGroupIdsById.remove(groupId);
+
+        String parentGroupId = parentGroupIdsById.remove(groupId);
+        if (parentGroupId == null) {
+            topLevelGroupIds.remove(groupId);
+        } else {
+            subGroupIdsById.getOrDefault(parentGroupId, new ArrayList<>()).remove(groupId);
+        }
+    }
+
+    synchronized void update(GroupRepresentation group) {
+        GroupRepresentation existingGroup = groupsById.get(group.getId());
+        if (existingGroup == null) return;
+
+        // keycloak only updates name and attributes of a group, role mappings and sub-groups are separate resources
+        if (group.getName() != null && !group.getName().equals(existingGroup.getName())) {
+            existingGroup.setName(group.getName());
+            updatePath(group.getId());
+        }
+
+        if (group.getAttributes() != null) {
+            existingGroup.setAttributes(CloneUtil.deepClone(group).getAttributes());
+        }
+    }
+
+    synchronized void addRealmRoles(String groupId, List<String> roleNames) {
+        GroupRepresentation group = groupsById.get(groupId);
+        if (group == null) return;
+
+        List<String> realmRoles = group.getRealmRoles() != null ? new ArrayList<>(group.getRealmRoles()) : new ArrayList<>();
+        roleNames.stream().filter(roleName -> !realmRoles.contains(roleName)).forEach(realmRoles::add);
+        group.setRealmRoles(realmRoles);
+    }
+
+    synchronized void removeRealmRoles(String groupId, List<String> roleNames) {
+        GroupRepresentation group = groupsById.get(groupId);
+        if (group == null || group.getRealmRoles() == null) return;
+
+        List<String> realmRoles = new ArrayList<>(group.getRealmRoles());
+        realmRoles.removeAll(roleNames);
+        group.setRealmRoles(realmRoles);
+    }
+
+    synchronized void addClientRoles(String groupId, String clientId, List<String> roleNames) {
+        GroupRepresentation group = groupsById.get(groupId);
+        if (group == null || roleNames.isEmpty()) return;
+
+        Map<String, List<String>> clientRoles = group.getClientRoles() != null ? new HashMap<>(group.getClientRoles()) : new HashMap<>();
+        List<String> clientRoleNames = new ArrayList<>(clientRoles.getOrDefault(clientId, Collections.emptyList()));
+        roleNames.stream().filter(roleName -> !clientRoleNames.contains(roleName)).forEach(clientRoleNames::add);
+
+        clientRoles.put(clientId, clientRoleNames);
+        group.setClientRoles(clientRoles);
+    }
+
+    synchronized void removeClientRoles(String groupId, String clientId, List<String> roleNames) {
+        GroupRepresentation group = groupsById.get(groupId);
+        if (group == null || group.getClientRoles() == null || !group.getClientRoles().containsKey(clientId)) return;
+
+        Map<String, List<String>> clientRoles = new HashMap<>(group.getClientRoles());
+        List<String> clientRoleNames = new ArrayList<>(clientRoles.get(clientId));
+        clientRoleNames.removeAll(roleNames);
+
+        if (clientRoleNames.isEmpty()) {
+            clientRoles.remove(clientId);
+        } else {
+            clientRoles.put(clientId, clientRoleNames);
+        }
+
+        group.setClientRoles(clientRoles);
+    }
+
+    /**
+     * Returns the top-level groups without sub-groups.
+     */
+    synchronized List<GroupRepresentation> getTopLevelGroups() {
+        return topLevelGroupIds.stream()
+                .map(groupId -> toReference(groupsById.get(groupId)))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Returns the top-level group without sub-groups.
+     */
+    synchronized GroupRepresentation searchTopLevelGroupByName(String name) {
+        String groupId = findIdByName(topLevelGroupIds, name);
+        return groupId != null ? toReference(groupsById.get(groupId)) : null;
+    }
+
+    GroupRepresentation getTopLevelGroupByName(String name) {
+        GroupRepresentation snapshot;
+        synchronized (this) {
+            String groupId = findIdByName(topLevelGroupIds, name);
+            snapshot = groupId != null ? snapshot(groupId) : null;
+        }
+
+        return snapshot != null ? CloneUtil.deepClone(snapshot) : null;
+    }
+
+    GroupRepresentation getSubGroupByName(String parentGroupId, String name) {
+        GroupRepresentation snapshot;
+        synchronized (this) {
+            String groupId = findIdByName(subGroupIdsById.getOrDefault(parentGroupId, Collections.emptyList()), name);
+            snapshot = groupId != null ? snapshot(groupId) : null;
+        }
+
+        return snapshot != null ? CloneUtil.deepClone(snapshot) : null;
+    }
+
+    /**
+     * Returns id, name and path of the group, which is all a group membership or a group reference needs.
+     */
+    synchronized GroupRepresentation getByPath(String groupPath) {
+        String path = groupPath.startsWith("/") ? groupPath : "/" + groupPath;
+        String groupId = groupIdsByPath.get(path);
+
+        return groupId != null ? toReference(groupsById.get(groupId)) : null;
+    }
+
+    GroupRepresentation getById(String groupId) {
+        GroupRepresentation snapshot;
+        synchronized (this) {
+            snapshot = groupsById.containsKey(groupId) ? snapshot(groupId) : null;
+        }
+
+        return snapshot != null ? CloneUtil.deepClone(snapshot) : null;
+    }
+
+    /**
+     * The path of a group contains the names of all its parents, so renaming a group moves all its descendants.
+     */
+    private void updatePath(String groupId) {
+        GroupRepresentation group = groupsById.get(groupId);
+
+        groupIdsByPath.remove(group.getPath());
+        group.setPath(getPath(parentGroupIdsById.get(groupId), group.getName()));
+        groupIdsByPath.put(group.getPath(), groupId);
+
+        subGroupIdsById.getOrDefault(groupId, Collections.emptyList()).forEach(this::updatePath);
+    }
+
+    private String getPath(String parentGroupId, String name) {
+        String parentPath = parentGroupId != null ? groupsById.get(parentGroupId).getPath() : "";
+        return parentPath + "/" + name;
+    }
+
+    private String findIdByName(List<String> groupIds, String name) {
+        return groupIds.stream()
+                .filter(groupId -> Objects.equals(groupsById.get(groupId).getName(), name))
+                .findFirst()
+                .orElse(null);
+    }
+
+    /**
+     * Assembles the sub-group hierarchy from shallow copies. The stored groups never change their collections in place,
+     * so the snapshot can be deep cloned after the lock is released.
+     */
+    private GroupRepresentation snapshot(String groupId) {
+        GroupRepresentation group = groupsById.get(groupId);
+
+        GroupRepresentation snapshot = toReference(group);
+        snapshot.setAttributes(group.getAttributes());
+        snapshot.setRealmRoles(group.getRealmRoles());
+        snapshot.setClientRoles(group.getClientRoles());
+        snapshot.setAccess(group.getAccess());
+        snapshot.setSubGroups(subGroupIdsById.getOrDefault(groupId, Collections.emptyList())
+                .stream()
+                .map(this::snapshot)
+                .collect(Collectors.toList()));
+
+        return snapshot;
+    }
+
+    private static GroupRepresentation toReference(GroupRepresentation group) {
+        GroupRepresentation reference = new GroupRepresentation();
+        reference.setId(group.getId());
+        reference.setName(group.getName());
+        reference.setPath(group.getPath());
+        return reference;
+    }
+}
@@ -22,6 +22,7 @@ package de.adorsys.keycloak.config.repository;
 
 import de.adorsys.keycloak.config.exception.KeycloakRepositoryException;
 import de.adorsys.keycloak.config.provider.KeycloakProvider;
+import de.adorsys.keycloak.config.resource.AsyncAdminApi;
 import de.adorsys.keycloak.config.util.ResponseUtil;
 import org.keycloak.admin.client.Keycloak;
 import org.keycloak.admin.client.resource.RealmResource;
@@ -55,6 +56,10 @@ public class RealmRepository {
         return keycloakProvider.getInstance().realms().realm(realmName);
     }
 
+    public AsyncAdminApi getAsyncResource() {
+        return keycloakProvider.getAsyncAdminApi();
+    }
+
     public RealmRepresentation get(String realmName) {
         return getResource(realmName).toRepresentation();
     }
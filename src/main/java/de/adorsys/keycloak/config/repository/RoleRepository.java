@@ -27,28 +27,25 @@ import de.adorsys.keycloak.config.resource.ManagementPermissions;
 import org.keycloak.admin.client.resource.*;
 import org.keycloak.representations.idm.*;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 @Service
 public class RoleRepository {
     private final RealmRepository realmRepository;
     private final ClientRepository clientRepository;
-    private final UserRepository userRepository;
     private final KeycloakProvider keycloakProvider;
 
     @Autowired
     public RoleRepository(
             RealmRepository realmRepository,
             ClientRepository clientRepository,
-            UserRepository userRepository,
             KeycloakProvider keycloakProvider) {
         this.realmRepository = realmRepository;
         this.clientRepository = clientRepository;
-        this.userRepository = userRepository;
         this.keycloakProvider = keycloakProvider;
     }
 
@@ -189,64 +186,41 @@ public class RoleRepository {
         return roles;
     }
 
-    public List<String> getUserRealmLevelRoles(String realmName, String username) {
-        UserRepresentation user = userRepository.get(realmName, username);
-        UserResource userResource = realmRepository.getResource(realmName)
-                .users()
-                .get(user.getId());
-
-        List<RoleRepresentation> roles = userResource.roles()
-                .realmLevel()
-                .listAll();
-
-        return roles.stream()
-                .map(RoleRepresentation::getName)
-                .collect(Collectors.toList());
+    public CompletableFuture<Void> addRealmRolesToUserAsync(String realmName, String userId, List<RoleRepresentation> realmRoles) {
+        return realmRepository.getAsyncResource()
+                .addUserRealmRoleMappings(realmName, userId, realmRoles)
+                .toCompletableFuture();
     }
 
-    public void addRealmRolesToUser(String realmName, String username, List<RoleRepresentation> realmRoles) {
-        UserResource userResource = userRepository.getResource(realmName, username);
-        userResource.roles().realmLevel().add(realmRoles);
+    public CompletableFuture<Void> removeRealmRolesForUserAsync(String realmName, String userId, List<RoleRepresentation> realmRoles) {
+        return realmRepository.getAsyncResource()
+                .removeUserRealmRoleMappings(realmName, userId, realmRoles)
+                .toCompletableFuture();
     }
 
-    public void removeRealmRolesForUser(String realmName, String username, List<RoleRepresentation> realmRoles) {
-        UserResource userResource = userRepository.getResource(realmName, username);
-        userResource.roles().realmLevel().remove(realmRoles);
+    public CompletableFuture<Void> addClientRolesToUserAsync(
+            String realmName, String userId, String clientUuid, List<RoleRepresentation> clientRoles
+    ) {
+        return realmRepository.getAsyncResource()
+                .addUserClientRoleMappings(realmName, userId, clientUuid, clientRoles)
+                .toCompletableFuture();
     }
 
-    public void addClientRolesToUser(String realmName, String username, String clientId, List<RoleRepresentation> clientRoles) {
-        ClientRepresentation client = clientRepository.getByClientId(realmName, clientId);
-        UserResource userResource = userRepository.getResource(realmName, username);
-
-        RoleScopeResource userClientRoles = userResource.roles()
-                .clientLevel(client.getId());
-
-        userClientRoles.add(clientRoles);
+    public CompletableFuture<Void> removeClientRolesForUserAsync(
+            String realmName, String userId, String clientUuid, List<RoleRepresentation> clientRoles
+    ) {
+        return realmRepository.getAsyncResource()
+                .removeUserClientRoleMappings(realmName, userId, clientUuid, clientRoles)
+                .toCompletableFuture();
     }
 
-    public void removeClientRolesForUser(String realmName, String username, String clientId, List<RoleRepresentation> clientRoles) {
-        ClientRepresentation client = clientRepository.getByClientId(realmName, clientId);
-        UserResource userResource = userRepository.getResource(realmName, username);
-
-        RoleScopeResource userClientRoles = userResource.roles()
-                .clientLevel(client.getId());
-
-        userClientRoles.remove(clientRoles);
-    }
-
-    public Map<String, List<String>> getUserClientLevelRoles(String realmName, String username) {
-        UserResource userResource = userRepository.getResource(realmName, username);
-
-        MappingsRepresentation mappings = userResource.roles()
-                .getAll();
-
-        return Optional.ofNullable(mappings.getClientMappings())
-                .map(Map::entrySet)
-                .orElseGet(Collections::emptySet)
-                .stream()
-                .map(entry -> new AbstractMap.SimpleImmutableEntry<>(
-                        entry.getKey(), toRoleNameList(entry.getValue().getMappings())))
-                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+    /**
+     * Realm and client level role mappings of the user by one request
+     */
+    public CompletableFuture<MappingsRepresentation> getUserRoleMappingsAsync(String realmName, String userId) {
+        return realmRepository.getAsyncResource()
+                .getUserRoleMappings(realmName, userId)
+                .toCompletableFuture();
     }
 
     public boolean isPermissionEnabled(String realmName, String id) {
@@ -259,13 +233,6 @@ public class RoleRepository {
         permissions.setRealmRolePermissions(realmName, id, new ManagementPermissionRepresentation(true));
     }
 
-    private List<String> toRoleNameList(@Nullable Collection<? extends RoleRepresentation> roles) {
-        if (roles == null) {
-            return Collections.emptyList();
-        }
-        return roles.stream().map(RoleRepresentation::getName).collect(Collectors.toList());
-    }
-
     final RoleResource loadRealmRole(String realmName, String roleName) {
         RealmResource realmResource = realmRepository.getResource(realmName);
         return realmResource
@@ -32,6 +32,7 @@ import org.springframework.stereotype.Service;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import javax.ws.rs.core.Response;
 
 @Service
@@ -71,22 +72,27 @@ public class UserRepository {
         );
     }
 
-    public void create(String realmName, UserRepresentation user) {
+    /**
+     * @return the id of the created user
+     */
+    public String create(String realmName, UserRepresentation user) {
         RealmResource realmResource = realmRepository.getResource(realmName);
         UsersResource usersResource = realmResource.users();
 
         try (Response response = usersResource.create(user)) {
-            CreatedResponseUtil.getCreatedId(response);
+            return CreatedResponseUtil.getCreatedId(response);
         }
     }
 
-    public void updateUser(String realmName, UserRepresentation user) {
-        UserResource userResource = getResource(realmName, user.getUsername());
-        userResource.update(user);
+    public CompletableFuture<Void> updateUserAsync(String realmName, String id, UserRepresentation user) {
+        return realmRepository.getAsyncResource()
+                .updateUser(realmName, id, user)
+                .toCompletableFuture();
     }
 
-    public List<GroupRepresentation> getGroups(String realmName, UserRepresentation user) {
-        UserResource userResource = getResource(realmName, user.getUsername());
-        return userResource.groups();
+    public CompletableFuture<List<GroupRepresentation>> getGroupsAsync(String realmName, String userId) {
+        return realmRepository.getAsyncResource()
+                .getUserGroups(realmName, userId)
+                .toCompletableFuture();
     }
 }
@@ -0,0 +1,87 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2021 adorsys GmbH & Co. KG @ https://adorsys.com
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.resource;
+
+import org.keycloak.representations.idm.GroupRepresentation;
+import org.keycloak.representations.idm.MappingsRepresentation;
+import org.keycloak.representations.idm.RoleRepresentation;
+import org.keycloak.representations.idm.UserRepresentation;
+
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import javax.ws.rs.*;
+
+/**
+ * Non-blocking variants of the admin API routes used per entity of an import
+ * <p>
+ * RESTEasy invokes proxy methods returning a {@link CompletionStage} on the async executor of the client, so the calling
+ * thread is free to send further calls. The stage completes exceptionally with the same {@link WebApplicationException}
+ * the blocking proxies of the keycloak admin client throw.
+ */
+public interface AsyncAdminApi {
+
+    @PUT
+    @Path("/admin/realms/{realm}/users/{id}")
+    @Consumes({"application/json"})
+    CompletionStage<Void> updateUser(@PathParam("realm") String realm, @PathParam("id") String id, UserRepresentation user);
+
+    @GET
+    @Path("/admin/realms/{realm}/users/{id}/groups")
+    @Produces({"application/json"})
+    CompletionStage<List<GroupRepresentation>> getUserGroups(@PathParam("realm") String realm, @PathParam("id") String id);
+
+    @PUT
+    @Path("/admin/realms/{realm}/users/{id}/groups/{groupId}")
+    CompletionStage<Void> joinGroup(@PathParam("realm") String realm, @PathParam("id") String id, @PathParam("groupId") String groupId);
+
+    @DELETE
+    @Path("/admin/realms/{realm}/users/{id}/groups/{groupId}")
+    CompletionStage<Void> leaveGroup(@PathParam("realm") String realm, @PathParam("id") String id, @PathParam("groupId") String groupId);
+
+    @GET
+    @Path("/admin/realms/{realm}/users/{id}/role-mappings")
+    @Produces({"application/json"})
+    CompletionStage<MappingsRepresentation> getUserRoleMappings(@PathParam("realm") String realm, @PathParam("id") String id);
+
+    @POST
+    @Path("/admin/realms/{realm}/users/{id}/role-mappings/realm")
+    @Consumes({"application/json"})
+    CompletionStage<Void> addUserRealmRoleMappings(@PathParam("realm") String realm, @PathParam("id") String id,
+                                                   List<RoleRepresentation> roles);
+
+    @DELETE
+    @Path("/admin/realms/{realm}/users/{id}/role-mappings/realm")
+    @Consumes({"application/json"})
+    CompletionStage<Void> removeUserRealmRoleMappings(@PathParam("realm") String realm, @PathParam("id") String id,
+                                                      List<RoleRepresentation> roles);
+
+    @POST
+    @Path("/admin/realms/{realm}/users/{id}/role-mappings/clients/{client}")
+    @Consumes({"application/json"})
+    CompletionStage<Void> addUserClientRoleMappings(@PathParam("realm") String realm, @PathParam("id") String id,
+                                                    @PathParam("client") String client, List<RoleRepresentation> roles);
+
+    @DELETE
+    @Path("/admin/realms/{realm}/users/{id}/role-mappings/clients/{client}")
+    @Consumes({"application/json"})
+    CompletionStage<Void> removeUserClientRoleMappings(@PathParam("realm") String realm, @PathParam("id") String id,
+                                                       @PathParam("client") String client, List<RoleRepresentation> roles);
+}
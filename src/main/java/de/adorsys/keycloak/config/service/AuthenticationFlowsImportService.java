@@ -22,11 +22,14 @@ package de.adorsys.keycloak.config.service;
 
 import de.adorsys.keycloak.config.exception.InvalidImportException;
 import de.adorsys.keycloak.config.factory.UsedAuthenticationFlowWorkaroundFactory;
+import de.adorsys.keycloak.config.factory.UsedAuthenticationFlowWorkaroundFactory.UsedAuthenticationFlowWorkaround;
 import de.adorsys.keycloak.config.model.RealmImport;
 import de.adorsys.keycloak.config.properties.ImportConfigProperties;
 import de.adorsys.keycloak.config.properties.ImportConfigProperties.ImportManagedProperties.ImportManagedPropertiesValues;
 import de.adorsys.keycloak.config.repository.AuthenticationFlowRepository;
 import de.adorsys.keycloak.config.repository.RealmRepository;
+import de.adorsys.keycloak.config.service.metrics.ImportMetricsService;
+import de.adorsys.keycloak.config.service.metrics.ImportMetricsService.EntityOutcome;
 import de.adorsys.keycloak.config.util.AuthenticationFlowUtil;
 import de.adorsys.keycloak.config.util.CloneUtil;
 import org.keycloak.representations.idm.AuthenticationExecutionInfoRepresentation;
@@ -61,6 +64,7 @@ public class AuthenticationFlowsImportService {
     private final UsedAuthenticationFlowWorkaroundFactory workaroundFactory;
 
     private final ImportConfigProperties importConfigProperties;
+    private final ImportMetricsService importMetricsService;
 
     @Autowired
     public AuthenticationFlowsImportService(
@@ -68,7 +72,8 @@ public class AuthenticationFlowsImportService {
             AuthenticationFlowRepository authenticationFlowRepository,
             ExecutionFlowsImportService executionFlowsImportService,
             AuthenticatorConfigImportService authenticatorConfigImportService, UsedAuthenticationFlowWorkaroundFactory workaroundFactory,
-            ImportConfigProperties importConfigProperties
+            ImportConfigProperties importConfigProperties,
+            ImportMetricsService importMetricsService
     ) {
         this.realmRepository = realmRepository;
         this.authenticationFlowRepository = authenticationFlowRepository;
@@ -76,6 +81,7 @@ public class AuthenticationFlowsImportService {
         this.authenticatorConfigImportService = authenticatorConfigImportService;
         this.workaroundFactory = workaroundFactory;
         this.importConfigProperties = importConfigProperties;
+        this.importMetricsService = importMetricsService;
     }
 
     /**
@@ -83,7 +89,8 @@ public class AuthenticationFlowsImportService {
      * - check the authentication flows:
      * -- if the flow is not present: create the authentication flow
      * -- if the flow is present, check:
-     * --- if the flow contains any changes: update the authentication flow, which means: delete and recreate the authentication flow
+     * --- if the flow contains any changes: update the authentication flow and its executions in place
+     * --- if the flow cannot be updated in place: delete and recreate the authentication flow
      * --- if nothing of above: do nothing
      */
     public void doImport(RealmImport realmImport) {
@@ -91,7 +98,8 @@ public class AuthenticationFlowsImportService {
         if (authenticationFlows == null) return;
 
         List<AuthenticationFlowRepresentation> topLevelFlowsToImport = AuthenticationFlowUtil.getTopLevelFlows(realmImport);
-        createOrUpdateTopLevelFlows(realmImport, topLevelFlowsToImport);
+        UsedAuthenticationFlowWorkaround workaround = workaroundFactory.buildFor(realmImport);
+        createOrUpdateTopLevelFlows(realmImport, topLevelFlowsToImport, workaround);
         updateBuiltInFlows(realmImport, authenticationFlows);
         setupFlowsInRealm(realmImport);
 
@@ -116,10 +124,15 @@ public class AuthenticationFlowsImportService {
     /**
      * creates or updates only the top-level flows and its executions or execution-flows
      */
-    private void createOrUpdateTopLevelFlows(RealmImport realmImport, List<AuthenticationFlowRepresentation> topLevelFlowsToImport) {
+    private void createOrUpdateTopLevelFlows(
+            RealmImport realmImport,
+            List<AuthenticationFlowRepresentation> topLevelFlowsToImport,
+            UsedAuthenticationFlowWorkaround workaround
+    ) {
         for (AuthenticationFlowRepresentation topLevelFlowToImport : topLevelFlowsToImport) {
             if (!topLevelFlowToImport.isBuiltIn()) {
-                createOrUpdateTopLevelFlow(realmImport, topLevelFlowToImport);
+                importMetricsService.timeEntity(realmImport.getRealm(), "authentication-flow", topLevelFlowToImport.getAlias(),
+                        () -> createOrUpdateTopLevelFlow(realmImport, topLevelFlowToImport, workaround));
             }
         }
     }
@@ -127,9 +140,10 @@ public class AuthenticationFlowsImportService {
     /**
      * creates or updates only the top-level flow and its executions or execution-flows
      */
-    private void createOrUpdateTopLevelFlow(
+    private EntityOutcome createOrUpdateTopLevelFlow(
             RealmImport realmImport,
-            AuthenticationFlowRepresentation topLevelFlowToImport
+            AuthenticationFlowRepresentation topLevelFlowToImport,
+            UsedAuthenticationFlowWorkaround workaround
     ) {
         String alias = topLevelFlowToImport.getAlias();
 
@@ -137,10 +151,11 @@ public class AuthenticationFlowsImportService {
 
         if (maybeTopLevelFlow.isPresent()) {
             AuthenticationFlowRepresentation existingTopLevelFlow = maybeTopLevelFlow.get();
-            updateTopLevelFlowIfNeeded(realmImport, topLevelFlowToImport, existingTopLevelFlow);
-        } else {
-            createTopLevelFlow(realmImport, topLevelFlowToImport);
+            return updateTopLevelFlowIfNeeded(realmImport, topLevelFlowToImport, existingTopLevelFlow, workaround);
         }
+
+        createTopLevelFlow(realmImport, topLevelFlowToImport);
+        return EntityOutcome.CREATED;
     }
 
     private void createTopLevelFlow(RealmImport realmImport, AuthenticationFlowRepresentation topLevelFlowToImport) {
@@ -153,20 +168,29 @@ public class AuthenticationFlowsImportService {
         executionFlowsImportService.createExecutionsAndExecutionFlows(realmImport, topLevelFlowToImport, createdTopLevelFlow);
     }
 
-    private void updateTopLevelFlowIfNeeded(
+    private EntityOutcome updateTopLevelFlowIfNeeded(
             RealmImport realmName,
             AuthenticationFlowRepresentation topLevelFlowToImport,
-            AuthenticationFlowRepresentation existingAuthenticationFlow
+            AuthenticationFlowRepresentation existingAuthenticationFlow,
+            UsedAuthenticationFlowWorkaround workaround
     ) {
         boolean hasToBeUpdated = hasAuthenticationFlowToBeUpdated(topLevelFlowToImport, existingAuthenticationFlow)
                 || hasAnySubFlowToBeUpdated(realmName, topLevelFlowToImport);
 
-        if (hasToBeUpdated) {
-            logger.debug("Recreate top-level flow: {}", topLevelFlowToImport.getAlias());
-            recreateTopLevelFlow(realmName, topLevelFlowToImport, existingAuthenticationFlow);
-        } else {
+        if (!hasToBeUpdated) {
             logger.debug("No need to update flow: {}", topLevelFlowToImport.getAlias());
+            return EntityOutcome.SKIPPED;
         }
+
+        if (!existingAuthenticationFlow.isBuiltIn()
+                && executionFlowsImportService.reconcileExecutionsAndExecutionFlows(realmName, topLevelFlowToImport, existingAuthenticationFlow)) {
+            logger.debug("Updated top-level flow in place: {}", topLevelFlowToImport.getAlias());
+            return EntityOutcome.UPDATED;
+        }
+
+        logger.debug("Recreate top-level flow: {}", topLevelFlowToImport.getAlias());
+        recreateTopLevelFlow(realmName, topLevelFlowToImport, existingAuthenticationFlow, workaround);
+        return EntityOutcome.UPDATED;
     }
 
     private boolean hasAnySubFlowToBeUpdated(
@@ -215,7 +239,8 @@ public class AuthenticationFlowsImportService {
     }
 
     /**
-     * Checks if the authentication flow to import and the existing representation differs in any property except "id" and:
+     * Checks if the authentication flow to import and the existing representation differs in any property except "id" and the
+     * priority values of the executions, only the order of the executions is compared.
      *
      * @param authenticationFlowToImport the top-level or non-top-level flow coming from import file
      * @param existingAuthenticationFlow the existing top-level or non-top-level flow in keycloak
@@ -225,11 +250,7 @@ public class AuthenticationFlowsImportService {
             AuthenticationFlowRepresentation authenticationFlowToImport,
             AuthenticationFlowRepresentation existingAuthenticationFlow
     ) {
-        return !CloneUtil.deepEquals(
-                authenticationFlowToImport,
-                existingAuthenticationFlow,
-                "id"
-        );
+        return !AuthenticationFlowUtil.isSameFlow(authenticationFlowToImport, existingAuthenticationFlow);
     }
 
     private void updateBuiltInFlows(
@@ -284,7 +305,8 @@ public class AuthenticationFlowsImportService {
     private void recreateTopLevelFlow(
             RealmImport realmImport,
             AuthenticationFlowRepresentation topLevelFlowToImport,
-            AuthenticationFlowRepresentation existingAuthenticationFlow
+            AuthenticationFlowRepresentation existingAuthenticationFlow,
+            UsedAuthenticationFlowWorkaround workaround
     ) {
         AuthenticationFlowRepresentation patchedAuthenticationFlow = CloneUtil.patch(
                 existingAuthenticationFlow, topLevelFlowToImport, "id"
@@ -297,7 +319,6 @@ public class AuthenticationFlowsImportService {
             ));
         }
 
-        UsedAuthenticationFlowWorkaroundFactory.UsedAuthenticationFlowWorkaround workaround = workaroundFactory.buildFor(realmImport);
         workaround.disableTopLevelFlowIfNeeded(topLevelFlowToImport.getAlias());
 
         authenticatorConfigImportService.deleteAuthenticationConfigs(realmImport, patchedAuthenticationFlow);
@@ -328,7 +349,8 @@ public class AuthenticationFlowsImportService {
             if (topLevelFlowsToImportAliases.contains(existingTopLevelFlow.getAlias())) continue;
 
             logger.debug("Delete authentication flow: {}", existingTopLevelFlow.getAlias());
-            authenticationFlowRepository.delete(realmName, existingTopLevelFlow.getId());
+            importMetricsService.timeEntity(realmName, "authentication-flow", existingTopLevelFlow.getAlias(), EntityOutcome.DELETED,
+                    () -> authenticationFlowRepository.delete(realmName, existingTopLevelFlow.getId()));
         }
     }
 }
@@ -23,9 +23,12 @@ package de.adorsys.keycloak.config.service;
 import de.adorsys.keycloak.config.exception.ImportProcessingException;
 import de.adorsys.keycloak.config.model.RealmImport;
 import de.adorsys.keycloak.config.properties.ImportConfigProperties;
+import de.adorsys.keycloak.config.provider.KeycloakProvider;
 import de.adorsys.keycloak.config.repository.AuthenticationFlowRepository;
 import de.adorsys.keycloak.config.repository.ClientRepository;
 import de.adorsys.keycloak.config.repository.ClientScopeRepository;
+import de.adorsys.keycloak.config.service.metrics.ImportMetricsService;
+import de.adorsys.keycloak.config.service.metrics.ImportMetricsService.EntityOutcome;
 import de.adorsys.keycloak.config.service.state.StateService;
 import de.adorsys.keycloak.config.util.*;
 import org.apache.commons.lang3.ArrayUtils;
@@ -61,7 +64,9 @@ public class ClientImportService {
     private final ClientScopeRepository clientScopeRepository;
     private final AuthenticationFlowRepository authenticationFlowRepository;
     private final ImportConfigProperties importConfigProperties;
+    private final KeycloakProvider keycloakProvider;
     private final StateService stateService;
+    private final ImportMetricsService importMetricsService;
 
     @Autowired
     public ClientImportService(
@@ -69,12 +74,16 @@ public class ClientImportService {
             ClientScopeRepository clientScopeRepository,
             AuthenticationFlowRepository authenticationFlowRepository,
             ImportConfigProperties importConfigProperties,
-            StateService stateService) {
+            KeycloakProvider keycloakProvider,
+            StateService stateService,
+            ImportMetricsService importMetricsService) {
         this.clientRepository = clientRepository;
         this.clientScopeRepository = clientScopeRepository;
         this.authenticationFlowRepository = authenticationFlowRepository;
         this.importConfigProperties = importConfigProperties;
+        this.keycloakProvider = keycloakProvider;
         this.stateService = stateService;
+        this.importMetricsService = importMetricsService;
     }
 
     public void doImport(RealmImport realmImport) {
@@ -102,9 +111,11 @@ public class ClientImportService {
             RealmImport realmImport,
             List<ClientRepresentation> clients
     ) {
-        Consumer<ClientRepresentation> loop = client -> createOrUpdateClient(realmImport, client);
+        Consumer<ClientRepresentation> loop = client -> importMetricsService.timeEntity(
+                realmImport.getRealm(), "client", getClientIdentifier(client), () -> createOrUpdateClient(realmImport, client)
+        );
         if (importConfigProperties.isParallel()) {
-            clients.parallelStream().forEach(loop);
+            keycloakProvider.forEachParallel(clients, loop);
         } else {
             clients.forEach(loop);
         }
@@ -133,11 +144,12 @@ public class ClientImportService {
 
         for (ClientRepresentation clientToRemove : clientsToRemove) {
             logger.debug("Remove client '{}' in realm '{}'", clientToRemove.getClientId(), realmImport.getRealm());
-            clientRepository.remove(realmImport.getRealm(), clientToRemove);
+            importMetricsService.timeEntity(realmImport.getRealm(), "client", clientToRemove.getClientId(), EntityOutcome.DELETED,
+                    () -> clientRepository.remove(realmImport.getRealm(), clientToRemove));
         }
     }
 
-    private void createOrUpdateClient(
+    private EntityOutcome createOrUpdateClient(
             RealmImport realmImport,
             ClientRepresentation client
     ) {
@@ -171,14 +183,15 @@ public class ClientImportService {
         }
 
         if (existingClient.isPresent()) {
-            updateClientIfNeeded(realmName, client, existingClient.get());
-        } else {
-            logger.debug("Create client '{}' in realm '{}'", getClientIdentifier(client), realmName);
-            createClient(realmName, client);
+            return updateClientIfNeeded(realmName, client, existingClient.get());
         }
+
+        logger.debug("Create client '{}' in realm '{}'", getClientIdentifier(client), realmName);
+        createClient(realmName, client);
+        return EntityOutcome.CREATED;
     }
 
-    private void updateClientIfNeeded(
+    private EntityOutcome updateClientIfNeeded(
             String realmName,
             ClientRepresentation clientToUpdate,
             ClientRepresentation existingClient
@@ -190,9 +203,11 @@ public class ClientImportService {
             logger.debug("Update client '{}' in realm '{}'", getClientIdentifier(clientToUpdate), realmName);
             updateClient(realmName, mergedClient);
             updateClientDefaultOptionalClientScopes(realmName, mergedClient, existingClient);
-        } else {
-            logger.debug("No need to update client '{}' in realm '{}'", getClientIdentifier(clientToUpdate), realmName);
+            return EntityOutcome.UPDATED;
         }
+
+        logger.debug("No need to update client '{}' in realm '{}'", getClientIdentifier(clientToUpdate), realmName);
+        return EntityOutcome.SKIPPED;
     }
 
     private void createClient(String realmName, ClientRepresentation client) {
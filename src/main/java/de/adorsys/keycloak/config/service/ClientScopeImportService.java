@@ -23,8 +23,11 @@ package de.adorsys.keycloak.config.service;
 import de.adorsys.keycloak.config.exception.ImportProcessingException;
 import de.adorsys.keycloak.config.model.RealmImport;
 import de.adorsys.keycloak.config.properties.ImportConfigProperties;
+import de.adorsys.keycloak.config.provider.KeycloakProvider;
 import de.adorsys.keycloak.config.repository.ClientScopeRepository;
 import de.adorsys.keycloak.config.repository.RealmRepository;
+import de.adorsys.keycloak.config.service.metrics.ImportMetricsService;
+import de.adorsys.keycloak.config.service.metrics.ImportMetricsService.EntityOutcome;
 import de.adorsys.keycloak.config.util.CloneUtil;
 import de.adorsys.keycloak.config.util.ProtocolMapperUtil;
 import org.keycloak.representations.idm.ClientScopeRepresentation;
@@ -46,15 +49,21 @@ public class ClientScopeImportService {
 
     private final ClientScopeRepository clientScopeRepository;
     private final ImportConfigProperties importConfigProperties;
+    private final KeycloakProvider keycloakProvider;
     private final RealmRepository realmRepository;
+    private final ImportMetricsService importMetricsService;
 
     public ClientScopeImportService(
             ClientScopeRepository clientScopeRepository,
             ImportConfigProperties importConfigProperties,
-            RealmRepository realmRepository) {
+            KeycloakProvider keycloakProvider,
+            RealmRepository realmRepository,
+            ImportMetricsService importMetricsService) {
         this.clientScopeRepository = clientScopeRepository;
         this.importConfigProperties = importConfigProperties;
+        this.keycloakProvider = keycloakProvider;
         this.realmRepository = realmRepository;
+        this.importMetricsService = importMetricsService;
     }
 
     public void doImport(RealmImport realmImport) {
@@ -169,9 +178,11 @@ public class ClientScopeImportService {
             String realmName,
             List<ClientScopeRepresentation> clientScopes
     ) {
-        Consumer<ClientScopeRepresentation> loop = clientScope -> createOrUpdateClientScope(realmName, clientScope);
+        Consumer<ClientScopeRepresentation> loop = clientScope -> importMetricsService.timeEntity(
+                realmName, "client-scope", clientScope.getName(), () -> createOrUpdateClientScope(realmName, clientScope)
+        );
         if (importConfigProperties.isParallel()) {
-            clientScopes.parallelStream().forEach(loop);
+            keycloakProvider.forEachParallel(clientScopes, loop);
         } else {
             clientScopes.forEach(loop);
         }
@@ -189,7 +200,8 @@ public class ClientScopeImportService {
                             && !hasClientScopeWithName(clientScopes, existingClientScope.getName())
             ) {
                 logger.debug("Delete clientScope '{}' in realm '{}'", existingClientScope.getName(), realmName);
-                clientScopeRepository.delete(realmName, existingClientScope.getId());
+                importMetricsService.timeEntity(realmName, "client-scope", existingClientScope.getName(), EntityOutcome.DELETED,
+                        () -> clientScopeRepository.delete(realmName, existingClientScope.getId()));
             }
         }
     }
@@ -210,7 +222,7 @@ public class ClientScopeImportService {
         return clientScopes.stream().anyMatch(s -> Objects.equals(s.getName(), clientScopeName));
     }
 
-    private void createOrUpdateClientScope(
+    private EntityOutcome createOrUpdateClientScope(
             String realmName,
             ClientScopeRepresentation clientScope
     ) {
@@ -220,11 +232,12 @@ public class ClientScopeImportService {
                 .searchByName(realmName, clientScopeName);
 
         if (maybeClientScope.isPresent()) {
-            updateClientScopeIfNecessary(realmName, clientScope);
-        } else {
-            logger.debug("Create clientScope '{}' in realm '{}'", clientScopeName, realmName);
-            createClientScope(realmName, clientScope);
+            return updateClientScopeIfNecessary(realmName, clientScope);
         }
+
+        logger.debug("Create clientScope '{}' in realm '{}'", clientScopeName, realmName);
+        createClientScope(realmName, clientScope);
+        return EntityOutcome.CREATED;
     }
 
     private void createClientScope(
@@ -234,7 +247,7 @@ public class ClientScopeImportService {
         clientScopeRepository.create(realmName, clientScope);
     }
 
-    private void updateClientScopeIfNecessary(
+    private EntityOutcome updateClientScopeIfNecessary(
             String realmName,
             ClientScopeRepresentation clientScope
     ) {
@@ -249,10 +262,12 @@ public class ClientScopeImportService {
 
         if (isClientScopeEqual(existingClientScope, patchedClientScope)) {
             logger.debug("No need to update clientScope '{}' in realm '{}'", clientScopeName, realmName);
-        } else {
-            logger.debug("Update clientScope '{}' in realm '{}'", clientScopeName, realmName);
-            updateClientScope(realmName, patchedClientScope);
+            return EntityOutcome.SKIPPED;
         }
+
+        logger.debug("Update clientScope '{}' in realm '{}'", clientScopeName, realmName);
+        updateClientScope(realmName, patchedClientScope);
+        return EntityOutcome.UPDATED;
     }
 
     private boolean isClientScopeEqual(
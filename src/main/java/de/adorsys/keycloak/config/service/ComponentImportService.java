@@ -20,23 +20,36 @@
 
 package de.adorsys.keycloak.config.service;
 
+import de.adorsys.keycloak.config.exception.ImportProcessingException;
 import de.adorsys.keycloak.config.model.RealmImport;
 import de.adorsys.keycloak.config.properties.ImportConfigProperties;
+import de.adorsys.keycloak.config.properties.ImportConfigProperties.ImportBehaviorsProperties;
+import de.adorsys.keycloak.config.properties.ImportConfigProperties.ImportBehaviorsProperties.SyncUserFederationAction;
 import de.adorsys.keycloak.config.properties.ImportConfigProperties.ImportManagedProperties.ImportManagedPropertiesValues;
 import de.adorsys.keycloak.config.repository.ComponentRepository;
 import de.adorsys.keycloak.config.repository.RealmRepository;
+import de.adorsys.keycloak.config.service.metrics.ImportMetricsService;
+import de.adorsys.keycloak.config.service.metrics.ImportMetricsService.EntityOutcome;
+import de.adorsys.keycloak.config.service.metrics.ImportMetricsService.UserFederationSyncMetrics;
+import de.adorsys.keycloak.config.service.metrics.ImportMetricsService.UserFederationSyncStatus;
 import de.adorsys.keycloak.config.service.state.StateService;
 import de.adorsys.keycloak.config.util.CloneUtil;
-import org.keycloak.admin.client.resource.RealmResource;
 import org.keycloak.common.util.MultivaluedHashMap;
 import org.keycloak.representations.idm.ComponentExportRepresentation;
 import org.keycloak.representations.idm.ComponentRepresentation;
+import org.keycloak.representations.idm.SynchronizationResultRepresentation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 @Service
 public class ComponentImportService {
@@ -46,17 +59,29 @@ public class ComponentImportService {
     private final ImportConfigProperties importConfigProperties;
     private final StateService stateService;
     private final RealmRepository realmRepository;
+    private final ImportMetricsService importMetricsService;
+
+    // a synchronization blocks on keycloak for minutes, it must not take a thread of the common pool used by parallel imports
+    private static final Executor USER_FEDERATION_SYNC_EXECUTOR = runnable -> {
+        Thread thread = new Thread(runnable, "kcc-user-federation-sync");
+        thread.setDaemon(true);
+        thread.start();
+    };
+
+    private final Map<String, List<CompletableFuture<Void>>> pendingUserFederationSyncs = new ConcurrentHashMap<>();
 
     @Autowired
     public ComponentImportService(
             ComponentRepository componentRepository,
             ImportConfigProperties importConfigProperties,
             StateService stateService,
-            RealmRepository realmRepository) {
+            RealmRepository realmRepository,
+            ImportMetricsService importMetricsService) {
         this.componentRepository = componentRepository;
         this.importConfigProperties = importConfigProperties;
         this.stateService = stateService;
         this.realmRepository = realmRepository;
+        this.importMetricsService = importMetricsService;
     }
 
     public void doImport(RealmImport realmImport) {
@@ -67,45 +92,68 @@ public class ComponentImportService {
         }
 
         String realmName = realmImport.getRealm();
-        importComponents(realmName, components);
+        ComponentTree existingComponents = new ComponentTree(
+                realmRepository.get(realmName).getId(),
+                componentRepository.getAll(realmName)
+        );
+
+        importComponents(realmName, components, existingComponents);
 
         if (importConfigProperties.getManaged().getComponent() == ImportManagedPropertiesValues.FULL) {
-            deleteComponentsMissingInImport(realmName, components, null);
+            deleteComponentsMissingInImport(realmName, components, null, existingComponents);
         }
 
         syncUserFederationIfNecessary(realmImport);
     }
 
-    private void importComponents(String realmName, Map<String, List<ComponentExportRepresentation>> componentsToImport) {
+    private void importComponents(
+            String realmName,
+            Map<String, List<ComponentExportRepresentation>> componentsToImport,
+            ComponentTree existingComponents
+    ) {
         for (Map.Entry<String, List<ComponentExportRepresentation>> entry : componentsToImport.entrySet()) {
-            createOrUpdateComponents(realmName, entry.getKey(), entry.getValue());
+            createOrUpdateComponents(realmName, entry.getKey(), entry.getValue(), existingComponents);
         }
     }
 
-    private void createOrUpdateComponents(String realmName, String providerType, List<ComponentExportRepresentation> componentsToImport) {
+    private void createOrUpdateComponents(
+            String realmName,
+            String providerType,
+            List<ComponentExportRepresentation> componentsToImport,
+            ComponentTree existingComponents
+    ) {
         for (ComponentExportRepresentation componentToImport : componentsToImport) {
-            createOrUpdateComponent(realmName, providerType, componentToImport);
+            importMetricsService.timeEntity(realmName, "component", providerType + "/" + componentToImport.getName(),
+                    () -> createOrUpdateComponent(realmName, providerType, componentToImport, existingComponents));
         }
     }
 
-    private void createOrUpdateComponent(String realmName, String providerType, ComponentExportRepresentation componentToImport) {
-        Optional<ComponentRepresentation> existingComponent = componentRepository.search(
-                realmName, providerType, componentToImport.getSubType(), componentToImport.getName()
+    private EntityOutcome createOrUpdateComponent(
+            String realmName,
+            String providerType,
+            ComponentExportRepresentation componentToImport,
+            ComponentTree existingComponents
+    ) {
+        Optional<ComponentRepresentation> existingComponent = existingComponents.search(
+                null, providerType, componentToImport.getSubType(), componentToImport.getName()
         );
 
         if (existingComponent.isPresent()) {
-            updateComponentIfNeeded(realmName, providerType, componentToImport, existingComponent.get());
-        } else {
-            logger.debug("Creating component: {}/{}", providerType, componentToImport.getName());
-            createComponent(realmName, providerType, componentToImport);
+            return updateComponentIfNeeded(realmName, providerType, componentToImport, existingComponent.get(), existingComponents);
         }
-    }
 
-    private void createComponent(String realmName, String providerType, ComponentExportRepresentation component) {
-        createComponent(realmName, providerType, component, null);
+        logger.debug("Creating component: {}/{}", providerType, componentToImport.getName());
+        createComponent(realmName, providerType, componentToImport, null, existingComponents);
+        return EntityOutcome.CREATED;
     }
 
-    private void createComponent(String realmName, String providerType, ComponentExportRepresentation component, String parentId) {
+    private void createComponent(
+            String realmName,
+            String providerType,
+            ComponentExportRepresentation component,
+            String parentId,
+            ComponentTree existingComponents
+    ) {
         ComponentRepresentation componentToCreate = CloneUtil.deepClone(component, ComponentRepresentation.class);
 
         if (componentToCreate.getProviderType() == null) {
@@ -120,33 +168,46 @@ public class ComponentImportService {
 
         MultivaluedHashMap<String, ComponentExportRepresentation> subComponents = component.getSubComponents();
         ComponentRepresentation exitingComponent = componentRepository.getById(realmName, componentId);
+        existingComponents.add(exitingComponent);
+
+        // keycloak may create sub-components on its own, e.g. the default mappers of a ldap user storage provider
+        if (parentId == null) {
+            componentRepository.getByParentId(realmName, componentId).forEach(existingComponents::add);
+        }
 
         if (!subComponents.isEmpty()) {
-            createOrUpdateSubComponents(realmName, subComponents, exitingComponent.getId());
+            createOrUpdateSubComponents(realmName, subComponents, exitingComponent.getId(), existingComponents);
         }
 
         if (importConfigProperties.getManaged().getComponent() == ImportManagedPropertiesValues.FULL) {
-            deleteComponentsMissingInImport(realmName, subComponents, exitingComponent);
+            deleteComponentsMissingInImport(realmName, subComponents, exitingComponent, existingComponents);
         }
     }
 
-    private void updateComponentIfNeeded(
+    private EntityOutcome updateComponentIfNeeded(
             String realmName,
             String providerType,
             ComponentExportRepresentation componentToImport,
-            ComponentRepresentation existingComponent
+            ComponentRepresentation existingComponent,
+            ComponentTree existingComponents
     ) {
         boolean hasSubComponents = !componentToImport.getSubComponents().isEmpty();
 
         ComponentRepresentation patchedComponent = CloneUtil.patch(existingComponent, componentToImport, "id");
-        if (hasSubComponents || !isComponentEqual(realmName, existingComponent, patchedComponent)) {
-            updateComponent(realmName, providerType, componentToImport, patchedComponent);
-        } else {
-            logger.debug("No need to update component: {}/{}", existingComponent.getProviderType(), componentToImport.getName());
+        if (hasSubComponents || !isComponentEqual(existingComponent, patchedComponent, existingComponents)) {
+            updateComponent(realmName, providerType, componentToImport, patchedComponent, existingComponents);
+            return EntityOutcome.UPDATED;
         }
+
+        logger.debug("No need to update component: {}/{}", existingComponent.getProviderType(), componentToImport.getName());
+        return EntityOutcome.SKIPPED;
     }
 
-    private boolean isComponentEqual(String realmName, ComponentRepresentation existingComponent, ComponentRepresentation patchedComponent) {
+    private boolean isComponentEqual(
+            ComponentRepresentation existingComponent,
+            ComponentRepresentation patchedComponent,
+            ComponentTree existingComponents
+    ) {
         // compare component config
         MultivaluedHashMap<String, String> existingComponentConfig = existingComponent.getConfig();
         MultivaluedHashMap<String, String> patchedComponentConfig = patchedComponent.getConfig();
@@ -174,15 +235,15 @@ public class ComponentImportService {
             }
         }
 
-        List<ComponentRepresentation> existingSubComponents = componentRepository.getAll(realmName, patchedComponent.getId());
-        return existingSubComponents.isEmpty();
+        return existingComponents.getChildren(patchedComponent.getId()).isEmpty();
     }
 
     private void updateComponent(
             String realmName,
             String providerType,
             ComponentExportRepresentation componentToImport,
-            ComponentRepresentation patchedComponent
+            ComponentRepresentation patchedComponent,
+            ComponentTree existingComponents
     ) {
         logger.debug("Updating component: {}/{}", patchedComponent.getProviderType(), componentToImport.getName());
 
@@ -191,35 +252,39 @@ public class ComponentImportService {
         }
 
         componentRepository.update(realmName, patchedComponent);
+        existingComponents.replace(patchedComponent);
 
         MultivaluedHashMap<String, ComponentExportRepresentation> subComponents = componentToImport.getSubComponents();
 
         if (!subComponents.isEmpty()) {
-            createOrUpdateSubComponents(realmName, subComponents, patchedComponent.getId());
+            createOrUpdateSubComponents(realmName, subComponents, patchedComponent.getId(), existingComponents);
         }
 
         if (importConfigProperties.getManaged().getSubComponent() == ImportManagedPropertiesValues.FULL) {
-            deleteComponentsMissingInImport(realmName, subComponents, patchedComponent);
+            deleteComponentsMissingInImport(realmName, subComponents, patchedComponent, existingComponents);
         }
     }
 
     private void createOrUpdateSubComponents(
             String realmName,
             Map<String, List<ComponentExportRepresentation>> subComponents,
-            String parentId
+            String parentId,
+            ComponentTree existingComponents
     ) {
         for (Map.Entry<String, List<ComponentExportRepresentation>> entry : subComponents.entrySet()) {
-            createOrUpdateSubComponents(realmName, entry.getKey(), entry.getValue(), parentId);
+            createOrUpdateSubComponents(realmName, entry.getKey(), entry.getValue(), parentId, existingComponents);
         }
     }
 
     private void createOrUpdateSubComponents(
             String realmName,
             String providerType,
-            List<ComponentExportRepresentation> subComponents, String parentId
+            List<ComponentExportRepresentation> subComponents,
+            String parentId,
+            ComponentTree existingComponents
     ) {
         for (ComponentExportRepresentation subComponent : subComponents) {
-            createOrUpdateSubComponent(realmName, parentId, providerType, subComponent);
+            createOrUpdateSubComponent(realmName, parentId, providerType, subComponent, existingComponents);
         }
     }
 
@@ -227,46 +292,55 @@ public class ComponentImportService {
             String realmName,
             String parentId,
             String providerType,
-            ComponentExportRepresentation subComponent
+            ComponentExportRepresentation subComponent,
+            ComponentTree existingComponents
     ) {
-        Optional<ComponentRepresentation> maybeComponent = componentRepository.search(
-                realmName, providerType, subComponent.getSubType(), subComponent.getName(), parentId
+        Optional<ComponentRepresentation> maybeComponent = existingComponents.search(
+                parentId, providerType, subComponent.getSubType(), subComponent.getName()
         );
 
         if (maybeComponent.isPresent()) {
-            updateComponentIfNeeded(realmName, providerType, subComponent, maybeComponent.get());
+            updateComponentIfNeeded(realmName, providerType, subComponent, maybeComponent.get(), existingComponents);
         } else {
-            createComponent(realmName, providerType, subComponent, parentId);
+            createComponent(realmName, providerType, subComponent, parentId, existingComponents);
         }
     }
 
     private void deleteComponentsMissingInImport(
             String realmName,
             MultivaluedHashMap<String, ComponentExportRepresentation> componentsToImport,
-            ComponentRepresentation parentComponent
+            ComponentRepresentation parentComponent,
+            ComponentTree existingComponents
     ) {
-        List<ComponentRepresentation> existingComponents = getAllComponentsFromState(realmName, parentComponent);
+        List<ComponentRepresentation> componentsFromState = getAllComponentsFromState(parentComponent, existingComponents);
 
-        for (ComponentRepresentation existingComponent : existingComponents) {
+        for (ComponentRepresentation existingComponent : componentsFromState) {
             if (checkIfComponentMissingImport(existingComponent, componentsToImport)) {
                 logger.debug("Delete component: {}/{}", existingComponent.getProviderType(), existingComponent.getName());
-                componentRepository.delete(realmName, existingComponent);
+                importMetricsService.timeEntity(
+                        realmName, "component", existingComponent.getProviderType() + "/" + existingComponent.getName(), EntityOutcome.DELETED,
+                        () -> componentRepository.delete(realmName, existingComponent)
+                );
+                existingComponents.remove(existingComponent);
             }
         }
     }
 
-    private List<ComponentRepresentation> getAllComponentsFromState(String realmName, ComponentRepresentation parentComponent) {
+    private List<ComponentRepresentation> getAllComponentsFromState(
+            ComponentRepresentation parentComponent,
+            ComponentTree existingComponents
+    ) {
         String parentId = parentComponent != null ? parentComponent.getId() : null;
 
-        List<ComponentRepresentation> existingComponents = componentRepository.getAll(realmName, parentId);
+        List<ComponentRepresentation> existingSubComponents = existingComponents.getChildren(parentId);
         if (!importConfigProperties.getRemoteState().isEnabled()) {
-            return existingComponents;
+            return existingSubComponents;
         }
 
         String parentName = parentComponent != null ? parentComponent.getName() : null;
 
         // ignore all object there are not in state
-        return stateService.getComponents(existingComponents, parentName);
+        return stateService.getComponents(existingSubComponents, parentName);
     }
 
     private boolean checkIfComponentMissingImport(
@@ -294,26 +368,101 @@ public class ComponentImportService {
         return true;
     }
 
+    /**
+     * Waits for the user federation synchronizations which has been started in background by {@link #doImport(RealmImport)}.
+     */
+    public void awaitUserFederationSync(RealmImport realmImport) {
+        List<CompletableFuture<Void>> userFederationSyncs = pendingUserFederationSyncs.remove(realmImport.getRealm());
+        if (userFederationSyncs == null) return;
+
+        logger.debug("Waiting for {} user federation synchronization(s) in realm '{}'...", userFederationSyncs.size(), realmImport.getRealm());
+
+        try {
+            CompletableFuture.allOf(userFederationSyncs.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException error) {
+            throw new ImportProcessingException(
+                    String.format("Cannot synchronize user federation in realm '%s'", realmImport.getRealm()),
+                    error.getCause()
+            );
+        }
+    }
+
+    /**
+     * Forgets the user federation synchronizations of a failed realm import. A synchronization already sent to keycloak
+     * is not aborted by keycloak, but its result is not awaited anymore.
+     */
+    public void discardUserFederationSync(RealmImport realmImport) {
+        List<CompletableFuture<Void>> userFederationSyncs = pendingUserFederationSyncs.remove(realmImport.getRealm());
+        if (userFederationSyncs == null) return;
+
+        logger.debug("Discarding {} user federation synchronization(s) in realm '{}'", userFederationSyncs.size(), realmImport.getRealm());
+        userFederationSyncs.forEach(userFederationSync -> userFederationSync.cancel(false));
+    }
+
     // This function name is used on the test SyncUserFederationIT to validate the origin of the error.
     private void syncUserFederationIfNecessary(RealmImport realmImport) {
-        if (!importConfigProperties.getBehaviors().isSyncUserFederation() || !isUserStorageExist(realmImport)) return;
+        ImportBehaviorsProperties behaviors = importConfigProperties.getBehaviors();
+        if (!behaviors.isSyncUserFederation() || !isUserStorageExist(realmImport)) return;
 
-        RealmResource resource = realmRepository.getResource(realmImport.getRealm());
-        resource.components()
-                .query()
+        String realmName = realmImport.getRealm();
+        List<ComponentRepresentation> userStorageProviders = componentRepository.getAll(realmName)
                 .stream()
                 .filter(componentRepresentation -> componentRepresentation.getProviderType().equals("org.keycloak.storage.UserStorageProvider"))
                 .filter(componentRepresentation -> componentRepresentation.getConfig()
                         .getOrDefault("importEnabled", Collections.singletonList("false"))
                         .stream().allMatch(Boolean::valueOf)
                 )
-                .forEach(componentRepresentation -> {
-                    logger.debug(
-                            "Syncing user from federation '{}' for realm '{}'...",
-                            componentRepresentation.getName(), realmImport.getRealm()
-                    );
-                    resource.userStorage().syncUsers(componentRepresentation.getId(), "triggerFullSync");
-                });
+                .collect(Collectors.toList());
+
+        for (ComponentRepresentation userStorageProvider : userStorageProviders) {
+            if (behaviors.isSyncUserFederationAsync()) {
+                pendingUserFederationSyncs.computeIfAbsent(realmName, k -> new ArrayList<>()).add(CompletableFuture.runAsync(
+                        () -> syncUserFederation(realmName, userStorageProvider, behaviors.getSyncUserFederationAction()),
+                        USER_FEDERATION_SYNC_EXECUTOR
+                ));
+            } else {
+                syncUserFederation(realmName, userStorageProvider, behaviors.getSyncUserFederationAction());
+            }
+        }
+    }
+
+    private void syncUserFederation(String realmName, ComponentRepresentation userStorageProvider, SyncUserFederationAction action) {
+        logger.debug(
+                "Syncing user from federation '{}' for realm '{}'...",
+                userStorageProvider.getName(), realmName
+        );
+
+        long start = System.nanoTime();
+        SynchronizationResultRepresentation result;
+        try {
+            result = realmRepository.getResource(realmName)
+                    .userStorage()
+                    .syncUsers(userStorageProvider.getId(), action.getAction());
+        } catch (RuntimeException error) {
+            importMetricsService.recordUserFederationSync(new UserFederationSyncMetrics(realmName, userStorageProvider.getName(),
+                    UserFederationSyncStatus.FAILED, System.nanoTime() - start, 0, 0, 0, 0));
+            throw error;
+        }
+        long durationInNanos = System.nanoTime() - start;
+        long durationInMillis = TimeUnit.NANOSECONDS.toMillis(durationInNanos);
+
+        importMetricsService.recordUserFederationSync(new UserFederationSyncMetrics(realmName, userStorageProvider.getName(),
+                result.isIgnored() ? UserFederationSyncStatus.IGNORED : UserFederationSyncStatus.SYNCED, durationInNanos,
+                result.getAdded(), result.getUpdated(), result.getRemoved(), result.getFailed()));
+
+        if (result.isIgnored()) {
+            logger.info(
+                    "Synchronization of users from federation '{}' in realm '{}' was ignored after {} ms: {}",
+                    userStorageProvider.getName(), realmName, durationInMillis, result.getStatus()
+            );
+            return;
+        }
+
+        logger.info(
+                "Synchronized users from federation '{}' in realm '{}' in {} ms: {} added, {} updated, {} removed, {} failed",
+                userStorageProvider.getName(), realmName, durationInMillis,
+                result.getAdded(), result.getUpdated(), result.getRemoved(), result.getFailed()
+        );
     }
 
     private boolean isUserStorageExist(RealmImport realmImport) {
@@ -0,0 +1,98 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2021 adorsys GmbH & Co. KG @ https://adorsys.com
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.service;
+
+import org.keycloak.representations.idm.ComponentRepresentation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * All components of a realm, loaded by one request and indexed by parent id, provider type and name.
+ * Kept up-to-date on every create, update and delete during the import.
+ */
+final class ComponentTree {
+    private final String realmId;
+    private final Map<String, ComponentRepresentation> componentsById = new HashMap<>();
+    private final Map<String, List<ComponentRepresentation>> componentsByParentId = new HashMap<>();
+    private final Map<List<String>, List<ComponentRepresentation>> componentsByKey = new HashMap<>();
+
+    ComponentTree(String realmId, List<ComponentRepresentation> components) {
+        this.realmId = realmId;
+        components.forEach(this::add);
+    }
+
+    Optional<ComponentRepresentation> search(String parentId, String providerType, String subType, String name) {
+        return componentsByKey.getOrDefault(key(parentIdOrRealmId(parentId), providerType, name), Collections.emptyList())
+                .stream()
+                .filter(component -> Objects.equals(subType, component.getSubType()))
+                .findFirst();
+    }
+
+    List<ComponentRepresentation> getChildren(String parentId) {
+        return new ArrayList<>(componentsByParentId.getOrDefault(parentIdOrRealmId(parentId), Collections.emptyList()));
+    }
+
+    void add(ComponentRepresentation component) {
+        String parentId = parentIdOrRealmId(component.getParentId());
+
+        componentsById.put(component.getId(), component);
+        componentsByParentId.computeIfAbsent(parentId, k -> new ArrayList<>()).add(component);
+        componentsByKey.computeIfAbsent(key(parentId, component.getProviderType(), component.getName()), k -> new ArrayList<>())
+                .add(component);
+    }
+
+    void replace(ComponentRepresentation component) {
+        unlink(component.getId());
+        add(component);
+    }
+
+    void remove(ComponentRepresentation component) {
+        // keycloak removes the sub-components together with their parent
+        getChildren(component.getId()).forEach(this::remove);
+        unlink(component.getId());
+    }
+
+    private void unlink(String componentId) {
+        ComponentRepresentation component = componentsById.remove(componentId);
+        if (component == null) return;
+
+        String parentId = parentIdOrRealmId(component.getParentId());
+
+        componentsByParentId.getOrDefault(parentId, new ArrayList<>()).remove(component);
+        componentsByKey.getOrDefault(key(parentId, component.getProviderType(), component.getName()), new ArrayList<>())
+                .remove(component);
+    }
+
+    private String parentIdOrRealmId(String parentId) {
+        return parentId != null ? parentId : realmId;
+    }
+
+    private static List<String> key(String parentId, String providerType, String name) {
+        return Arrays.asList(parentId, providerType, name);
+    }
+}
@@ -23,9 +23,11 @@ package de.adorsys.keycloak.config.service;
 import de.adorsys.keycloak.config.exception.ImportProcessingException;
 import de.adorsys.keycloak.config.exception.InvalidImportException;
 import de.adorsys.keycloak.config.model.RealmImport;
+import de.adorsys.keycloak.config.repository.AuthenticationFlowRepository;
 import de.adorsys.keycloak.config.repository.AuthenticatorConfigRepository;
 import de.adorsys.keycloak.config.repository.ExecutionFlowRepository;
 import de.adorsys.keycloak.config.util.AuthenticationFlowUtil;
+import de.adorsys.keycloak.config.util.CloneUtil;
 import de.adorsys.keycloak.config.util.ResponseUtil;
 import org.keycloak.representations.idm.*;
 import org.slf4j.Logger;
@@ -33,10 +35,17 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import javax.ws.rs.WebApplicationException;
 
@@ -47,14 +56,17 @@ import javax.ws.rs.WebApplicationException;
 public class ExecutionFlowsImportService {
     private static final Logger logger = LoggerFactory.getLogger(ExecutionFlowsImportService.class);
 
+    private final AuthenticationFlowRepository authenticationFlowRepository;
     private final ExecutionFlowRepository executionFlowRepository;
     private final AuthenticatorConfigRepository authenticatorConfigRepository;
 
     @Autowired
     public ExecutionFlowsImportService(
+            AuthenticationFlowRepository authenticationFlowRepository,
             ExecutionFlowRepository executionFlowRepository,
             AuthenticatorConfigRepository authenticatorConfigRepository
     ) {
+        this.authenticationFlowRepository = authenticationFlowRepository;
         this.executionFlowRepository = executionFlowRepository;
         this.authenticatorConfigRepository = authenticatorConfigRepository;
     }
@@ -78,6 +90,382 @@ public class ExecutionFlowsImportService {
         }
     }
 
+    /**
+     * Reconciles the executions and execution-flows of an existing top-level flow in place:
+     * - executions and execution-flows which are not present in the import are removed
+     * - executions and execution-flows which are missing in keycloak are created
+     * - requirement and authenticator config of all other executions are updated if they differ
+     * - executions are reordered to match the order of the priorities in the import, the priority values are assigned by keycloak
+     * - changed sub-flows are updated
+     * Nothing is changed if the existing flow cannot be reconciled in place, e.g. because the type of the flow or of a sub-flow
+     * changed.
+     *
+     * @return true if the flow was reconciled, false if the flow has to be recreated
+     */
+    public boolean reconcileExecutionsAndExecutionFlows(
+            RealmImport realmImport,
+            AuthenticationFlowRepresentation topLevelFlowToImport,
+            AuthenticationFlowRepresentation existingTopLevelFlow
+    ) {
+        if (!Objects.equals(topLevelFlowToImport.getProviderId(), existingTopLevelFlow.getProviderId())) {
+            logger.debug("Type of top-level-flow '{}' in realm '{}' changed", topLevelFlowToImport.getAlias(), realmImport.getRealm());
+            return false;
+        }
+
+        Map<String, AuthenticationFlowRepresentation> existingFlows = authenticationFlowRepository.getAll(realmImport.getRealm())
+                .stream()
+                .collect(Collectors.toMap(AuthenticationFlowRepresentation::getAlias, Function.identity()));
+
+        List<ExistingExecution> existingExecutions = ExistingExecution.toTree(
+                executionFlowRepository.getExecutionsByAuthFlow(realmImport.getRealm(), existingTopLevelFlow.getAlias())
+        );
+
+        List<ExecutionFlowDiff> diffs = new ArrayList<>();
+        if (!diffExecutionFlow(realmImport, topLevelFlowToImport, existingTopLevelFlow, existingExecutions, existingFlows, diffs)) {
+            return false;
+        }
+
+        for (ExecutionFlowDiff diff : diffs) {
+            updateFlowIfNeeded(realmImport, diff);
+        }
+
+        for (ExecutionFlowDiff diff : diffs) {
+            removeExecutions(realmImport, diff);
+        }
+
+        for (ExecutionFlowDiff diff : diffs) {
+            updateExecutions(realmImport, existingTopLevelFlow, diff);
+        }
+
+        return true;
+    }
+
+    @SuppressWarnings("deprecation")
+    private boolean diffExecutionFlow(
+            RealmImport realmImport,
+            AuthenticationFlowRepresentation flowToImport,
+            AuthenticationFlowRepresentation existingFlow,
+            List<ExistingExecution> existingExecutions,
+            Map<String, AuthenticationFlowRepresentation> existingFlows,
+            List<ExecutionFlowDiff> diffs
+    ) {
+        if (!ExistingExecution.attachExportedExecutions(existingExecutions, existingFlow.getAuthenticationExecutions())) {
+            logger.debug("Unable to map executions of flow '{}' in realm '{}'", existingFlow.getAlias(), realmImport.getRealm());
+            return false;
+        }
+
+        ExecutionFlowDiff diff = new ExecutionFlowDiff(flowToImport, existingFlow, existingExecutions);
+        diffs.add(diff);
+
+        List<AuthenticationExecutionExportRepresentation> executionsToImport = flowToImport.getAuthenticationExecutions();
+        List<ExistingExecution> unmatchedExecutions = new ArrayList<>(existingExecutions);
+
+        // prefer executions with the same authenticator config to keep the configs untouched
+        for (int i = 0; i < executionsToImport.size(); i++) {
+            diff.matchedExecutions.add(
+                    matchExecution(realmImport, executionsToImport.get(i), unmatchedExecutions, existingFlows, true)
+            );
+        }
+
+        for (int i = 0; i < executionsToImport.size(); i++) {
+            if (diff.matchedExecutions.get(i) == null) {
+                diff.matchedExecutions.set(i,
+                        matchExecution(realmImport, executionsToImport.get(i), unmatchedExecutions, existingFlows, false)
+                );
+            }
+        }
+
+        diff.executionsToRemove.addAll(unmatchedExecutions);
+
+        for (int i = 0; i < executionsToImport.size(); i++) {
+            AuthenticationExecutionExportRepresentation executionToImport = executionsToImport.get(i);
+            ExistingExecution existingExecution = diff.matchedExecutions.get(i);
+
+            if (!executionToImport.isAutheticatorFlow()) continue;
+
+            AuthenticationFlowRepresentation subFlowToImport = AuthenticationFlowUtil
+                    .getSubFlow(realmImport, executionToImport.getFlowAlias());
+
+            validateExecutionFlow(executionToImport, subFlowToImport);
+
+            if (existingExecution == null && hasSubFlowTypeChanged(subFlowToImport, existingFlows)) {
+                logger.debug("Type of sub-flow '{}' in realm '{}' changed", subFlowToImport.getAlias(), realmImport.getRealm());
+                return false;
+            }
+
+            if (existingExecution != null && !diffExecutionFlow(
+                    realmImport, subFlowToImport, existingFlows.get(subFlowToImport.getAlias()),
+                    existingExecution.children, existingFlows, diffs
+            )) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private ExistingExecution matchExecution(
+            RealmImport realmImport,
+            AuthenticationExecutionExportRepresentation executionToImport,
+            List<ExistingExecution> unmatchedExecutions,
+            Map<String, AuthenticationFlowRepresentation> existingFlows,
+            boolean withSameAuthenticatorConfig
+    ) {
+        Optional<ExistingExecution> maybeExistingExecution = unmatchedExecutions.stream()
+                .filter(existingExecution -> isSameExecution(
+                        realmImport, executionToImport, existingExecution.exported, existingFlows, withSameAuthenticatorConfig
+                ))
+                .findFirst();
+
+        maybeExistingExecution.ifPresent(unmatchedExecutions::remove);
+
+        return maybeExistingExecution.orElse(null);
+    }
+
+    @SuppressWarnings("deprecation")
+    private boolean isSameExecution(
+            RealmImport realmImport,
+            AuthenticationExecutionExportRepresentation executionToImport,
+            AuthenticationExecutionExportRepresentation existingExecution,
+            Map<String, AuthenticationFlowRepresentation> existingFlows,
+            boolean withSameAuthenticatorConfig
+    ) {
+        if (executionToImport.isAutheticatorFlow() != existingExecution.isAutheticatorFlow()
+                || !Objects.equals(executionToImport.getAuthenticator(), existingExecution.getAuthenticator())
+                || !Objects.equals(executionToImport.getFlowAlias(), existingExecution.getFlowAlias())) {
+            return false;
+        }
+
+        if (withSameAuthenticatorConfig
+                && !Objects.equals(executionToImport.getAuthenticatorConfig(), existingExecution.getAuthenticatorConfig())) {
+            return false;
+        }
+
+        if (!executionToImport.isAutheticatorFlow()) return true;
+
+        // the type of sub-flow can't be changed, the execution-flow has to be recreated instead
+        AuthenticationFlowRepresentation subFlowToImport = AuthenticationFlowUtil
+                .getSubFlow(realmImport, executionToImport.getFlowAlias());
+        AuthenticationFlowRepresentation existingSubFlow = existingFlows.get(existingExecution.getFlowAlias());
+
+        return existingSubFlow != null && Objects.equals(subFlowToImport.getProviderId(), existingSubFlow.getProviderId());
+    }
+
+    /**
+     * The type of an existing sub-flow can't be changed, the whole top-level flow is recreated instead of replacing the sub-flow.
+     */
+    private boolean hasSubFlowTypeChanged(
+            AuthenticationFlowRepresentation subFlowToImport,
+            Map<String, AuthenticationFlowRepresentation> existingFlows
+    ) {
+        AuthenticationFlowRepresentation existingSubFlow = existingFlows.get(subFlowToImport.getAlias());
+
+        return existingSubFlow != null && !Objects.equals(subFlowToImport.getProviderId(), existingSubFlow.getProviderId());
+    }
+
+    private void updateFlowIfNeeded(RealmImport realmImport, ExecutionFlowDiff diff) {
+        if (CloneUtil.deepEquals(diff.flowToImport, diff.existingFlow, "id", "authenticationExecutions")) return;
+
+        logger.debug("Updating flow '{}' in realm '{}'", diff.flowToImport.getAlias(), realmImport.getRealm());
+
+        AuthenticationFlowRepresentation patchedFlow = CloneUtil.patch(
+                diff.existingFlow, diff.flowToImport, "id", "authenticationExecutions"
+        );
+
+        if (patchedFlow.isTopLevel()) {
+            authenticationFlowRepository.update(realmImport.getRealm(), patchedFlow);
+        } else {
+            authenticationFlowRepository.updateNonTopLevel(realmImport.getRealm(), patchedFlow);
+        }
+    }
+
+    private void removeExecutions(RealmImport realmImport, ExecutionFlowDiff diff) {
+        for (ExistingExecution executionToRemove : diff.executionsToRemove) {
+            logger.debug("Removing execution '{}' from flow '{}' in realm '{}'",
+                    executionToRemove.getName(), diff.existingFlow.getAlias(), realmImport.getRealm());
+
+            executionToRemove.getAuthenticatorConfigs().forEach(authenticatorConfigId ->
+                    authenticatorConfigRepository.delete(realmImport.getRealm(), authenticatorConfigId)
+            );
+
+            try {
+                executionFlowRepository.delete(realmImport.getRealm(), executionToRemove.info.getId());
+            } catch (WebApplicationException error) {
+                String errorMessage = ResponseUtil.getErrorMessage(error);
+                throw new ImportProcessingException(
+                        String.format(
+                                "Cannot remove execution '%s' from flow '%s' in realm '%s': %s",
+                                executionToRemove.getName(), diff.existingFlow.getAlias(),
+                                realmImport.getRealm(), errorMessage
+                        ),
+                        error
+                );
+            }
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private void updateExecutions(
+            RealmImport realmImport,
+            AuthenticationFlowRepresentation existingTopLevelFlow,
+            ExecutionFlowDiff diff
+    ) {
+        List<AuthenticationExecutionExportRepresentation> executionsToImport = diff.flowToImport.getAuthenticationExecutions();
+        boolean isTopLevelFlow = Objects.equals(diff.existingFlow.getId(), existingTopLevelFlow.getId());
+
+        for (int i = 0; i < executionsToImport.size(); i++) {
+            AuthenticationExecutionExportRepresentation executionToImport = executionsToImport.get(i);
+            ExistingExecution existingExecution = diff.matchedExecutions.get(i);
+
+            if (existingExecution != null) {
+                updateExecutionIfNeeded(realmImport, diff.flowToImport, executionToImport, existingExecution);
+            } else if (isTopLevelFlow) {
+                createExecutionOrExecutionFlow(realmImport, diff.flowToImport, existingTopLevelFlow, executionToImport);
+            } else {
+                createExecutionOrExecutionFlowForSubFlow(realmImport, diff.flowToImport, executionToImport);
+            }
+        }
+
+        reorderExecutionsIfNeeded(realmImport, diff);
+    }
+
+    private void updateExecutionIfNeeded(
+            RealmImport realmImport,
+            AuthenticationFlowRepresentation topLevelOrSubFlowToImport,
+            AuthenticationExecutionExportRepresentation executionToImport,
+            ExistingExecution existingExecution
+    ) {
+        AuthenticationExecutionInfoRepresentation storedExecution = existingExecution.info;
+
+        if (!Objects.equals(executionToImport.getRequirement(), storedExecution.getRequirement())) {
+            logger.debug("Updating requirement of execution-flow '{}' for authentication-flow '{}' in realm '{}' from '{}' to '{}'",
+                    existingExecution.getName(), topLevelOrSubFlowToImport.getAlias(), realmImport.getRealm(),
+                    storedExecution.getRequirement(), executionToImport.getRequirement());
+            storedExecution.setRequirement(executionToImport.getRequirement());
+
+            try {
+                executionFlowRepository.updateExecutionFlow(
+                        realmImport.getRealm(),
+                        topLevelOrSubFlowToImport.getAlias(),
+                        storedExecution
+                );
+            } catch (WebApplicationException error) {
+                String errorMessage = ResponseUtil.getErrorMessage(error);
+                throw new ImportProcessingException(
+                        String.format(
+                                "Cannot update execution-flow '%s' for flow '%s' in realm '%s': %s",
+                                existingExecution.getName(), topLevelOrSubFlowToImport.getAlias(),
+                                realmImport.getRealm(), errorMessage
+                        ),
+                        error
+                );
+            }
+        }
+
+        String authenticatorConfigToImport = executionToImport.getAuthenticatorConfig();
+        if (Objects.equals(authenticatorConfigToImport, existingExecution.exported.getAuthenticatorConfig())) return;
+
+        logger.debug("Updating authenticator config of execution-flow '{}' for authentication-flow '{}' in realm '{}' to '{}'",
+                existingExecution.getName(), topLevelOrSubFlowToImport.getAlias(), realmImport.getRealm(), authenticatorConfigToImport);
+
+        if (storedExecution.getAuthenticationConfig() != null) {
+            logger.debug("Delete authenticator config: '{}'", storedExecution.getAuthenticationConfig());
+            authenticatorConfigRepository.delete(realmImport.getRealm(), storedExecution.getAuthenticationConfig());
+        }
+
+        if (authenticatorConfigToImport != null) {
+            createAuthenticatorConfig(realmImport, authenticatorConfigToImport, storedExecution.getId());
+        }
+    }
+
+    /**
+     * Keycloak sorts executions by priority. Since new executions are appended and the priority of an existing execution can't
+     * be set directly, we have to raise the priorities of the executions one by one until the order matches the import.
+     */
+    private void reorderExecutionsIfNeeded(RealmImport realmImport, ExecutionFlowDiff diff) {
+        List<AuthenticationExecutionExportRepresentation> executionsToImport = diff.flowToImport.getAuthenticationExecutions();
+
+        List<String> currentOrder;
+        List<String> executionIds = new ArrayList<>();
+
+        if (diff.hasAddedExecutions()) {
+            List<AuthenticationExecutionInfoRepresentation> storedExecutions = executionFlowRepository
+                    .getExecutionsByAuthFlow(realmImport.getRealm(), diff.flowToImport.getAlias())
+                    .stream()
+                    .filter(execution -> execution.getLevel() == 0)
+                    .collect(Collectors.toList());
+
+            currentOrder = storedExecutions.stream()
+                    .map(AuthenticationExecutionInfoRepresentation::getId)
+                    .collect(Collectors.toList());
+
+            List<AuthenticationExecutionInfoRepresentation> createdExecutions = new ArrayList<>(storedExecutions);
+            diff.matchedExecutions.stream()
+                    .filter(Objects::nonNull)
+                    .forEach(existingExecution -> createdExecutions.removeIf(e -> e.getId().equals(existingExecution.info.getId())));
+
+            for (int i = 0; i < executionsToImport.size(); i++) {
+                ExistingExecution existingExecution = diff.matchedExecutions.get(i);
+                executionIds.add(existingExecution != null
+                        ? existingExecution.info.getId()
+                        : takeCreatedExecution(realmImport, diff.flowToImport, executionsToImport.get(i), createdExecutions)
+                );
+            }
+        } else {
+            currentOrder = diff.existingExecutions.stream()
+                    .filter(existingExecution -> !diff.executionsToRemove.contains(existingExecution))
+                    .map(existingExecution -> existingExecution.info.getId())
+                    .collect(Collectors.toList());
+
+            diff.matchedExecutions.forEach(existingExecution -> executionIds.add(existingExecution.info.getId()));
+        }
+
+        List<Integer> targetIndexes = new ArrayList<>();
+        for (int i = 0; i < executionsToImport.size(); i++) {
+            targetIndexes.add(i);
+        }
+        targetIndexes.sort(Comparator.comparingInt(i -> executionsToImport.get(i).getPriority()));
+
+        List<String> targetOrder = targetIndexes.stream()
+                .map(executionIds::get)
+                .collect(Collectors.toList());
+
+        for (int position = 0; position < targetOrder.size(); position++) {
+            String executionId = targetOrder.get(position);
+
+            for (int currentPosition = currentOrder.indexOf(executionId); currentPosition > position; currentPosition--) {
+                logger.trace("Raise priority of execution '{}' in flow '{}' in realm '{}'",
+                        executionId, diff.flowToImport.getAlias(), realmImport.getRealm());
+
+                executionFlowRepository.raisePriority(realmImport.getRealm(), executionId);
+                Collections.swap(currentOrder, currentPosition, currentPosition - 1);
+            }
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private String takeCreatedExecution(
+            RealmImport realmImport,
+            AuthenticationFlowRepresentation flowToImport,
+            AuthenticationExecutionExportRepresentation executionToImport,
+            List<AuthenticationExecutionInfoRepresentation> createdExecutions
+    ) {
+        AuthenticationExecutionInfoRepresentation createdExecution = createdExecutions.stream()
+                .filter(execution -> executionToImport.isAutheticatorFlow()
+                        ? Objects.equals(execution.getDisplayName(), executionToImport.getFlowAlias())
+                        : Objects.equals(execution.getProviderId(), executionToImport.getAuthenticator())
+                        && !Boolean.TRUE.equals(execution.getAuthenticationFlow()))
+                .findFirst()
+                .orElseThrow(() -> new ImportProcessingException(String.format(
+                        "Cannot find created execution '%s' in flow '%s' in realm '%s'",
+                        Optional.ofNullable(executionToImport.getFlowAlias()).orElse(executionToImport.getAuthenticator()),
+                        flowToImport.getAlias(), realmImport.getRealm()
+                )));
+
+        createdExecutions.remove(createdExecution);
+        return createdExecution.getId();
+    }
+
     @SuppressWarnings("deprecation")
     private void createExecutionOrExecutionFlow(
             RealmImport realmImport,
@@ -146,12 +534,7 @@ public class ExecutionFlowsImportService {
                 executionToImport.getFlowAlias(), realmImport.getRealm()
         );
 
-        if (!Objects.equals(executionToImport.getAuthenticator(), null) && !Objects.equals(subFlow.getProviderId(), "form-flow")) {
-            throw new InvalidImportException(String.format(
-                    "Execution property authenticator '%s' can be only set if the sub-flow '%s' type is 'form-flow'.",
-                    executionToImport.getAuthenticator(), subFlow.getAlias()
-            ));
-        }
+        validateExecutionFlow(executionToImport, subFlow);
 
         HashMap<String, String> executionFlow = new HashMap<>();
         executionFlow.put("alias", executionToImport.getFlowAlias());
@@ -175,6 +558,18 @@ public class ExecutionFlowsImportService {
         }
     }
 
+    private void validateExecutionFlow(
+            AuthenticationExecutionExportRepresentation executionToImport,
+            AuthenticationFlowRepresentation subFlow
+    ) {
+        if (!Objects.equals(executionToImport.getAuthenticator(), null) && !Objects.equals(subFlow.getProviderId(), "form-flow")) {
+            throw new InvalidImportException(String.format(
+                    "Execution property authenticator '%s' can be only set if the sub-flow '%s' type is 'form-flow'.",
+                    executionToImport.getAuthenticator(), subFlow.getAlias()
+            ));
+        }
+    }
+
     /**
      * We have to re-configure the requirement property separately as long as keycloak is only allowing to set the 'provider'
      * and is ignoring the value and sets the requirement hardcoded to DISABLED while creating execution-flow.
@@ -236,13 +631,21 @@ public class ExecutionFlowsImportService {
             AuthenticationFlowRepresentation subFlow
     ) {
         for (AuthenticationExecutionExportRepresentation executionOrExecutionFlowToImport : subFlow.getAuthenticationExecutions()) {
+            createExecutionOrExecutionFlowForSubFlow(realmImport, subFlow, executionOrExecutionFlowToImport);
+        }
+    }
 
-            if (executionOrExecutionFlowToImport.isAutheticatorFlow()) {
-                createAndConfigureExecutionFlow(realmImport, subFlow, executionOrExecutionFlowToImport);
-            } else {
-                createExecutionForSubFlow(realmImport, subFlow, executionOrExecutionFlowToImport);
-                configureExecutionFlow(realmImport, subFlow, executionOrExecutionFlowToImport);
-            }
+    @SuppressWarnings("deprecation")
+    private void createExecutionOrExecutionFlowForSubFlow(
+            RealmImport realmImport,
+            AuthenticationFlowRepresentation subFlow,
+            AuthenticationExecutionExportRepresentation executionOrExecutionFlowToImport
+    ) {
+        if (executionOrExecutionFlowToImport.isAutheticatorFlow()) {
+            createAndConfigureExecutionFlow(realmImport, subFlow, executionOrExecutionFlowToImport);
+        } else {
+            createExecutionForSubFlow(realmImport, subFlow, executionOrExecutionFlowToImport);
+            configureExecutionFlow(realmImport, subFlow, executionOrExecutionFlowToImport);
         }
     }
 
@@ -337,4 +740,113 @@ public class ExecutionFlowsImportService {
                     execution, authenticationFlowAlias, realmImport.getRealm());
         }
     }
+
+    /**
+     * An existing execution or execution-flow of a flow, including the executions of its sub-flow.
+     */
+    private static class ExistingExecution {
+        private final AuthenticationExecutionInfoRepresentation info;
+        private final List<ExistingExecution> children = new ArrayList<>();
+        private AuthenticationExecutionExportRepresentation exported;
+
+        private ExistingExecution(AuthenticationExecutionInfoRepresentation info) {
+            this.info = info;
+        }
+
+        /**
+         * Keycloak returns the executions of a flow depth-first including the executions of all sub-flows.
+         */
+        private static List<ExistingExecution> toTree(List<AuthenticationExecutionInfoRepresentation> executions) {
+            List<ExistingExecution> topLevelExecutions = new ArrayList<>();
+            Deque<ExistingExecution> parents = new ArrayDeque<>();
+
+            for (AuthenticationExecutionInfoRepresentation execution : executions) {
+                while (parents.size() > execution.getLevel()) {
+                    parents.pop();
+                }
+
+                ExistingExecution existingExecution = new ExistingExecution(execution);
+                if (parents.isEmpty()) {
+                    topLevelExecutions.add(existingExecution);
+                } else {
+                    parents.peek().children.add(existingExecution);
+                }
+
+                if (Boolean.TRUE.equals(execution.getAuthenticationFlow())) {
+                    parents.push(existingExecution);
+                }
+            }
+
+            return topLevelExecutions;
+        }
+
+        /**
+         * The exported executions contain the priority and the alias of the authenticator config, both are missing in
+         * the execution info. Both lists are ordered by priority.
+         */
+        @SuppressWarnings("deprecation")
+        private static boolean attachExportedExecutions(
+                List<ExistingExecution> existingExecutions,
+                List<AuthenticationExecutionExportRepresentation> exportedExecutions
+        ) {
+            if (exportedExecutions == null || existingExecutions.size() != exportedExecutions.size()) return false;
+
+            for (int i = 0; i < existingExecutions.size(); i++) {
+                ExistingExecution existingExecution = existingExecutions.get(i);
+                AuthenticationExecutionExportRepresentation exportedExecution = exportedExecutions.get(i);
+
+                boolean isSameExecution = exportedExecution.isAutheticatorFlow()
+                        ? Objects.equals(existingExecution.info.getDisplayName(), exportedExecution.getFlowAlias())
+                        : Objects.equals(existingExecution.info.getProviderId(), exportedExecution.getAuthenticator());
+
+                if (!isSameExecution) return false;
+
+                existingExecution.exported = exportedExecution;
+            }
+
+            return true;
+        }
+
+        private String getName() {
+            return Optional.ofNullable(exported.getFlowAlias()).orElse(exported.getAuthenticator());
+        }
+
+        private List<String> getAuthenticatorConfigs() {
+            List<String> authenticatorConfigs = new ArrayList<>();
+
+            if (info.getAuthenticationConfig() != null) {
+                authenticatorConfigs.add(info.getAuthenticationConfig());
+            }
+
+            children.forEach(child -> authenticatorConfigs.addAll(child.getAuthenticatorConfigs()));
+
+            return authenticatorConfigs;
+        }
+    }
+
+    /**
+     * The differences between a flow to import and the existing flow. The matched executions are aligned to the
+     * executions of the flow to import, null means the execution has to be created.
+     */
+    private static class ExecutionFlowDiff {
+        private final AuthenticationFlowRepresentation flowToImport;
+        private final AuthenticationFlowRepresentation existingFlow;
+        private final List<ExistingExecution> existingExecutions;
+        private final List<ExistingExecution> matchedExecutions = new ArrayList<>();
+        private final List<ExistingExecution> executionsToRemove = new ArrayList<>();
+
+        private ExecutionFlowDiff(
+                AuthenticationFlowRepresentation flowToImport,
+                AuthenticationFlowRepresentation existingFlow,
+                List<ExistingExecution> existingExecutions
+        ) {
+            this.flowToImport = flowToImport;
+            this.existingFlow = existingFlow;
+            this.existingExecutions = existingExecutions;
+        }
+
+        private boolean hasAddedExecutions() {
+            return matchedExecutions.contains(null);
+        }
+    }
 }
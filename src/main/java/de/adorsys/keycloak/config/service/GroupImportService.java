@@ -23,7 +23,10 @@ package de.adorsys.keycloak.config.service;
 import de.adorsys.keycloak.config.model.RealmImport;
 import de.adorsys.keycloak.config.properties.ImportConfigProperties;
 import de.adorsys.keycloak.config.properties.ImportConfigProperties.ImportManagedProperties.ImportManagedPropertiesValues;
+import de.adorsys.keycloak.config.provider.KeycloakProvider;
 import de.adorsys.keycloak.config.repository.GroupRepository;
+import de.adorsys.keycloak.config.service.metrics.ImportMetricsService;
+import de.adorsys.keycloak.config.service.metrics.ImportMetricsService.EntityOutcome;
 import de.adorsys.keycloak.config.util.CloneUtil;
 import org.keycloak.representations.idm.GroupRepresentation;
 import org.slf4j.Logger;
@@ -40,10 +43,18 @@ public class GroupImportService {
 
     private final GroupRepository groupRepository;
     private final ImportConfigProperties importConfigProperties;
-
-    public GroupImportService(GroupRepository groupRepository, ImportConfigProperties importConfigProperties) {
+    private final KeycloakProvider keycloakProvider;
+    private final ImportMetricsService importMetricsService;
+
+    public GroupImportService(
+            GroupRepository groupRepository,
+            ImportConfigProperties importConfigProperties,
+            KeycloakProvider keycloakProvider,
+            ImportMetricsService importMetricsService) {
         this.groupRepository = groupRepository;
         this.importConfigProperties = importConfigProperties;
+        this.keycloakProvider = keycloakProvider;
+        this.importMetricsService = importMetricsService;
     }
 
     public void importGroups(RealmImport realmImport) {
@@ -54,6 +65,7 @@ public class GroupImportService {
             return;
         }
 
+        groupRepository.loadGroupTree(realmName);
         List<GroupRepresentation> existingGroups = groupRepository.getAll(realmName);
 
         createOrUpdateGroups(groups, realmName);
@@ -63,10 +75,19 @@ public class GroupImportService {
         }
     }
 
+    /**
+     * Group lookups of a realm import are answered from a snapshot of the group hierarchy, which must not outlive the import.
+     */
+    public void resetGroupTree(String realmName) {
+        groupRepository.evictGroupTree(realmName);
+    }
+
     public void createOrUpdateGroups(List<GroupRepresentation> groups, String realmName) {
-        Consumer<GroupRepresentation> loop = group -> createOrUpdateRealmGroup(realmName, group);
+        Consumer<GroupRepresentation> loop = group -> importMetricsService.timeEntity(
+                realmName, "group", group.getName(), () -> createOrUpdateRealmGroup(realmName, group)
+        );
         if (importConfigProperties.isParallel()) {
-            groups.parallelStream().forEach(loop);
+            keycloakProvider.forEachParallel(groups, loop);
         } else {
             groups.forEach(loop);
         }
@@ -85,21 +106,23 @@ public class GroupImportService {
             if (importedGroupNames.contains(existingGroup.getName())) continue;
 
             logger.debug("Delete group '{}' in realm '{}'", existingGroup.getName(), realmName);
-            groupRepository.deleteGroup(realmName, existingGroup.getId());
+            importMetricsService.timeEntity(realmName, "group", existingGroup.getName(), EntityOutcome.DELETED,
+                    () -> groupRepository.deleteGroup(realmName, existingGroup.getId()));
         }
     }
 
-    private void createOrUpdateRealmGroup(String realmName, GroupRepresentation group) {
+    private EntityOutcome createOrUpdateRealmGroup(String realmName, GroupRepresentation group) {
         String groupName = group.getName();
 
         Optional<GroupRepresentation> maybeGroup = groupRepository.searchByName(realmName, groupName);
 
         if (maybeGroup.isPresent()) {
-            updateGroupIfNecessary(realmName, group);
-        } else {
-            logger.debug("Create group '{}' in realm '{}'", groupName, realmName);
-            createGroup(realmName, group);
+            return updateGroupIfNecessary(realmName, group);
         }
+
+        logger.debug("Create group '{}' in realm '{}'", groupName, realmName);
+        createGroup(realmName, group);
+        return EntityOutcome.CREATED;
     }
 
     private void createGroup(String realmName, GroupRepresentation group) {
@@ -157,17 +180,19 @@ public class GroupImportService {
         addSubGroups(realmName, patchedGroup);
     }
 
-    private void updateGroupIfNecessary(String realmName, GroupRepresentation group) {
+    private EntityOutcome updateGroupIfNecessary(String realmName, GroupRepresentation group) {
         GroupRepresentation existingGroup = groupRepository.getGroupByName(realmName, group.getName());
         GroupRepresentation patchedGroup = CloneUtil.patch(existingGroup, group);
         String groupName = existingGroup.getName();
 
         if (isGroupEqual(existingGroup, patchedGroup)) {
             logger.debug("No need to update group '{}' in realm '{}'", groupName, realmName);
-        } else {
-            logger.debug("Update group '{}' in realm '{}'", groupName, realmName);
-            updateGroup(realmName, group, patchedGroup);
+            return EntityOutcome.SKIPPED;
         }
+
+        logger.debug("Update group '{}' in realm '{}'", groupName, realmName);
+        updateGroup(realmName, group, patchedGroup);
+        return EntityOutcome.UPDATED;
     }
 
     private boolean isGroupEqual(GroupRepresentation existingGroup, GroupRepresentation patchedGroup) {
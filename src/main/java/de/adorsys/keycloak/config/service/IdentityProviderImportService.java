@@ -24,6 +24,8 @@ import de.adorsys.keycloak.config.model.RealmImport;
 import de.adorsys.keycloak.config.properties.ImportConfigProperties;
 import de.adorsys.keycloak.config.repository.IdentityProviderMapperRepository;
 import de.adorsys.keycloak.config.repository.IdentityProviderRepository;
+import de.adorsys.keycloak.config.service.metrics.ImportMetricsService;
+import de.adorsys.keycloak.config.service.metrics.ImportMetricsService.EntityOutcome;
 import de.adorsys.keycloak.config.util.CloneUtil;
 import org.keycloak.representations.idm.IdentityProviderMapperRepresentation;
 import org.keycloak.representations.idm.IdentityProviderRepresentation;
@@ -45,16 +47,19 @@ public class IdentityProviderImportService {
     private final IdentityProviderRepository identityProviderRepository;
     private final IdentityProviderMapperRepository identityProviderMapperRepository;
     private final ImportConfigProperties importConfigProperties;
+    private final ImportMetricsService importMetricsService;
 
     @Autowired
     public IdentityProviderImportService(
             IdentityProviderRepository identityProviderRepository,
             IdentityProviderMapperRepository identityProviderMapperRepository,
-            ImportConfigProperties importConfigProperties
+            ImportConfigProperties importConfigProperties,
+            ImportMetricsService importMetricsService
     ) {
         this.identityProviderRepository = identityProviderRepository;
         this.identityProviderMapperRepository = identityProviderMapperRepository;
         this.importConfigProperties = importConfigProperties;
+        this.importMetricsService = importMetricsService;
     }
 
     public void doImport(RealmImport realmImport) {
@@ -74,7 +79,8 @@ public class IdentityProviderImportService {
         }
 
         for (IdentityProviderRepresentation identityProvider : identityProviders) {
-            createOrUpdateIdentityProvider(realmImport, identityProvider);
+            importMetricsService.timeEntity(realmName, "identity-provider", identityProvider.getAlias(),
+                    () -> createOrUpdateIdentityProvider(realmImport, identityProvider));
         }
     }
 
@@ -86,36 +92,40 @@ public class IdentityProviderImportService {
         for (IdentityProviderRepresentation identityProvider : existingIdentityProviders) {
             if (!hasIdentityProviderWithAlias(identityProviders, identityProvider.getAlias())) {
                 logger.debug("Delete identityProvider '{}' in realm '{}'", identityProvider.getAlias(), realmName);
-                identityProviderRepository.delete(realmName, identityProvider);
+                importMetricsService.timeEntity(realmName, "identity-provider", identityProvider.getAlias(), EntityOutcome.DELETED,
+                        () -> identityProviderRepository.delete(realmName, identityProvider));
             }
         }
     }
 
-    private void createOrUpdateIdentityProvider(RealmImport realmImport, IdentityProviderRepresentation identityProvider) {
+    private EntityOutcome createOrUpdateIdentityProvider(RealmImport realmImport, IdentityProviderRepresentation identityProvider) {
         String identityProviderName = identityProvider.getAlias();
         String realmName = realmImport.getRealm();
 
         Optional<IdentityProviderRepresentation> maybeIdentityProvider = identityProviderRepository.search(realmName, identityProviderName);
 
         if (maybeIdentityProvider.isPresent()) {
-            updateIdentityProviderIfNecessary(realmName, identityProvider);
-        } else {
-            logger.debug("Create identityProvider '{}' in realm '{}'", identityProviderName, realmName);
-            identityProviderRepository.create(realmName, identityProvider);
+            return updateIdentityProviderIfNecessary(realmName, identityProvider);
         }
+
+        logger.debug("Create identityProvider '{}' in realm '{}'", identityProviderName, realmName);
+        identityProviderRepository.create(realmName, identityProvider);
+        return EntityOutcome.CREATED;
     }
 
-    private void updateIdentityProviderIfNecessary(String realmName, IdentityProviderRepresentation identityProvider) {
+    private EntityOutcome updateIdentityProviderIfNecessary(String realmName, IdentityProviderRepresentation identityProvider) {
         IdentityProviderRepresentation existingIdentityProvider = identityProviderRepository.getByAlias(realmName, identityProvider.getAlias());
         IdentityProviderRepresentation patchedIdentityProvider = CloneUtil.patch(existingIdentityProvider, identityProvider);
         String identityProviderAlias = existingIdentityProvider.getAlias();
 
         if (isIdentityProviderEqual(existingIdentityProvider, patchedIdentityProvider)) {
             logger.debug("No need to update identityProvider '{}' in realm '{}'", identityProviderAlias, realmName);
-        } else {
-            logger.debug("Update identityProvider '{}' in realm '{}'", identityProviderAlias, realmName);
-            identityProviderRepository.update(realmName, patchedIdentityProvider);
+            return EntityOutcome.SKIPPED;
         }
+
+        logger.debug("Update identityProvider '{}' in realm '{}'", identityProviderAlias, realmName);
+        identityProviderRepository.update(realmName, patchedIdentityProvider);
+        return EntityOutcome.UPDATED;
     }
 
     private boolean isIdentityProviderEqual(
@@ -25,6 +25,7 @@ import de.adorsys.keycloak.config.properties.ImportConfigProperties;
 import de.adorsys.keycloak.config.provider.KeycloakProvider;
 import de.adorsys.keycloak.config.repository.RealmRepository;
 import de.adorsys.keycloak.config.service.checksum.ChecksumService;
+import de.adorsys.keycloak.config.service.metrics.ImportMetricsService;
 import de.adorsys.keycloak.config.service.state.StateService;
 import de.adorsys.keycloak.config.util.CloneUtil;
 import org.keycloak.representations.idm.RealmRepresentation;
@@ -81,6 +82,7 @@ public class RealmImportService {
 
     private final ChecksumService checksumService;
     private final StateService stateService;
+    private final ImportMetricsService importMetricsService;
 
     @Autowired
     public RealmImportService(
@@ -102,7 +104,8 @@ public class RealmImportService {
             ClientScopeMappingImportService clientScopeMappingImportService,
             IdentityProviderImportService identityProviderImportService,
             ChecksumService checksumService,
-            StateService stateService) {
+            StateService stateService,
+            ImportMetricsService importMetricsService) {
         this.importProperties = importProperties;
         this.keycloakProvider = keycloakProvider;
         this.realmRepository = realmRepository;
@@ -122,6 +125,7 @@ public class RealmImportService {
         this.identityProviderImportService = identityProviderImportService;
         this.checksumService = checksumService;
         this.stateService = stateService;
+        this.importMetricsService = importMetricsService;
     }
 
     public void doImport(RealmImport realmImport) {
@@ -135,7 +139,13 @@ public class RealmImportService {
     }
 
     private void updateRealmIfNecessary(RealmImport realmImport) {
-        if (!importProperties.getCache().isEnabled() || checksumService.hasToBeUpdated(realmImport)) {
+        boolean hasToBeUpdated = !importProperties.getCache().isEnabled() || checksumService.hasToBeUpdated(realmImport);
+
+        if (importProperties.getCache().isEnabled()) {
+            importMetricsService.recordCacheLookup(realmImport.getRealm(), !hasToBeUpdated);
+        }
+
+        if (hasToBeUpdated) {
             setEventsEnabledWorkaround(realmImport);
             updateRealm(realmImport);
         } else {
@@ -159,7 +169,7 @@ public class RealmImportService {
         logger.debug("Creating realm '{}' ...", realmImport.getRealm());
 
         RealmRepresentation realm = CloneUtil.deepClone(realmImport, RealmRepresentation.class, ignoredPropertiesForRealmImport);
-        realmRepository.create(realm);
+        importMetricsService.timePhase(realmImport.getRealm(), "realm", () -> realmRepository.create(realm));
 
         // refresh the access token to update the scopes. See: https://github.com/adorsys/keycloak-config-cli/issues/339
         keycloakProvider.refreshToken();
@@ -177,31 +187,54 @@ public class RealmImportService {
         // the state erasure by custom attributes from configuration
         stateService.loadState(realm);
 
-        realmRepository.update(realm);
+        importMetricsService.timePhase(realmImport.getRealm(), "realm", () -> realmRepository.update(realm));
 
         configureRealm(realmImport, realm);
     }
 
     private void configureRealm(RealmImport realmImport, RealmRepresentation existingRealm) {
-        clientScopeImportService.doImport(realmImport);
-        clientScopeImportService.updateDefaultClientScopes(realmImport, existingRealm);
-        clientImportService.doImport(realmImport);
-        roleImportService.doImport(realmImport);
-        groupImportService.importGroups(realmImport);
-        defaultGroupsImportService.doImport(realmImport);
-        componentImportService.doImport(realmImport);
-        userImportService.doImport(realmImport);
-        requiredActionsImportService.doImport(realmImport);
-        authenticationFlowsImportService.doImport(realmImport);
-        authenticatorConfigImportService.doImport(realmImport);
-        clientImportService.doImportDependencies(realmImport);
-        identityProviderImportService.doImport(realmImport);
-        clientAuthorizationImportService.doImport(realmImport);
-        scopeMappingImportService.doImport(realmImport);
-        clientScopeMappingImportService.doImport(realmImport);
-        clientScopeImportService.doRemoveOrphan(realmImport);
-
-        stateService.doImport(realmImport);
-        checksumService.doImport(realmImport);
+        groupImportService.resetGroupTree(realmImport.getRealm());
+
+        try {
+            importRealmEntities(realmImport, existingRealm);
+        } finally {
+            // nothing is pending anymore after a successful import
+            componentImportService.discardUserFederationSync(realmImport);
+            groupImportService.resetGroupTree(realmImport.getRealm());
+        }
+    }
+
+    private void importRealmEntities(RealmImport realmImport, RealmRepresentation existingRealm) {
+        String realmName = realmImport.getRealm();
+
+        importMetricsService.timePhase(realmName, "client-scopes", () -> clientScopeImportService.doImport(realmImport));
+        importMetricsService.timePhase(realmName, "default-client-scopes",
+                () -> clientScopeImportService.updateDefaultClientScopes(realmImport, existingRealm));
+        importMetricsService.timePhase(realmName, "clients", () -> clientImportService.doImport(realmImport));
+        importMetricsService.timePhase(realmName, "roles", () -> roleImportService.doImport(realmImport));
+        importMetricsService.timePhase(realmName, "groups", () -> groupImportService.importGroups(realmImport));
+        importMetricsService.timePhase(realmName, "default-groups", () -> defaultGroupsImportService.doImport(realmImport));
+        importMetricsService.timePhase(realmName, "components", () -> componentImportService.doImport(realmImport));
+        if (realmImport.getUsers() != null) {
+            // users of the import may be users of a user federation, which have to be synchronized before they are looked up
+            importMetricsService.timePhase(realmName, "user-federation-sync", () -> componentImportService.awaitUserFederationSync(realmImport));
+        }
+        importMetricsService.timePhase(realmName, "users", () -> userImportService.doImport(realmImport));
+        importMetricsService.timePhase(realmName, "required-actions", () -> requiredActionsImportService.doImport(realmImport));
+        importMetricsService.timePhase(realmName, "authentication-flows", () -> authenticationFlowsImportService.doImport(realmImport));
+        importMetricsService.timePhase(realmName, "authenticator-configs", () -> authenticatorConfigImportService.doImport(realmImport));
+        importMetricsService.timePhase(realmName, "client-dependencies", () -> clientImportService.doImportDependencies(realmImport));
+        importMetricsService.timePhase(realmName, "identity-providers", () -> identityProviderImportService.doImport(realmImport));
+        importMetricsService.timePhase(realmName, "client-authorizations", () -> clientAuthorizationImportService.doImport(realmImport));
+        importMetricsService.timePhase(realmName, "scope-mappings", () -> scopeMappingImportService.doImport(realmImport));
+        importMetricsService.timePhase(realmName, "client-scope-mappings", () -> clientScopeMappingImportService.doImport(realmImport));
+        importMetricsService.timePhase(realmName, "client-scope-orphans", () -> clientScopeImportService.doRemoveOrphan(realmImport));
+        if (realmImport.getUsers() == null) {
+            // without users the synchronizations run in the background until the end of the import, otherwise they are awaited already
+            importMetricsService.timePhase(realmName, "user-federation-sync", () -> componentImportService.awaitUserFederationSync(realmImport));
+        }
+
+        importMetricsService.timePhase(realmName, "state", () -> stateService.doImport(realmImport));
+        importMetricsService.timePhase(realmName, "checksum", () -> checksumService.doImport(realmImport));
     }
 }
@@ -24,6 +24,8 @@ import de.adorsys.keycloak.config.model.RealmImport;
 import de.adorsys.keycloak.config.properties.ImportConfigProperties;
 import de.adorsys.keycloak.config.properties.ImportConfigProperties.ImportManagedProperties.ImportManagedPropertiesValues;
 import de.adorsys.keycloak.config.repository.RequiredActionRepository;
+import de.adorsys.keycloak.config.service.metrics.ImportMetricsService;
+import de.adorsys.keycloak.config.service.metrics.ImportMetricsService.EntityOutcome;
 import de.adorsys.keycloak.config.service.state.StateService;
 import de.adorsys.keycloak.config.util.CloneUtil;
 import org.keycloak.representations.idm.RequiredActionProviderRepresentation;
@@ -46,13 +48,16 @@ public class RequiredActionsImportService {
     private final RequiredActionRepository requiredActionRepository;
     private final ImportConfigProperties importConfigProperties;
     private final StateService stateService;
+    private final ImportMetricsService importMetricsService;
 
     public RequiredActionsImportService(
             RequiredActionRepository requiredActionRepository,
-            ImportConfigProperties importConfigProperties, StateService stateService) {
+            ImportConfigProperties importConfigProperties, StateService stateService,
+            ImportMetricsService importMetricsService) {
         this.requiredActionRepository = requiredActionRepository;
         this.importConfigProperties = importConfigProperties;
         this.stateService = stateService;
+        this.importMetricsService = importMetricsService;
     }
 
     public void doImport(RealmImport realmImport) {
@@ -68,11 +73,12 @@ public class RequiredActionsImportService {
         }
 
         for (RequiredActionProviderRepresentation requiredActionToImport : requiredActions) {
-            createOrUpdateRequireAction(realmName, requiredActionToImport);
+            importMetricsService.timeEntity(realmName, "required-action", requiredActionToImport.getAlias(),
+                    () -> createOrUpdateRequireAction(realmName, requiredActionToImport));
         }
     }
 
-    private void createOrUpdateRequireAction(
+    private EntityOutcome createOrUpdateRequireAction(
             String realmName,
             RequiredActionProviderRepresentation requiredActionToImport
     ) {
@@ -80,14 +86,15 @@ public class RequiredActionsImportService {
                 .getByAlias(realmName, requiredActionToImport.getAlias());
 
         if (existingRequiredAction != null) {
-            updateRequiredActionIfNeeded(realmName, requiredActionToImport, existingRequiredAction);
-        } else {
-            logger.debug("Creating required action: {}", requiredActionToImport.getAlias());
-            createAndConfigureRequiredAction(realmName, requiredActionToImport);
+            return updateRequiredActionIfNeeded(realmName, requiredActionToImport, existingRequiredAction);
         }
+
+        logger.debug("Creating required action: {}", requiredActionToImport.getAlias());
+        createAndConfigureRequiredAction(realmName, requiredActionToImport);
+        return EntityOutcome.CREATED;
     }
 
-    private void updateRequiredActionIfNeeded(
+    private EntityOutcome updateRequiredActionIfNeeded(
             String realmName,
             RequiredActionProviderRepresentation requiredActionToImport,
             RequiredActionProviderRepresentation existingRequiredAction
@@ -103,9 +110,11 @@ public class RequiredActionsImportService {
                 logger.debug("Updating required action: {}", requiredActionToImport.getAlias());
                 updateRequiredAction(realmName, requiredActionToImport, existingRequiredAction);
             }
-        } else {
-            logger.debug("No need to update required action: {}", requiredActionToImport.getAlias());
+            return EntityOutcome.UPDATED;
         }
+
+        logger.debug("No need to update required action: {}", requiredActionToImport.getAlias());
+        return EntityOutcome.SKIPPED;
     }
 
     private boolean checkIfRecreateIsRequired(
@@ -194,7 +203,8 @@ public class RequiredActionsImportService {
             if (importedRequiredActionAliases.contains(existingRequiredAction.getAlias())) continue;
 
             logger.debug("Delete requiredAction '{}' in realm '{}'", existingRequiredAction.getAlias(), realmName);
-            deleteRequiredAction(realmName, existingRequiredAction);
+            importMetricsService.timeEntity(realmName, "required-action", existingRequiredAction.getAlias(), EntityOutcome.DELETED,
+                    () -> deleteRequiredAction(realmName, existingRequiredAction));
         }
     }
 
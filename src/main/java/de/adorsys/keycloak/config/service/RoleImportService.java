@@ -23,7 +23,10 @@ package de.adorsys.keycloak.config.service;
 import de.adorsys.keycloak.config.exception.ImportProcessingException;
 import de.adorsys.keycloak.config.model.RealmImport;
 import de.adorsys.keycloak.config.properties.ImportConfigProperties;
+import de.adorsys.keycloak.config.provider.KeycloakProvider;
 import de.adorsys.keycloak.config.repository.RoleRepository;
+import de.adorsys.keycloak.config.service.metrics.ImportMetricsService;
+import de.adorsys.keycloak.config.service.metrics.ImportMetricsService.EntityOutcome;
 import de.adorsys.keycloak.config.service.rolecomposites.client.ClientRoleCompositeImportService;
 import de.adorsys.keycloak.config.service.rolecomposites.realm.RealmRoleCompositeImportService;
 import de.adorsys.keycloak.config.service.state.StateService;
@@ -55,19 +58,25 @@ public class RoleImportService {
 
     private final RoleRepository roleRepository;
     private final ImportConfigProperties importConfigProperties;
+    private final KeycloakProvider keycloakProvider;
     private final StateService stateService;
+    private final ImportMetricsService importMetricsService;
 
     @Autowired
     public RoleImportService(
             RealmRoleCompositeImportService realmRoleCompositeImportService,
             ClientRoleCompositeImportService clientRoleCompositeImportService,
             RoleRepository roleRepository,
-            ImportConfigProperties importConfigProperties, StateService stateService) {
+            ImportConfigProperties importConfigProperties,
+            KeycloakProvider keycloakProvider, StateService stateService,
+            ImportMetricsService importMetricsService) {
         this.realmRoleCompositeImport = realmRoleCompositeImportService;
         this.clientRoleCompositeImport = clientRoleCompositeImportService;
         this.roleRepository = roleRepository;
         this.importConfigProperties = importConfigProperties;
+        this.keycloakProvider = keycloakProvider;
         this.stateService = stateService;
+        this.importMetricsService = importMetricsService;
     }
 
     public void doImport(RealmImport realmImport) {
@@ -120,15 +129,17 @@ public class RoleImportService {
             List<RoleRepresentation> rolesToImport,
             List<RoleRepresentation> existingRealmRoles
     ) {
-        Consumer<RoleRepresentation> loop = role -> createOrUpdateRealmRole(realmName, role, existingRealmRoles);
+        Consumer<RoleRepresentation> loop = role -> importMetricsService.timeEntity(
+                realmName, "realm-role", role.getName(), () -> createOrUpdateRealmRole(realmName, role, existingRealmRoles)
+        );
         if (importConfigProperties.isParallel()) {
-            rolesToImport.parallelStream().forEach(loop);
+            keycloakProvider.forEachParallel(rolesToImport, loop);
         } else {
             rolesToImport.forEach(loop);
         }
     }
 
-    private void createOrUpdateRealmRole(
+    private EntityOutcome createOrUpdateRealmRole(
             String realmName,
             RoleRepresentation roleToImport,
             List<RoleRepresentation> existingRoles
@@ -140,10 +151,11 @@ public class RoleImportService {
                 .findFirst().orElse(null);
 
         if (existingRole != null) {
-            updateRoleIfNeeded(realmName, existingRole, roleToImport);
-        } else {
-            createRole(realmName, roleToImport, roleName);
+            return updateRoleIfNeeded(realmName, existingRole, roleToImport);
         }
+
+        createRole(realmName, roleToImport, roleName);
+        return EntityOutcome.CREATED;
     }
 
     private void createRole(String realmName, RoleRepresentation roleToImport, String roleName) {
@@ -165,12 +177,13 @@ public class RoleImportService {
             List<RoleRepresentation> clientRoles = client.getValue();
 
             for (RoleRepresentation role : clientRoles) {
-                createOrUpdateClientRole(realmName, clientId, role, existingRoles);
+                importMetricsService.timeEntity(realmName, "client-role", clientId + "/" + role.getName(),
+                        () -> createOrUpdateClientRole(realmName, clientId, role, existingRoles));
             }
         }
     }
 
-    private void createOrUpdateClientRole(
+    private EntityOutcome createOrUpdateClientRole(
             String realmName,
             String clientId,
             RoleRepresentation roleToImport,
@@ -190,10 +203,11 @@ public class RoleImportService {
                 .findFirst().orElse(null);
 
         if (existingClientRole != null) {
-            updateClientRoleIfNecessary(realmName, clientId, existingClientRole, roleToImport);
-        } else {
-            createClientRole(realmName, clientId, roleToImport, roleName);
+            return updateClientRoleIfNecessary(realmName, clientId, existingClientRole, roleToImport);
         }
+
+        createClientRole(realmName, clientId, roleToImport, roleName);
+        return EntityOutcome.CREATED;
     }
 
     private void createClientRole(String realmName, String clientId, RoleRepresentation roleToImport, String roleName) {
@@ -204,7 +218,7 @@ public class RoleImportService {
         roleRepository.createClientRole(realmName, clientId, roleToImportWithoutDependencies);
     }
 
-    private void updateRoleIfNeeded(
+    private EntityOutcome updateRoleIfNeeded(
             String realmName,
             RoleRepresentation existingRole,
             RoleRepresentation roleToImport
@@ -218,12 +232,14 @@ public class RoleImportService {
         if (!CloneUtil.deepEquals(existingRole, patchedRole)) {
             logger.debug("Update realm-level role '{}' in realm '{}'", roleName, realmName);
             roleRepository.updateRealmRole(realmName, patchedRole);
-        } else {
-            logger.debug("No need to update realm-level '{}' in realm '{}'", roleName, realmName);
+            return EntityOutcome.UPDATED;
         }
+
+        logger.debug("No need to update realm-level '{}' in realm '{}'", roleName, realmName);
+        return EntityOutcome.SKIPPED;
     }
 
-    private void updateClientRoleIfNecessary(
+    private EntityOutcome updateClientRoleIfNecessary(
             String realmName,
             String clientId,
             RoleRepresentation existingRole,
@@ -234,10 +250,12 @@ public class RoleImportService {
 
         if (CloneUtil.deepEquals(existingRole, patchedRole)) {
             logger.debug("No need to update client-level role '{}' for client '{}' in realm '{}'", roleName, clientId, realmName);
-        } else {
-            logger.debug("Update client-level role '{}' for client '{}' in realm '{}'", roleName, clientId, realmName);
-            roleRepository.updateClientRole(realmName, clientId, patchedRole);
+            return EntityOutcome.SKIPPED;
         }
+
+        logger.debug("Update client-level role '{}' for client '{}' in realm '{}'", roleName, clientId, realmName);
+        roleRepository.updateClientRole(realmName, clientId, patchedRole);
+        return EntityOutcome.UPDATED;
     }
 
     private void deleteRealmRolesMissingInImport(
@@ -264,7 +282,8 @@ public class RoleImportService {
             }
 
             logger.debug("Delete realm-level role '{}' in realm '{}'", existingRole.getName(), realmName);
-            roleRepository.deleteRealmRole(realmName, existingRole);
+            importMetricsService.timeEntity(realmName, "realm-role", existingRole.getName(), EntityOutcome.DELETED,
+                    () -> roleRepository.deleteRealmRole(realmName, existingRole));
         }
     }
 
@@ -288,7 +307,8 @@ public class RoleImportService {
                 if (neededToDelete) {
                     logger.debug("Delete client-level role '{}' for client '{}' in realm '{}'",
                             role.getName(), client.getKey(), realmName);
-                    roleRepository.deleteClientRole(realmName, client.getKey(), role);
+                    importMetricsService.timeEntity(realmName, "client-role", client.getKey() + "/" + role.getName(), EntityOutcome.DELETED,
+                            () -> roleRepository.deleteClientRole(realmName, client.getKey(), role));
                 }
             }
         }
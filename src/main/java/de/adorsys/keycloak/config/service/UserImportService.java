@@ -23,8 +23,12 @@ package de.adorsys.keycloak.config.service;
 import de.adorsys.keycloak.config.exception.InvalidImportException;
 import de.adorsys.keycloak.config.model.RealmImport;
 import de.adorsys.keycloak.config.properties.ImportConfigProperties;
+import de.adorsys.keycloak.config.provider.KeycloakProvider;
 import de.adorsys.keycloak.config.repository.*;
+import de.adorsys.keycloak.config.service.metrics.ImportMetricsService;
+import de.adorsys.keycloak.config.service.metrics.ImportMetricsService.EntityOutcome;
 import de.adorsys.keycloak.config.util.CloneUtil;
+import de.adorsys.keycloak.config.util.FutureUtil;
 import de.adorsys.keycloak.config.util.KeycloakUtil;
 import org.keycloak.representations.idm.*;
 import org.slf4j.Logger;
@@ -34,6 +38,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
@@ -51,13 +56,17 @@ public class UserImportService {
     private final ClientRepository clientRepository;
 
     private final ImportConfigProperties importConfigProperties;
+    private final KeycloakProvider keycloakProvider;
+    private final ImportMetricsService importMetricsService;
 
     @Autowired
     public UserImportService(
             RealmRepository realmRepository, UserRepository userRepository,
             RoleRepository roleRepository,
             GroupRepository groupRepository,
-            ClientRepository clientRepository, ImportConfigProperties importConfigProperties
+            ClientRepository clientRepository, ImportConfigProperties importConfigProperties,
+            KeycloakProvider keycloakProvider,
+            ImportMetricsService importMetricsService
     ) {
         this.realmRepository = realmRepository;
         this.userRepository = userRepository;
@@ -65,6 +74,8 @@ public class UserImportService {
         this.groupRepository = groupRepository;
         this.clientRepository = clientRepository;
         this.importConfigProperties = importConfigProperties;
+        this.keycloakProvider = keycloakProvider;
+        this.importMetricsService = importMetricsService;
     }
 
     public void doImport(RealmImport realmImport) {
@@ -79,33 +90,48 @@ public class UserImportService {
             return;
         }
 
-        Consumer<UserRepresentation> loop = user -> importUser(realmImport.getRealm(), user);
+        // the realm is imported before its users, so its settings are fetched once instead of per user
+        boolean registrationEmailAsUsername = Boolean.TRUE.equals(realmRepository.get(realmImport.getRealm()).isRegistrationEmailAsUsername());
+
+        Consumer<UserRepresentation> loop = user -> importMetricsService.timeEntity(
+                realmImport.getRealm(), "user", user.getUsername() != null ? user.getUsername() : user.getEmail(),
+                () -> importUser(realmImport.getRealm(), user, registrationEmailAsUsername)
+        );
         if (importConfigProperties.isParallel()) {
-            users.parallelStream().forEach(loop);
+            keycloakProvider.forEachParallel(users, loop);
         } else {
             users.forEach(loop);
         }
     }
 
-    private void importUser(String realmName, UserRepresentation user) {
-        UserImport userImport = new UserImport(realmName, user);
-        userImport.importUser();
+    private EntityOutcome importUser(String realmName, UserRepresentation user, boolean registrationEmailAsUsername) {
+        UserImport userImport = new UserImport(realmName, user, registrationEmailAsUsername);
+        return userImport.importUser();
     }
 
+    /**
+     * Imports one user with its role mappings and groups. The user is resolved once, the following calls address it by its id.
+     * The role mappings and groups of the user are read concurrently with the update of the user and the changes of the role
+     * mappings and groups are sent concurrently.
+     */
     private class UserImport {
         private final String realmName;
         private final UserRepresentation userToImport;
+        private final boolean registrationEmailAsUsername;
+
+        private final List<CompletableFuture<Void>> changes = new ArrayList<>();
+        private String userId;
 
-        private UserImport(String realmName, UserRepresentation userToImport) {
+        private UserImport(String realmName, UserRepresentation userToImport, boolean registrationEmailAsUsername) {
             this.realmName = realmName;
             this.userToImport = userToImport;
+            this.registrationEmailAsUsername = registrationEmailAsUsername;
         }
 
-        public void importUser() {
+        public EntityOutcome importUser() {
             if (
                     // The service accounts shall not be taken into account
-                    !StringUtils.hasLength(userToImport.getServiceAccountClientId())
-                            && Boolean.TRUE.equals(realmRepository.get(realmName).isRegistrationEmailAsUsername())
+                    !StringUtils.hasLength(userToImport.getServiceAccountClientId()) && registrationEmailAsUsername
             ) {
                 if (
                         userToImport.getUsername() != null
@@ -123,19 +149,46 @@ public class UserImportService {
 
             Optional<UserRepresentation> maybeUser = userRepository.search(realmName, userToImport.getUsername());
 
+            EntityOutcome outcome;
+            CompletableFuture<Void> update;
             if (maybeUser.isPresent()) {
-                updateUser(maybeUser.get());
+                userId = maybeUser.get().getId();
+                update = updateUser(maybeUser.get());
+                outcome = update == null ? EntityOutcome.SKIPPED : EntityOutcome.UPDATED;
             } else {
                 logger.debug("Create user '{}' in realm '{}'", userToImport.getUsername(), realmName);
-                userRepository.create(realmName, userToImport);
+                userId = userRepository.create(realmName, userToImport);
+                update = null;
+                outcome = EntityOutcome.CREATED;
+            }
+
+            CompletableFuture<MappingsRepresentation> roleMappings = roleRepository.getUserRoleMappingsAsync(realmName, userId);
+            final CompletableFuture<List<GroupRepresentation>> groups = userRepository.getGroupsAsync(realmName, userId);
+
+            if (update != null) {
+                FutureUtil.join(update);
             }
 
-            handleRealmRoles();
-            handleClientRoles();
-            handleGroups();
+            try {
+                MappingsRepresentation existingRoleMappings = FutureUtil.join(roleMappings);
+                handleRealmRoles(existingRoleMappings);
+                handleClientRoles(existingRoleMappings);
+                handleGroups(FutureUtil.join(groups));
+            } catch (RuntimeException error) {
+                // the changes already sent must not modify keycloak after the failure of the user is reported
+                CompletableFuture.allOf(changes.toArray(new CompletableFuture[0])).exceptionally(changeError -> null).join();
+                throw error;
+            }
+
+            FutureUtil.join(CompletableFuture.allOf(changes.toArray(new CompletableFuture[0])));
+
+            return outcome;
         }
 
-        private void updateUser(UserRepresentation existingUser) {
+        /**
+         * @return the pending update of the user, or {@code null} if the user is unchanged
+         */
+        private CompletableFuture<Void> updateUser(UserRepresentation existingUser) {
             UserRepresentation patchedUser = CloneUtil
                     .patch(existingUser, userToImport, IGNORED_PROPERTIES_FOR_UPDATE);
 
@@ -157,13 +210,14 @@ public class UserImportService {
 
             if (!CloneUtil.deepEquals(existingUser, patchedUser, "access")) {
                 logger.debug("Update user '{}' in realm '{}'", userToImport.getUsername(), realmName);
-                userRepository.updateUser(realmName, patchedUser);
-            } else {
-                logger.debug("No need to update user '{}' in realm '{}'", userToImport.getUsername(), realmName);
+                return userRepository.updateUserAsync(realmName, userId, patchedUser);
             }
+
+            logger.debug("No need to update user '{}' in realm '{}'", userToImport.getUsername(), realmName);
+            return null;
         }
 
-        private void handleGroups() {
+        private void handleGroups(List<GroupRepresentation> existingGroups) {
             List<String> userGroupsToUpdate = userToImport.getGroups();
             if (userGroupsToUpdate == null) {
                 userGroupsToUpdate = Collections.emptyList();
@@ -174,7 +228,7 @@ public class UserImportService {
                     .stream().map(groupName -> groupName.startsWith("/") ? groupName : "/" + groupName)
                     .collect(Collectors.toList());
 
-            List<String> existingUserGroups = userRepository.getGroups(realmName, userToImport)
+            List<String> existingUserGroups = existingGroups
                     .stream().map(GroupRepresentation::getPath)
                     .collect(Collectors.toList());
 
@@ -194,7 +248,7 @@ public class UserImportService {
             logger.debug("Add groups {} to user '{}' in realm '{}'",
                     groupsToAdd, userToImport.getUsername(), realmName);
 
-            groupRepository.addGroupsToUser(realmName, userToImport.getUsername(), groups);
+            changes.add(groupRepository.addGroupsToUserAsync(realmName, userId, groups));
         }
 
         private void handleGroupsToBeRemoved(
@@ -209,17 +263,16 @@ public class UserImportService {
             logger.debug("Remove groups {} from user '{}' in realm '{}'",
                     groupsToDelete, userToImport.getUsername(), realmName);
 
-            groupRepository.removeGroupsFromUser(realmName, userToImport.getUsername(), groups);
+            changes.add(groupRepository.removeGroupsFromUserAsync(realmName, userId, groups));
         }
 
-        private void handleRealmRoles() {
+        private void handleRealmRoles(MappingsRepresentation existingRoleMappings) {
             List<String> usersRealmLevelRolesToUpdate = userToImport.getRealmRoles();
             if (usersRealmLevelRolesToUpdate == null) {
                 usersRealmLevelRolesToUpdate = Collections.emptyList();
             }
 
-            List<String> existingUsersRealmLevelRoles = roleRepository
-                    .getUserRealmLevelRoles(realmName, userToImport.getUsername());
+            List<String> existingUsersRealmLevelRoles = toRoleNameList(existingRoleMappings.getRealmMappings());
 
             handleRolesToBeAdded(usersRealmLevelRolesToUpdate, existingUsersRealmLevelRoles);
             handleRolesToBeRemoved(usersRealmLevelRolesToUpdate, existingUsersRealmLevelRoles);
@@ -234,7 +287,7 @@ public class UserImportService {
             logger.debug("Add realm-level roles {} to user '{}' in realm '{}'",
                     rolesToAdd, userToImport.getUsername(), realmName);
 
-            roleRepository.addRealmRolesToUser(realmName, userToImport.getUsername(), realmRoles);
+            changes.add(roleRepository.addRealmRolesToUserAsync(realmName, userId, realmRoles));
         }
 
         private void handleRolesToBeRemoved(List<String> usersRealmLevelRolesToUpdate, List<String> existingUsersRealmLevelRoles) {
@@ -250,16 +303,16 @@ public class UserImportService {
             logger.debug("Remove realm-level roles {} from user '{}' in realm '{}'",
                     rolesToDelete, userToImport.getUsername(), realmName);
 
-            roleRepository.removeRealmRolesForUser(realmName, userToImport.getUsername(), realmRoles);
+            changes.add(roleRepository.removeRealmRolesForUserAsync(realmName, userId, realmRoles));
         }
 
-        private void handleClientRoles() {
+        private void handleClientRoles(MappingsRepresentation existingRoleMappings) {
             Map<String, List<String>> clientRolesToImport = Optional.ofNullable(userToImport.getClientRoles())
                     .orElseGet(Collections::emptyMap);
-            Map<String, List<String>> existingClientsRoles = roleRepository
-                    .getUserClientLevelRoles(realmName, userToImport.getUsername());
+            Map<String, ClientMappingsRepresentation> existingClientsRoles = Optional.ofNullable(existingRoleMappings.getClientMappings())
+                    .orElseGet(Collections::emptyMap);
 
-            for (Map.Entry<String, List<String>> existing : existingClientsRoles.entrySet()) {
+            for (Map.Entry<String, ClientMappingsRepresentation> existing : existingClientsRoles.entrySet()) {
                 List<String> rolesToImport = clientRolesToImport.get(existing.getKey());
 
                 if (rolesToImport == null) {
@@ -270,26 +323,36 @@ public class UserImportService {
                     }
                     rolesToImport = Collections.emptyList();
                 }
+
                 setupClientRoles(
                         existing.getKey(),
-                        existing.getValue(),
+                        existing.getValue().getId(),
+                        toRoleNameList(existing.getValue().getMappings()),
                         rolesToImport);
             }
             for (Map.Entry<String, List<String>> toImport : clientRolesToImport.entrySet()) {
                 if (!existingClientsRoles.containsKey(toImport.getKey())) {
                     setupClientRoles(
                             toImport.getKey(),
+                            null,
                             Collections.emptyList(),
                             toImport.getValue());
                 }
             }
         }
 
-        private void setupClientRoles(String clientId, List<String> existing, List<String> toImport) {
-            ClientRoleImport clientRoleImport = new ClientRoleImport(clientId, existing, toImport);
+        private void setupClientRoles(String clientId, String clientUuid, List<String> existing, List<String> toImport) {
+            ClientRoleImport clientRoleImport = new ClientRoleImport(clientId, clientUuid, existing, toImport);
             clientRoleImport.importClientRoles();
         }
 
+        private List<String> toRoleNameList(List<RoleRepresentation> roles) {
+            if (roles == null) {
+                return Collections.emptyList();
+            }
+            return roles.stream().map(RoleRepresentation::getName).collect(Collectors.toList());
+        }
+
         private List<String> searchForMissing(List<String> searchedFor, List<String> trawled) {
             return searchedFor.stream().filter(role -> !trawled.contains(role)).collect(Collectors.toList());
         }
@@ -298,12 +361,15 @@ public class UserImportService {
             private final String clientId;
             private final List<String> existingClientLevelRoles;
             private final List<String> clientRolesToImport;
+            private String clientUuid;
 
             private ClientRoleImport(String clientId,
+                                     String clientUuid,
                                      List<String> existingClientLevelRoles,
                                      List<String> clientRolesToImport) {
 
                 this.clientId = clientId;
+                this.clientUuid = clientUuid;
                 this.existingClientLevelRoles = existingClientLevelRoles;
                 this.clientRolesToImport = clientRolesToImport;
             }
@@ -323,7 +389,7 @@ public class UserImportService {
                 logger.debug("Add client-level roles {} for client '{}' to user '{}' in realm '{}'",
                         clientRolesToAdd, clientId, userToImport.getUsername(), realmName);
 
-                roleRepository.addClientRolesToUser(realmName, userToImport.getUsername(), clientId, clientRoles);
+                changes.add(roleRepository.addClientRolesToUserAsync(realmName, userId, getClientUuid(), clientRoles));
             }
 
             private void handleClientRolesToBeRemoved() {
@@ -336,7 +402,16 @@ public class UserImportService {
                 logger.debug("Remove client-level roles {} for client '{}' from user '{}' in realm '{}'",
                         clientRolesToRemove, clientId, userToImport.getUsername(), realmName);
 
-                roleRepository.removeClientRolesForUser(realmName, userToImport.getUsername(), clientId, clientRoles);
+                changes.add(roleRepository.removeClientRolesForUserAsync(realmName, userId, getClientUuid(), clientRoles));
+            }
+
+            // the role mappings of the user contain the id of its clients, other clients are looked up once they get roles
+            private String getClientUuid() {
+                if (clientUuid == null) {
+                    clientUuid = clientRepository.getByClientId(realmName, clientId).getId();
+                }
+
+                return clientUuid;
             }
         }
     }
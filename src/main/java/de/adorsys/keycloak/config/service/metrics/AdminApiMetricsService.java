@@ -0,0 +1,189 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2021 adorsys GmbH & Co. KG @ https://adorsys.com
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.service.metrics;
+
+import de.adorsys.keycloak.config.util.resteasy.CompressionClientFilter;
+import de.adorsys.keycloak.config.util.resteasy.MetricsClientFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+@Service
+public class AdminApiMetricsService {
+    private static final Logger logger = LoggerFactory.getLogger(AdminApiMetricsService.class);
+
+    private static final int SUMMARY_TOP_ENDPOINTS = 10;
+
+    private final MeterRegistry meterRegistry;
+
+    @Autowired
+    public AdminApiMetricsService(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Aggregates the recorded admin API calls per method and endpoint template, ignoring the status code.
+     *
+     * @return the endpoints ordered by number of calls, most called first
+     */
+    public List<EndpointMetrics> getEndpointMetrics() {
+        Map<String, EndpointMetrics> endpoints = new LinkedHashMap<>();
+
+        for (Timer timer : meterRegistry.find(MetricsClientFilter.REQUESTS_METRIC).timers()) {
+            String method = timer.getId().getTag("method");
+            String uri = timer.getId().getTag("uri");
+
+            EndpointMetrics endpoint = endpoints.computeIfAbsent(method + " " + uri, k -> new EndpointMetrics(method, uri));
+            endpoint.count += timer.count();
+            endpoint.totalTimeInMillis += timer.totalTime(TimeUnit.MILLISECONDS);
+            endpoint.maxTimeInMillis = Math.max(endpoint.maxTimeInMillis, timer.max(TimeUnit.MILLISECONDS));
+
+            if (isFailed(timer.getId().getTag("status"))) {
+                endpoint.failedCount += timer.count();
+            }
+        }
+
+        for (DistributionSummary responseSize : meterRegistry.find(MetricsClientFilter.RESPONSE_SIZE_METRIC).summaries()) {
+            String key = responseSize.getId().getTag("method") + " " + responseSize.getId().getTag("uri");
+            EndpointMetrics endpoint = endpoints.get(key);
+
+            if (endpoint != null) {
+                endpoint.responseBytes += (long) responseSize.totalAmount();
+            }
+        }
+
+        return endpoints.values().stream()
+                .sorted(Comparator.comparingLong(EndpointMetrics::getCount).reversed())
+                .collect(Collectors.toList());
+    }
+
+    private static boolean isFailed(String status) {
+        return status != null && Integer.parseInt(status) >= 400;
+    }
+
+    public void logSummary() {
+        Collection<EndpointMetrics> endpoints = getEndpointMetrics();
+        if (endpoints.isEmpty()) return;
+
+        long count = endpoints.stream().mapToLong(EndpointMetrics::getCount).sum();
+        double totalTimeInMillis = endpoints.stream().mapToDouble(EndpointMetrics::getTotalTimeInMillis).sum();
+        long responseBytes = endpoints.stream().mapToLong(EndpointMetrics::getResponseBytes).sum();
+
+        logger.info(
+                "keycloak admin API: {} calls to {} endpoints in {} ms, {} bytes received.",
+                count, endpoints.size(), Math.round(totalTimeInMillis), responseBytes
+        );
+
+        long responseBytesSaved = getCompressionSavedBytes("response");
+        long requestBytesSaved = getCompressionSavedBytes("request");
+        if (responseBytesSaved != 0 || requestBytesSaved != 0) {
+            logger.info(
+                    "keycloak admin API gzip compression: {} bytes of responses and {} bytes of requests saved.",
+                    responseBytesSaved, requestBytesSaved
+            );
+        }
+
+        int position = 0;
+        for (EndpointMetrics endpoint : endpoints) {
+            String line = String.format(
+                    "%6d calls %8d ms total %6d ms max %10d bytes %4d failed: %s %s",
+                    endpoint.getCount(), Math.round(endpoint.getTotalTimeInMillis()), Math.round(endpoint.getMaxTimeInMillis()),
+                    endpoint.getResponseBytes(), endpoint.getFailedCount(), endpoint.getMethod(), endpoint.getUri()
+            );
+
+            if (position++ < SUMMARY_TOP_ENDPOINTS) {
+                logger.info("{}", line);
+            } else {
+                logger.debug("{}", line);
+            }
+        }
+    }
+
+    /**
+     * @param direction either request or response
+     * @return the bytes which were not transferred because of gzip compressed bodies
+     */
+    public long getCompressionSavedBytes(String direction) {
+        double saved = 0;
+
+        for (Counter counter : meterRegistry.find(CompressionClientFilter.COMPRESSION_METRIC).tag("direction", direction).counters()) {
+            saved += "uncompressed".equals(counter.getId().getTag("size")) ? counter.count() : -counter.count();
+        }
+
+        return Math.round(saved);
+    }
+
+    public static class EndpointMetrics {
+        private final String method;
+        private final String uri;
+        private long count;
+        private long failedCount;
+        private double totalTimeInMillis;
+        private double maxTimeInMillis;
+        private long responseBytes;
+
+        private EndpointMetrics(String method, String uri) {
+            this.method = method;
+            this.uri = uri;
+        }
+
+        public String getMethod() {
+            return method;
+        }
+
+        public String getUri() {
+            return uri;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getFailedCount() {
+            return failedCount;
+        }
+
+        public double getTotalTimeInMillis() {
+            return totalTimeInMillis;
+        }
+
+        public double getMaxTimeInMillis() {
+            return maxTimeInMillis;
+        }
+
+        public long getResponseBytes() {
+            return responseBytes;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2021 adorsys GmbH & Co. KG @ https://adorsys.com
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.service.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("de.adorsys.keycloak.config.ImportEntity")
+@Label("Import Entity")
+@Description("Import of a single entity, e.g. a client or a user")
+@Category({"keycloak-config-cli", "Import"})
+@StackTrace(false)
+class ImportEntityEvent extends Event {
+    @Label("Realm")
+    String realm;
+
+    @Label("Type")
+    String type;
+
+    @Label("Name")
+    String name;
+
+    @Label("Action")
+    @Description("created, updated, skipped, deleted or failed")
+    String action;
+}
@@ -0,0 +1,544 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2021 adorsys GmbH & Co. KG @ https://adorsys.com
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.service.metrics;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+import de.adorsys.keycloak.config.properties.ImportConfigProperties;
+import de.adorsys.keycloak.config.properties.ImportConfigProperties.ImportSlowLogProperties;
+import de.adorsys.keycloak.config.service.tracing.TracingService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.Span;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+@Service
+public class ImportMetricsService {
+    public static final String PHASE_METRIC = "kcc.import.phase";
+    public static final String ENTITY_METRIC = "kcc.import.entity";
+    public static final String CACHE_METRIC = "kcc.import.cache";
+    public static final String CACHE_HIT_RATIO_METRIC = "kcc.import.cache.hit.ratio";
+    public static final String USER_FEDERATION_SYNC_METRIC = "kcc.user.federation.sync";
+    public static final String USER_FEDERATION_SYNC_USERS_METRIC = "kcc.user.federation.sync.users";
+
+    private static final double NANOS_PER_MILLI = 1_000_000d;
+
+    private final MeterRegistry meterRegistry;
+    private final TracingService tracingService;
+
+    private final Queue<PhaseMetrics> phases = new ConcurrentLinkedQueue<>();
+    private final Queue<EntityMetrics> entities = new ConcurrentLinkedQueue<>();
+    private final Queue<UserFederationSyncMetrics> userFederationSyncs = new ConcurrentLinkedQueue<>();
+
+    // the report lists every entity, the slow log summary only the slowest ones
+    private final boolean retainAllEntities;
+    private final int retainSlowestEntities;
+    private final PriorityQueue<EntityMetrics> slowestEntities = new PriorityQueue<>(
+            Comparator.comparingLong(EntityMetrics::getDurationInNanos)
+    );
+
+    private final ThreadLocal<ImportContext> currentContext = new ThreadLocal<>();
+
+    @Autowired
+    public ImportMetricsService(MeterRegistry meterRegistry, TracingService tracingService, ImportConfigProperties importConfigProperties) {
+        this.meterRegistry = meterRegistry;
+        this.tracingService = tracingService;
+
+        ImportSlowLogProperties slowLog = importConfigProperties.getSlowLog();
+        this.retainAllEntities = importConfigProperties.getReport().isEnabled();
+        this.retainSlowestEntities = slowLog.isEnabled() ? Math.max(slowLog.getTop(), 0) : 0;
+
+        Gauge.builder(CACHE_HIT_RATIO_METRIC, this, ImportMetricsService::getCacheHitRatio)
+                .description("Ratio of realm imports skipped because of an unchanged import checksum")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs one phase of a realm import and records its duration, even if the phase fails.
+     * While a flight recording is running, the phase is also emitted as {@link ImportPhaseEvent}.
+     * If tracing is enabled, the phase becomes a span and the parent of the entity spans created by the action.
+     */
+    public void timePhase(String realmName, String phase, Runnable action) {
+        ImportPhaseEvent event = new ImportPhaseEvent();
+        event.begin();
+
+        ImportContext previousContext = currentContext.get();
+        currentContext.set(new ImportContext(realmName, phase, null, null));
+
+        long start = System.nanoTime();
+        boolean failed = true;
+
+        try {
+            if (tracingService.isEnabled()) {
+                Attributes attributes = Attributes.of(TracingService.REALM, realmName, TracingService.PHASE, phase);
+                tracingService.inPhaseSpan("phase " + phase, attributes, action);
+            } else {
+                action.run();
+            }
+            failed = false;
+        } finally {
+            long duration = System.nanoTime() - start;
+
+            Timer.builder(PHASE_METRIC)
+                    .description("Duration of the phases of a realm import")
+                    .tag("realm", realmName)
+                    .tag("phase", phase)
+                    .register(meterRegistry)
+                    .record(duration, TimeUnit.NANOSECONDS);
+
+            phases.add(new PhaseMetrics(realmName, phase, duration, failed));
+            restoreContext(previousContext);
+
+            if (event.shouldCommit()) {
+                event.realm = realmName;
+                event.phase = phase;
+                event.failed = failed;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Runs the import of one entity and records its duration together with the outcome returned by the action.
+     * Entities whose import throws are recorded as {@link EntityOutcome#FAILED}.
+     * While a flight recording is running, the entity is also emitted as {@link ImportEntityEvent}.
+     * If tracing is enabled, the entity becomes a span.
+     */
+    public void timeEntity(String realmName, String type, String name, Supplier<EntityOutcome> action) {
+        ImportEntityEvent event = new ImportEntityEvent();
+        event.begin();
+
+        ImportContext previousContext = currentContext.get();
+        ImportContext context = new ImportContext(realmName, previousContext == null ? null : previousContext.getPhase(), type, name);
+        currentContext.set(context);
+
+        long start = System.nanoTime();
+        EntityOutcome outcome = EntityOutcome.FAILED;
+
+        try {
+            outcome = tracingService.isEnabled() ? inEntitySpan(realmName, type, name, action) : action.get();
+        } finally {
+            long duration = System.nanoTime() - start;
+
+            Timer.builder(ENTITY_METRIC)
+                    .description("Duration of the import of single entities")
+                    .tag("realm", realmName)
+                    .tag("type", type)
+                    .tag("outcome", outcome.getValue())
+                    .register(meterRegistry)
+                    .record(duration, TimeUnit.NANOSECONDS);
+
+            retainEntity(new EntityMetrics(realmName, type, name, outcome, duration, context.getCalls()));
+            restoreContext(previousContext);
+
+            if (event.shouldCommit()) {
+                event.realm = realmName;
+                event.type = type;
+                event.name = name;
+                event.action = outcome.getValue();
+                event.commit();
+            }
+        }
+    }
+
+    public void timeEntity(String realmName, String type, String name, EntityOutcome outcome, Runnable action) {
+        timeEntity(realmName, type, name, () -> {
+            action.run();
+            return outcome;
+        });
+    }
+
+    private void retainEntity(EntityMetrics entity) {
+        if (retainAllEntities) {
+            entities.add(entity);
+        } else if (retainSlowestEntities > 0) {
+            synchronized (slowestEntities) {
+                slowestEntities.add(entity);
+                if (slowestEntities.size() > retainSlowestEntities) {
+                    slowestEntities.poll();
+                }
+            }
+        }
+    }
+
+    private EntityOutcome inEntitySpan(String realmName, String type, String name, Supplier<EntityOutcome> action) {
+        Attributes attributes = Attributes.of(
+                TracingService.REALM, realmName, TracingService.ENTITY_TYPE, type, TracingService.ENTITY_NAME, name
+        );
+
+        return tracingService.inSpan("entity " + type, attributes, () -> {
+            EntityOutcome result = action.get();
+            Span.current().setAttribute(TracingService.ENTITY_OUTCOME, result.getValue());
+            return result;
+        });
+    }
+
+    private void restoreContext(ImportContext previousContext) {
+        if (previousContext == null) {
+            currentContext.remove();
+        } else {
+            currentContext.set(previousContext);
+        }
+    }
+
+    /**
+     * @return the task, which runs with the import context of the current thread. Admin API calls sent by another thread on
+     * behalf of the current entity are counted for it.
+     */
+    public Runnable withCurrentContext(Runnable task) {
+        ImportContext context = currentContext.get();
+        if (context == null) return task;
+
+        return () -> {
+            ImportContext previousContext = currentContext.get();
+            currentContext.set(context);
+
+            try {
+                task.run();
+            } finally {
+                restoreContext(previousContext);
+            }
+        };
+    }
+
+    /**
+     * @return the realm, phase and entity imported by the current thread, or {@code null} if it is not running an import phase or entity
+     */
+    public ImportContext getCurrentContext() {
+        return currentContext.get();
+    }
+
+    /**
+     * Records the duration and the added, updated, removed and failed users of a user federation synchronization.
+     */
+    public void recordUserFederationSync(UserFederationSyncMetrics sync) {
+        Timer.builder(USER_FEDERATION_SYNC_METRIC)
+                .description("Duration of the user federation synchronizations")
+                .tag("realm", sync.getRealm())
+                .tag("provider", sync.getProvider())
+                .tag("status", sync.getStatus().getValue())
+                .register(meterRegistry)
+                .record(sync.durationInNanos, TimeUnit.NANOSECONDS);
+
+        recordUserFederationSyncUsers(sync, "added", sync.getAdded());
+        recordUserFederationSyncUsers(sync, "updated", sync.getUpdated());
+        recordUserFederationSyncUsers(sync, "removed", sync.getRemoved());
+        recordUserFederationSyncUsers(sync, "failed", sync.getFailed());
+
+        userFederationSyncs.add(sync);
+    }
+
+    private void recordUserFederationSyncUsers(UserFederationSyncMetrics sync, String result, int users) {
+        Counter.builder(USER_FEDERATION_SYNC_USERS_METRIC)
+                .description("Users added, updated, removed or failed by the user federation synchronizations")
+                .tag("realm", sync.getRealm())
+                .tag("provider", sync.getProvider())
+                .tag("result", result)
+                .register(meterRegistry)
+                .increment(users);
+    }
+
+    /**
+     * Records whether a realm import was skipped, because its checksum matches the checksum of the last import.
+     */
+    public void recordCacheLookup(String realmName, boolean hit) {
+        Counter.builder(CACHE_METRIC)
+                .description("Lookups of the import checksum cache")
+                .tag("realm", realmName)
+                .tag("result", hit ? "hit" : "miss")
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * @return the ratio of cache hits to all cache lookups, or {@link Double#NaN} if there were no lookups
+     */
+    public double getCacheHitRatio() {
+        double hits = 0;
+        double lookups = 0;
+
+        for (Counter counter : meterRegistry.find(CACHE_METRIC).counters()) {
+            if ("hit".equals(counter.getId().getTag("result"))) {
+                hits += counter.count();
+            }
+            lookups += counter.count();
+        }
+
+        return lookups == 0 ? Double.NaN : hits / lookups;
+    }
+
+    /**
+     * @return the recorded phases in the order they were finished
+     */
+    public List<PhaseMetrics> getPhases() {
+        return new ArrayList<>(phases);
+    }
+
+    /**
+     * @return the recorded entities in the order they were finished, if the import report is enabled. Otherwise, only the slowest
+     * entities needed for the slow log summary are retained, or none if the slow log is disabled, too.
+     */
+    public List<EntityMetrics> getEntities() {
+        if (retainAllEntities) {
+            return new ArrayList<>(entities);
+        }
+
+        synchronized (slowestEntities) {
+            return new ArrayList<>(slowestEntities);
+        }
+    }
+
+    /**
+     * @return the recorded user federation synchronizations in the order they were finished
+     */
+    public List<UserFederationSyncMetrics> getUserFederationSyncs() {
+        return new ArrayList<>(userFederationSyncs);
+    }
+
+    public enum EntityOutcome {
+        CREATED("created"),
+        UPDATED("updated"),
+        SKIPPED("skipped"),
+        DELETED("deleted"),
+        FAILED("failed");
+
+        private final String value;
+
+        EntityOutcome(String value) {
+            this.value = value;
+        }
+
+        @JsonValue
+        public String getValue() {
+            return value;
+        }
+    }
+
+    public enum UserFederationSyncStatus {
+        SYNCED("synced"),
+        IGNORED("ignored"),
+        FAILED("failed");
+
+        private final String value;
+
+        UserFederationSyncStatus(String value) {
+            this.value = value;
+        }
+
+        @JsonValue
+        public String getValue() {
+            return value;
+        }
+    }
+
+    public static class PhaseMetrics {
+        private final String realm;
+        private final String phase;
+        private final long durationInNanos;
+        private final boolean failed;
+
+        PhaseMetrics(String realm, String phase, long durationInNanos, boolean failed) {
+            this.realm = realm;
+            this.phase = phase;
+            this.durationInNanos = durationInNanos;
+            this.failed = failed;
+        }
+
+        public String getRealm() {
+            return realm;
+        }
+
+        public String getPhase() {
+            return phase;
+        }
+
+        public double getDurationInMillis() {
+            return durationInNanos / NANOS_PER_MILLI;
+        }
+
+        public boolean isFailed() {
+            return failed;
+        }
+    }
+
+    public static class EntityMetrics {
+        private final String realm;
+        private final String type;
+        private final String name;
+        private final EntityOutcome outcome;
+        private final long durationInNanos;
+        private final long calls;
+
+        EntityMetrics(String realm, String type, String name, EntityOutcome outcome, long durationInNanos, long calls) {
+            this.realm = realm;
+            this.type = type;
+            this.name = name;
+            this.outcome = outcome;
+            this.durationInNanos = durationInNanos;
+            this.calls = calls;
+        }
+
+        public String getRealm() {
+            return realm;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public EntityOutcome getOutcome() {
+            return outcome;
+        }
+
+        public double getDurationInMillis() {
+            return durationInNanos / NANOS_PER_MILLI;
+        }
+
+        long getDurationInNanos() {
+            return durationInNanos;
+        }
+
+        /**
+         * @return the keycloak admin API calls made by the thread importing the entity
+         */
+        public long getCalls() {
+            return calls;
+        }
+    }
+
+    public static class UserFederationSyncMetrics {
+        private final String realm;
+        private final String provider;
+        private final UserFederationSyncStatus status;
+        private final long durationInNanos;
+        private final int added;
+        private final int updated;
+        private final int removed;
+        private final int failed;
+
+        @SuppressWarnings("java:S107")
+        public UserFederationSyncMetrics(String realm, String provider, UserFederationSyncStatus status, long durationInNanos,
+                                         int added, int updated, int removed, int failed) {
+            this.realm = realm;
+            this.provider = provider;
+            this.status = status;
+            this.durationInNanos = durationInNanos;
+            this.added = added;
+            this.updated = updated;
+            this.removed = removed;
+            this.failed = failed;
+        }
+
+        public String getRealm() {
+            return realm;
+        }
+
+        public String getProvider() {
+            return provider;
+        }
+
+        public UserFederationSyncStatus getStatus() {
+            return status;
+        }
+
+        public double getDurationInMillis() {
+            return durationInNanos / NANOS_PER_MILLI;
+        }
+
+        public int getAdded() {
+            return added;
+        }
+
+        public int getUpdated() {
+            return updated;
+        }
+
+        public int getRemoved() {
+            return removed;
+        }
+
+        public int getFailed() {
+            return failed;
+        }
+    }
+
+    /**
+     * The realm, phase and entity a thread is importing. The keycloak admin API calls of the thread are counted per context.
+     */
+    public static class ImportContext {
+        private final String realm;
+        private final String phase;
+        private final String entityType;
+        private final String entityName;
+        private final AtomicLong calls = new AtomicLong();
+
+        ImportContext(String realm, String phase, String entityType, String entityName) {
+            this.realm = realm;
+            this.phase = phase;
+            this.entityType = entityType;
+            this.entityName = entityName;
+        }
+
+        public String getRealm() {
+            return realm;
+        }
+
+        public String getPhase() {
+            return phase;
+        }
+
+        public String getEntityType() {
+            return entityType;
+        }
+
+        public String getEntityName() {
+            return entityName;
+        }
+
+        public long getCalls() {
+            return calls.get();
+        }
+
+        /**
+         * @return the number of calls in this context, including the recorded one
+         */
+        public long recordCall() {
+            return calls.incrementAndGet();
+        }
+    }
+}
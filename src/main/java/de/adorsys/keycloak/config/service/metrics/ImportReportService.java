@@ -0,0 +1,138 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2021 adorsys GmbH & Co. KG @ https://adorsys.com
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.service.metrics;
+
+import de.adorsys.keycloak.config.properties.ImportConfigProperties;
+import de.adorsys.keycloak.config.service.metrics.ImportMetricsService.EntityMetrics;
+import de.adorsys.keycloak.config.service.metrics.ImportMetricsService.EntityOutcome;
+import de.adorsys.keycloak.config.util.JsonUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+public class ImportReportService {
+    private static final Logger logger = LoggerFactory.getLogger(ImportReportService.class);
+
+    private final ImportConfigProperties importConfigProperties;
+    private final ImportMetricsService importMetricsService;
+    private final AdminApiMetricsService adminApiMetricsService;
+
+    @Autowired
+    public ImportReportService(
+            ImportConfigProperties importConfigProperties,
+            ImportMetricsService importMetricsService,
+            AdminApiMetricsService adminApiMetricsService) {
+        this.importConfigProperties = importConfigProperties;
+        this.importMetricsService = importMetricsService;
+        this.adminApiMetricsService = adminApiMetricsService;
+    }
+
+    public void writeReport(long startTime, long totalTime, boolean successful) {
+        if (!importConfigProperties.getReport().isEnabled()) return;
+
+        Path reportFile = Path.of(importConfigProperties.getReport().getFile());
+
+        try {
+            Files.writeString(reportFile, JsonUtil.toJson(createReport(startTime, totalTime, successful)), StandardCharsets.UTF_8);
+            logger.info("Import report written to '{}'", reportFile);
+        } catch (IOException e) {
+            logger.error("Cannot write import report to '{}': {}", reportFile, e.getMessage());
+        }
+    }
+
+    Map<String, Object> createReport(long startTime, long totalTime, boolean successful) {
+        List<EntityMetrics> entities = importMetricsService.getEntities();
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("startTime", Instant.ofEpochMilli(startTime).toString());
+        report.put("durationInMillis", totalTime);
+        report.put("successful", successful);
+        report.put("phases", importMetricsService.getPhases());
+        report.put("entitySummary", summarizeEntities(entities));
+        report.put("entities", entities);
+        report.put("userFederationSyncs", importMetricsService.getUserFederationSyncs());
+        report.put("requests", adminApiMetricsService.getEndpointMetrics());
+
+        return report;
+    }
+
+    private List<EntitySummary> summarizeEntities(List<EntityMetrics> entities) {
+        Map<List<Object>, EntitySummary> summaries = new LinkedHashMap<>();
+
+        for (EntityMetrics entity : entities) {
+            EntitySummary summary = summaries.computeIfAbsent(
+                    List.of(entity.getRealm(), entity.getType(), entity.getOutcome()),
+                    k -> new EntitySummary(entity.getRealm(), entity.getType(), entity.getOutcome())
+            );
+
+            summary.count++;
+            summary.durationInMillis += entity.getDurationInMillis();
+        }
+
+        return new ArrayList<>(summaries.values());
+    }
+
+    public static class EntitySummary {
+        private final String realm;
+        private final String type;
+        private final EntityOutcome outcome;
+        private long count;
+        private double durationInMillis;
+
+        EntitySummary(String realm, String type, EntityOutcome outcome) {
+            this.realm = realm;
+            this.type = type;
+            this.outcome = outcome;
+        }
+
+        public String getRealm() {
+            return realm;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public EntityOutcome getOutcome() {
+            return outcome;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getDurationInMillis() {
+            return durationInMillis;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2021 adorsys GmbH & Co. KG @ https://adorsys.com
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.service.metrics;
+
+import de.adorsys.keycloak.config.properties.ImportConfigProperties;
+import de.adorsys.keycloak.config.properties.ImportConfigProperties.ImportMetricsProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import io.prometheus.client.exporter.common.TextFormat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Base64;
+
+/**
+ * keycloak-config-cli usually runs as a short living job without a scrape endpoint. The metrics of a run are exported
+ * once at the end of the run instead, either as OpenMetrics text file or by pushing them to a Prometheus Pushgateway.
+ */
+@Service
+public class MetricsExportService {
+    private static final Logger logger = LoggerFactory.getLogger(MetricsExportService.class);
+
+    public static final String RUN_DURATION_METRIC = "kcc.run.duration";
+    public static final String RUN_SUCCESS_METRIC = "kcc.run.success";
+
+    private static final Duration PUSH_TIMEOUT = Duration.ofSeconds(10);
+
+    private final PrometheusMeterRegistry meterRegistry;
+    private final ImportConfigProperties importConfigProperties;
+
+    @Autowired
+    public MetricsExportService(PrometheusMeterRegistry meterRegistry, ImportConfigProperties importConfigProperties) {
+        this.meterRegistry = meterRegistry;
+        this.importConfigProperties = importConfigProperties;
+    }
+
+    public void export(long totalTime, boolean successful) {
+        ImportMetricsProperties metricsProperties = importConfigProperties.getMetrics();
+
+        if (metricsProperties.getFile() == null && metricsProperties.getPushUrl() == null) return;
+
+        Gauge.builder(RUN_DURATION_METRIC, () -> totalTime / 1000d)
+                .description("Duration of the keycloak-config-cli run")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder(RUN_SUCCESS_METRIC, () -> successful ? 1 : 0)
+                .description("Whether the keycloak-config-cli run was successful")
+                .register(meterRegistry);
+
+        if (metricsProperties.getFile() != null) {
+            writeFile(Path.of(metricsProperties.getFile()));
+        }
+
+        if (metricsProperties.getPushUrl() != null) {
+            push(metricsProperties.getPushUrl(), metricsProperties.getJob());
+        }
+    }
+
+    private void writeFile(Path metricsFile) {
+        try {
+            Files.writeString(metricsFile, meterRegistry.scrape(TextFormat.CONTENT_TYPE_OPENMETRICS_100), StandardCharsets.UTF_8);
+            logger.info("Metrics written to '{}'", metricsFile);
+        } catch (IOException e) {
+            logger.error("Cannot write metrics to '{}': {}", metricsFile, e.getMessage());
+        }
+    }
+
+    private void push(String pushUrl, String job) {
+        // the pushgateway does not accept the OpenMetrics format, push the prometheus text format instead
+        URI uri = URI.create(pushUrl.replaceAll("/+$", "") + "/metrics/" + getJobGroupingKey(job));
+
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .timeout(PUSH_TIMEOUT)
+                .header("Content-Type", TextFormat.CONTENT_TYPE_004)
+                .PUT(HttpRequest.BodyPublishers.ofString(meterRegistry.scrape(TextFormat.CONTENT_TYPE_004)))
+                .build();
+
+        try {
+            HttpResponse<String> response = HttpClient.newBuilder()
+                    .connectTimeout(PUSH_TIMEOUT)
+                    .build()
+                    .send(request, HttpResponse.BodyHandlers.ofString());
+
+            if (response.statusCode() >= 300) {
+                logger.error("Cannot push metrics to '{}': HTTP {} {}", uri, response.statusCode(), response.body());
+                return;
+            }
+
+            logger.info("Metrics pushed to '{}'", uri);
+        } catch (IOException e) {
+            logger.error("Cannot push metrics to '{}': {}", uri, e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("Interrupted while pushing metrics to '{}'", uri);
+        }
+    }
+
+    /**
+     * Job names which are not a plain path segment are encoded with base64url, as the pushgateway would not decode them otherwise.
+     */
+    private static String getJobGroupingKey(String job) {
+        if (job.matches("[A-Za-z0-9._~-]+")) {
+            return "job/" + job;
+        }
+
+        return "job@base64/" + Base64.getUrlEncoder().encodeToString(job.getBytes(StandardCharsets.UTF_8));
+    }
+}
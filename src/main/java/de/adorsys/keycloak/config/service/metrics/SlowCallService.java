@@ -0,0 +1,126 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2021 adorsys GmbH & Co. KG @ https://adorsys.com
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.service.metrics;
+
+import de.adorsys.keycloak.config.properties.ImportConfigProperties;
+import de.adorsys.keycloak.config.properties.ImportConfigProperties.ImportSlowLogProperties;
+import de.adorsys.keycloak.config.service.metrics.AdminApiMetricsService.EndpointMetrics;
+import de.adorsys.keycloak.config.service.metrics.ImportMetricsService.EntityMetrics;
+import de.adorsys.keycloak.config.service.metrics.ImportMetricsService.ImportContext;
+import de.adorsys.keycloak.config.util.resteasy.MetricsClientFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Counts the keycloak admin API calls per imported entity and, if enabled, warns about calls slower than the threshold and entities
+ * which need more calls than the budget. At the end of the run, the slowest endpoints and entities are listed.
+ */
+@Service
+public class SlowCallService implements MetricsClientFilter.CallListener {
+    private static final Logger logger = LoggerFactory.getLogger(SlowCallService.class);
+
+    private static final double NANOS_PER_MILLI = 1_000_000d;
+
+    private final ImportSlowLogProperties properties;
+    private final ImportMetricsService importMetricsService;
+    private final AdminApiMetricsService adminApiMetricsService;
+
+    @Autowired
+    public SlowCallService(
+            ImportConfigProperties importConfigProperties,
+            ImportMetricsService importMetricsService,
+            AdminApiMetricsService adminApiMetricsService
+    ) {
+        this.properties = importConfigProperties.getSlowLog();
+        this.importMetricsService = importMetricsService;
+        this.adminApiMetricsService = adminApiMetricsService;
+    }
+
+    @Override
+    public void onCall(String method, String endpoint, int status, long durationInNanos) {
+        ImportContext context = importMetricsService.getCurrentContext();
+        long calls = context == null ? 0 : context.recordCall();
+
+        if (!properties.isEnabled()) return;
+
+        if (durationInNanos >= properties.getCallThreshold().toNanos()) {
+            logger.warn("Slow keycloak admin API call {} {} ({}) took {} ms{}",
+                    method, endpoint, status, Math.round(durationInNanos / NANOS_PER_MILLI), describe(context));
+        }
+
+        // warn only once per entity, the final number of calls is part of the summary
+        if (context != null && context.getEntityType() != null && calls == properties.getMaxCallsPerEntity() + 1L) {
+            logger.warn("Import of {} '{}' in realm '{}' exceeds the budget of {} keycloak admin API calls, last call: {} {}",
+                    context.getEntityType(), context.getEntityName(), context.getRealm(), properties.getMaxCallsPerEntity(),
+                    method, endpoint);
+        }
+    }
+
+    private static String describe(ImportContext context) {
+        if (context == null) return "";
+
+        if (context.getEntityType() == null) {
+            return String.format(" in realm '%s' during phase '%s'", context.getRealm(), context.getPhase());
+        }
+
+        return String.format(" in realm '%s' for %s '%s'", context.getRealm(), context.getEntityType(), context.getEntityName());
+    }
+
+    public void logSummary() {
+        if (!properties.isEnabled() || properties.getTop() <= 0) return;
+
+        List<EndpointMetrics> endpoints = adminApiMetricsService.getEndpointMetrics().stream()
+                .sorted(Comparator.comparingDouble(EndpointMetrics::getMaxTimeInMillis).reversed())
+                .limit(properties.getTop())
+                .collect(Collectors.toList());
+
+        if (!endpoints.isEmpty()) {
+            logger.info("Slowest keycloak admin API endpoints:");
+        }
+
+        for (EndpointMetrics endpoint : endpoints) {
+            logger.info("{}", String.format("%8d ms max %8d ms avg %6d calls: %s %s",
+                    Math.round(endpoint.getMaxTimeInMillis()), Math.round(endpoint.getTotalTimeInMillis() / endpoint.getCount()),
+                    endpoint.getCount(), endpoint.getMethod(), endpoint.getUri()));
+        }
+
+        List<EntityMetrics> entities = importMetricsService.getEntities().stream()
+                .sorted(Comparator.comparingDouble(EntityMetrics::getDurationInMillis).reversed())
+                .limit(properties.getTop())
+                .collect(Collectors.toList());
+
+        if (!entities.isEmpty()) {
+            logger.info("Slowest imported entities:");
+        }
+
+        for (EntityMetrics entity : entities) {
+            logger.info("{}", String.format("%8d ms %6d calls %-8s: %s '%s' in realm '%s'",
+                    Math.round(entity.getDurationInMillis()), entity.getCalls(), entity.getOutcome().getValue(),
+                    entity.getType(), entity.getName(), entity.getRealm()));
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2021 adorsys GmbH & Co. KG @ https://adorsys.com
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.service.tracing;
+
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.function.Supplier;
+
+/**
+ * Creates the spans of an import run. If tracing is disabled, the actions are called directly.
+ */
+@Service
+public class TracingService {
+    public static final String INSTRUMENTATION_NAME = "de.adorsys.keycloak.config";
+
+    public static final AttributeKey<String> REALM = AttributeKey.stringKey("kcc.realm");
+    public static final AttributeKey<String> PHASE = AttributeKey.stringKey("kcc.phase");
+    public static final AttributeKey<String> ENTITY_TYPE = AttributeKey.stringKey("kcc.entity.type");
+    public static final AttributeKey<String> ENTITY_NAME = AttributeKey.stringKey("kcc.entity.name");
+    public static final AttributeKey<String> ENTITY_OUTCOME = AttributeKey.stringKey("kcc.entity.outcome");
+
+    private final Tracer tracer;
+
+    // parent for spans started on threads without a current span, e.g. the workers of a parallel import
+    private volatile Context phaseContext;
+
+    @Autowired
+    public TracingService(ObjectProvider<OpenTelemetry> openTelemetry) {
+        this(openTelemetry.getIfAvailable());
+    }
+
+    public TracingService(OpenTelemetry openTelemetry) {
+        this.tracer = openTelemetry == null ? null : openTelemetry.getTracer(INSTRUMENTATION_NAME);
+    }
+
+    public boolean isEnabled() {
+        return tracer != null;
+    }
+
+    public <T> T inSpan(String spanName, Attributes attributes, Supplier<T> action) {
+        if (tracer == null) return action.get();
+
+        Span span = tracer.spanBuilder(spanName)
+                .setParent(getParentContext())
+                .setAllAttributes(attributes)
+                .startSpan();
+
+        try (Scope ignored = span.makeCurrent()) {
+            return action.get();
+        } catch (RuntimeException e) {
+            span.recordException(e);
+            span.setStatus(StatusCode.ERROR, e.getMessage());
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+
+    public void inSpan(String spanName, Attributes attributes, Runnable action) {
+        inSpan(spanName, attributes, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * Like {@link #inSpan(String, Attributes, Runnable)}, but the span is also used as parent of spans which are started on
+     * other threads while the action is running.
+     */
+    public void inPhaseSpan(String spanName, Attributes attributes, Runnable action) {
+        if (tracer == null) {
+            action.run();
+            return;
+        }
+
+        inSpan(spanName, attributes, () -> {
+            Context previousPhaseContext = phaseContext;
+            phaseContext = Context.current();
+
+            try {
+                action.run();
+            } finally {
+                phaseContext = previousPhaseContext;
+            }
+        });
+    }
+
+    private Context getParentContext() {
+        Context current = Context.current();
+        Context fallback = phaseContext;
+
+        if (fallback == null || Span.fromContext(current).getSpanContext().isValid()) {
+            return current;
+        }
+
+        return fallback;
+    }
+}
@@ -26,6 +26,8 @@ import org.keycloak.representations.idm.AbstractAuthenticationExecutionRepresent
 import org.keycloak.representations.idm.AuthenticationExecutionExportRepresentation;
 import org.keycloak.representations.idm.AuthenticationFlowRepresentation;
 
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
@@ -84,4 +86,34 @@ public class AuthenticationFlowUtil {
                 .map(alias -> getSubFlow(realmImport, alias))
                 .collect(Collectors.toList());
     }
+
+    /**
+     * Keycloak doesn't allow to set the priority of an execution, executions can only be reordered. Two flows are the same if all
+     * properties and the order of their executions are equal, regardless of the priority values.
+     */
+    public static boolean isSameFlow(
+            AuthenticationFlowRepresentation flow,
+            AuthenticationFlowRepresentation otherFlow
+    ) {
+        if (!CloneUtil.deepEquals(flow, otherFlow, "id", "authenticationExecutions")) return false;
+
+        List<AuthenticationExecutionExportRepresentation> executions = getExecutionsInOrder(flow);
+        List<AuthenticationExecutionExportRepresentation> otherExecutions = getExecutionsInOrder(otherFlow);
+
+        if (executions.size() != otherExecutions.size()) return false;
+
+        for (int i = 0; i < executions.size(); i++) {
+            if (!CloneUtil.deepEquals(executions.get(i), otherExecutions.get(i), "priority")) return false;
+        }
+
+        return true;
+    }
+
+    private static List<AuthenticationExecutionExportRepresentation> getExecutionsInOrder(AuthenticationFlowRepresentation flow) {
+        if (flow.getAuthenticationExecutions() == null) return Collections.emptyList();
+
+        return flow.getAuthenticationExecutions().stream()
+                .sorted(Comparator.comparingInt(AuthenticationExecutionExportRepresentation::getPriority))
+                .collect(Collectors.toList());
+    }
 }
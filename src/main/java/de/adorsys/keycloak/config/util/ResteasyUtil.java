@@ -20,7 +20,17 @@
 
 package de.adorsys.keycloak.config.util;
 
+import de.adorsys.keycloak.config.properties.KeycloakConfigProperties.KeycloakHttpClient;
+import de.adorsys.keycloak.config.util.resteasy.CompressionClientFilter;
 import de.adorsys.keycloak.config.util.resteasy.CookieClientFilter;
+import de.adorsys.keycloak.config.util.resteasy.InvocationInterceptor;
+import de.adorsys.keycloak.config.util.resteasy.JdkHttpClientEngine;
+import de.adorsys.keycloak.config.util.resteasy.MetricsClientFilter;
+import de.adorsys.keycloak.config.util.resteasy.PooledClientHttpEngineBuilder;
+import de.adorsys.keycloak.config.util.resteasy.TracingInterceptor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.context.Context;
 import org.jboss.resteasy.client.jaxrs.ResteasyClient;
 import org.jboss.resteasy.client.jaxrs.ResteasyClientBuilder;
 import org.jboss.resteasy.client.jaxrs.internal.ResteasyClientBuilderImpl;
@@ -28,19 +38,45 @@ import org.jboss.resteasy.client.jaxrs.internal.ResteasyClientBuilderImpl;
 import java.net.URL;
 import java.time.Duration;
 import java.time.temporal.ChronoUnit;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
 
 public class ResteasyUtil {
+    static final int ASYNC_QUEUE_SIZE_PER_CONNECTION = 4;
+
     ResteasyUtil() {
         throw new IllegalStateException("Utility class");
     }
 
-    public static ResteasyClient getClient(boolean sslVerification, URL httpProxy, Duration connectTimeout, Duration readTimeout) {
+    public static ResteasyClient getClient(
+            boolean sslVerification,
+            URL httpProxy,
+            Duration connectTimeout,
+            Duration readTimeout,
+            KeycloakHttpClient httpClient,
+            int connectionPoolSize,
+            InvocationInterceptor invocationInterceptor,
+            UnaryOperator<Runnable> asyncTaskDecorator,
+            MeterRegistry meterRegistry,
+            MetricsClientFilter.CallListener callListener,
+            OpenTelemetry openTelemetry
+    ) {
+        InvocationInterceptor engineInterceptor = getEngineInterceptor(invocationInterceptor, openTelemetry);
+
         ResteasyClientBuilder clientBuilder = new ResteasyClientBuilderImpl();
         clientBuilder
-                .connectionPoolSize(10)
+                .connectionPoolSize(connectionPoolSize)
+                .maxPooledPerRoute(httpClient.getMaxConnectionsPerRoute() > 0 ? httpClient.getMaxConnectionsPerRoute() : connectionPoolSize)
                 .connectTimeout(connectTimeout.get(ChronoUnit.NANOS), TimeUnit.NANOSECONDS)
-                .readTimeout(readTimeout.get(ChronoUnit.NANOS), TimeUnit.NANOSECONDS);
+                .readTimeout(readTimeout.get(ChronoUnit.NANOS), TimeUnit.NANOSECONDS)
+                .executorService(getAsyncExecutor(connectionPoolSize, getAsyncTaskDecorator(asyncTaskDecorator, openTelemetry)), true);
 
         if (sslVerification) {
             clientBuilder
@@ -61,8 +97,73 @@ public class ResteasyUtil {
             );
         }
 
-        clientBuilder.register(new CookieClientFilter());
+        if (httpClient.getEngine() == KeycloakHttpClient.HttpEngine.JDK) {
+            clientBuilder.httpEngine(new JdkHttpClientEngine(
+                    sslVerification, httpProxy, connectTimeout, readTimeout, engineInterceptor, meterRegistry
+            ));
+        } else {
+            clientBuilder.httpEngine(new PooledClientHttpEngineBuilder(httpClient, engineInterceptor, meterRegistry)
+                    .resteasyClientBuilder(clientBuilder)
+                    .build());
+        }
+
+        if (httpClient.isResponseCompression() || httpClient.isRequestCompression()) {
+            long requestCompressionThreshold = httpClient.isRequestCompression() ? httpClient.getRequestCompressionThreshold().toBytes() : -1;
+            clientBuilder.register(new CompressionClientFilter(httpClient.isResponseCompression(), requestCompressionThreshold, meterRegistry));
+        }
+
+        clientBuilder.register(new CookieClientFilter(httpClient.isStrictAffinity()));
+        clientBuilder.register(new MetricsClientFilter(meterRegistry, callListener));
 
         return clientBuilder.build();
     }
+
+    // tracing is the innermost interceptor, so every attempt of a retried call gets its own span without the time waited for a retry
+    private static InvocationInterceptor getEngineInterceptor(InvocationInterceptor invocationInterceptor, OpenTelemetry openTelemetry) {
+        if (openTelemetry == null) return invocationInterceptor;
+
+        TracingInterceptor tracingInterceptor = new TracingInterceptor(openTelemetry);
+        return invocationInterceptor == null ? tracingInterceptor : invocationInterceptor.andThen(tracingInterceptor);
+    }
+
+    // the span of the calling thread has to be the parent of the span of the async call
+    private static UnaryOperator<Runnable> getAsyncTaskDecorator(UnaryOperator<Runnable> taskDecorator, OpenTelemetry openTelemetry) {
+        if (openTelemetry == null) return taskDecorator;
+
+        return command -> Context.current().wrap(taskDecorator.apply(command));
+    }
+
+    // async calls beyond the connection pool would only wait for a connection, so they are queued before taking a thread.
+    // A full queue blocks the calling thread until a call is sent, so an import can't queue up calls faster than keycloak answers.
+    // Async calls are only sent by import threads, never by threads of this executor, which therefore can't block themselves.
+    // The decorator runs on the calling thread, e.g. to hand over its import context to the thread sending the call.
+    static ExecutorService getAsyncExecutor(int connectionPoolSize, UnaryOperator<Runnable> taskDecorator) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "kcc-admin-async-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+
+        RejectedExecutionHandler blockingHandler = (task, executor) -> {
+            if (executor.isShutdown()) {
+                throw new RejectedExecutionException("The async executor of the admin client is shut down");
+            }
+
+            try {
+                executor.getQueue().put(task);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException(e);
+            }
+        };
+
+        return new ThreadPoolExecutor(connectionPoolSize, connectionPoolSize, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(connectionPoolSize * ASYNC_QUEUE_SIZE_PER_CONNECTION), threadFactory, blockingHandler) {
+            @Override
+            public void execute(Runnable command) {
+                super.execute(taskDecorator.apply(command));
+            }
+        };
+    }
 }
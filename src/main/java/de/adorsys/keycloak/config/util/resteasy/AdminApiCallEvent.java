@@ -0,0 +1,53 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2021 adorsys GmbH & Co. KG @ https://adorsys.com
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.util.resteasy;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("de.adorsys.keycloak.config.AdminApiCall")
+@Label("Admin API Call")
+@Description("Call of the keycloak admin API, from sending the request until the response headers are received")
+@Category({"keycloak-config-cli", "HTTP"})
+@StackTrace(false)
+class AdminApiCallEvent extends Event {
+    @Label("Method")
+    String method;
+
+    @Label("Endpoint")
+    @Description("Endpoint template, e.g. /admin/realms/{realm}/users/{id}")
+    String endpoint;
+
+    @Label("Path")
+    String path;
+
+    @Label("Status")
+    int status;
+
+    @Label("Response Size")
+    @DataAmount
+    long responseSize;
+}
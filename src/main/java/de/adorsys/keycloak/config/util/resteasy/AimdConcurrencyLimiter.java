@@ -0,0 +1,204 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2021 adorsys GmbH & Co. KG @ https://adorsys.com
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.util.resteasy;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.jboss.resteasy.client.jaxrs.internal.ClientInvocation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.client.Invocation;
+import javax.ws.rs.core.Response;
+
+// Limits the number of concurrent calls to keycloak with additive increase, multiplicative decrease (AIMD), like the
+// congestion control of TCP. The limit grows by one for each call which completes while at least half of the limit is in
+// use. It shrinks by the backoff ratio if keycloak answers with 429 or 5xx, the call fails without response or its
+// latency exceeds the moving average latency of the endpoint by the latency tolerance. Like TCP, it shrinks at most once
+// per window: calls which were sent before the last decrease saw the previous limit, so their overload is already answered.
+public class AimdConcurrencyLimiter implements InvocationInterceptor {
+    public static final String LIMIT_METRIC = "kcc.http.client.concurrency.limit";
+    public static final String IN_FLIGHT_METRIC = "kcc.http.client.concurrency.in.flight";
+    public static final String BACKOFF_METRIC = "kcc.http.client.concurrency.backoff";
+
+    private static final Logger logger = LoggerFactory.getLogger(AimdConcurrencyLimiter.class);
+
+    // weight of a new sample in the moving average latency of an endpoint
+    private static final double LATENCY_SMOOTHING = 0.1;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final double latencyTolerance;
+
+    private final Map<String, Double> averageLatencies = new HashMap<>();
+    private final Map<String, Counter> backoffs = new HashMap<>();
+    private final MeterRegistry meterRegistry;
+
+    private int limit;
+    private int inFlight;
+    private Long lastDecrease;
+
+    public AimdConcurrencyLimiter(
+            int initialLimit,
+            int minLimit,
+            int maxLimit,
+            double backoffRatio,
+            double latencyTolerance,
+            MeterRegistry meterRegistry
+    ) {
+        this.minLimit = minLimit;
+        this.maxLimit = Math.max(minLimit, maxLimit);
+        this.backoffRatio = backoffRatio;
+        this.latencyTolerance = latencyTolerance;
+        this.limit = Math.min(Math.max(initialLimit, minLimit), this.maxLimit);
+        this.meterRegistry = meterRegistry;
+
+        Gauge.builder(LIMIT_METRIC, this, AimdConcurrencyLimiter::getLimit)
+                .description("Current limit of concurrent calls of the keycloak admin API")
+                .register(meterRegistry);
+
+        Gauge.builder(IN_FLIGHT_METRIC, this, AimdConcurrencyLimiter::getInFlight)
+                .description("Concurrent calls of the keycloak admin API")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Sends a call of the admin client once the number of calls in flight is below the limit. Used by the http engines
+     * instead of a client filter, so the call is released even if it fails without a response.
+     */
+    @Override
+    public Response invoke(Invocation invocation, Function<Invocation, Response> call) {
+        ClientInvocation request = (ClientInvocation) invocation;
+        String endpoint = request.getMethod() + " " + MetricsClientFilter.getEndpointTemplate(request.getUri().getRawPath());
+
+        try {
+            acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ProcessingException("Interrupted while waiting for a free slot to call " + endpoint, e);
+        }
+
+        long start = System.nanoTime();
+        int status = -1;
+        try {
+            Response response = call.apply(invocation);
+            status = response.getStatus();
+            return response;
+        } finally {
+            release(endpoint, System.nanoTime() - start, status);
+        }
+    }
+
+    /**
+     * Blocks until the number of calls in flight is below the limit.
+     */
+    public synchronized void acquire() throws InterruptedException {
+        while (inFlight >= limit) {
+            wait();
+        }
+
+        inFlight++;
+    }
+
+    /**
+     * Completes a call started with {@link #acquire()} and adapts the limit.
+     *
+     * @param endpoint        endpoint template of the call, the latency is compared to previous calls of the same endpoint
+     * @param latencyInNanos  time until the response was received
+     * @param status          http status of the response, or a negative value if the call failed without response
+     */
+    public synchronized void release(String endpoint, long latencyInNanos, int status) {
+        long now = System.nanoTime();
+        int concurrency = inFlight;
+        inFlight--;
+
+        String backoffReason = getBackoffReason(endpoint, latencyInNanos, status);
+
+        if (backoffReason != null) {
+            if (lastDecrease == null || now - latencyInNanos >= lastDecrease) {
+                decrease(backoffReason);
+                lastDecrease = now;
+            }
+        } else if (concurrency * 2 >= limit && limit < maxLimit) {
+            limit++;
+        }
+
+        notifyAll();
+    }
+
+    private void decrease(String backoffReason) {
+        int newLimit = Math.max(minLimit, (int) (limit * backoffRatio));
+        if (newLimit < limit) {
+            logger.debug("Decrease concurrency limit of keycloak admin API calls from {} to {} ({})", limit, newLimit, backoffReason);
+        }
+
+        limit = newLimit;
+        backoffs.computeIfAbsent(backoffReason, this::backoffCounter).increment();
+    }
+
+    private String getBackoffReason(String endpoint, long latencyInNanos, int status) {
+        if (status < 0) return "error";
+        if (status == 429 || status >= 500) return "status";
+
+        double latency = latencyInNanos;
+        Double averageLatency = averageLatencies.get(endpoint);
+
+        if (averageLatency == null) {
+            averageLatencies.put(endpoint, latency);
+            return null;
+        }
+
+        averageLatencies.put(endpoint, averageLatency + (latency - averageLatency) * LATENCY_SMOOTHING);
+
+        // calls below a millisecond are too short to tell anything about the load of keycloak
+        if (latency > averageLatency * latencyTolerance && latency > TimeUnit.MILLISECONDS.toNanos(1)) {
+            return "latency";
+        }
+
+        return null;
+    }
+
+    private Counter backoffCounter(String reason) {
+        return Counter.builder(BACKOFF_METRIC)
+                .description("Decreases of the concurrency limit of keycloak admin API calls")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    public synchronized int getLimit() {
+        return limit;
+    }
+
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+}
@@ -0,0 +1,134 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2021 adorsys GmbH & Co. KG @ https://adorsys.com
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.util.resteasy;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.BaseUnits;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import javax.annotation.Priority;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientRequestFilter;
+import javax.ws.rs.client.ClientResponseContext;
+import javax.ws.rs.client.ClientResponseFilter;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+
+// Asks keycloak for gzip compressed responses and decompresses them, optionally compresses large request bodies.
+// Keycloak only decompresses requests if enabled on the server, e.g. with quarkus.http.enable-decompression=true.
+// Runs after the MetricsClientFilter on responses, so kcc.http.client.response.size records the bytes on the wire.
+@Priority(Priorities.ENTITY_CODER)
+public class CompressionClientFilter implements ClientRequestFilter, ClientResponseFilter, WriterInterceptor {
+    public static final String COMPRESSION_METRIC = "kcc.http.client.compression";
+
+    private static final String GZIP = "gzip";
+
+    private final boolean responseCompression;
+    private final long requestCompressionThreshold;
+    private final Counter responseCompressed;
+    private final Counter responseUncompressed;
+    private final Counter requestCompressed;
+    private final Counter requestUncompressed;
+
+    /**
+     * @param requestCompressionThreshold minimal size of request bodies to compress, a negative value disables it
+     */
+    public CompressionClientFilter(boolean responseCompression, long requestCompressionThreshold, MeterRegistry meterRegistry) {
+        this.responseCompression = responseCompression;
+        this.requestCompressionThreshold = requestCompressionThreshold;
+        this.responseCompressed = counter(meterRegistry, "response", "compressed");
+        this.responseUncompressed = counter(meterRegistry, "response", "uncompressed");
+        this.requestCompressed = counter(meterRegistry, "request", "compressed");
+        this.requestUncompressed = counter(meterRegistry, "request", "uncompressed");
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String direction, String size) {
+        return Counter.builder(COMPRESSION_METRIC)
+                .description("Bytes of gzip compressed bodies of the keycloak admin API, before and after compression")
+                .baseUnit(BaseUnits.BYTES)
+                .tag("direction", direction)
+                .tag("size", size)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void filter(ClientRequestContext requestContext) {
+        if (responseCompression && !requestContext.getHeaders().containsKey(HttpHeaders.ACCEPT_ENCODING)) {
+            requestContext.getHeaders().putSingle(HttpHeaders.ACCEPT_ENCODING, GZIP);
+        }
+    }
+
+    @Override
+    public void filter(ClientRequestContext requestContext, ClientResponseContext responseContext) throws IOException {
+        if (!GZIP.equalsIgnoreCase(responseContext.getHeaderString(HttpHeaders.CONTENT_ENCODING))) return;
+
+        // the entity is decoded here, readers must not see the encoding or the length of the compressed body
+        responseContext.getHeaders().remove(HttpHeaders.CONTENT_ENCODING);
+        responseContext.getHeaders().remove(HttpHeaders.CONTENT_LENGTH);
+
+        if (!responseContext.hasEntity()) return;
+
+        CountingInputStream compressed = new CountingInputStream(responseContext.getEntityStream());
+
+        responseContext.setEntityStream(new CountingInputStream(new GZIPInputStream(compressed), uncompressed -> {
+            responseCompressed.increment(compressed.getCount());
+            responseUncompressed.increment(uncompressed);
+        }));
+    }
+
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException {
+        if (requestCompressionThreshold < 0) {
+            context.proceed();
+            return;
+        }
+
+        OutputStream entityStream = context.getOutputStream();
+        ByteArrayOutputStream entity = new ByteArrayOutputStream();
+
+        context.setOutputStream(entity);
+        context.proceed();
+        context.setOutputStream(entityStream);
+
+        if (entity.size() < requestCompressionThreshold) {
+            entity.writeTo(entityStream);
+            return;
+        }
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            entity.writeTo(gzip);
+        }
+
+        context.getHeaders().putSingle(HttpHeaders.CONTENT_ENCODING, GZIP);
+        compressed.writeTo(entityStream);
+
+        requestCompressed.increment(compressed.size());
+        requestUncompressed.increment(entity.size());
+    }
+}
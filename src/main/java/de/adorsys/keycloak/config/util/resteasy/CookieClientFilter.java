@@ -20,32 +20,107 @@
 
 package de.adorsys.keycloak.config.util.resteasy;
 
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 import javax.ws.rs.client.ClientRequestContext;
 import javax.ws.rs.client.ClientRequestFilter;
 import javax.ws.rs.client.ClientResponseContext;
 import javax.ws.rs.client.ClientResponseFilter;
+import javax.ws.rs.core.NewCookie;
 
 // By default, the RESTeasy cookie handling is very limited. There is no access to the underlying httpEngine.
 // The underlying httpEngine uses an old CookieSpec by default which is going to refuse valid cookie today.
 // Instead, build the httpEngine from scratch, we are using a RESTeasy filter to grab a re-attach cookie.
-// Currently, this filter does not valide cookie or is able to remove cookies.
 // A cookie managed is required to handle sticky sessions at cookie base
+// The cookies are shared by all threads of a parallel import. Cookies which are expired or removed by the server,
+// with Max-Age=0 or an Expires in the past, are not sent anymore. In strict affinity mode, the first value of a cookie
+// is kept and later updates or removals by the server are ignored, so all calls of a run stay on the same node.
 public class CookieClientFilter implements ClientRequestFilter, ClientResponseFilter {
-    private final Map<String, String> cookies = new HashMap<>();
+    private final Map<String, StoredCookie> cookies = new ConcurrentHashMap<>();
+
+    private final boolean strictAffinity;
+    private final Clock clock;
+
+    public CookieClientFilter() {
+        this(false);
+    }
+
+    public CookieClientFilter(boolean strictAffinity) {
+        this(strictAffinity, Clock.systemUTC());
+    }
+
+    CookieClientFilter(boolean strictAffinity, Clock clock) {
+        this.strictAffinity = strictAffinity;
+        this.clock = clock;
+    }
 
     @Override
     public void filter(ClientRequestContext clientRequestContext) {
-        clientRequestContext.getHeaders().put("Cookie", new ArrayList<>(cookies.values()));
+        Instant now = clock.instant();
+        // removes a cookie only if it was not replaced concurrently
+        cookies.values().removeIf(cookie -> cookie.isExpired(now));
+
+        List<Object> values = cookies.values().stream()
+                .map(StoredCookie::getValue)
+                .collect(Collectors.toList());
+
+        if (!values.isEmpty()) {
+            clientRequestContext.getHeaders().put("Cookie", values);
+        }
     }
 
     @Override
     public void filter(ClientRequestContext requestContext, ClientResponseContext responseContext) {
-        responseContext.getCookies().forEach((name, cookie) -> cookies.put(name, String.format("%s=%s",
-                cookie.toCookie().getName(),
-                cookie.toCookie().getValue()
-        )));
+        Instant now = clock.instant();
+
+        responseContext.getCookies().forEach((name, cookie) -> {
+            StoredCookie storedCookie = new StoredCookie(
+                    String.format("%s=%s", cookie.getName(), cookie.getValue()),
+                    getExpiresAt(cookie, now)
+            );
+
+            if (storedCookie.isExpired(now)) {
+                if (!strictAffinity) cookies.remove(name);
+            } else if (strictAffinity) {
+                cookies.putIfAbsent(name, storedCookie);
+            } else {
+                cookies.put(name, storedCookie);
+            }
+        });
+    }
+
+    private static Instant getExpiresAt(NewCookie cookie, Instant now) {
+        if (cookie.getMaxAge() != NewCookie.DEFAULT_MAX_AGE) {
+            return now.plusSeconds(Math.max(cookie.getMaxAge(), 0));
+        }
+
+        if (cookie.getExpiry() != null) {
+            return cookie.getExpiry().toInstant();
+        }
+
+        // session cookie, valid until the end of the run
+        return Instant.MAX;
+    }
+
+    private static class StoredCookie {
+        private final String value;
+        private final Instant expiresAt;
+
+        StoredCookie(String value, Instant expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        String getValue() {
+            return value;
+        }
+
+        boolean isExpired(Instant now) {
+            return !expiresAt.isAfter(now);
+        }
     }
 }
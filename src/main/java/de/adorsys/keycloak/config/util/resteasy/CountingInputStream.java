@@ -0,0 +1,86 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2021 adorsys GmbH & Co. KG @ https://adorsys.com
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.util.resteasy;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.LongConsumer;
+
+// Counts the bytes read from a stream and reports the count once, at the end of the stream or when it is closed.
+class CountingInputStream extends FilterInputStream {
+    private final LongConsumer onComplete;
+    private long count;
+    private boolean recorded;
+
+    CountingInputStream(InputStream in) {
+        this(in, count -> {
+        });
+    }
+
+    CountingInputStream(InputStream in, LongConsumer onComplete) {
+        super(in);
+        this.onComplete = onComplete;
+    }
+
+    long getCount() {
+        return count;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int result = super.read();
+
+        if (result == -1) {
+            record();
+        } else {
+            count++;
+        }
+
+        return result;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int result = super.read(b, off, len);
+
+        if (result == -1) {
+            record();
+        } else {
+            count += result;
+        }
+
+        return result;
+    }
+
+    @Override
+    public void close() throws IOException {
+        record();
+        super.close();
+    }
+
+    private void record() {
+        if (recorded) return;
+
+        recorded = true;
+        onComplete.accept(count);
+    }
+}
@@ -0,0 +1,41 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2021 adorsys GmbH & Co. KG @ https://adorsys.com
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.util.resteasy;
+
+import java.util.function.Function;
+import javax.ws.rs.client.Invocation;
+import javax.ws.rs.core.Response;
+
+/**
+ * Wraps the calls of the http engine of the admin client. Unlike a client filter, an interceptor sees calls which fail
+ * without a response and may send a call more than once.
+ */
+@FunctionalInterface
+public interface InvocationInterceptor {
+    Response invoke(Invocation invocation, Function<Invocation, Response> call);
+
+    /**
+     * Returns an interceptor which calls this interceptor first and the given interceptor for each of its calls.
+     */
+    default InvocationInterceptor andThen(InvocationInterceptor next) {
+        return (invocation, call) -> invoke(invocation, nextInvocation -> next.invoke(nextInvocation, call));
+    }
+}
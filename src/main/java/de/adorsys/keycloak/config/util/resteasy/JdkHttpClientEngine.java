@@ -0,0 +1,292 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2021 adorsys GmbH & Co. KG @ https://adorsys.com
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.util.resteasy;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.jboss.resteasy.client.jaxrs.ClientHttpEngine;
+import org.jboss.resteasy.client.jaxrs.internal.ClientConfiguration;
+import org.jboss.resteasy.client.jaxrs.internal.ClientInvocation;
+import org.jboss.resteasy.client.jaxrs.internal.ClientResponse;
+import org.jboss.resteasy.client.jaxrs.internal.FinalizedClientResponse;
+import org.jboss.resteasy.tracing.RESTEasyTracingLogger;
+import org.jboss.resteasy.util.CaseInsensitiveMap;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ProxySelector;
+import java.net.Socket;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Set;
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509ExtendedTrustManager;
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.client.Invocation;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+
+// Sends the calls of the keycloak admin client with java.net.http instead of Apache HttpClient. The client negotiates
+// HTTP/2 via ALPN if keycloak is reached over https and multiplexes concurrent calls over a single connection, so
+// parallel imports are not limited by the size of a connection pool. Falls back to HTTP/1.1 if HTTP/2 is not offered.
+// Calls over plain http use HTTP/1.1, a cleartext upgrade to HTTP/2 (h2c) is not attempted.
+public class JdkHttpClientEngine implements ClientHttpEngine {
+    public static final String PROTOCOL_METRIC = "kcc.http.client.protocol";
+
+    // headers which are set by java.net.http itself and rejected if set by the caller
+    private static final Set<String> RESTRICTED_HEADERS = Set.of("connection", "content-length", "expect", "host", "upgrade");
+
+    private final HttpClient httpClient;
+    private final SSLContext sslContext;
+    private final HostnameVerifier hostnameVerifier;
+    private final Duration readTimeout;
+    private final InvocationInterceptor interceptor;
+    private final MeterRegistry meterRegistry;
+
+    public JdkHttpClientEngine(
+            boolean disableTrustManager,
+            URL httpProxy,
+            Duration connectTimeout,
+            Duration readTimeout,
+            InvocationInterceptor interceptor,
+            MeterRegistry meterRegistry
+    ) {
+        this.sslContext = disableTrustManager ? createTrustAllContext() : getDefaultContext();
+        this.hostnameVerifier = disableTrustManager ? (hostname, session) -> true : HttpsURLConnection.getDefaultHostnameVerifier();
+        this.readTimeout = readTimeout;
+        this.interceptor = interceptor;
+        this.meterRegistry = meterRegistry;
+
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .sslContext(sslContext)
+                .proxy(httpProxy != null
+                        ? ProxySelector.of(new InetSocketAddress(httpProxy.getHost(), httpProxy.getPort()))
+                        : ProxySelector.getDefault());
+
+        if (isPositive(connectTimeout)) {
+            builder.connectTimeout(connectTimeout);
+        }
+
+        this.httpClient = builder.build();
+    }
+
+    @Override
+    public Response invoke(Invocation invocation) {
+        return interceptor != null ? interceptor.invoke(invocation, this::send) : send(invocation);
+    }
+
+    private Response send(Invocation invocation) {
+        ClientInvocation request = (ClientInvocation) invocation;
+
+        HttpResponse<InputStream> response;
+        try {
+            response = httpClient.send(createRequest(request), HttpResponse.BodyHandlers.ofInputStream());
+        } catch (IOException e) {
+            throw new ProcessingException("Unable to invoke request: " + e, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ProcessingException("Interrupted while waiting for response of " + request.getUri(), e);
+        }
+
+        Counter.builder(PROTOCOL_METRIC)
+                .description("Calls of the keycloak admin API by negotiated HTTP version")
+                .tag("version", response.version().name())
+                .register(meterRegistry)
+                .increment();
+
+        ClientResponse clientResponse = new StreamClientResponse(request.getClientConfiguration(), response.body());
+        clientResponse.setStatus(response.statusCode());
+        clientResponse.setHeaders(getHeaders(response));
+
+        return clientResponse;
+    }
+
+    private HttpRequest createRequest(ClientInvocation request) throws IOException {
+        HttpRequest.BodyPublisher body = HttpRequest.BodyPublishers.noBody();
+
+        if (request.getEntity() != null) {
+            ByteArrayOutputStream entity = new ByteArrayOutputStream();
+            request.getDelegatingOutputStream().setDelegate(entity);
+            request.writeRequestBody(request.getEntityStream());
+            body = HttpRequest.BodyPublishers.ofByteArray(entity.toByteArray());
+        }
+
+        HttpRequest.Builder builder = HttpRequest.newBuilder(request.getUri()).method(request.getMethod(), body);
+
+        if (!"https".equalsIgnoreCase(request.getUri().getScheme())) {
+            builder.version(HttpClient.Version.HTTP_1_1);
+        }
+
+        if (isPositive(readTimeout)) {
+            builder.timeout(readTimeout);
+        }
+
+        // the headers are complete after the entity is written, message body writers may add a content type
+        request.getHeaders().asMap().forEach((name, values) -> {
+            if (RESTRICTED_HEADERS.contains(name.toLowerCase(Locale.ROOT))) return;
+
+            values.forEach(value -> builder.header(name, value));
+        });
+
+        return builder.build();
+    }
+
+    private static MultivaluedMap<String, String> getHeaders(HttpResponse<?> response) {
+        MultivaluedMap<String, String> headers = new CaseInsensitiveMap<>();
+        response.headers().map().forEach((name, values) -> {
+            // pseudo headers of HTTP/2
+            if (name.startsWith(":")) return;
+
+            headers.addAll(name, values);
+        });
+
+        return headers;
+    }
+
+    private static boolean isPositive(Duration duration) {
+        return duration != null && !duration.isNegative() && !duration.isZero();
+    }
+
+    @Override
+    public SSLContext getSslContext() {
+        return sslContext;
+    }
+
+    @Override
+    public HostnameVerifier getHostnameVerifier() {
+        return hostnameVerifier;
+    }
+
+    // java.net.http has no close before Java 21, the connections are released once the client is garbage collected
+    @Override
+    public void close() {
+        // nothing to close
+    }
+
+    private static SSLContext getDefaultContext() {
+        try {
+            return SSLContext.getDefault();
+        } catch (GeneralSecurityException e) {
+            throw new ProcessingException(e);
+        }
+    }
+
+    // java.net.http verifies the hostname inside the trust manager, so trusting everything disables both checks
+    private static SSLContext createTrustAllContext() {
+        try {
+            SSLContext context = SSLContext.getInstance("TLS");
+            context.init(null, new TrustManager[]{new TrustAllManager()}, new SecureRandom());
+            return context;
+        } catch (GeneralSecurityException e) {
+            throw new ProcessingException(e);
+        }
+    }
+
+    @SuppressWarnings("java:S4830")
+    private static class TrustAllManager extends X509ExtendedTrustManager {
+        @Override
+        public void checkClientTrusted(X509Certificate[] chain, String authType, Socket socket) {
+            // trust all
+        }
+
+        @Override
+        public void checkClientTrusted(X509Certificate[] chain, String authType, SSLEngine engine) {
+            // trust all
+        }
+
+        @Override
+        public void checkClientTrusted(X509Certificate[] chain, String authType) {
+            // trust all
+        }
+
+        @Override
+        public void checkServerTrusted(X509Certificate[] chain, String authType, Socket socket) {
+            // trust all
+        }
+
+        @Override
+        public void checkServerTrusted(X509Certificate[] chain, String authType, SSLEngine engine) {
+            // trust all
+        }
+
+        @Override
+        public void checkServerTrusted(X509Certificate[] chain, String authType) {
+            // trust all
+        }
+
+        @Override
+        public X509Certificate[] getAcceptedIssuers() {
+            return new X509Certificate[0];
+        }
+    }
+
+    private static class StreamClientResponse extends FinalizedClientResponse {
+        private InputStream stream;
+
+        StreamClientResponse(ClientConfiguration configuration, InputStream stream) {
+            super(configuration, RESTEasyTracingLogger.empty());
+            this.stream = stream;
+        }
+
+        @Override
+        protected InputStream getInputStream() {
+            return stream;
+        }
+
+        @Override
+        protected void setInputStream(InputStream stream) {
+            this.stream = stream;
+            resetEntity();
+        }
+
+        @Override
+        public void releaseConnection() throws IOException {
+            releaseConnection(false);
+        }
+
+        @Override
+        public void releaseConnection(boolean consumeInputStream) throws IOException {
+            if (stream == null) return;
+
+            if (consumeInputStream) {
+                stream.transferTo(OutputStream.nullOutputStream());
+            }
+
+            stream.close();
+        }
+    }
+}
@@ -0,0 +1,197 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2021 adorsys GmbH & Co. KG @ https://adorsys.com
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.util.resteasy;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.BaseUnits;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientRequestFilter;
+import javax.ws.rs.client.ClientResponseContext;
+import javax.ws.rs.client.ClientResponseFilter;
+
+// Records every call of the keycloak admin client per endpoint template, e.g. /admin/realms/{realm}/users/{id}/groups.
+// Path segments which identify a resource are replaced by placeholders to keep the number of time series small.
+// Additionally, an AdminApiCallEvent is emitted for every call while a flight recording is running.
+public class MetricsClientFilter implements ClientRequestFilter, ClientResponseFilter {
+    public static final String REQUESTS_METRIC = "kcc.http.client.requests";
+    public static final String RESPONSE_SIZE_METRIC = "kcc.http.client.response.size";
+
+    private static final String START_TIME_PROPERTY = MetricsClientFilter.class.getName() + ".startTime";
+    private static final String EVENT_PROPERTY = MetricsClientFilter.class.getName() + ".event";
+
+    private static final Pattern UUID_PATTERN = Pattern.compile(
+            "[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}"
+    );
+
+    // placeholder for the path segment following the key
+    private static final Map<String, String> PATH_PARAMETERS = Map.ofEntries(
+            Map.entry("realms", "{realm}"),
+            Map.entry("users", "{id}"),
+            Map.entry("groups", "{id}"),
+            Map.entry("clients", "{id}"),
+            Map.entry("client-scopes", "{id}"),
+            Map.entry("components", "{id}"),
+            Map.entry("roles", "{role}"),
+            Map.entry("roles-by-id", "{id}"),
+            Map.entry("default-groups", "{id}"),
+            Map.entry("default-client-scopes", "{id}"),
+            Map.entry("optional-client-scopes", "{id}"),
+            Map.entry("default-default-client-scopes", "{id}"),
+            Map.entry("default-optional-client-scopes", "{id}"),
+            Map.entry("flows", "{flow}"),
+            Map.entry("executions", "{id}"),
+            Map.entry("config", "{id}"),
+            Map.entry("config-description", "{provider}"),
+            Map.entry("required-actions", "{alias}"),
+            Map.entry("instances", "{alias}"),
+            Map.entry("mappers", "{id}"),
+            Map.entry("models", "{id}"),
+            Map.entry("user-storage", "{id}"),
+            Map.entry("localization", "{locale}")
+    );
+
+    // segments which are part of the api even if they are following a key of PATH_PARAMETERS
+    private static final Set<String> STATIC_SEGMENTS = Set.of(
+            "count", "profile", "execution", "flow", "realm", "available", "composite", "effective"
+    );
+
+    private final MeterRegistry meterRegistry;
+    private final CallListener callListener;
+
+    public MetricsClientFilter(MeterRegistry meterRegistry) {
+        this(meterRegistry, null);
+    }
+
+    public MetricsClientFilter(MeterRegistry meterRegistry, CallListener callListener) {
+        this.meterRegistry = meterRegistry;
+        this.callListener = callListener;
+    }
+
+    @Override
+    public void filter(ClientRequestContext requestContext) {
+        requestContext.setProperty(START_TIME_PROPERTY, System.nanoTime());
+
+        AdminApiCallEvent event = new AdminApiCallEvent();
+        if (event.isEnabled()) {
+            event.begin();
+            requestContext.setProperty(EVENT_PROPERTY, event);
+        }
+    }
+
+    @Override
+    public void filter(ClientRequestContext requestContext, ClientResponseContext responseContext) {
+        Object startTime = requestContext.getProperty(START_TIME_PROPERTY);
+        if (!(startTime instanceof Long)) return;
+
+        long duration = System.nanoTime() - (Long) startTime;
+        String endpoint = getEndpointTemplate(requestContext.getUri().getRawPath());
+
+        Tags tags = Tags.of(
+                "method", requestContext.getMethod(),
+                "uri", endpoint,
+                "status", String.valueOf(responseContext.getStatus())
+        );
+
+        Timer.builder(REQUESTS_METRIC)
+                .description("Calls of the keycloak admin API")
+                .tags(tags)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(duration, TimeUnit.NANOSECONDS);
+
+        if (callListener != null) {
+            callListener.onCall(requestContext.getMethod(), endpoint, responseContext.getStatus(), duration);
+        }
+
+        AdminApiCallEvent event = (AdminApiCallEvent) requestContext.getProperty(EVENT_PROPERTY);
+        if (event != null) {
+            event.end();
+            event.method = requestContext.getMethod();
+            event.endpoint = endpoint;
+            event.path = requestContext.getUri().getRawPath();
+            event.status = responseContext.getStatus();
+        }
+
+        if (!responseContext.hasEntity()) {
+            commit(event, 0);
+            return;
+        }
+
+        DistributionSummary responseSize = DistributionSummary.builder(RESPONSE_SIZE_METRIC)
+                .description("Size of the responses of the keycloak admin API")
+                .baseUnit(BaseUnits.BYTES)
+                .tags(tags)
+                .register(meterRegistry);
+
+        responseContext.setEntityStream(new CountingInputStream(responseContext.getEntityStream(), count -> {
+            responseSize.record(count);
+            commit(event, count);
+        }));
+    }
+
+    private static void commit(AdminApiCallEvent event, long responseSize) {
+        if (event == null) return;
+
+        event.responseSize = responseSize;
+        event.commit();
+    }
+
+    public static String getEndpointTemplate(String path) {
+        if (path == null || path.isEmpty()) return "/";
+
+        StringBuilder template = new StringBuilder();
+        String previousSegment = "";
+
+        for (String segment : path.split("/")) {
+            if (segment.isEmpty()) continue;
+
+            template.append('/');
+
+            if (UUID_PATTERN.matcher(segment).matches()) {
+                template.append("{id}");
+            } else if (PATH_PARAMETERS.containsKey(previousSegment) && !STATIC_SEGMENTS.contains(segment)) {
+                template.append(PATH_PARAMETERS.get(previousSegment));
+            } else {
+                template.append(segment);
+            }
+
+            previousSegment = segment;
+        }
+
+        return template.length() == 0 ? "/" : template.toString();
+    }
+
+    /**
+     * Notified after the response of each call is received, on the thread which made the call.
+     */
+    @FunctionalInterface
+    public interface CallListener {
+        void onCall(String method, String endpoint, int status, long durationInNanos);
+    }
+}
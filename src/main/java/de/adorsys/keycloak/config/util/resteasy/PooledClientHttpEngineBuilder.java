@@ -0,0 +1,184 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2021 adorsys GmbH & Co. KG @ https://adorsys.com
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.util.resteasy;
+
+import de.adorsys.keycloak.config.properties.KeycloakConfigProperties.KeycloakHttpClient;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.SocketConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpRequestExecutor;
+import org.jboss.resteasy.client.jaxrs.ClientHttpEngine;
+import org.jboss.resteasy.client.jaxrs.ClientHttpEngineBuilder;
+import org.jboss.resteasy.client.jaxrs.ResteasyClientBuilder;
+import org.jboss.resteasy.client.jaxrs.engines.ApacheHttpClient43Engine;
+import org.jboss.resteasy.client.jaxrs.engines.ClientHttpEngineBuilder43;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLContext;
+import javax.ws.rs.client.Invocation;
+import javax.ws.rs.core.Response;
+
+// Builds the Apache HttpClient engine like ClientHttpEngineBuilder43, which still takes care of the ssl context, proxy,
+// timeouts and the size of the connection pool. On top, the sockets of the pool are configured with TCP_NODELAY, the
+// keep-alive of idle connections is bounded and idle connections are evicted in the background, before keycloak or a
+// load balancer closes them. The pool and the reuse of its connections are recorded with Micrometer.
+public class PooledClientHttpEngineBuilder extends ClientHttpEngineBuilder43 {
+    public static final String CONNECTIONS_METRIC = "kcc.http.client.connections";
+
+    private static final String POOL_NAME = "keycloak";
+
+    private final KeycloakHttpClient options;
+    private final InvocationInterceptor interceptor;
+    private final MeterRegistry meterRegistry;
+
+    private ResteasyClientBuilder clientBuilder;
+
+    public PooledClientHttpEngineBuilder(KeycloakHttpClient options, InvocationInterceptor interceptor, MeterRegistry meterRegistry) {
+        this.options = options;
+        this.interceptor = interceptor;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public ClientHttpEngineBuilder resteasyClientBuilder(ResteasyClientBuilder resteasyClientBuilder) {
+        this.clientBuilder = resteasyClientBuilder;
+        return super.resteasyClientBuilder(resteasyClientBuilder);
+    }
+
+    @Override
+    protected ClientHttpEngine createEngine(
+            HttpClientConnectionManager cm,
+            RequestConfig.Builder rcBuilder,
+            HttpHost defaultProxy,
+            int responseBufferSize,
+            HostnameVerifier verifier,
+            SSLContext theContext
+    ) {
+        if (cm instanceof PoolingHttpClientConnectionManager) {
+            PoolingHttpClientConnectionManager pool = (PoolingHttpClientConnectionManager) cm;
+            pool.setDefaultSocketConfig(SocketConfig.custom()
+                    .setTcpNoDelay(options.isTcpNoDelay())
+                    .setSoKeepAlive(true)
+                    .build());
+
+            new PoolingHttpClientConnectionManagerMetricsBinder(pool, POOL_NAME).bindTo(meterRegistry);
+        }
+
+        HttpClientBuilder httpClientBuilder = HttpClientBuilder.create()
+                .setConnectionManager(cm)
+                .setDefaultRequestConfig(rcBuilder.setProxy(defaultProxy).build())
+                .setKeepAliveStrategy(getKeepAliveStrategy(options.getKeepAlive().toMillis()))
+                .setRequestExecutor(new ConnectionReuseRequestExecutor(connectionCounter(true), connectionCounter(false)))
+                .evictExpiredConnections()
+                .disableContentCompression();
+
+        if (!options.getIdleTimeout().isZero()) {
+            httpClientBuilder.evictIdleConnections(options.getIdleTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        if (!clientBuilder.isCookieManagementEnabled()) {
+            httpClientBuilder.disableCookieManagement();
+        }
+
+        if (clientBuilder.isDisableAutomaticRetries()) {
+            httpClientBuilder.disableAutomaticRetries();
+        }
+
+        ApacheHttpClient43Engine engine = interceptor != null
+                ? new InterceptedEngine(httpClientBuilder.build(), interceptor)
+                : new ApacheHttpClient43Engine(httpClientBuilder.build(), true);
+        engine.setResponseBufferSize(responseBufferSize);
+        engine.setHostnameVerifier(verifier);
+        engine.setSslContext(theContext);
+        engine.setFollowRedirects(clientBuilder.isFollowRedirects());
+
+        return engine;
+    }
+
+    // honors the Keep-Alive header of keycloak, but never keeps a connection longer than configured
+    private static ConnectionKeepAliveStrategy getKeepAliveStrategy(long keepAlive) {
+        return (HttpResponse response, HttpContext context) -> {
+            long serverKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+
+            return serverKeepAlive > 0 ? Math.min(serverKeepAlive, keepAlive) : keepAlive;
+        };
+    }
+
+    private Counter connectionCounter(boolean reused) {
+        return Counter.builder(CONNECTIONS_METRIC)
+                .description("Calls of the keycloak admin API by reuse of a pooled connection")
+                .tag("reused", String.valueOf(reused))
+                .register(meterRegistry);
+    }
+
+    // counts before each request whether the connection has already sent a request, i.e. was taken from the pool
+    private static class ConnectionReuseRequestExecutor extends HttpRequestExecutor {
+        private final Counter reused;
+        private final Counter created;
+
+        ConnectionReuseRequestExecutor(Counter reused, Counter created) {
+            this.reused = reused;
+            this.created = created;
+        }
+
+        @Override
+        public HttpResponse execute(HttpRequest request, HttpClientConnection conn, HttpContext context) throws IOException, HttpException {
+            if (conn.getMetrics().getRequestCount() > 0) {
+                reused.increment();
+            } else {
+                created.increment();
+            }
+
+            return super.execute(request, conn, context);
+        }
+    }
+
+    // RESTEasy expects the engine of the client to be an ApacheHttpClient43Engine, so the engine can not be wrapped
+    private static class InterceptedEngine extends ApacheHttpClient43Engine {
+        private final InvocationInterceptor interceptor;
+
+        InterceptedEngine(HttpClient httpClient, InvocationInterceptor interceptor) {
+            super(httpClient, true);
+            this.interceptor = interceptor;
+        }
+
+        @Override
+        public Response invoke(Invocation inv) {
+            return interceptor.invoke(inv, super::invoke);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2021 adorsys GmbH & Co. KG @ https://adorsys.com
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.util.resteasy;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import net.jodah.failsafe.Failsafe;
+import net.jodah.failsafe.RetryPolicy;
+import net.jodah.failsafe.event.ExecutionAttemptedEvent;
+import org.jboss.resteasy.client.jaxrs.internal.ClientInvocation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.Set;
+import java.util.function.Function;
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.client.Invocation;
+import javax.ws.rs.core.Response;
+
+// Retries idempotent calls of the admin client which failed without a response, e.g. by a connection reset, or with a
+// status which is usually transient, like a 502 or 503 of a load balancer or a 409 of keycloak while the caches of a
+// cluster are invalidated. The delay between the attempts grows exponentially and is randomized by the jitter, so
+// parallel imports do not retry in lockstep. Calls which are not idempotent, like POST, are never retried.
+public class RetryInterceptor implements InvocationInterceptor {
+    public static final String RETRIES_METRIC = "kcc.http.client.retries";
+
+    private static final Logger logger = LoggerFactory.getLogger(RetryInterceptor.class);
+
+    private static final Set<String> IDEMPOTENT_METHODS = Set.of("GET", "HEAD", "OPTIONS", "PUT", "DELETE");
+
+    private final int maxAttempts;
+    private final Duration delay;
+    private final Duration maxDelay;
+    private final double jitter;
+    private final Set<Integer> statuses;
+    private final MeterRegistry meterRegistry;
+
+    public RetryInterceptor(
+            int maxAttempts,
+            Duration delay,
+            Duration maxDelay,
+            double jitter,
+            Set<Integer> statuses,
+            MeterRegistry meterRegistry
+    ) {
+        this.maxAttempts = maxAttempts;
+        this.delay = delay;
+        this.maxDelay = maxDelay;
+        this.jitter = jitter;
+        this.statuses = Set.copyOf(statuses);
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Sends a call of the admin client and repeats it until it succeeds or the attempts are exhausted. If all attempts
+     * are answered with a retryable status, the last response is returned, otherwise the last failure is thrown.
+     */
+    @Override
+    public Response invoke(Invocation invocation, Function<Invocation, Response> call) {
+        ClientInvocation request = (ClientInvocation) invocation;
+        if (maxAttempts <= 1 || !IDEMPOTENT_METHODS.contains(request.getMethod())) {
+            return call.apply(invocation);
+        }
+
+        String endpoint = MetricsClientFilter.getEndpointTemplate(request.getUri().getRawPath());
+
+        RetryPolicy<Response> retryPolicy = new RetryPolicy<Response>()
+                .handle(ProcessingException.class)
+                .handleResultIf(response -> statuses.contains(response.getStatus()))
+                .withMaxAttempts(maxAttempts)
+                .onRetry(event -> onRetry(request.getMethod(), endpoint, event));
+
+        if (maxDelay.compareTo(delay) > 0) {
+            retryPolicy.withBackoff(delay.toMillis(), maxDelay.toMillis(), ChronoUnit.MILLIS);
+        } else {
+            retryPolicy.withDelay(delay);
+        }
+
+        if (jitter > 0) {
+            retryPolicy.withJitter(jitter);
+        }
+
+        return Failsafe.with(retryPolicy).get(() -> call.apply(invocation));
+    }
+
+    private void onRetry(String method, String endpoint, ExecutionAttemptedEvent<Response> event) {
+        Response response = event.getLastResult();
+        String reason;
+
+        if (response != null) {
+            // release the connection of the discarded response before the call is sent again
+            response.close();
+            reason = String.valueOf(response.getStatus());
+        } else {
+            reason = event.getLastFailure().getCause() != null
+                    ? event.getLastFailure().getCause().getClass().getSimpleName()
+                    : event.getLastFailure().getClass().getSimpleName();
+        }
+
+        logger.debug("Retry {} {} after attempt #{} failed ({})", method, endpoint, event.getAttemptCount(), reason);
+
+        Counter.builder(RETRIES_METRIC)
+                .description("Retries of keycloak admin API calls")
+                .tag("method", method)
+                .tag("uri", endpoint)
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+    }
+}
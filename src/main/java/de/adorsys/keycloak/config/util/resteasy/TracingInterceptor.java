@@ -0,0 +1,100 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2021 adorsys GmbH & Co. KG @ https://adorsys.com
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.util.resteasy;
+
+import de.adorsys.keycloak.config.service.tracing.TracingService;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.propagation.TextMapPropagator;
+import io.opentelemetry.context.propagation.TextMapSetter;
+import org.jboss.resteasy.client.jaxrs.internal.ClientInvocation;
+
+import java.net.URI;
+import java.util.function.Function;
+import javax.ws.rs.client.Invocation;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+
+// Creates a client span for every call of the keycloak admin client and propagates the trace context
+// as W3C traceparent header, so the calls can be correlated with the traces of keycloak itself.
+// As an interceptor of the http engine, the span also ends if the call fails without a response and every attempt of a retried call
+// gets its own span.
+public class TracingInterceptor implements InvocationInterceptor {
+    static final AttributeKey<String> HTTP_METHOD = AttributeKey.stringKey("http.method");
+    static final AttributeKey<String> HTTP_URL = AttributeKey.stringKey("http.url");
+    static final AttributeKey<String> HTTP_ROUTE = AttributeKey.stringKey("http.route");
+    static final AttributeKey<Long> HTTP_STATUS_CODE = AttributeKey.longKey("http.status_code");
+
+    private static final TextMapSetter<MultivaluedMap<String, Object>> HEADER_SETTER = (headers, key, value) -> {
+        if (headers != null) headers.putSingle(key, value);
+    };
+
+    private final Tracer tracer;
+    private final TextMapPropagator propagator;
+
+    public TracingInterceptor(OpenTelemetry openTelemetry) {
+        this.tracer = openTelemetry.getTracer(TracingService.INSTRUMENTATION_NAME);
+        this.propagator = openTelemetry.getPropagators().getTextMapPropagator();
+    }
+
+    @Override
+    public Response invoke(Invocation invocation, Function<Invocation, Response> call) {
+        ClientInvocation request = (ClientInvocation) invocation;
+        URI uri = request.getUri();
+        String endpoint = MetricsClientFilter.getEndpointTemplate(uri.getRawPath());
+
+        Span span = tracer.spanBuilder(request.getMethod() + " " + endpoint)
+                .setSpanKind(SpanKind.CLIENT)
+                .setAttribute(HTTP_METHOD, request.getMethod())
+                .setAttribute(HTTP_URL, getUrlWithoutQuery(uri))
+                .setAttribute(HTTP_ROUTE, endpoint)
+                .startSpan();
+
+        try {
+            propagator.inject(Context.current().with(span), request.getHeaders().getHeaders(), HEADER_SETTER);
+
+            Response response = call.apply(invocation);
+            span.setAttribute(HTTP_STATUS_CODE, response.getStatus());
+
+            if (response.getStatus() >= 400) {
+                span.setStatus(StatusCode.ERROR);
+            }
+
+            return response;
+        } catch (RuntimeException e) {
+            span.recordException(e);
+            span.setStatus(StatusCode.ERROR, e.getMessage());
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+
+    // the query contains search terms like user names, which must not end up in the tracing backend
+    private static String getUrlWithoutQuery(URI uri) {
+        return uri.getScheme() + "://" + uri.getHost() + (uri.getPort() != -1 ? ":" + uri.getPort() : "") + uri.getRawPath();
+    }
+}
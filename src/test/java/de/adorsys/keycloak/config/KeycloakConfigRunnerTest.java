@@ -0,0 +1,86 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2021 adorsys GmbH & Co. KG @ https://adorsys.com
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config;
+
+import de.adorsys.keycloak.config.exception.InvalidImportException;
+import de.adorsys.keycloak.config.extensions.GithubActionsExtension;
+import de.adorsys.keycloak.config.properties.ImportConfigProperties;
+import de.adorsys.keycloak.config.properties.ImportConfigProperties.ImportFilesProperties;
+import de.adorsys.keycloak.config.provider.KeycloakImportProvider;
+import de.adorsys.keycloak.config.provider.KeycloakProvider;
+import de.adorsys.keycloak.config.service.RealmImportService;
+import de.adorsys.keycloak.config.service.metrics.AdminApiMetricsService;
+import de.adorsys.keycloak.config.service.metrics.ImportReportService;
+import de.adorsys.keycloak.config.service.metrics.MetricsExportService;
+import de.adorsys.keycloak.config.service.metrics.SlowCallService;
+import de.adorsys.keycloak.config.service.tracing.TracingService;
+import io.opentelemetry.api.OpenTelemetry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.keycloak.admin.client.Keycloak;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(GithubActionsExtension.class)
+class KeycloakConfigRunnerTest {
+    @Test
+    void shouldAwaitLoginIfImportFilesAreInvalid() {
+        KeycloakProvider keycloakProvider = mock(KeycloakProvider.class);
+        KeycloakImportProvider keycloakImportProvider = mock(KeycloakImportProvider.class);
+        ImportConfigProperties importConfigProperties = mock(ImportConfigProperties.class);
+
+        CompletableFuture<Keycloak> connection = new CompletableFuture<>();
+        when(keycloakProvider.connectAsync()).thenReturn(connection);
+        when(importConfigProperties.getFiles()).thenReturn(new ImportFilesProperties(List.of("invalid.json"), List.of(), false));
+        when(keycloakImportProvider.readFromLocations(anyCollection())).thenAnswer(invocation -> {
+            CompletableFuture.delayedExecutor(100, TimeUnit.MILLISECONDS)
+                    .execute(() -> connection.completeExceptionally(new IllegalStateException("login failed")));
+            throw new InvalidImportException("invalid import file");
+        });
+
+        KeycloakConfigRunner runner = new KeycloakConfigRunner(
+                keycloakImportProvider,
+                keycloakProvider,
+                mock(RealmImportService.class),
+                importConfigProperties,
+                mock(AdminApiMetricsService.class),
+                mock(ImportReportService.class),
+                mock(MetricsExportService.class),
+                mock(SlowCallService.class),
+                new TracingService(OpenTelemetry.noop())
+        );
+
+        // the error is rethrown, since the tests log on debug level
+        assertThrows(InvalidImportException.class, runner::run);
+
+        assertThat(connection.isDone(), is(true));
+        assertThat(runner.getExitCode(), is(1));
+    }
+}
@@ -0,0 +1,161 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2021 adorsys GmbH & Co. KG @ https://adorsys.com
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.factory;
+
+import de.adorsys.keycloak.config.extensions.GithubActionsExtension;
+import de.adorsys.keycloak.config.factory.UsedAuthenticationFlowWorkaroundFactory.UsedAuthenticationFlowWorkaround;
+import de.adorsys.keycloak.config.model.RealmImport;
+import de.adorsys.keycloak.config.repository.AuthenticationFlowRepository;
+import de.adorsys.keycloak.config.repository.IdentityProviderRepository;
+import de.adorsys.keycloak.config.repository.RealmRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.keycloak.representations.idm.AuthenticationFlowRepresentation;
+import org.keycloak.representations.idm.IdentityProviderRepresentation;
+import org.keycloak.representations.idm.RealmRepresentation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(GithubActionsExtension.class)
+class UsedAuthenticationFlowWorkaroundFactoryTest {
+    private static final String REALM_NAME = "test";
+    private static final String TEMPORARY_FLOW = "TEMPORARY_CREATED_AUTH_FLOW";
+
+    private final RealmRepository realmRepository = mock(RealmRepository.class);
+    private final IdentityProviderRepository identityProviderRepository = mock(IdentityProviderRepository.class);
+    private final AuthenticationFlowRepository authenticationFlowRepository = mock(AuthenticationFlowRepository.class);
+
+    // the bindings of the realm at the time of each update, the same representation is updated again when the flows are reset
+    private final List<String> realmUpdates = new ArrayList<>();
+    private final List<RealmRepresentation> updatedRealms = new ArrayList<>();
+    private final List<String> identityProviderUpdates = new ArrayList<>();
+
+    private UsedAuthenticationFlowWorkaround workaround;
+
+    @BeforeEach
+    void setUp() {
+        RealmRepresentation realm = new RealmRepresentation();
+        realm.setId("realm-id");
+        realm.setRealm(REALM_NAME);
+        realm.setDisplayName("my realm");
+        realm.setEnabled(true);
+        realm.setBrowserFlow("my-flow");
+        realm.setDirectGrantFlow("my-flow");
+        realm.setClientAuthenticationFlow("my-flow");
+        realm.setDockerAuthenticationFlow("my-flow");
+        realm.setRegistrationFlow("my-flow");
+        realm.setResetCredentialsFlow("my-flow");
+
+        IdentityProviderRepresentation identityProvider = new IdentityProviderRepresentation();
+        identityProvider.setAlias("my-idp");
+        identityProvider.setFirstBrokerLoginFlowAlias("my-flow");
+        identityProvider.setPostBrokerLoginFlowAlias("my-flow");
+
+        AuthenticationFlowRepresentation temporaryFlow = new AuthenticationFlowRepresentation();
+        temporaryFlow.setId("temporary-flow-id");
+        temporaryFlow.setAlias(TEMPORARY_FLOW);
+
+        when(realmRepository.get(REALM_NAME)).thenReturn(realm);
+        when(identityProviderRepository.getAll(REALM_NAME)).thenReturn(List.of(identityProvider));
+        when(authenticationFlowRepository.getTopLevelFlows(REALM_NAME)).thenReturn(List.of());
+        when(authenticationFlowRepository.getByAlias(REALM_NAME, TEMPORARY_FLOW)).thenReturn(temporaryFlow);
+
+        doAnswer(invocation -> {
+            updatedRealms.add(invocation.getArgument(0));
+            return realmUpdates.add(realmBindings(invocation.getArgument(0)));
+        }).when(realmRepository).update(any());
+        doAnswer(invocation -> identityProviderUpdates.add(identityProviderBindings(invocation.getArgument(1))))
+                .when(identityProviderRepository).update(eq(REALM_NAME), any());
+
+        RealmImport realmImport = new RealmImport();
+        realmImport.setRealm(REALM_NAME);
+
+        workaround = new UsedAuthenticationFlowWorkaroundFactory(realmRepository, identityProviderRepository, authenticationFlowRepository)
+                .buildFor(realmImport);
+    }
+
+    @Test
+    void shouldUpdateRealmOnceToDisableAndOnceToResetAllBindingsOfFlow() {
+        workaround.disableTopLevelFlowIfNeeded("my-flow");
+        workaround.resetFlowIfNeeded();
+
+        // all six realm bindings are changed by a single update, both when they are disabled and when they are reset
+        assertThat(realmUpdates, contains(
+                String.join(",", Collections.nCopies(6, TEMPORARY_FLOW)),
+                String.join(",", Collections.nCopies(6, "my-flow"))
+        ));
+        assertThat(identityProviderUpdates, contains(TEMPORARY_FLOW + "," + TEMPORARY_FLOW, "my-flow,my-flow"));
+
+        verify(realmRepository, times(1)).get(REALM_NAME);
+        verify(authenticationFlowRepository, times(1)).createTopLevel(eq(REALM_NAME), any());
+        verify(authenticationFlowRepository, times(1)).delete(REALM_NAME, "temporary-flow-id");
+    }
+
+    @Test
+    void shouldUpdateOnlyFlowBindingsOfRealm() {
+        workaround.disableTopLevelFlowIfNeeded("my-flow");
+        workaround.resetFlowIfNeeded();
+
+        // other settings of the realm may have been changed since the realm was fetched, they must not be reverted
+        assertThat(updatedRealms, hasSize(2));
+        for (RealmRepresentation updatedRealm : updatedRealms) {
+            assertThat(updatedRealm.getId(), is("realm-id"));
+            assertThat(updatedRealm.getRealm(), is(REALM_NAME));
+            assertThat(updatedRealm.getDisplayName(), is(nullValue()));
+            assertThat(updatedRealm.isEnabled(), is(nullValue()));
+        }
+    }
+
+    @Test
+    void shouldNotUpdateRealmForUnusedFlow() {
+        workaround.disableTopLevelFlowIfNeeded("my-flow");
+        workaround.resetFlowIfNeeded();
+
+        workaround.disableTopLevelFlowIfNeeded("other-flow");
+        workaround.resetFlowIfNeeded();
+
+        assertThat(realmUpdates, hasSize(2));
+        verify(realmRepository, times(1)).get(REALM_NAME);
+        verify(identityProviderRepository, times(1)).getAll(REALM_NAME);
+        verify(authenticationFlowRepository, times(1)).createTopLevel(eq(REALM_NAME), any());
+    }
+
+    private static String realmBindings(RealmRepresentation realm) {
+        return String.join(",", realm.getBrowserFlow(), realm.getDirectGrantFlow(), realm.getClientAuthenticationFlow(),
+                realm.getDockerAuthenticationFlow(), realm.getRegistrationFlow(), realm.getResetCredentialsFlow());
+    }
+
+    private static String identityProviderBindings(IdentityProviderRepresentation identityProvider) {
+        return identityProvider.getFirstBrokerLoginFlowAlias() + "," + identityProvider.getPostBrokerLoginFlowAlias();
+    }
+}
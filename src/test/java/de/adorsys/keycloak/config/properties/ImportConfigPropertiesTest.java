@@ -21,7 +21,9 @@
 package de.adorsys.keycloak.config.properties;
 
 import de.adorsys.keycloak.config.extensions.GithubActionsExtension;
+import de.adorsys.keycloak.config.properties.ImportConfigProperties.ImportBehaviorsProperties.SyncUserFederationAction;
 import de.adorsys.keycloak.config.properties.ImportConfigProperties.ImportManagedProperties.ImportManagedPropertiesValues;
+import de.adorsys.keycloak.config.properties.ImportConfigProperties.ImportTracingProperties.TracingExporter;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -30,6 +32,8 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import java.time.Duration;
+
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.is;
@@ -56,6 +60,18 @@ import static org.hamcrest.Matchers.is;
         "import.remote-state.enabled=false",
         "import.remote-state.encryption-key=password",
         "import.remote-state.encryption-salt=0123456789ABCDEFabcdef",
+        "import.report.enabled=true",
+        "import.report.file=report.json",
+        "import.metrics.file=metrics.txt",
+        "import.metrics.push-url=http://localhost:9091",
+        "import.metrics.job=custom",
+        "import.tracing.enabled=true",
+        "import.tracing.exporter=otlp-http",
+        "import.tracing.endpoint=http://localhost:4318/v1/traces",
+        "import.slow-log.enabled=true",
+        "import.slow-log.call-threshold=250ms",
+        "import.slow-log.max-calls-per-entity=20",
+        "import.slow-log.top=5",
         "import.managed.authentication-flow=no-delete",
         "import.managed.group=no-delete",
         "import.managed.required-action=no-delete",
@@ -70,6 +86,8 @@ import static org.hamcrest.Matchers.is;
         "import.managed.client=no-delete",
         "import.managed.client-authorization-resources=no-delete",
         "import.behaviors.sync-user-federation=true",
+        "import.behaviors.sync-user-federation-action=changed-users",
+        "import.behaviors.sync-user-federation-async=true",
         "import.behaviors.remove-default-role-from-user=true",
         "import.behaviors.skip-attributes-for-federated-user=true",
 })
@@ -96,6 +114,18 @@ class ImportConfigPropertiesTest {
         assertThat(properties.getRemoteState().isEnabled(), is(false));
         assertThat(properties.getRemoteState().getEncryptionKey(), is("password"));
         assertThat(properties.getRemoteState().getEncryptionSalt(), is("0123456789ABCDEFabcdef"));
+        assertThat(properties.getReport().isEnabled(), is(true));
+        assertThat(properties.getReport().getFile(), is("report.json"));
+        assertThat(properties.getMetrics().getFile(), is("metrics.txt"));
+        assertThat(properties.getMetrics().getPushUrl(), is("http://localhost:9091"));
+        assertThat(properties.getMetrics().getJob(), is("custom"));
+        assertThat(properties.getTracing().isEnabled(), is(true));
+        assertThat(properties.getTracing().getExporter(), is(TracingExporter.OTLP_HTTP));
+        assertThat(properties.getTracing().getEndpoint(), is("http://localhost:4318/v1/traces"));
+        assertThat(properties.getSlowLog().isEnabled(), is(true));
+        assertThat(properties.getSlowLog().getCallThreshold(), is(Duration.ofMillis(250)));
+        assertThat(properties.getSlowLog().getMaxCallsPerEntity(), is(20));
+        assertThat(properties.getSlowLog().getTop(), is(5));
         assertThat(properties.getManaged().getAuthenticationFlow(), is(ImportManagedPropertiesValues.NO_DELETE));
         assertThat(properties.getManaged().getGroup(), is(ImportManagedPropertiesValues.NO_DELETE));
         assertThat(properties.getManaged().getRequiredAction(), is(ImportManagedPropertiesValues.NO_DELETE));
@@ -110,6 +140,8 @@ class ImportConfigPropertiesTest {
         assertThat(properties.getManaged().getClient(), is(ImportManagedPropertiesValues.NO_DELETE));
         assertThat(properties.getManaged().getClientAuthorizationResources(), is(ImportManagedPropertiesValues.NO_DELETE));
         assertThat(properties.getBehaviors().isSyncUserFederation(), is(true));
+        assertThat(properties.getBehaviors().getSyncUserFederationAction(), is(SyncUserFederationAction.CHANGED_USERS));
+        assertThat(properties.getBehaviors().isSyncUserFederationAsync(), is(true));
         assertThat(properties.getBehaviors().isRemoveDefaultRoleFromUser(), is(true));
         assertThat(properties.getBehaviors().isSkipAttributesForFederatedUser(), is(true));
     }
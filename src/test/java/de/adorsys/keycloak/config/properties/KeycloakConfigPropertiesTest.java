@@ -21,6 +21,8 @@
 package de.adorsys.keycloak.config.properties;
 
 import de.adorsys.keycloak.config.extensions.GithubActionsExtension;
+import de.adorsys.keycloak.config.properties.KeycloakConfigProperties.KeycloakAvailabilityCheck.AvailabilityProbe;
+import de.adorsys.keycloak.config.properties.KeycloakConfigProperties.KeycloakHttpClient.HttpEngine;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -28,10 +30,12 @@ import org.springframework.boot.context.properties.EnableConfigurationProperties
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.util.unit.DataSize;
 
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.time.Duration;
+import java.util.Set;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
@@ -54,7 +58,35 @@ import static org.hamcrest.core.Is.is;
         "keycloak.read-timeout=20s",
         "keycloak.availability-check.enabled=true",
         "keycloak.availability-check.timeout=60s",
-        "keycloak.availability-check.retry-delay=10s"
+        "keycloak.availability-check.retry-delay=10s",
+        "keycloak.availability-check.probe=health",
+        "keycloak.http-client.engine=jdk",
+        "keycloak.http-client.connection-pool-size=32",
+        "keycloak.http-client.max-connections-per-route=16",
+        "keycloak.http-client.keep-alive=1m",
+        "keycloak.http-client.idle-timeout=5s",
+        "keycloak.http-client.tcp-no-delay=false",
+        "keycloak.http-client.response-compression=false",
+        "keycloak.http-client.request-compression=true",
+        "keycloak.http-client.request-compression-threshold=1MB",
+        "keycloak.http-client.strict-affinity=true",
+        "keycloak.concurrency-limit.enabled=true",
+        "keycloak.concurrency-limit.initial-limit=8",
+        "keycloak.concurrency-limit.min-limit=2",
+        "keycloak.concurrency-limit.max-limit=64",
+        "keycloak.concurrency-limit.backoff-ratio=0.75",
+        "keycloak.concurrency-limit.latency-tolerance=3",
+        "keycloak.retry.enabled=true",
+        "keycloak.retry.max-attempts=5",
+        "keycloak.retry.delay=1s",
+        "keycloak.retry.max-delay=1m",
+        "keycloak.retry.jitter=0.25",
+        "keycloak.retry.statuses=503",
+        "keycloak.token-refresh.enabled=false",
+        "keycloak.token-refresh.before-expiry=45s",
+        "keycloak.token-cache.enabled=true",
+        "keycloak.token-cache.directory=/var/cache/kcc",
+        "keycloak.token-cache.ttl=10m"
 })
 class KeycloakConfigPropertiesTest {
 
@@ -75,6 +107,34 @@ class KeycloakConfigPropertiesTest {
         assertThat(properties.getAvailabilityCheck().isEnabled(), is(true));
         assertThat(properties.getAvailabilityCheck().getTimeout(), is(Duration.ofSeconds(60L)));
         assertThat(properties.getAvailabilityCheck().getRetryDelay(), is(Duration.ofSeconds(10L)));
+        assertThat(properties.getAvailabilityCheck().getProbe(), is(AvailabilityProbe.HEALTH));
+        assertThat(properties.getHttpClient().getEngine(), is(HttpEngine.JDK));
+        assertThat(properties.getHttpClient().getConnectionPoolSize(), is(32));
+        assertThat(properties.getHttpClient().getMaxConnectionsPerRoute(), is(16));
+        assertThat(properties.getHttpClient().getKeepAlive(), is(Duration.ofMinutes(1)));
+        assertThat(properties.getHttpClient().getIdleTimeout(), is(Duration.ofSeconds(5)));
+        assertThat(properties.getHttpClient().isTcpNoDelay(), is(false));
+        assertThat(properties.getHttpClient().isResponseCompression(), is(false));
+        assertThat(properties.getHttpClient().isRequestCompression(), is(true));
+        assertThat(properties.getHttpClient().getRequestCompressionThreshold(), is(DataSize.ofMegabytes(1)));
+        assertThat(properties.getHttpClient().isStrictAffinity(), is(true));
+        assertThat(properties.getConcurrencyLimit().isEnabled(), is(true));
+        assertThat(properties.getConcurrencyLimit().getInitialLimit(), is(8));
+        assertThat(properties.getConcurrencyLimit().getMinLimit(), is(2));
+        assertThat(properties.getConcurrencyLimit().getMaxLimit(), is(64));
+        assertThat(properties.getConcurrencyLimit().getBackoffRatio(), is(0.75));
+        assertThat(properties.getConcurrencyLimit().getLatencyTolerance(), is(3.0));
+        assertThat(properties.getRetry().isEnabled(), is(true));
+        assertThat(properties.getRetry().getMaxAttempts(), is(5));
+        assertThat(properties.getRetry().getDelay(), is(Duration.ofSeconds(1)));
+        assertThat(properties.getRetry().getMaxDelay(), is(Duration.ofMinutes(1)));
+        assertThat(properties.getRetry().getJitter(), is(0.25));
+        assertThat(properties.getRetry().getStatuses(), is(Set.of(503)));
+        assertThat(properties.getTokenRefresh().isEnabled(), is(false));
+        assertThat(properties.getTokenRefresh().getBeforeExpiry(), is(Duration.ofSeconds(45)));
+        assertThat(properties.getTokenCache().isEnabled(), is(true));
+        assertThat(properties.getTokenCache().getDirectory(), is("/var/cache/kcc"));
+        assertThat(properties.getTokenCache().getTtl(), is(Duration.ofMinutes(10)));
     }
 
     @EnableConfigurationProperties(KeycloakConfigProperties.class)
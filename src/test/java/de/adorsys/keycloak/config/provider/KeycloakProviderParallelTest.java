@@ -0,0 +1,85 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2021 adorsys GmbH & Co. KG @ https://adorsys.com
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.provider;
+
+import de.adorsys.keycloak.config.configuration.TestConfiguration;
+import de.adorsys.keycloak.config.extensions.GithubActionsExtension;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.ConfigDataApplicationContextInitializer;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+
+@ExtendWith(SpringExtension.class)
+@ExtendWith(GithubActionsExtension.class)
+@ContextConfiguration(
+        classes = {TestConfiguration.class},
+        initializers = {ConfigDataApplicationContextInitializer.class}
+)
+@TestPropertySource(properties = {
+        "spring.main.log-startup-info=false",
+        "keycloak.url=http://localhost:8080",
+        "keycloak.password=admin",
+        "import.files.locations=default",
+        "import.parallel=true",
+        "keycloak.concurrency-limit.enabled=true",
+        "keycloak.concurrency-limit.max-limit=16",
+})
+class KeycloakProviderParallelTest {
+    @Autowired
+    private KeycloakProvider keycloakProvider;
+
+    @Test
+    void shouldRunParallelImportBeyondCommonPool() throws InterruptedException {
+        List<Integer> items = IntStream.range(0, 16).boxed().collect(Collectors.toList());
+        CountDownLatch allStarted = new CountDownLatch(items.size());
+        AtomicInteger timeouts = new AtomicInteger();
+
+        // each item waits for all the others, which only works if all of them run at the same time
+        keycloakProvider.forEachParallel(items, item -> {
+            allStarted.countDown();
+            try {
+                if (!allStarted.await(10, TimeUnit.SECONDS)) {
+                    timeouts.incrementAndGet();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        assertThat(items.size(), is(greaterThan(ForkJoinPool.getCommonPoolParallelism() + 1)));
+        assertThat(timeouts.get(), is(0));
+    }
+}
@@ -0,0 +1,130 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2021 adorsys GmbH & Co. KG @ https://adorsys.com
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.provider;
+
+import de.adorsys.keycloak.config.configuration.TestConfiguration;
+import de.adorsys.keycloak.config.extensions.GithubActionsExtension;
+import de.adorsys.keycloak.config.resource.AsyncAdminApi;
+import de.adorsys.keycloak.config.test.util.KeycloakAdminApiStub;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.keycloak.admin.client.CreatedResponseUtil;
+import org.keycloak.admin.client.Keycloak;
+import org.keycloak.representations.idm.GroupRepresentation;
+import org.keycloak.representations.idm.MappingsRepresentation;
+import org.keycloak.representations.idm.RealmRepresentation;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.ConfigDataApplicationContextInitializer;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import javax.ws.rs.NotFoundException;
+import javax.ws.rs.core.Response;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasEntry;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@ExtendWith(SpringExtension.class)
+@ExtendWith(GithubActionsExtension.class)
+@ContextConfiguration(
+        classes = {TestConfiguration.class},
+        initializers = {ConfigDataApplicationContextInitializer.class}
+)
+@TestPropertySource(properties = {
+        "spring.main.log-startup-info=false",
+        "keycloak.password=admin",
+        "keycloak.version=19.0.1",
+        "keycloak.availability-check.enabled=true",
+        "keycloak.availability-check.probe=well-known",
+        "import.files.locations=default",
+})
+class KeycloakProviderTest {
+    private static final KeycloakAdminApiStub KEYCLOAK = new KeycloakAdminApiStub(Duration.ZERO);
+
+    @Autowired
+    private KeycloakProvider keycloakProvider;
+
+    @DynamicPropertySource
+    static void keycloakProperties(DynamicPropertyRegistry registry) {
+        registry.add("keycloak.url", KEYCLOAK::getUrl);
+    }
+
+    @AfterAll
+    static void stopKeycloak() {
+        KEYCLOAK.close();
+    }
+
+    @Test
+    void shouldProbeReadinessAndCheckVersionOnce() {
+        Keycloak keycloak = keycloakProvider.connectAsync().join();
+
+        assertThat(keycloakProvider.getInstance(), is(sameInstance(keycloak)));
+        assertThat(keycloakProvider.getKeycloakVersion(), is("19.0.1"));
+
+        // waits for the version check, which runs in the background
+        keycloakProvider.close();
+
+        Map<String, Long> calls = KEYCLOAK.getCallCounts();
+        assertThat(calls, hasEntry("GET /realms/{realm}/.well-known/openid-configuration", 1L));
+        assertThat(calls, hasEntry("GET /admin/serverinfo", 1L));
+    }
+
+    @Test
+    void shouldCallAdminApiAsync() {
+        Keycloak keycloak = keycloakProvider.getInstance();
+        RealmRepresentation realm = new RealmRepresentation();
+        realm.setRealm("async");
+        keycloak.realms().create(realm);
+        UserRepresentation user = new UserRepresentation();
+        user.setUsername("async-user");
+        String userId;
+        try (Response response = keycloak.realm("async").users().create(user)) {
+            userId = CreatedResponseUtil.getCreatedId(response);
+        }
+
+        AsyncAdminApi asyncAdminApi = keycloakProvider.getAsyncAdminApi();
+        CompletableFuture<List<GroupRepresentation>> groups = asyncAdminApi.getUserGroups("async", userId).toCompletableFuture();
+        CompletableFuture<MappingsRepresentation> roleMappings = asyncAdminApi.getUserRoleMappings("async", userId).toCompletableFuture();
+
+        assertThat(groups.join(), is(empty()));
+        assertThat(roleMappings.join(), is(notNullValue()));
+
+        CompletableFuture<Void> missingGroup = asyncAdminApi.leaveGroup("async", userId, "missing").toCompletableFuture();
+        CompletionException exception = assertThrows(CompletionException.class, missingGroup::join);
+        assertThat(exception.getCause(), is(instanceOf(NotFoundException.class)));
+    }
+}
@@ -0,0 +1,197 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2021 adorsys GmbH & Co. KG @ https://adorsys.com
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.provider;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import de.adorsys.keycloak.config.extensions.GithubActionsExtension;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.jboss.resteasy.client.jaxrs.ResteasyClient;
+import org.jboss.resteasy.client.jaxrs.internal.ResteasyClientBuilderImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.keycloak.admin.client.Config;
+import org.keycloak.admin.client.resource.BearerAuthFilter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import javax.ws.rs.core.Response;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+@ExtendWith(GithubActionsExtension.class)
+class SharedTokenManagerTest {
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger issuedTokens = new AtomicInteger();
+    private final List<String> grantTypes = new CopyOnWriteArrayList<>();
+
+    private HttpServer server;
+    private ResteasyClient client;
+    private SharedTokenManager tokenManager;
+
+    private volatile int expiresIn = 300;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        // issues the tokens token-1, token-2, ... for both password and refresh_token grants, except for a revoked refresh token
+        server.createContext("/realms/master/protocol/openid-connect/token", exchange -> {
+            String form = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            grantTypes.add(form.replaceAll(".*grant_type=([a-z_]+).*", "$1"));
+
+            if (form.contains("refresh_token=revoked")) {
+                respond(exchange, 400, "application/json", "{\"error\":\"invalid_grant\"}");
+                return;
+            }
+
+            int token = issuedTokens.incrementAndGet();
+            respond(exchange, 200, "application/json", "{\"access_token\":\"token-" + token + "\",\"expires_in\":" + expiresIn
+                    + ",\"refresh_token\":\"refresh-" + token + "\",\"refresh_expires_in\":1800,\"token_type\":\"Bearer\"}");
+        });
+        // rejects the first token and echoes the authorization header otherwise
+        server.createContext("/admin", exchange -> {
+            String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+            respond(exchange, "Bearer token-1".equals(authorization) ? 401 : 200, "text/plain", authorization);
+        });
+        server.start();
+
+        String url = "http://localhost:" + server.getAddress().getPort();
+        client = new ResteasyClientBuilderImpl().build();
+        tokenManager = new SharedTokenManager(
+                new Config(url, "master", "admin", "admin123", "admin-cli", null, "password", null),
+                client,
+                Duration.ofSeconds(20),
+                meterRegistry
+        );
+    }
+
+    @AfterEach
+    void stopServer() {
+        tokenManager.close();
+        client.close();
+        server.stop(0);
+    }
+
+    @Test
+    void shouldShareTokenAcrossThreads() {
+        List<String> tokens = IntStream.range(0, 100).parallel()
+                .mapToObj(i -> tokenManager.getAccessTokenString())
+                .distinct()
+                .collect(Collectors.toList());
+
+        assertThat(tokens, contains("token-1"));
+        assertThat(grantTypes, contains("password"));
+        assertThat(refreshes("grant", "caller"), is(1.0));
+        assertThat(meterRegistry.get(SharedTokenManager.VALIDITY_METRIC).gauge().value() > 290, is(true));
+    }
+
+    @Test
+    void shouldRefreshTokenInBackgroundBeforeExpiry() throws InterruptedException {
+        // a token which is valid for 2 seconds is refreshed after half of its lifetime
+        expiresIn = 2;
+        tokenManager.getAccessToken();
+
+        for (int i = 0; i < 50 && meterRegistry.find(SharedTokenManager.REFRESHES_METRIC).tag("trigger", "background").counter() == null; i++) {
+            Thread.sleep(100);
+        }
+
+        assertThat(grantTypes.subList(0, 2), contains("password", "refresh_token"));
+        assertThat(refreshes("refresh", "background"), is(1.0));
+    }
+
+    @Test
+    void shouldNotRefreshTokenWithoutLifetimeInBackground() throws InterruptedException {
+        expiresIn = 0;
+        tokenManager.getAccessToken();
+
+        Thread.sleep(500);
+
+        assertThat(grantTypes, contains("password"));
+        assertThat(meterRegistry.find(SharedTokenManager.REFRESHES_METRIC).tag("trigger", "background").counter() == null, is(true));
+    }
+
+    @Test
+    void shouldReplaceAndInvalidateTokenOfAdminClient() {
+        client.register(tokenManager.getAuthFilter());
+
+        // keycloak rejects token-1, which is invalidated, so the next call is sent with a refreshed token
+        try (Response response = client.target("http://localhost:" + server.getAddress().getPort() + "/admin")
+                .register(new BearerAuthFilter("stale")).request().get()) {
+            assertThat(response.getStatus(), is(401));
+        }
+
+        try (Response response = client.target("http://localhost:" + server.getAddress().getPort() + "/admin")
+                .register(new BearerAuthFilter("stale")).request().get()) {
+            assertThat(response.getStatus(), is(200));
+            assertThat(response.readEntity(String.class), is("Bearer token-2"));
+        }
+
+        assertThat(grantTypes, contains("password", "refresh_token"));
+        assertThat(refreshes("refresh", "caller"), is(1.0));
+    }
+
+    @Test
+    void shouldContinueRestoredSession() {
+        tokenManager.restore("refresh-0", Instant.now().plusSeconds(60));
+
+        assertThat(tokenManager.getAccessTokenString(), is("token-1"));
+        assertThat(tokenManager.getRefreshToken(), is("refresh-1"));
+        assertThat(grantTypes, contains("refresh_token"));
+    }
+
+    @Test
+    void shouldLoginIfRestoredSessionEnded() {
+        tokenManager.restore("revoked", Instant.now().plusSeconds(60));
+
+        assertThat(tokenManager.getAccessTokenString(), is("token-1"));
+        assertThat(grantTypes, contains("refresh_token", "password"));
+        assertThat(refreshes("grant", "caller"), is(1.0));
+    }
+
+    private double refreshes(String type, String trigger) {
+        return meterRegistry.get(SharedTokenManager.REFRESHES_METRIC)
+                .tag("type", type).tag("trigger", trigger).tag("outcome", "success")
+                .counter().count();
+    }
+
+    private static void respond(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        byte[] response = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, response.length);
+        try (OutputStream stream = exchange.getResponseBody()) {
+            stream.write(response);
+        }
+    }
+}
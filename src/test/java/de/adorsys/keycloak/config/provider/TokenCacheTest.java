@@ -0,0 +1,122 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2021 adorsys GmbH & Co. KG @ https://adorsys.com
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.provider;
+
+import de.adorsys.keycloak.config.extensions.GithubActionsExtension;
+import de.adorsys.keycloak.config.properties.KeycloakConfigProperties;
+import de.adorsys.keycloak.config.properties.KeycloakConfigProperties.KeycloakTokenCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(GithubActionsExtension.class)
+class TokenCacheTest {
+    private static final String IDENTITY = "http://localhost:8080\nmaster\nadmin-cli\npassword\nadmin";
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldRequireCredentials() throws IOException {
+        assertThat(KeycloakProvider.getTokenCache(keycloakConfigProperties(null, null), true, meterRegistry), is(nullValue()));
+        assertThat(KeycloakProvider.getTokenCache(keycloakConfigProperties("", ""), true, meterRegistry), is(nullValue()));
+        assertThat(KeycloakProvider.getTokenCache(keycloakConfigProperties("admin123", null), true, meterRegistry), is(notNullValue()));
+        assertThat(KeycloakProvider.getTokenCache(keycloakConfigProperties(null, "secret"), true, meterRegistry), is(notNullValue()));
+    }
+
+    @Test
+    void shouldRestoreSavedSession() throws IOException {
+        TokenCache cache = new TokenCache(directory, Duration.ofMinutes(5), IDENTITY, "admin123", meterRegistry);
+        cache.save("refresh-token", Instant.now().plusSeconds(1800), "19.0.1");
+
+        Optional<TokenCache.Entry> entry = new TokenCache(directory, Duration.ofMinutes(5), IDENTITY, "admin123", meterRegistry).load();
+
+        assertThat(entry.isPresent(), is(true));
+        assertThat(entry.get().getRefreshToken(), is("refresh-token"));
+        assertThat(entry.get().getVersion(), is("19.0.1"));
+        assertThat(new String(Files.readAllBytes(cache.getFile()), StandardCharsets.ISO_8859_1).contains("refresh-token"), is(false));
+        assertThat(cacheLookups("hit"), is(1.0));
+    }
+
+    @Test
+    void shouldExpireWithRefreshToken() {
+        TokenCache cache = new TokenCache(directory, Duration.ofMinutes(5), IDENTITY, "admin123", meterRegistry);
+        cache.save("refresh-token", Instant.now().minusSeconds(1), "19.0.1");
+
+        assertThat(cache.load().isPresent(), is(false));
+        assertThat(Files.exists(cache.getFile()), is(false));
+        assertThat(cacheLookups("expired"), is(1.0));
+    }
+
+    @Test
+    void shouldIgnoreSessionOfOtherCredentials() {
+        new TokenCache(directory, Duration.ofMinutes(5), IDENTITY, "admin123", meterRegistry)
+                .save("refresh-token", Instant.now().plusSeconds(1800), "19.0.1");
+
+        TokenCache changedPassword = new TokenCache(directory, Duration.ofMinutes(5), IDENTITY, "changed", meterRegistry);
+        TokenCache otherUser = new TokenCache(directory, Duration.ofMinutes(5), IDENTITY + "2", "admin123", meterRegistry);
+
+        assertThat(otherUser.getFile(), is(not(changedPassword.getFile())));
+        assertThat(otherUser.load().isPresent(), is(false));
+        assertThat(changedPassword.load().isPresent(), is(false));
+        assertThat(Files.exists(changedPassword.getFile()), is(false));
+        assertThat(cacheLookups("missing"), is(1.0));
+        assertThat(cacheLookups("invalid"), is(1.0));
+    }
+
+    private double cacheLookups(String result) {
+        return meterRegistry.get(TokenCache.CACHE_METRIC).tag("result", result).counter().count();
+    }
+
+    private KeycloakConfigProperties keycloakConfigProperties(String password, String clientSecret) throws IOException {
+        KeycloakConfigProperties properties = mock(KeycloakConfigProperties.class);
+        when(properties.getTokenCache()).thenReturn(new KeycloakTokenCache(true, directory.toString(), Duration.ofMinutes(5)));
+        when(properties.getUrl()).thenReturn(new URL("http://localhost:8080"));
+        when(properties.getLoginRealm()).thenReturn("master");
+        when(properties.getClientId()).thenReturn("admin-cli");
+        when(properties.getGrantType()).thenReturn("password");
+        when(properties.getUser()).thenReturn("admin");
+        when(properties.getPassword()).thenReturn(password);
+        when(properties.getClientSecret()).thenReturn(clientSecret);
+        return properties;
+    }
+}
@@ -0,0 +1,160 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2021 adorsys GmbH & Co. KG @ https://adorsys.com
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.repository;
+
+import de.adorsys.keycloak.config.extensions.GithubActionsExtension;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.keycloak.representations.idm.GroupRepresentation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+@ExtendWith(GithubActionsExtension.class)
+class GroupTreeTest {
+    private GroupTree groupTree;
+
+    @BeforeEach
+    void setUp() {
+        groupTree = new GroupTree();
+
+        GroupRepresentation parent = group("1", "parent", "/parent");
+        GroupRepresentation child = group("2", "child", "/parent/child");
+        GroupRepresentation grandChild = group("3", "grandchild", "/parent/child/grandchild");
+
+        child.getSubGroups().add(grandChild);
+        parent.getSubGroups().add(child);
+
+        groupTree.add(null, parent);
+        groupTree.add(null, group("4", "other", "/other"));
+    }
+
+    @Test
+    void shouldIndexGroupsByIdAndPath() {
+        assertThat(groupTree.getById("3").getPath(), is("/parent/child/grandchild"));
+        assertThat(groupTree.getByPath("/parent/child").getId(), is("2"));
+        assertThat(groupTree.getByPath("parent/child").getId(), is("2"));
+        assertThat(groupTree.getByPath("/parent/other"), is(nullValue()));
+
+        assertThat(getNames(groupTree.getTopLevelGroups()), contains("parent", "other"));
+        assertThat(groupTree.getTopLevelGroupByName("parent").getSubGroups().get(0).getSubGroups().get(0).getId(), is("3"));
+        assertThat(groupTree.getSubGroupByName("1", "child").getId(), is("2"));
+    }
+
+    @Test
+    void shouldReturnReferencesWithoutSubGroups() {
+        groupTree.addRealmRoles("1", List.of("role"));
+
+        GroupRepresentation group = groupTree.getByPath("/parent");
+        assertThat(group.getId(), is("1"));
+        assertThat(group.getName(), is("parent"));
+        assertThat(group.getPath(), is("/parent"));
+        assertThat(group.getSubGroups(), is(nullValue()));
+        assertThat(group.getRealmRoles(), is(nullValue()));
+
+        assertThat(groupTree.searchTopLevelGroupByName("parent").getSubGroups(), is(nullValue()));
+        assertThat(groupTree.searchTopLevelGroupByName("child"), is(nullValue()));
+        assertThat(groupTree.getTopLevelGroups().get(0).getSubGroups(), is(nullValue()));
+    }
+
+    @Test
+    void shouldReturnIndependentCopies() {
+        groupTree.addRealmRoles("2", List.of("role"));
+
+        GroupRepresentation group = groupTree.getById("1");
+        group.getSubGroups().get(0).getRealmRoles().add("other-role");
+        group.getSubGroups().clear();
+
+        assertThat(groupTree.getById("2").getRealmRoles(), contains("role"));
+        assertThat(getNames(groupTree.getById("1").getSubGroups()), contains("child"));
+    }
+
+    @Test
+    void shouldIndexAddedSubGroupWithoutPath() {
+        groupTree.add("2", group("5", "new", null));
+
+        assertThat(groupTree.getByPath("/parent/child/new").getId(), is("5"));
+        assertThat(getNames(groupTree.getById("2").getSubGroups()), contains("grandchild", "new"));
+    }
+
+    @Test
+    void shouldReindexDescendantsOnRename() {
+        GroupRepresentation renamedGroup = new GroupRepresentation();
+        renamedGroup.setId("2");
+        renamedGroup.setName("renamed");
+
+        groupTree.update(renamedGroup);
+
+        assertThat(groupTree.getByPath("/parent/child"), is(nullValue()));
+        assertThat(groupTree.getByPath("/parent/child/grandchild"), is(nullValue()));
+        assertThat(groupTree.getByPath("/parent/renamed").getName(), is("renamed"));
+        assertThat(groupTree.getByPath("/parent/renamed/grandchild").getId(), is("3"));
+        assertThat(groupTree.getById("3").getPath(), is("/parent/renamed/grandchild"));
+        assertThat(groupTree.getSubGroupByName("1", "renamed").getId(), is("2"));
+    }
+
+    @Test
+    void shouldRemoveGroupWithDescendants() {
+        groupTree.remove("2");
+
+        assertThat(groupTree.getById("2"), is(nullValue()));
+        assertThat(groupTree.getById("3"), is(nullValue()));
+        assertThat(groupTree.getByPath("/parent/child/grandchild"), is(nullValue()));
+        assertThat(groupTree.getById("1").getSubGroups(), is(empty()));
+
+        groupTree.remove("4");
+
+        assertThat(getNames(groupTree.getTopLevelGroups()), contains("parent"));
+    }
+
+    @Test
+    void shouldTrackRoleMappings() {
+        groupTree.addRealmRoles("2", List.of("role1", "role2"));
+        groupTree.removeRealmRoles("2", List.of("role1"));
+        groupTree.addClientRoles("2", "client", List.of("client-role"));
+
+        GroupRepresentation group = groupTree.getById("2");
+        assertThat(group.getRealmRoles(), contains("role2"));
+        assertThat(group.getClientRoles(), hasEntry(is("client"), contains("client-role")));
+
+        groupTree.removeClientRoles("2", "client", List.of("client-role"));
+
+        assertThat(groupTree.getById("2").getClientRoles(), not(hasKey("client")));
+    }
+
+    private GroupRepresentation group(String id, String name, String path) {
+        GroupRepresentation group = new GroupRepresentation();
+        group.setId(id);
+        group.setName(name);
+        group.setPath(path);
+        group.setSubGroups(new ArrayList<>());
+        return group;
+    }
+
+    private List<String> getNames(List<GroupRepresentation> groups) {
+        return groups.stream().map(GroupRepresentation::getName).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,120 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2021 adorsys GmbH & Co. KG @ https://adorsys.com
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.service;
+
+import de.adorsys.keycloak.config.extensions.GithubActionsExtension;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.keycloak.representations.idm.ComponentRepresentation;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+@ExtendWith(GithubActionsExtension.class)
+class ComponentTreeTest {
+    private static final String REALM_ID = "realm-id";
+    private static final String USER_STORAGE = "org.keycloak.storage.UserStorageProvider";
+    private static final String MAPPER = "org.keycloak.storage.ldap.mappers.LDAPStorageMapper";
+
+    private ComponentTree componentTree;
+
+    @BeforeEach
+    void setUp() {
+        componentTree = new ComponentTree(REALM_ID, List.of(
+                component("1", REALM_ID, USER_STORAGE, null, "ldap"),
+                component("2", "1", MAPPER, null, "email"),
+                component("3", "1", MAPPER, null, "group-mapper"),
+                component("4", "3", MAPPER, null, "nested"),
+                component("5", REALM_ID, USER_STORAGE, null, "other-ldap"),
+                component("6", "5", MAPPER, null, "email")
+        ));
+    }
+
+    @Test
+    void shouldSearchTopLevelComponentsByRealmId() {
+        assertThat(componentTree.search(null, USER_STORAGE, null, "ldap").map(ComponentRepresentation::getId), is(Optional.of("1")));
+        assertThat(componentTree.search(REALM_ID, USER_STORAGE, null, "ldap").map(ComponentRepresentation::getId), is(Optional.of("1")));
+        assertThat(getIds(componentTree.getChildren(null)), contains("1", "5"));
+    }
+
+    @Test
+    void shouldSearchComponentsByParentProviderTypeAndName() {
+        assertThat(componentTree.search("1", MAPPER, null, "email").map(ComponentRepresentation::getId), is(Optional.of("2")));
+        assertThat(componentTree.search("5", MAPPER, null, "email").map(ComponentRepresentation::getId), is(Optional.of("6")));
+        assertThat(componentTree.search("3", MAPPER, null, "nested").map(ComponentRepresentation::getId), is(Optional.of("4")));
+
+        assertThat(componentTree.search(null, MAPPER, null, "email"), is(Optional.empty()));
+        assertThat(componentTree.search("1", USER_STORAGE, null, "email"), is(Optional.empty()));
+        assertThat(componentTree.search("1", MAPPER, "other-sub-type", "email"), is(Optional.empty()));
+    }
+
+    @Test
+    void shouldKeepTopLevelComponentWithoutParentIdUnderRealm() {
+        componentTree.add(component("7", null, USER_STORAGE, null, "new-ldap"));
+
+        assertThat(componentTree.search(null, USER_STORAGE, null, "new-ldap").map(ComponentRepresentation::getId), is(Optional.of("7")));
+        assertThat(getIds(componentTree.getChildren(null)), contains("1", "5", "7"));
+    }
+
+    @Test
+    void shouldReindexReplacedComponent() {
+        componentTree.replace(component("2", "1", MAPPER, null, "renamed"));
+
+        assertThat(componentTree.search("1", MAPPER, null, "email"), is(Optional.empty()));
+        assertThat(componentTree.search("1", MAPPER, null, "renamed").map(ComponentRepresentation::getId), is(Optional.of("2")));
+        assertThat(getIds(componentTree.getChildren("1")), containsInAnyOrder("2", "3"));
+    }
+
+    @Test
+    void shouldRemoveSubComponentsWithParent() {
+        componentTree.remove(component("3", "1", MAPPER, null, "group-mapper"));
+
+        assertThat(getIds(componentTree.getChildren("1")), contains("2"));
+        assertThat(componentTree.getChildren("3"), is(empty()));
+        assertThat(componentTree.search("3", MAPPER, null, "nested"), is(Optional.empty()));
+    }
+
+    @Test
+    void shouldReturnCopyOfChildren() {
+        componentTree.getChildren("1").clear();
+
+        assertThat(getIds(componentTree.getChildren("1")), contains("2", "3"));
+    }
+
+    private static List<String> getIds(List<ComponentRepresentation> components) {
+        return components.stream().map(ComponentRepresentation::getId).collect(Collectors.toList());
+    }
+
+    private static ComponentRepresentation component(String id, String parentId, String providerType, String subType, String name) {
+        ComponentRepresentation component = new ComponentRepresentation();
+        component.setId(id);
+        component.setParentId(parentId);
+        component.setProviderType(providerType);
+        component.setSubType(subType);
+        component.setName(name);
+        return component;
+    }
+}
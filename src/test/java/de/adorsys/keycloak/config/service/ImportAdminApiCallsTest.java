@@ -0,0 +1,198 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2021 adorsys GmbH & Co. KG @ https://adorsys.com
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.service;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.adorsys.keycloak.config.configuration.TestConfiguration;
+import de.adorsys.keycloak.config.extensions.GithubActionsExtension;
+import de.adorsys.keycloak.config.model.RealmImport;
+import de.adorsys.keycloak.config.test.util.KeycloakAdminApiStub;
+import de.adorsys.keycloak.config.test.util.RealmGenerator;
+import de.adorsys.keycloak.config.util.resteasy.MetricsClientFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.ConfigDataApplicationContextInitializer;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+/**
+ * Upper bounds of the keycloak admin API calls of an import, counted by the {@link MetricsClientFilter} of the admin client.
+ *
+ * <p>The admin API is emulated by the {@link KeycloakAdminApiStub}, so these tests run without a keycloak. A failing budget
+ * usually means a repository started to call keycloak per entity, e.g. to look up a group or role which was already fetched.
+ * If the additional calls are intended, raise the budget in the same change.
+ */
+@ExtendWith(SpringExtension.class)
+@ExtendWith(GithubActionsExtension.class)
+@ContextConfiguration(
+        classes = {TestConfiguration.class},
+        initializers = {ConfigDataApplicationContextInitializer.class}
+)
+@TestPropertySource(properties = {
+        "spring.main.log-startup-info=false",
+        "keycloak.password=admin",
+        "import.files.locations=default",
+        "import.cache.enabled=false",
+})
+class ImportAdminApiCallsTest {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static final KeycloakAdminApiStub KEYCLOAK = new KeycloakAdminApiStub(Duration.ZERO);
+
+    // the imports log every entity on DEBUG, which is only noise for the call counts
+    private static final Logger IMPORT_LOGGER = (Logger) LoggerFactory.getLogger("de.adorsys.keycloak.config");
+    private static final Level IMPORT_LOG_LEVEL = IMPORT_LOGGER.getLevel();
+
+    // calls of the import of a realm without any entities, including the login of the admin client
+    private static final long REALM_CREATE_CALLS = 20;
+    private static final long REALM_UPDATE_CALLS = 20;
+
+    @Autowired
+    private RealmImportService realmImportService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @DynamicPropertySource
+    static void keycloakProperties(DynamicPropertyRegistry registry) {
+        registry.add("keycloak.url", KEYCLOAK::getUrl);
+    }
+
+    @BeforeAll
+    static void quietImportLogging() {
+        IMPORT_LOGGER.setLevel(Level.INFO);
+    }
+
+    @AfterAll
+    static void stopKeycloak() {
+        KEYCLOAK.close();
+        IMPORT_LOGGER.setLevel(IMPORT_LOG_LEVEL);
+    }
+
+    @Test
+    void shouldStayInBudgetForEmptyRealm() {
+        RealmGenerator realm = new RealmGenerator("budget-empty");
+
+        assertCallBudget("create of empty realm", realm, REALM_CREATE_CALLS);
+        assertCallBudget("update of unchanged empty realm", realm, REALM_UPDATE_CALLS);
+    }
+
+    @Test
+    void shouldStayInBudgetForUsers() {
+        // the budget is per user, so a few hundred users already reveal an additional call per user
+        RealmGenerator realm = new RealmGenerator("budget-users").users(200);
+
+        assertCallBudget("create of 200 users", realm, REALM_CREATE_CALLS + 200 * 4);
+        assertCallBudget("update of 200 unchanged users", realm, REALM_UPDATE_CALLS + 200 * 3);
+    }
+
+    @Test
+    void shouldStayInBudgetForUsersWithRolesAndGroups() {
+        RealmGenerator realm = new RealmGenerator("budget-user-memberships").users(100).roles(10, 0).groups(10, 2);
+
+        assertCallBudget("create of 100 users with roles and groups", realm, REALM_CREATE_CALLS + 100 * 8 + 10 * 5);
+        assertCallBudget("update of 100 unchanged users with roles and groups", realm, REALM_UPDATE_CALLS + 100 * 3 + 10 * 5);
+    }
+
+    @Test
+    void shouldStayInBudgetForGroups() {
+        RealmGenerator realm = new RealmGenerator("budget-groups").groups(100, 3);
+
+        assertCallBudget("create of 100 nested groups", realm, REALM_CREATE_CALLS + 100);
+        assertCallBudget("update of 100 unchanged nested groups", realm, REALM_UPDATE_CALLS + 100);
+    }
+
+    @Test
+    void shouldStayInBudgetForClients() {
+        RealmGenerator realm = new RealmGenerator("budget-clients").clients(100);
+
+        assertCallBudget("create of 100 clients", realm, REALM_CREATE_CALLS + 100 * 3);
+        assertCallBudget("update of 100 unchanged clients", realm, REALM_UPDATE_CALLS + 100 * 2);
+    }
+
+    @Test
+    void shouldStayInBudgetForClientAuthorization() {
+        RealmGenerator realm = new RealmGenerator("budget-authorization").clients(20).resources(2);
+
+        assertCallBudget("create of 20 clients with authorization settings", realm, REALM_CREATE_CALLS + 20 * 15);
+        assertCallBudget("update of 20 unchanged clients with authorization settings", realm, REALM_UPDATE_CALLS + 20 * 6);
+    }
+
+    @Test
+    void shouldStayInBudgetForRoles() {
+        RealmGenerator realm = new RealmGenerator("budget-roles").roles(100, 0);
+
+        assertCallBudget("create of 100 roles", realm, REALM_CREATE_CALLS + 100);
+        assertCallBudget("update of 100 unchanged roles", realm, REALM_UPDATE_CALLS + 5);
+    }
+
+    @Test
+    void shouldStayInBudgetForCompositeRoles() {
+        RealmGenerator realm = new RealmGenerator("budget-composites").roles(100, 3);
+
+        assertCallBudget("create of 100 composite roles", realm, REALM_CREATE_CALLS + 100 * 4);
+        assertCallBudget("update of 100 unchanged composite roles", realm, REALM_UPDATE_CALLS + 100 * 3);
+    }
+
+    private void assertCallBudget(String scenario, RealmGenerator realm, long budget) {
+        RealmImport realmImport = OBJECT_MAPPER.convertValue(realm.generate(), RealmImport.class);
+        realmImport.setChecksum(scenario);
+
+        Map<String, Long> callsBefore = getCallsByEndpoint();
+        realmImportService.doImport(realmImport);
+        Map<String, Long> callsAfter = getCallsByEndpoint();
+
+        callsAfter.replaceAll((endpoint, count) -> count - callsBefore.getOrDefault(endpoint, 0L));
+        callsAfter.values().removeIf(count -> count == 0);
+        long calls = callsAfter.values().stream().mapToLong(Long::longValue).sum();
+
+        assertThat(scenario + " called the admin API " + calls + " times: " + callsAfter, calls, lessThanOrEqualTo(budget));
+    }
+
+    private Map<String, Long> getCallsByEndpoint() {
+        return meterRegistry.find(MetricsClientFilter.REQUESTS_METRIC).timers().stream()
+                .collect(Collectors.toMap(
+                        timer -> timer.getId().getTag("method") + " " + timer.getId().getTag("uri"),
+                        Timer::count,
+                        Long::sum,
+                        TreeMap::new
+                ));
+    }
+}
@@ -0,0 +1,198 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2021 adorsys GmbH & Co. KG @ https://adorsys.com
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.service;
+
+import de.adorsys.keycloak.config.AbstractImportIT;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.keycloak.admin.client.resource.AuthenticationManagementResource;
+import org.keycloak.representations.idm.AuthenticationExecutionInfoRepresentation;
+import org.keycloak.representations.idm.AuthenticationFlowRepresentation;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+@TestPropertySource(properties = {
+        "import.cache.enabled=false"
+})
+class ImportAuthenticationFlowsReconcileIT extends AbstractImportIT {
+    private static final String REALM_NAME = "realmWithReconciledFlow";
+    private static final String FLOW_ALIAS = "my reconciled flow";
+    private static final String SUB_FLOW_ALIAS = "my reconciled forms";
+
+    private static String flowId;
+    private static Map<String, String> executionIds;
+
+    ImportAuthenticationFlowsReconcileIT() {
+        this.resourcePath = "import-files/auth-flows-reconcile";
+    }
+
+    @Test
+    @Order(0)
+    void shouldCreateRealmWithFlow() throws IOException {
+        doImport("00_create_realm_with_flow.json");
+
+        flowId = getFlow().getId();
+        executionIds = getExecutionIds();
+
+        assertThat(getExecutionOrder(0), contains("auth-cookie", "identity-provider-redirector", SUB_FLOW_ALIAS));
+        assertThat(getExecutionOrder(1), contains("auth-username-password-form", "auth-otp-form"));
+    }
+
+    @Test
+    @Order(1)
+    void shouldUpdateRequirementAndConfigInPlace() throws IOException {
+        doImport("01_update_realm__change_requirement_and_config.json");
+
+        assertThat(getFlow().getId(), is(flowId));
+        assertThat(getExecutionIds(), is(executionIds));
+
+        AuthenticationExecutionInfoRepresentation redirector = getExecution("identity-provider-redirector");
+        assertThat(redirector.getRequirement(), is("DISABLED"));
+        assertThat(getFlows().getAuthenticatorConfig(redirector.getAuthenticationConfig()).getAlias(), is("my other redirector"));
+        assertThat(getExecution("auth-otp-form").getRequirement(), is("DISABLED"));
+    }
+
+    @Test
+    @Order(2)
+    void shouldAddExecutionToSubFlowInPlace() throws IOException {
+        doImport("02_update_realm__add_execution_to_sub_flow.json");
+
+        assertThat(getFlow().getId(), is(flowId));
+
+        Map<String, String> updatedExecutionIds = getExecutionIds();
+        assertThat(updatedExecutionIds, hasKey("auth-spnego"));
+        executionIds.forEach((execution, id) -> assertThat(updatedExecutionIds, hasEntry(execution, id)));
+
+        assertThat(getExecutionOrder(1), contains("auth-username-password-form", "auth-spnego", "auth-otp-form"));
+
+        executionIds = updatedExecutionIds;
+    }
+
+    @Test
+    @Order(3)
+    void shouldRemoveExecutionFromSubFlowInPlace() throws IOException {
+        doImport("03_update_realm__remove_execution_from_sub_flow.json");
+
+        assertThat(getFlow().getId(), is(flowId));
+
+        Map<String, String> updatedExecutionIds = getExecutionIds();
+        assertThat(updatedExecutionIds, not(hasKey("auth-otp-form")));
+        updatedExecutionIds.forEach((execution, id) -> assertThat(executionIds, hasEntry(execution, id)));
+
+        assertThat(getExecutionOrder(1), contains("auth-username-password-form", "auth-spnego"));
+
+        executionIds = updatedExecutionIds;
+    }
+
+    @Test
+    @Order(4)
+    void shouldReorderExecutionsInPlace() throws IOException {
+        doImport("04_update_realm__reorder_executions.json");
+
+        assertThat(getFlow().getId(), is(flowId));
+        assertThat(getExecutionIds(), is(executionIds));
+
+        assertThat(getExecutionOrder(0), contains(SUB_FLOW_ALIAS, "auth-cookie", "identity-provider-redirector"));
+        assertThat(getExecutionOrder(1), contains("auth-spnego", "auth-username-password-form"));
+    }
+
+    @Test
+    @Order(5)
+    void shouldNotChangeAnythingOnSecondRun() throws IOException {
+        List<AuthenticationExecutionInfoRepresentation> executions = getFlows().getExecutions(FLOW_ALIAS);
+
+        doImport("04_update_realm__reorder_executions.json");
+
+        assertThat(getFlow().getId(), is(flowId));
+
+        List<AuthenticationExecutionInfoRepresentation> unchangedExecutions = getFlows().getExecutions(FLOW_ALIAS);
+        assertThat(unchangedExecutions, hasSize(executions.size()));
+
+        for (int i = 0; i < executions.size(); i++) {
+            assertThat(unchangedExecutions.get(i).getId(), is(executions.get(i).getId()));
+            assertThat(unchangedExecutions.get(i).getIndex(), is(executions.get(i).getIndex()));
+            assertThat(unchangedExecutions.get(i).getRequirement(), is(executions.get(i).getRequirement()));
+            assertThat(unchangedExecutions.get(i).getAuthenticationConfig(), is(executions.get(i).getAuthenticationConfig()));
+        }
+    }
+
+    @Test
+    @Order(6)
+    void shouldRecreateFlowWhenSubFlowTypeChanged() throws IOException {
+        doImport("05_update_realm__change_sub_flow_type.json");
+
+        AuthenticationFlowRepresentation flow = getFlow();
+        assertThat(flow.getId(), not(is(flowId)));
+
+        AuthenticationFlowRepresentation subFlow = getFlows().getFlows().stream()
+                .filter(f -> f.getAlias().equals(SUB_FLOW_ALIAS))
+                .findFirst()
+                .orElseThrow();
+        assertThat(subFlow.getProviderId(), is("form-flow"));
+
+        assertThat(getExecutionOrder(0), contains(SUB_FLOW_ALIAS, "auth-cookie", "identity-provider-redirector"));
+        assertThat(getExecutionOrder(1), contains("registration-user-creation", "registration-profile-action"));
+    }
+
+    private AuthenticationManagementResource getFlows() {
+        return keycloakProvider.getInstance().realm(REALM_NAME).flows();
+    }
+
+    private AuthenticationFlowRepresentation getFlow() {
+        return getFlows().getFlows().stream()
+                .filter(flow -> flow.getAlias().equals(FLOW_ALIAS))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private AuthenticationExecutionInfoRepresentation getExecution(String execution) {
+        return getFlows().getExecutions(FLOW_ALIAS).stream()
+                .filter(e -> getExecutionName(e).equals(execution))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private Map<String, String> getExecutionIds() {
+        return getFlows().getExecutions(FLOW_ALIAS).stream()
+                .collect(Collectors.toMap(this::getExecutionName, AuthenticationExecutionInfoRepresentation::getId));
+    }
+
+    /**
+     * Keycloak returns the executions of a flow depth-first and ordered by priority.
+     */
+    private List<String> getExecutionOrder(int level) {
+        return getFlows().getExecutions(FLOW_ALIAS).stream()
+                .filter(e -> e.getLevel() == level)
+                .map(this::getExecutionName)
+                .collect(Collectors.toList());
+    }
+
+    private String getExecutionName(AuthenticationExecutionInfoRepresentation execution) {
+        return Boolean.TRUE.equals(execution.getAuthenticationFlow()) ? execution.getDisplayName() : execution.getProviderId();
+    }
+}
@@ -0,0 +1,195 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2021 adorsys GmbH & Co. KG @ https://adorsys.com
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.adorsys.keycloak.config.configuration.TestConfiguration;
+import de.adorsys.keycloak.config.extensions.GithubActionsExtension;
+import de.adorsys.keycloak.config.model.RealmImport;
+import de.adorsys.keycloak.config.repository.ComponentRepository;
+import de.adorsys.keycloak.config.repository.RealmRepository;
+import de.adorsys.keycloak.config.test.util.KeycloakAdminApiStub;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.keycloak.representations.idm.ComponentRepresentation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.ConfigDataApplicationContextInitializer;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Create, update and delete decisions for nested sub-components, against the {@link KeycloakAdminApiStub}.
+ */
+@ExtendWith(SpringExtension.class)
+@ExtendWith(GithubActionsExtension.class)
+@ContextConfiguration(
+        classes = {TestConfiguration.class},
+        initializers = {ConfigDataApplicationContextInitializer.class}
+)
+@TestPropertySource(properties = {
+        "spring.main.log-startup-info=false",
+        "keycloak.password=admin",
+        "import.files.locations=default",
+        "import.cache.enabled=false",
+})
+class ImportSubComponentsTest {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static final KeycloakAdminApiStub KEYCLOAK = new KeycloakAdminApiStub(Duration.ZERO);
+
+    private static final String REALM_NAME = "nested-sub-components";
+    private static final String USER_STORAGE = "org.keycloak.storage.UserStorageProvider";
+    private static final String MAPPER = "org.keycloak.storage.ldap.mappers.LDAPStorageMapper";
+
+    private static final String CREATE_COMPONENT = "POST /admin/realms/{realm}/components";
+    private static final String UPDATE_COMPONENT = "PUT /admin/realms/{realm}/components/{id}";
+    private static final String DELETE_COMPONENT = "DELETE /admin/realms/{realm}/components/{id}";
+
+    @Autowired
+    private RealmImportService realmImportService;
+
+    @Autowired
+    private RealmRepository realmRepository;
+
+    @Autowired
+    private ComponentRepository componentRepository;
+
+    @DynamicPropertySource
+    static void keycloakProperties(DynamicPropertyRegistry registry) {
+        registry.add("keycloak.url", KEYCLOAK::getUrl);
+    }
+
+    @AfterAll
+    static void stopKeycloak() {
+        KEYCLOAK.close();
+    }
+
+    @Test
+    void shouldCreateUpdateAndDeleteNestedSubComponents() {
+        realmImportService.doImport(realm(
+                userStorage("ldap",
+                        mapper("email", "mail"),
+                        mapper("groups", "memberOf", mapper("nested", "cn"))),
+                userStorage("other-ldap",
+                        mapper("email", "mail"))
+        ));
+
+        String realmId = realmRepository.get(REALM_NAME).getId();
+        ComponentRepresentation ldap = getComponent(realmId, USER_STORAGE, "ldap");
+        ComponentRepresentation otherLdap = getComponent(realmId, USER_STORAGE, "other-ldap");
+        ComponentRepresentation email = getComponent(ldap.getId(), MAPPER, "email");
+        ComponentRepresentation groups = getComponent(ldap.getId(), MAPPER, "groups");
+
+        assertThat(getComponent(otherLdap.getId(), MAPPER, "email").getId(), is(not(email.getId())));
+        assertThat(getComponent(groups.getId(), MAPPER, "nested").getConfig().getFirst("ldap.attribute"), is("cn"));
+        assertThat(componentRepository.getAll(REALM_NAME), hasSize(6));
+
+        // unchanged import, the sub-components are found below their parent
+        KEYCLOAK.resetCallCounts();
+        realmImportService.doImport(realm(
+                userStorage("ldap",
+                        mapper("email", "mail"),
+                        mapper("groups", "memberOf", mapper("nested", "cn"))),
+                userStorage("other-ldap",
+                        mapper("email", "mail"))
+        ));
+
+        assertThat(KEYCLOAK.getCallCounts(), not(hasKey(CREATE_COMPONENT)));
+        assertThat(KEYCLOAK.getCallCounts(), not(hasKey(DELETE_COMPONENT)));
+        assertThat(componentRepository.getAll(REALM_NAME), hasSize(6));
+
+        // the removed mapper is deleted together with its nested mapper, the removed user storage together with its mapper
+        KEYCLOAK.resetCallCounts();
+        realmImportService.doImport(realm(
+                userStorage("ldap",
+                        mapper("email", "email"),
+                        mapper("username", "uid"))
+        ));
+
+        assertThat(KEYCLOAK.getCallCounts().get(CREATE_COMPONENT), is(1L));
+        assertThat(KEYCLOAK.getCallCounts().get(DELETE_COMPONENT), is(2L));
+        assertThat(KEYCLOAK.getCallCounts().get(UPDATE_COMPONENT), is(greaterThanOrEqualTo(1L)));
+
+        List<ComponentRepresentation> components = componentRepository.getAll(REALM_NAME);
+        assertThat(getNames(components), containsInAnyOrder("ldap", "email", "username"));
+        assertThat(getComponent(ldap.getId(), MAPPER, "email").getId(), is(email.getId()));
+        assertThat(getComponent(ldap.getId(), MAPPER, "email").getConfig().getFirst("ldap.attribute"), is("email"));
+        assertThat(getComponent(ldap.getId(), MAPPER, "username").getParentId(), is(ldap.getId()));
+    }
+
+    private ComponentRepresentation getComponent(String parentId, String providerType, String name) {
+        return componentRepository.getAll(REALM_NAME).stream()
+                .filter(component -> parentId.equals(component.getParentId()))
+                .filter(component -> providerType.equals(component.getProviderType()))
+                .filter(component -> name.equals(component.getName()))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static List<String> getNames(List<ComponentRepresentation> components) {
+        return components.stream().map(ComponentRepresentation::getName).collect(Collectors.toList());
+    }
+
+    @SafeVarargs
+    private static Map<String, Object> userStorage(String name, Map<String, Object>... mappers) {
+        return Map.of(
+                "name", name,
+                "providerId", "ldap",
+                "subComponents", Map.of(MAPPER, List.of(mappers)),
+                "config", Map.of("enabled", List.of("true"))
+        );
+    }
+
+    @SafeVarargs
+    private static Map<String, Object> mapper(String name, String attribute, Map<String, Object>... nestedMappers) {
+        return Map.of(
+                "name", name,
+                "providerId", "user-attribute-ldap-mapper",
+                "subComponents", nestedMappers.length == 0 ? Map.of() : Map.of(MAPPER, List.of(nestedMappers)),
+                "config", Map.of("ldap.attribute", List.of(attribute))
+        );
+    }
+
+    @SafeVarargs
+    private static RealmImport realm(Map<String, Object>... userStorages) {
+        Map<String, Object> realm = Map.of(
+                "realm", REALM_NAME,
+                "enabled", true,
+                "components", Map.of(USER_STORAGE, List.of(userStorages))
+        );
+
+        RealmImport realmImport = OBJECT_MAPPER.convertValue(realm, RealmImport.class);
+        realmImport.setChecksum(REALM_NAME);
+        return realmImport;
+    }
+}
@@ -0,0 +1,79 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2021 adorsys GmbH & Co. KG @ https://adorsys.com
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.service;
+
+import de.adorsys.keycloak.config.AbstractImportIT;
+import de.adorsys.keycloak.config.extensions.LdapExtension;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.keycloak.representations.idm.GroupRepresentation;
+import org.keycloak.representations.idm.RealmRepresentation;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.hamcrest.core.Is.is;
+
+@TestPropertySource(properties = {
+        "import.behaviors.sync-user-federation=true",
+        "import.behaviors.sync-user-federation-async=true",
+        "import.behaviors.sync-user-federation-action=changed-users",
+        "import.behaviors.skip-attributes-for-federated-user=true",
+        "import.var-substitution.enabled=true"
+})
+class ImportUserFederationAsyncIT extends AbstractImportIT {
+    @RegisterExtension
+    final static LdapExtension ldapExtension = new LdapExtension(
+            "dc=example,dc=org", "embedded-ldap.ldif", "cn=admin,dc=example,dc=org", "admin123"
+    );
+
+    private static final String REALM_NAME = "realmWithLdapAsync";
+
+    public ImportUserFederationAsyncIT() {
+        this.resourcePath = "import-files/user-federation-async";
+    }
+
+    @Test
+    @Order(0)
+    void shouldSyncFederatedUsersBeforeImportingUsers() throws IOException {
+        doImport("00_create_realm_with_federation_and_users.json");
+
+        RealmRepresentation realm = keycloakProvider.getInstance().realm(REALM_NAME).toRepresentation();
+
+        assertThat(realm.getRealm(), is(REALM_NAME));
+        assertThat(realm.isEnabled(), is(true));
+
+        final UserRepresentation user = keycloakRepository.getUser(REALM_NAME, "jbrown");
+        assertThat(user.getFederationLink(), notNullValue());
+        assertThat(user.getEmail(), is("jbrown@keycloak.org"));
+        assertThat(user.getLastName(), is("Brown"));
+        assertThat(user.getFirstName(), is("James"));
+
+        List<GroupRepresentation> userGroups = keycloakProvider.getInstance().realm(REALM_NAME).users().get(user.getId()).groups();
+        assertThat(userGroups, hasSize(1));
+        assertThat(userGroups.get(0).getPath(), is("/realm/group1"));
+    }
+}
@@ -0,0 +1,196 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2021 adorsys GmbH & Co. KG @ https://adorsys.com
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.adorsys.keycloak.config.configuration.TestConfiguration;
+import de.adorsys.keycloak.config.extensions.GithubActionsExtension;
+import de.adorsys.keycloak.config.model.RealmImport;
+import de.adorsys.keycloak.config.service.metrics.ImportMetricsService;
+import de.adorsys.keycloak.config.service.metrics.ImportMetricsService.PhaseMetrics;
+import de.adorsys.keycloak.config.service.metrics.ImportMetricsService.UserFederationSyncMetrics;
+import de.adorsys.keycloak.config.service.metrics.ImportMetricsService.UserFederationSyncStatus;
+import de.adorsys.keycloak.config.test.util.KeycloakAdminApiStub;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.ConfigDataApplicationContextInitializer;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+
+/**
+ * Order of the asynchronous user federation synchronization within a realm import, against the {@link KeycloakAdminApiStub}.
+ */
+@ExtendWith(SpringExtension.class)
+@ExtendWith(GithubActionsExtension.class)
+@ContextConfiguration(
+        classes = {TestConfiguration.class},
+        initializers = {ConfigDataApplicationContextInitializer.class}
+)
+@TestPropertySource(properties = {
+        "spring.main.log-startup-info=false",
+        "keycloak.password=admin",
+        "import.files.locations=default",
+        "import.cache.enabled=false",
+        "import.behaviors.sync-user-federation=true",
+        "import.behaviors.sync-user-federation-async=true",
+        "import.behaviors.sync-user-federation-action=changed-users",
+})
+class ImportUserFederationSyncTest {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static final KeycloakAdminApiStub KEYCLOAK = new KeycloakAdminApiStub(Duration.ZERO);
+
+    private static final Duration SYNC_DURATION = Duration.ofMillis(500);
+
+    @Autowired
+    private RealmImportService realmImportService;
+
+    @Autowired
+    private ImportMetricsService importMetricsService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @DynamicPropertySource
+    static void keycloakProperties(DynamicPropertyRegistry registry) {
+        registry.add("keycloak.url", KEYCLOAK::getUrl);
+    }
+
+    @BeforeEach
+    void slowDownSync() {
+        KEYCLOAK.getUserStorageSyncActions().clear();
+        KEYCLOAK.setUserStorageSyncDuration(SYNC_DURATION);
+    }
+
+    @AfterAll
+    static void stopKeycloak() {
+        KEYCLOAK.close();
+    }
+
+    @Test
+    void shouldSyncUserFederationBeforeUsers() {
+        realmImportService.doImport(realmWithUserFederation("federation-with-users", true));
+
+        List<PhaseMetrics> phases = getPhases("federation-with-users");
+        List<String> phaseNames = phases.stream().map(PhaseMetrics::getPhase).collect(Collectors.toList());
+        int syncPhase = phaseNames.indexOf("user-federation-sync");
+
+        assertThat(KEYCLOAK.getUserStorageSyncActions(), contains("triggerChangedUsersSync"));
+        assertThat(syncPhase, is(lessThan(phaseNames.indexOf("users"))));
+        assertThat(phases.get(syncPhase).getDurationInMillis(), is(greaterThanOrEqualTo(SYNC_DURATION.toMillis() * 0.8)));
+    }
+
+    @Test
+    void shouldSyncUserFederationInBackgroundWithoutUsers() {
+        realmImportService.doImport(realmWithUserFederation("federation-without-users", false));
+
+        List<String> phaseNames = getPhases("federation-without-users").stream()
+                .map(PhaseMetrics::getPhase)
+                .collect(Collectors.toList());
+
+        assertThat(KEYCLOAK.getUserStorageSyncActions(), contains("triggerChangedUsersSync"));
+        assertThat(phaseNames.indexOf("user-federation-sync"), is(phaseNames.indexOf("client-scope-orphans") + 1));
+    }
+
+    @Test
+    void shouldRecordUserFederationSync() {
+        realmImportService.doImport(realmWithUserFederation("federation-metrics", false));
+
+        Timer syncTimer = meterRegistry.get(ImportMetricsService.USER_FEDERATION_SYNC_METRIC)
+                .tag("realm", "federation-metrics")
+                .tag("provider", "ldap")
+                .tag("status", "synced")
+                .timer();
+        assertThat(syncTimer.count(), is(1L));
+        assertThat(syncTimer.totalTime(TimeUnit.MILLISECONDS), is(greaterThanOrEqualTo(SYNC_DURATION.toMillis() * 0.8)));
+
+        assertThat(getSyncedUsers("federation-metrics", "added"), is(3.0));
+        assertThat(getSyncedUsers("federation-metrics", "updated"), is(2.0));
+        assertThat(getSyncedUsers("federation-metrics", "removed"), is(0.0));
+        assertThat(getSyncedUsers("federation-metrics", "failed"), is(1.0));
+
+        // the synchronizations are part of the import report
+        List<UserFederationSyncMetrics> syncs = importMetricsService.getUserFederationSyncs().stream()
+                .filter(sync -> sync.getRealm().equals("federation-metrics"))
+                .collect(Collectors.toList());
+        assertThat(syncs, hasSize(1));
+        assertThat(syncs.get(0).getProvider(), is("ldap"));
+        assertThat(syncs.get(0).getStatus(), is(UserFederationSyncStatus.SYNCED));
+        assertThat(syncs.get(0).getAdded(), is(3));
+        assertThat(syncs.get(0).getFailed(), is(1));
+    }
+
+    private double getSyncedUsers(String realmName, String result) {
+        return meterRegistry.get(ImportMetricsService.USER_FEDERATION_SYNC_USERS_METRIC)
+                .tag("realm", realmName)
+                .tag("provider", "ldap")
+                .tag("result", result)
+                .counter()
+                .count();
+    }
+
+    private List<PhaseMetrics> getPhases(String realmName) {
+        return importMetricsService.getPhases().stream()
+                .filter(phase -> phase.getRealm().equals(realmName))
+                .collect(Collectors.toList());
+    }
+
+    private static RealmImport realmWithUserFederation(String realmName, boolean withUsers) {
+        Map<String, Object> ldap = Map.of(
+                "name", "ldap",
+                "providerId", "ldap",
+                "subComponents", Map.of(),
+                "config", Map.of("importEnabled", List.of("true"), "enabled", List.of("true"))
+        );
+
+        Map<String, Object> realm = withUsers
+                ? Map.of("realm", realmName, "enabled", true,
+                "components", Map.of("org.keycloak.storage.UserStorageProvider", List.of(ldap)),
+                "users", List.of(Map.of("username", "jbrown", "enabled", true)))
+                : Map.of("realm", realmName, "enabled", true,
+                "components", Map.of("org.keycloak.storage.UserStorageProvider", List.of(ldap)));
+
+        RealmImport realmImport = OBJECT_MAPPER.convertValue(realm, RealmImport.class);
+        realmImport.setChecksum(realmName);
+        return realmImport;
+    }
+}
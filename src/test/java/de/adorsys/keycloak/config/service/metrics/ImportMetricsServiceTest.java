@@ -0,0 +1,166 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2021 adorsys GmbH & Co. KG @ https://adorsys.com
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.service.metrics;
+
+import de.adorsys.keycloak.config.extensions.GithubActionsExtension;
+import de.adorsys.keycloak.config.properties.ImportConfigProperties;
+import de.adorsys.keycloak.config.properties.ImportConfigProperties.ImportReportProperties;
+import de.adorsys.keycloak.config.properties.ImportConfigProperties.ImportSlowLogProperties;
+import de.adorsys.keycloak.config.service.metrics.ImportMetricsService.EntityMetrics;
+import de.adorsys.keycloak.config.service.metrics.ImportMetricsService.EntityOutcome;
+import de.adorsys.keycloak.config.service.metrics.ImportMetricsService.ImportContext;
+import de.adorsys.keycloak.config.service.tracing.TracingService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.OpenTelemetry;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(GithubActionsExtension.class)
+class ImportMetricsServiceTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void shouldEmitFlightRecorderEvents() throws IOException {
+        ImportMetricsService importMetricsService = importMetricsService(true, false);
+        Path recordingFile = tempDir.resolve("recording.jfr");
+
+        try (Recording recording = new Recording()) {
+            recording.enable("de.adorsys.keycloak.config.ImportPhase");
+            recording.enable("de.adorsys.keycloak.config.ImportEntity");
+            recording.start();
+
+            importMetricsService.timePhase("test", "clients",
+                    () -> importMetricsService.timeEntity("test", "client", "my-client", () -> EntityOutcome.UPDATED));
+
+            recording.stop();
+            recording.dump(recordingFile);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(recordingFile);
+        assertThat(events, hasSize(2));
+
+        RecordedEvent entityEvent = events.stream()
+                .filter(event -> event.getEventType().getName().equals("de.adorsys.keycloak.config.ImportEntity"))
+                .findFirst().orElseThrow();
+        assertThat(entityEvent.getString("realm"), is("test"));
+        assertThat(entityEvent.getString("type"), is("client"));
+        assertThat(entityEvent.getString("name"), is("my-client"));
+        assertThat(entityEvent.getString("action"), is("updated"));
+
+        RecordedEvent phaseEvent = events.stream()
+                .filter(event -> event.getEventType().getName().equals("de.adorsys.keycloak.config.ImportPhase"))
+                .findFirst().orElseThrow();
+        assertThat(phaseEvent.getString("realm"), is("test"));
+        assertThat(phaseEvent.getString("phase"), is("clients"));
+        assertThat(phaseEvent.getBoolean("failed"), is(false));
+        assertThat(phaseEvent.getDuration().compareTo(entityEvent.getDuration()) >= 0, is(true));
+    }
+
+    @Test
+    void shouldCountAdminApiCallsPerEntity() {
+        ImportMetricsService importMetricsService = importMetricsService(true, false);
+
+        importMetricsService.timePhase("test", "users", () -> {
+            importMetricsService.getCurrentContext().recordCall();
+
+            importMetricsService.timeEntity("test", "user", "my-user", () -> {
+                ImportContext context = importMetricsService.getCurrentContext();
+                assertThat(context.getRealm(), is("test"));
+                assertThat(context.getPhase(), is("users"));
+                assertThat(context.getEntityName(), is("my-user"));
+
+                context.recordCall();
+                context.recordCall();
+                return EntityOutcome.CREATED;
+            });
+
+            assertThat(importMetricsService.getCurrentContext().getEntityType(), is(nullValue()));
+            assertThat(importMetricsService.getCurrentContext().getCalls(), is(1L));
+        });
+
+        assertThat(importMetricsService.getCurrentContext(), is(nullValue()));
+        assertThat(importMetricsService.getEntities().get(0).getCalls(), is(2L));
+    }
+
+    @Test
+    void shouldRetainOnlySlowestEntitiesWithoutReport() {
+        ImportMetricsService importMetricsService = importMetricsService(false, true);
+
+        importMetricsService.timePhase("test", "users", () -> {
+            importMetricsService.timeEntity("test", "user", "fast-1", () -> EntityOutcome.SKIPPED);
+            importMetricsService.timeEntity("test", "user", "slow-1", () -> sleep(EntityOutcome.UPDATED));
+            importMetricsService.timeEntity("test", "user", "fast-2", () -> EntityOutcome.SKIPPED);
+            importMetricsService.timeEntity("test", "user", "slow-2", () -> sleep(EntityOutcome.CREATED));
+            importMetricsService.timeEntity("test", "user", "fast-3", () -> EntityOutcome.SKIPPED);
+        });
+
+        List<String> names = importMetricsService.getEntities().stream().map(EntityMetrics::getName).collect(Collectors.toList());
+        assertThat(names, containsInAnyOrder("slow-1", "slow-2"));
+    }
+
+    @Test
+    void shouldNotRetainEntitiesWithoutReportAndSlowLog() {
+        ImportMetricsService importMetricsService = importMetricsService(false, false);
+
+        importMetricsService.timePhase("test", "users",
+                () -> importMetricsService.timeEntity("test", "user", "my-user", () -> EntityOutcome.CREATED));
+
+        assertThat(importMetricsService.getEntities(), is(empty()));
+        assertThat(importMetricsService.getPhases(), hasSize(1));
+    }
+
+    private static EntityOutcome sleep(EntityOutcome outcome) {
+        try {
+            Thread.sleep(20);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return outcome;
+    }
+
+    private static ImportMetricsService importMetricsService(boolean report, boolean slowLog) {
+        ImportConfigProperties importConfigProperties = mock(ImportConfigProperties.class);
+        when(importConfigProperties.getReport()).thenReturn(new ImportReportProperties(report, "report.json"));
+        when(importConfigProperties.getSlowLog()).thenReturn(new ImportSlowLogProperties(slowLog, Duration.ofSeconds(1), 50, 2));
+
+        return new ImportMetricsService(new SimpleMeterRegistry(), new TracingService(OpenTelemetry.noop()), importConfigProperties);
+    }
+}
@@ -0,0 +1,142 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2021 adorsys GmbH & Co. KG @ https://adorsys.com
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.service.metrics;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.adorsys.keycloak.config.extensions.GithubActionsExtension;
+import de.adorsys.keycloak.config.properties.ImportConfigProperties.ImportReportProperties;
+import de.adorsys.keycloak.config.properties.ImportConfigProperties.ImportSlowLogProperties;
+import de.adorsys.keycloak.config.properties.ImportConfigProperties;
+import de.adorsys.keycloak.config.service.metrics.ImportMetricsService.EntityOutcome;
+import de.adorsys.keycloak.config.service.metrics.ImportMetricsService.UserFederationSyncMetrics;
+import de.adorsys.keycloak.config.service.metrics.ImportMetricsService.UserFederationSyncStatus;
+import de.adorsys.keycloak.config.service.tracing.TracingService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.OpenTelemetry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(GithubActionsExtension.class)
+class ImportReportServiceTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void shouldWriteReport() throws IOException {
+        Path reportFile = tempDir.resolve("report.json");
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ImportConfigProperties importConfigProperties = importConfigProperties(true, reportFile);
+        ImportMetricsService importMetricsService = new ImportMetricsService(
+                meterRegistry, new TracingService(OpenTelemetry.noop()), importConfigProperties
+        );
+        ImportReportService importReportService = new ImportReportService(
+                importConfigProperties, importMetricsService, new AdminApiMetricsService(meterRegistry)
+        );
+
+        importMetricsService.timePhase("test", "clients", () -> {
+            importMetricsService.timeEntity("test", "client", "client-1", () -> EntityOutcome.CREATED);
+            importMetricsService.timeEntity("test", "client", "client-2", () -> EntityOutcome.SKIPPED);
+            importMetricsService.timeEntity("test", "client", "client-3", () -> EntityOutcome.SKIPPED);
+            importMetricsService.timeEntity("test", "client", "client-4", EntityOutcome.DELETED, () -> {
+            });
+        });
+
+        assertThrows(IllegalStateException.class, () -> importMetricsService.timePhase("test", "roles",
+                () -> importMetricsService.timeEntity("test", "realm-role", "role", () -> {
+                    throw new IllegalStateException("failed");
+                })
+        ));
+
+        importMetricsService.recordUserFederationSync(
+                new UserFederationSyncMetrics("test", "ldap", UserFederationSyncStatus.SYNCED, 2_000_000, 3, 2, 0, 1)
+        );
+
+        assertThat(meterRegistry.get(ImportMetricsService.PHASE_METRIC).tag("phase", "clients").timer().count(), is(1L));
+        assertThat(meterRegistry.get(ImportMetricsService.ENTITY_METRIC).tag("outcome", "skipped").timer().count(), is(2L));
+
+        importReportService.writeReport(0, 1000, false);
+
+        JsonNode report = new ObjectMapper().readTree(Files.readString(reportFile));
+        assertThat(report.get("startTime").asText(), is("1970-01-01T00:00:00Z"));
+        assertThat(report.get("durationInMillis").asLong(), is(1000L));
+        assertThat(report.get("successful").asBoolean(), is(false));
+
+        assertThat(report.get("phases").size(), is(2));
+        assertThat(report.get("phases").get(0).get("phase").asText(), is("clients"));
+        assertThat(report.get("phases").get(0).get("failed").asBoolean(), is(false));
+        assertThat(report.get("phases").get(1).get("phase").asText(), is("roles"));
+        assertThat(report.get("phases").get(1).get("failed").asBoolean(), is(true));
+
+        assertThat(report.get("entities").size(), is(5));
+        assertThat(report.get("entities").get(0).get("name").asText(), is("client-1"));
+        assertThat(report.get("entities").get(0).get("outcome").asText(), is("created"));
+        assertThat(report.get("entities").get(4).get("outcome").asText(), is("failed"));
+
+        JsonNode userFederationSync = report.get("userFederationSyncs").get(0);
+        assertThat(userFederationSync.get("provider").asText(), is("ldap"));
+        assertThat(userFederationSync.get("status").asText(), is("synced"));
+        assertThat(userFederationSync.get("durationInMillis").asDouble(), is(2.0));
+        assertThat(userFederationSync.get("added").asInt(), is(3));
+        assertThat(userFederationSync.get("failed").asInt(), is(1));
+
+        JsonNode entitySummary = report.get("entitySummary");
+        assertThat(entitySummary.size(), is(4));
+        assertThat(entitySummary.get(1).get("type").asText(), is("client"));
+        assertThat(entitySummary.get(1).get("outcome").asText(), is("skipped"));
+        assertThat(entitySummary.get(1).get("count").asLong(), is(2L));
+    }
+
+    @Test
+    void shouldNotWriteReportIfDisabled() {
+        Path reportFile = tempDir.resolve("report.json");
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ImportConfigProperties importConfigProperties = importConfigProperties(false, reportFile);
+        ImportReportService importReportService = new ImportReportService(
+                importConfigProperties,
+                new ImportMetricsService(meterRegistry, new TracingService(OpenTelemetry.noop()), importConfigProperties),
+                new AdminApiMetricsService(meterRegistry)
+        );
+
+        importReportService.writeReport(0, 1000, true);
+
+        assertThat(Files.exists(reportFile), is(false));
+    }
+
+    private static ImportConfigProperties importConfigProperties(boolean enabled, Path reportFile) {
+        ImportConfigProperties importConfigProperties = mock(ImportConfigProperties.class);
+        when(importConfigProperties.getReport()).thenReturn(new ImportReportProperties(enabled, reportFile.toString()));
+        when(importConfigProperties.getSlowLog()).thenReturn(new ImportSlowLogProperties(false, Duration.ofSeconds(1), 50, 10));
+        return importConfigProperties;
+    }
+}
@@ -0,0 +1,142 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2021 adorsys GmbH & Co. KG @ https://adorsys.com
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.service.metrics;
+
+import de.adorsys.keycloak.config.extensions.GithubActionsExtension;
+import de.adorsys.keycloak.config.properties.ImportConfigProperties.ImportMetricsProperties;
+import de.adorsys.keycloak.config.properties.ImportConfigProperties.ImportReportProperties;
+import de.adorsys.keycloak.config.properties.ImportConfigProperties.ImportSlowLogProperties;
+import de.adorsys.keycloak.config.properties.ImportConfigProperties;
+import de.adorsys.keycloak.config.service.tracing.TracingService;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import io.opentelemetry.api.OpenTelemetry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockserver.integration.ClientAndServer;
+import org.mockserver.model.HttpRequest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.arrayWithSize;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.endsWith;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockserver.model.HttpRequest.request;
+import static org.mockserver.model.HttpResponse.response;
+
+@ExtendWith(GithubActionsExtension.class)
+class MetricsExportServiceTest {
+    @TempDir
+    Path tempDir;
+
+    private PrometheusMeterRegistry meterRegistry;
+    private ImportMetricsService importMetricsService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        importMetricsService = new ImportMetricsService(meterRegistry, new TracingService(OpenTelemetry.noop()), importConfigProperties(null, null));
+
+        importMetricsService.timePhase("test", "clients",
+                () -> importMetricsService.timeEntity("test", "client", "client", () -> ImportMetricsService.EntityOutcome.CREATED));
+        importMetricsService.recordCacheLookup("test", true);
+        importMetricsService.recordCacheLookup("other", false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        meterRegistry.close();
+    }
+
+    @Test
+    void shouldWriteOpenMetricsFile() throws IOException {
+        Path metricsFile = tempDir.resolve("metrics.txt");
+
+        new MetricsExportService(meterRegistry, importConfigProperties(metricsFile.toString(), null)).export(1500, true);
+
+        String metrics = Files.readString(metricsFile);
+        assertThat(metrics, containsString("kcc_import_phase_seconds_count{phase=\"clients\",realm=\"test\"} 1"));
+        assertThat(metrics, containsString("kcc_import_entity_seconds_count{outcome=\"created\",realm=\"test\",type=\"client\"} 1"));
+        assertThat(metrics, containsString("kcc_import_cache_hit_ratio 0.5"));
+        assertThat(metrics, containsString("kcc_run_duration_seconds 1.5"));
+        assertThat(metrics, containsString("kcc_run_success 1.0"));
+        assertThat(metrics, endsWith("# EOF\n"));
+    }
+
+    @Test
+    void shouldPushMetrics() {
+        try (ClientAndServer pushGateway = ClientAndServer.startClientAndServer(0)) {
+            pushGateway.when(request().withMethod("PUT").withPath("/metrics/job/keycloak-config-cli"))
+                    .respond(response().withStatusCode(200));
+
+            String pushUrl = "http://localhost:" + pushGateway.getPort() + "/";
+            new MetricsExportService(meterRegistry, importConfigProperties(null, pushUrl)).export(1500, false);
+
+            HttpRequest[] pushes = pushGateway.retrieveRecordedRequests(request().withPath("/metrics/job/keycloak-config-cli"));
+            assertThat(pushes, arrayWithSize(1));
+            assertThat(pushes[0].getBodyAsString(), containsString("kcc_run_success 0.0"));
+            assertThat(pushes[0].getBodyAsString(), containsString("kcc_import_phase_seconds_count{phase=\"clients\",realm=\"test\",} 1.0"));
+        }
+    }
+
+    @Test
+    void shouldPushMetricsOfJobWithSpecialCharacters() {
+        try (ClientAndServer pushGateway = ClientAndServer.startClientAndServer(0)) {
+            // "keycloak config/dev" in base64url
+            String path = "/metrics/job@base64/a2V5Y2xvYWsgY29uZmlnL2Rldg==";
+            pushGateway.when(request().withMethod("PUT").withPath(path)).respond(response().withStatusCode(200));
+
+            String pushUrl = "http://localhost:" + pushGateway.getPort();
+            new MetricsExportService(meterRegistry, importConfigProperties(null, pushUrl, "keycloak config/dev")).export(1500, true);
+
+            assertThat(pushGateway.retrieveRecordedRequests(request().withPath(path)), arrayWithSize(1));
+        }
+    }
+
+    @Test
+    void shouldNotExportIfNotConfigured() {
+        new MetricsExportService(meterRegistry, importConfigProperties(null, null)).export(1500, true);
+
+        assertThat(meterRegistry.find(MetricsExportService.RUN_SUCCESS_METRIC).gauge(), nullValue());
+    }
+
+    private static ImportConfigProperties importConfigProperties(String file, String pushUrl) {
+        return importConfigProperties(file, pushUrl, "keycloak-config-cli");
+    }
+
+    private static ImportConfigProperties importConfigProperties(String file, String pushUrl, String job) {
+        ImportConfigProperties importConfigProperties = mock(ImportConfigProperties.class);
+        when(importConfigProperties.getMetrics()).thenReturn(new ImportMetricsProperties(file, pushUrl, job));
+        when(importConfigProperties.getReport()).thenReturn(new ImportReportProperties(false, "report.json"));
+        when(importConfigProperties.getSlowLog()).thenReturn(new ImportSlowLogProperties(false, Duration.ofSeconds(1), 50, 10));
+        return importConfigProperties;
+    }
+}
@@ -0,0 +1,147 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2021 adorsys GmbH & Co. KG @ https://adorsys.com
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.service.metrics;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import de.adorsys.keycloak.config.extensions.GithubActionsExtension;
+import de.adorsys.keycloak.config.properties.ImportConfigProperties;
+import de.adorsys.keycloak.config.properties.ImportConfigProperties.ImportReportProperties;
+import de.adorsys.keycloak.config.properties.ImportConfigProperties.ImportSlowLogProperties;
+import de.adorsys.keycloak.config.service.metrics.ImportMetricsService.EntityOutcome;
+import de.adorsys.keycloak.config.service.tracing.TracingService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.OpenTelemetry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasItems;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(GithubActionsExtension.class)
+class SlowCallServiceTest {
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(150);
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(5);
+
+    private final Logger logger = (Logger) LoggerFactory.getLogger(SlowCallService.class);
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+
+    private ImportMetricsService importMetricsService;
+
+    @BeforeEach
+    void setUp() {
+        // without the import report, only the slowest entities are retained for the summary
+        importMetricsService = new ImportMetricsService(new SimpleMeterRegistry(), new TracingService(OpenTelemetry.noop()), importConfigProperties(true));
+
+        appender.start();
+        logger.addAppender(appender);
+    }
+
+    @AfterEach
+    void tearDown() {
+        logger.detachAppender(appender);
+    }
+
+    @Test
+    void shouldWarnAboutSlowCallsAndExceededBudget() {
+        SlowCallService slowCallService = slowCallService(true);
+
+        importMetricsService.timePhase("test", "users", () -> {
+            slowCallService.onCall("GET", "/admin/realms/{realm}/users", 200, SLOW);
+
+            importMetricsService.timeEntity("test", "user", "my-user", () -> {
+                slowCallService.onCall("GET", "/admin/realms/{realm}/users/{id}/groups", 200, FAST);
+                slowCallService.onCall("GET", "/admin/realms/{realm}/users/{id}/role-mappings", 200, SLOW);
+                slowCallService.onCall("PUT", "/admin/realms/{realm}/users/{id}", 204, FAST);
+                slowCallService.onCall("PUT", "/admin/realms/{realm}/users/{id}", 204, FAST);
+                return EntityOutcome.UPDATED;
+            });
+        });
+
+        assertThat(warnings(), contains(
+                "Slow keycloak admin API call GET /admin/realms/{realm}/users (200) took 150 ms in realm 'test' during phase 'users'",
+                "Slow keycloak admin API call GET /admin/realms/{realm}/users/{id}/role-mappings (200) took 150 ms in realm 'test' for user 'my-user'",
+                "Import of user 'my-user' in realm 'test' exceeds the budget of 2 keycloak admin API calls, last call: PUT /admin/realms/{realm}/users/{id}"
+        ));
+        assertThat(importMetricsService.getEntities().get(0).getCalls(), is(4L));
+    }
+
+    @Test
+    void shouldOnlyCountCallsIfDisabled() {
+        SlowCallService slowCallService = slowCallService(false);
+
+        importMetricsService.timeEntity("test", "user", "my-user", () -> {
+            slowCallService.onCall("GET", "/admin/realms/{realm}/users", 200, SLOW);
+            slowCallService.onCall("GET", "/admin/realms/{realm}/users", 200, SLOW);
+            slowCallService.onCall("GET", "/admin/realms/{realm}/users", 200, SLOW);
+            return EntityOutcome.SKIPPED;
+        });
+        slowCallService.logSummary();
+
+        assertThat(appender.list, is(empty()));
+        assertThat(importMetricsService.getEntities().get(0).getCalls(), is(3L));
+    }
+
+    @Test
+    void shouldLogSlowestEntities() {
+        SlowCallService slowCallService = slowCallService(true);
+
+        importMetricsService.timeEntity("test", "client", "my-client", () -> EntityOutcome.CREATED);
+        slowCallService.logSummary();
+
+        List<String> messages = appender.list.stream().map(ILoggingEvent::getFormattedMessage).collect(Collectors.toList());
+        assertThat(messages, hasItems("Slowest imported entities:"));
+        assertThat(messages.get(messages.size() - 1).endsWith("0 calls created : client 'my-client' in realm 'test'"), is(true));
+    }
+
+    private SlowCallService slowCallService(boolean enabled) {
+        return new SlowCallService(importConfigProperties(enabled), importMetricsService, new AdminApiMetricsService(new SimpleMeterRegistry()));
+    }
+
+    private static ImportConfigProperties importConfigProperties(boolean enabled) {
+        ImportConfigProperties importConfigProperties = mock(ImportConfigProperties.class);
+        when(importConfigProperties.getReport()).thenReturn(new ImportReportProperties(false, "report.json"));
+        when(importConfigProperties.getSlowLog()).thenReturn(new ImportSlowLogProperties(enabled, Duration.ofMillis(100), 2, 5));
+        return importConfigProperties;
+    }
+
+    private List<String> warnings() {
+        return appender.list.stream()
+                .filter(event -> event.getLevel() == Level.WARN)
+                .map(ILoggingEvent::getFormattedMessage)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,102 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2021 adorsys GmbH & Co. KG @ https://adorsys.com
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.service.tracing;
+
+import de.adorsys.keycloak.config.extensions.GithubActionsExtension;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static de.adorsys.keycloak.config.service.tracing.TracingService.REALM;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@ExtendWith(GithubActionsExtension.class)
+class TracingServiceTest {
+    private final InMemorySpanExporter spanExporter = InMemorySpanExporter.create();
+
+    private final TracingService tracingService = new TracingService(OpenTelemetrySdk.builder()
+            .setTracerProvider(SdkTracerProvider.builder().addSpanProcessor(SimpleSpanProcessor.create(spanExporter)).build())
+            .build());
+
+    @Test
+    void shouldCreateSpanTree() {
+        tracingService.inSpan("run", Attributes.empty(), () ->
+                tracingService.inSpan("realm", Attributes.of(REALM, "test"), () ->
+                        tracingService.inPhaseSpan("phase users", Attributes.empty(), () -> {
+                            tracingService.inSpan("entity user", Attributes.empty(), () -> { });
+
+                            // entities of a parallel import are running on other threads
+                            CompletableFuture.runAsync(() -> tracingService.inSpan("entity group", Attributes.empty(), () -> { })).join();
+                        })
+                )
+        );
+
+        List<SpanData> spans = spanExporter.getFinishedSpanItems();
+        assertThat(spans, hasSize(5));
+
+        Map<String, SpanData> spansByName = spans.stream().collect(Collectors.toMap(SpanData::getName, Function.identity()));
+        assertThat(spansByName.get("run").getParentSpanContext().isValid(), is(false));
+        assertThat(spansByName.get("realm").getParentSpanId(), is(spansByName.get("run").getSpanId()));
+        assertThat(spansByName.get("realm").getAttributes().get(REALM), is("test"));
+        assertThat(spansByName.get("phase users").getParentSpanId(), is(spansByName.get("realm").getSpanId()));
+        assertThat(spansByName.get("entity user").getParentSpanId(), is(spansByName.get("phase users").getSpanId()));
+        assertThat(spansByName.get("entity group").getParentSpanId(), is(spansByName.get("phase users").getSpanId()));
+        assertThat(spansByName.get("entity group").getTraceId(), is(spansByName.get("run").getTraceId()));
+    }
+
+    @Test
+    void shouldRecordFailures() {
+        IllegalStateException exception = new IllegalStateException("failed");
+
+        assertThrows(IllegalStateException.class, () -> tracingService.inSpan("run", Attributes.empty(), (Runnable) () -> {
+            throw exception;
+        }));
+
+        SpanData span = spanExporter.getFinishedSpanItems().get(0);
+        assertThat(span.getStatus().getStatusCode(), is(StatusCode.ERROR));
+        assertThat(span.getStatus().getDescription(), is("failed"));
+        assertThat(span.getEvents().get(0).getName(), is("exception"));
+    }
+
+    @Test
+    void shouldRunActionsIfDisabled() {
+        TracingService disabledTracingService = new TracingService((OpenTelemetry) null);
+
+        assertThat(disabledTracingService.isEnabled(), is(false));
+        assertThat(disabledTracingService.inSpan("run", Attributes.empty(), () -> "result"), is("result"));
+    }
+}
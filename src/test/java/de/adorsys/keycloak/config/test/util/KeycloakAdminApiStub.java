@@ -0,0 +1,621 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2021 adorsys GmbH & Co. KG @ https://adorsys.com
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.test.util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import de.adorsys.keycloak.config.util.resteasy.MetricsClientFilter;
+import org.keycloak.representations.AccessTokenResponse;
+import org.keycloak.representations.info.ServerInfoRepresentation;
+import org.keycloak.representations.info.SystemInfoRepresentation;
+import org.mockserver.configuration.Configuration;
+import org.mockserver.integration.ClientAndServer;
+import org.mockserver.mock.action.ExpectationResponseCallback;
+import org.mockserver.model.Delay;
+import org.mockserver.model.HttpRequest;
+import org.mockserver.model.HttpResponse;
+import org.mockserver.model.MediaType;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static org.mockserver.model.HttpRequest.request;
+import static org.mockserver.model.HttpResponse.response;
+
+/**
+ * In-memory emulation of the keycloak admin API, good enough to run realm imports without a keycloak container.
+ * Resources are stored as JSON per collection path. Items are addressed by id or by their natural key,
+ * e.g. the name of a role or the alias of an identity provider. Every response can be delayed by a fixed latency.
+ * The stub counts all calls per endpoint template, which makes it usable for performance measurements.
+ */
+public class KeycloakAdminApiStub implements ExpectationResponseCallback, AutoCloseable {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    // keys used to address an item within its collection, besides the id
+    private static final List<String> NATURAL_KEYS = List.of("realm", "alias", "clientId", "name", "providerId");
+
+    // collections whose items are addressable by a following path segment, a miss is answered with 404
+    private static final Set<String> ITEM_COLLECTIONS = Set.of(
+            "realms", "users", "groups", "clients", "client-scopes", "roles", "roles-by-id", "components", "flows",
+            "executions", "config", "required-actions", "instances", "mappers", "models"
+    );
+
+    // endpoints returning a single object instead of a list
+    private static final Set<String> OBJECT_ENDPOINTS = Set.of("role-mappings", "resource-server", "settings", "permissions");
+
+    private final ClientAndServer server;
+    private final Duration latency;
+
+    private final Map<String, List<ObjectNode>> collections = new LinkedHashMap<>();
+    private final Map<String, AtomicLong> callsByEndpoint = new ConcurrentHashMap<>();
+    private final AtomicLong calls = new AtomicLong();
+    private final List<String> userStorageSyncActions = new CopyOnWriteArrayList<>();
+    private volatile Duration userStorageSyncDuration = Duration.ZERO;
+
+    public KeycloakAdminApiStub(Duration latency) {
+        this.latency = latency;
+        // the calls are counted by the stub, the event log of MockServer would only slow down imports with thousands of calls
+        this.server = ClientAndServer.startClientAndServer(
+                Configuration.configuration().logLevel("WARN").maxLogEntries(100),
+                0
+        );
+        this.server.when(request()).respond(this);
+
+        ObjectNode master = OBJECT_MAPPER.createObjectNode();
+        master.put("id", "master");
+        master.put("realm", "master");
+        store("/admin/realms", master);
+    }
+
+    public String getUrl() {
+        return "http://localhost:" + server.getPort();
+    }
+
+    public long getCallCount() {
+        return calls.get();
+    }
+
+    /**
+     * @return the number of calls per method and endpoint template, e.g. <code>GET /admin/realms/{realm}/users</code>
+     */
+    public Map<String, Long> getCallCounts() {
+        return callsByEndpoint.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().get()));
+    }
+
+    /**
+     * @return the actions of all user federation synchronizations, e.g. <code>triggerFullSync</code>
+     */
+    public List<String> getUserStorageSyncActions() {
+        return userStorageSyncActions;
+    }
+
+    public void setUserStorageSyncDuration(Duration userStorageSyncDuration) {
+        this.userStorageSyncDuration = userStorageSyncDuration;
+    }
+
+    public void resetCallCounts() {
+        calls.set(0);
+        callsByEndpoint.clear();
+    }
+
+    @Override
+    public void close() {
+        server.stop();
+    }
+
+    @Override
+    public HttpResponse handle(HttpRequest request) {
+        String path = request.getPath().getValue();
+
+        calls.incrementAndGet();
+        callsByEndpoint.computeIfAbsent(request.getMethod().getValue() + " " + MetricsClientFilter.getEndpointTemplate(path),
+                k -> new AtomicLong()).incrementAndGet();
+
+        HttpResponse response;
+        try {
+            response = route(request, path);
+        } catch (JsonProcessingException e) {
+            response = response().withStatusCode(400).withBody(e.getMessage());
+        }
+
+        if (!latency.isZero()) {
+            response.withDelay(Delay.milliseconds(latency.toMillis()));
+        }
+
+        return response;
+    }
+
+    private HttpResponse route(HttpRequest request, String path) throws JsonProcessingException {
+        if (path.endsWith("/protocol/openid-connect/token")) {
+            return json(token());
+        }
+
+        if (path.endsWith("/protocol/openid-connect/logout")) {
+            return response().withStatusCode(204);
+        }
+
+        if (path.endsWith("/.well-known/openid-configuration")) {
+            ObjectNode configuration = OBJECT_MAPPER.createObjectNode();
+            configuration.put("issuer", getUrl() + path.substring(0, path.indexOf("/.well-known")));
+            return json(configuration);
+        }
+
+        if (path.equals("/health/ready")) {
+            return json(OBJECT_MAPPER.createObjectNode().put("status", "UP"));
+        }
+
+        if (path.equals("/admin/serverinfo")) {
+            ServerInfoRepresentation serverInfo = new ServerInfoRepresentation();
+            serverInfo.setSystemInfo(SystemInfoRepresentation.create(0));
+            return json(OBJECT_MAPPER.valueToTree(serverInfo));
+        }
+
+        if (path.matches("/admin/realms/[^/]+/user-storage/[^/]+/sync")) {
+            return userStorageSync(request);
+        }
+
+        if (!path.startsWith("/admin/realms")) {
+            return response().withStatusCode(404);
+        }
+
+        synchronized (this) {
+            List<String> segments = canonicalize(path);
+            String canonicalPath = String.join("/", segments);
+
+            switch (request.getMethod().getValue()) {
+                case "GET":
+                    return get(request, segments, canonicalPath);
+                case "POST":
+                    return post(request, segments, canonicalPath);
+                case "PUT":
+                    return put(request, segments, canonicalPath);
+                case "DELETE":
+                    return delete(request, segments, canonicalPath);
+                default:
+                    return response().withStatusCode(405);
+            }
+        }
+    }
+
+    private HttpResponse get(HttpRequest request, List<String> segments, String path) {
+        String last = segments.get(segments.size() - 1);
+        String parentPath = parentPath(segments);
+
+        ObjectNode item = find(parentPath, last);
+        if (item != null) {
+            return json(withSubGroups(parentPath, item));
+        }
+
+        if ("count".equals(last)) {
+            return json(OBJECT_MAPPER.getNodeFactory().numberNode(filter(items(parentPath), request).size()));
+        }
+
+        if ("settings".equals(last) && "resource-server".equals(segments.get(segments.size() - 2))) {
+            return json(resourceServerSettings(parentPath));
+        }
+
+        if ("role-mappings".equals(last) && "users".equals(segments.get(segments.size() - 3))) {
+            return json(userRoleMappings(segments, path));
+        }
+
+        if (OBJECT_ENDPOINTS.contains(last)) {
+            List<ObjectNode> objects = items(path);
+            return json(objects.isEmpty() ? OBJECT_MAPPER.createObjectNode() : objects.get(0));
+        }
+
+        if (segments.size() > 1 && ITEM_COLLECTIONS.contains(segments.get(segments.size() - 2))) {
+            return response().withStatusCode(404);
+        }
+
+        List<ObjectNode> result = filter(items(path), request);
+        if ("groups".equals(last) && isRealmCollection(segments)) {
+            result = result.stream()
+                    .filter(group -> !group.hasNonNull("parentId"))
+                    .map(group -> withSubGroups(path, group))
+                    .collect(Collectors.toList());
+        }
+
+        String firstParameter = request.getFirstQueryStringParameter("first");
+        int first = firstParameter.isEmpty() ? 0 : Integer.parseInt(firstParameter);
+        String max = request.getFirstQueryStringParameter("max");
+        int end = max.isEmpty() ? result.size() : Math.min(result.size(), first + Integer.parseInt(max));
+
+        ArrayNode array = OBJECT_MAPPER.createArrayNode();
+        boolean isGroupCollection = "groups".equals(last) || "children".equals(last);
+        result.subList(Math.min(first, end), end).forEach(node -> array.add(isGroupCollection ? withoutParentId(node) : node));
+        return json(array);
+    }
+
+    private HttpResponse post(HttpRequest request, List<String> segments, String path) throws JsonProcessingException {
+        JsonNode body = body(request);
+
+        if (body.isArray()) {
+            body.forEach(node -> upsert(path, reference((ObjectNode) node)));
+            return response().withStatusCode(204);
+        }
+
+        ObjectNode item = (ObjectNode) body;
+        String collectionPath = path;
+
+        // sub groups are stored in the group collection of the realm
+        if ("children".equals(segments.get(segments.size() - 1))) {
+            String parentId = segments.get(segments.size() - 2);
+            collectionPath = parentPath(segments.subList(0, segments.size() - 1));
+            ObjectNode parent = find(collectionPath, parentId);
+            item.put("parentId", parentId);
+            item.put("path", (parent == null ? "" : parent.path("path").asText()) + "/" + item.path("name").asText());
+        } else if ("groups".equals(segments.get(segments.size() - 1))) {
+            item.put("path", "/" + item.path("name").asText());
+        } else if ("components".equals(segments.get(segments.size() - 1)) && !item.hasNonNull("parentId")) {
+            // like keycloak, top level components belong to the realm
+            item.put("parentId", segments.get(3));
+        }
+
+        // components are neither unique by name nor by provider id
+        for (String key : "components".equals(segments.get(segments.size() - 1)) ? List.<String>of() : NATURAL_KEYS) {
+            if (item.hasNonNull(key) && find(collectionPath, item.get(key).asText()) != null) {
+                return response().withStatusCode(409);
+            }
+        }
+
+        if (item.has("username") && items(collectionPath).stream().anyMatch(u -> item.get("username").equals(u.get("username")))) {
+            return response().withStatusCode(409);
+        }
+
+        if ("realms".equals(segments.get(segments.size() - 1))) {
+            createRealmDefaults(item);
+        } else if ("clients".equals(segments.get(segments.size() - 1))) {
+            createClientDefaults(item);
+        } else if ("resource".equals(segments.get(segments.size() - 1)) && !item.hasNonNull("attributes")) {
+            item.putObject("attributes");
+        }
+
+        if (!item.hasNonNull("id")) {
+            item.put("id", UUID.randomUUID().toString());
+        }
+
+        store(collectionPath, item);
+
+        return response()
+                .withStatusCode(201)
+                .withHeader("Location", getUrl() + path + "/" + item.get("id").asText());
+    }
+
+    private HttpResponse put(HttpRequest request, List<String> segments, String path) throws JsonProcessingException {
+        String last = segments.get(segments.size() - 1);
+        String parentPath = parentPath(segments);
+        JsonNode body = body(request);
+
+        ObjectNode item = find(parentPath, last);
+        if (item != null) {
+            // like keycloak, fields missing in the update are kept
+            if (body.isObject()) {
+                String id = item.get("id").asText();
+                body.fields().forEachRemaining(field -> {
+                    if (!field.getValue().isNull()) item.set(field.getKey(), field.getValue());
+                });
+                item.put("id", id);
+            }
+            return response().withStatusCode(204);
+        }
+
+        if (body.isObject() && body.hasNonNull("id")) {
+            upsert(path, (ObjectNode) body);
+        } else if (OBJECT_ENDPOINTS.contains(last) && body.isObject()) {
+            collections.put(path, new ArrayList<>(List.of((ObjectNode) body)));
+        } else {
+            // e.g. group membership or the assignment of a client scope
+            ObjectNode reference = OBJECT_MAPPER.createObjectNode();
+            reference.put("id", last);
+            upsert(parentPath, reference(reference));
+        }
+
+        return response().withStatusCode(204);
+    }
+
+    private HttpResponse delete(HttpRequest request, List<String> segments, String path) throws JsonProcessingException {
+        String last = segments.get(segments.size() - 1);
+        String parentPath = parentPath(segments);
+
+        ObjectNode item = find(parentPath, last);
+        if (item != null) {
+            remove(parentPath, item.get("id").asText());
+            return response().withStatusCode(204);
+        }
+
+        JsonNode body = body(request);
+        if (body.isArray()) {
+            body.forEach(node -> remove(path, node.path("id").asText()));
+            return response().withStatusCode(204);
+        }
+
+        return response().withStatusCode(404);
+    }
+
+    // like keycloak, the role mappings of a user consist of its realm level mappings and its mappings of each client
+    private ObjectNode userRoleMappings(List<String> segments, String path) {
+        ObjectNode mappings = OBJECT_MAPPER.createObjectNode();
+
+        List<ObjectNode> realmMappings = items(path + "/realm");
+        if (!realmMappings.isEmpty()) {
+            mappings.putArray("realmMappings").addAll(realmMappings);
+        }
+
+        String clientsPath = String.join("/", segments.subList(0, 4)) + "/clients";
+        String clientMappingsPrefix = path + "/clients/";
+        ObjectNode clientMappings = OBJECT_MAPPER.createObjectNode();
+
+        collections.forEach((collectionPath, roles) -> {
+            if (!collectionPath.startsWith(clientMappingsPrefix) || roles.isEmpty()) return;
+
+            String clientUuid = collectionPath.substring(clientMappingsPrefix.length());
+            ObjectNode client = find(clientsPath, clientUuid);
+            String clientId = client == null ? clientUuid : client.path("clientId").asText();
+
+            ObjectNode clientMapping = clientMappings.putObject(clientId);
+            clientMapping.put("id", clientUuid);
+            clientMapping.put("client", clientId);
+            clientMapping.putArray("mappings").addAll(roles);
+        });
+
+        if (!clientMappings.isEmpty()) {
+            mappings.set("clientMappings", clientMappings);
+        }
+
+        return mappings;
+    }
+
+    // a synchronization of a user federation blocks until all users are imported, it always reports the same changed users
+    private HttpResponse userStorageSync(HttpRequest request) {
+        userStorageSyncActions.add(request.getFirstQueryStringParameter("action"));
+
+        ObjectNode result = OBJECT_MAPPER.createObjectNode();
+        result.put("ignored", false);
+        result.put("added", 3);
+        result.put("updated", 2);
+        result.put("removed", 0);
+        result.put("failed", 1);
+
+        return json(result).withDelay(Delay.milliseconds(userStorageSyncDuration.toMillis()));
+    }
+
+    // keycloak creates a realm with attributes and without any of the sub resources contained in the representation
+    private void createRealmDefaults(ObjectNode realm) {
+        if (!realm.hasNonNull("id")) {
+            realm.put("id", realm.path("realm").asText());
+        }
+
+        if (!realm.hasNonNull("attributes")) {
+            realm.putObject("attributes");
+        }
+    }
+
+    private void createClientDefaults(ObjectNode client) {
+        if (!client.hasNonNull("defaultClientScopes")) client.putArray("defaultClientScopes");
+        if (!client.hasNonNull("optionalClientScopes")) client.putArray("optionalClientScopes");
+
+        client.path("protocolMappers").forEach(mapper -> {
+            if (!mapper.hasNonNull("id")) ((ObjectNode) mapper).put("id", UUID.randomUUID().toString());
+        });
+    }
+
+    // the export of the authorization settings contains all resources, scopes and policies of the client
+    private ObjectNode resourceServerSettings(String resourceServerPath) {
+        List<ObjectNode> resourceServer = items(resourceServerPath);
+        ObjectNode settings = resourceServer.isEmpty() ? OBJECT_MAPPER.createObjectNode() : resourceServer.get(0).deepCopy();
+
+        ArrayNode resources = settings.putArray("resources");
+        for (ObjectNode resource : items(resourceServerPath + "/resource")) {
+            ObjectNode copy = resource.deepCopy();
+            copy.set("_id", copy.remove("id"));
+            resources.add(copy);
+        }
+        settings.putArray("scopes").addAll(items(resourceServerPath + "/scope"));
+        settings.putArray("policies").addAll(items(resourceServerPath + "/policy"));
+
+        return settings;
+    }
+
+    private List<String> canonicalize(String path) {
+        List<String> segments = new ArrayList<>(Arrays.asList(path.split("/")));
+
+        for (int i = 3; i < segments.size(); i++) {
+            ObjectNode item = find(String.join("/", segments.subList(0, i)), segments.get(i));
+
+            if (item != null) {
+                segments.set(i, item.get("id").asText());
+            }
+        }
+
+        return segments;
+    }
+
+    private ObjectNode find(String collectionPath, String key) {
+        for (ObjectNode item : items(collectionPath)) {
+            if (key.equals(item.path("id").asText())) return item;
+
+            for (String naturalKey : NATURAL_KEYS) {
+                if (key.equals(item.path(naturalKey).asText(null))) return item;
+            }
+        }
+
+        return null;
+    }
+
+    private List<ObjectNode> items(String collectionPath) {
+        // sub groups are addressed as children of their parent, but stored in the group collection of the realm
+        if (collectionPath.endsWith("/children")) {
+            String parentId = collectionPath.substring(collectionPath.lastIndexOf('/', collectionPath.length() - "/children".length() - 1) + 1,
+                    collectionPath.length() - "/children".length());
+            String groupsPath = collectionPath.substring(0, collectionPath.length() - "/children".length() - parentId.length() - 1);
+
+            return items(groupsPath).stream()
+                    .filter(group -> parentId.equals(group.path("parentId").asText()))
+                    .collect(Collectors.toList());
+        }
+
+        return collections.getOrDefault(collectionPath, List.of());
+    }
+
+    private void store(String collectionPath, ObjectNode item) {
+        collections.computeIfAbsent(collectionPath, k -> new ArrayList<>()).add(item);
+    }
+
+    private void upsert(String collectionPath, ObjectNode item) {
+        ObjectNode existing = find(collectionPath, item.path("id").asText());
+
+        if (existing == null) {
+            store(collectionPath, item);
+        } else {
+            existing.setAll(item);
+        }
+    }
+
+    private void remove(String collectionPath, String id) {
+        List<ObjectNode> items = collections.get(collectionPath);
+        if (items != null) items.removeIf(item -> id.equals(item.path("id").asText()));
+
+        String itemPath = collectionPath + "/" + id;
+        collections.keySet().removeIf(key -> key.equals(itemPath) || key.startsWith(itemPath + "/"));
+
+        // remove sub groups and the references to the item, e.g. role mappings
+        Iterator<List<ObjectNode>> iterator = collections.values().iterator();
+        while (iterator.hasNext()) {
+            iterator.next().removeIf(item -> id.equals(item.path("id").asText()) || id.equals(item.path("parentId").asText()));
+        }
+    }
+
+    // copies the stored representation of a referenced item, e.g. the group of a group membership
+    private ObjectNode reference(ObjectNode node) {
+        String id = node.path("id").asText();
+
+        for (List<ObjectNode> items : collections.values()) {
+            for (ObjectNode item : items) {
+                if (id.equals(item.path("id").asText()) && item != node) {
+                    return withoutParentId(item).setAll(node);
+                }
+            }
+        }
+
+        return node;
+    }
+
+    // the parent of a sub group is only known to the stub, keycloak does not expose it
+    private static ObjectNode withoutParentId(ObjectNode item) {
+        if (!item.has("parentId")) return item;
+
+        ObjectNode copy = item.deepCopy();
+        copy.remove("parentId");
+        return copy;
+    }
+
+    private ObjectNode withSubGroups(String collectionPath, ObjectNode item) {
+        if (!collectionPath.endsWith("/groups")) return item;
+
+        ArrayNode subGroups = OBJECT_MAPPER.createArrayNode();
+        items(collectionPath).stream()
+                .filter(group -> item.path("id").asText().equals(group.path("parentId").asText()))
+                .map(group -> withSubGroups(collectionPath, group))
+                .forEach(subGroups::add);
+
+        ObjectNode result = withoutParentId(item).deepCopy();
+        result.set("subGroups", subGroups);
+        return result;
+    }
+
+    private static List<ObjectNode> filter(List<ObjectNode> items, HttpRequest request) {
+        boolean exact = Boolean.parseBoolean(request.getFirstQueryStringParameter("exact"));
+        String search = request.getFirstQueryStringParameter("search");
+        List<ObjectNode> result = new ArrayList<>(items);
+
+        for (String field : List.of("username", "email", "name")) {
+            String value = request.getFirstQueryStringParameter(field);
+            if (!value.isEmpty()) {
+                result.removeIf(item -> !matches(item.path(field).asText(), value, exact));
+            }
+        }
+
+        String parent = request.getFirstQueryStringParameter("parent");
+        if (!parent.isEmpty()) {
+            result.removeIf(item -> !parent.equals(item.path("parentId").asText()));
+        }
+
+        // clients are matched exactly, unless search=true
+        String clientId = request.getFirstQueryStringParameter("clientId");
+        if (!clientId.isEmpty()) {
+            result.removeIf(item -> !matches(item.path("clientId").asText(), clientId, !"true".equals(search)));
+        }
+
+        if (!search.isEmpty() && !"true".equals(search) && !"false".equals(search)) {
+            result.removeIf(item -> !matches(item.path("username").asText(), search, false)
+                    && !matches(item.path("email").asText(), search, false)
+                    && !matches(item.path("name").asText(), search, false));
+        }
+
+        return result;
+    }
+
+    private static boolean matches(String value, String expected, boolean exact) {
+        return exact ? value.equals(expected) : value.toLowerCase().contains(expected.toLowerCase());
+    }
+
+    private static boolean isRealmCollection(List<String> segments) {
+        return segments.size() == 5;
+    }
+
+    private static String parentPath(List<String> segments) {
+        return String.join("/", segments.subList(0, segments.size() - 1));
+    }
+
+    private static JsonNode body(HttpRequest request) throws JsonProcessingException {
+        String body = request.getBodyAsString();
+        return body == null || body.isEmpty() ? OBJECT_MAPPER.createObjectNode() : OBJECT_MAPPER.readTree(body);
+    }
+
+    private static JsonNode token() {
+        AccessTokenResponse token = new AccessTokenResponse();
+        token.setToken("stub-access-token");
+        token.setRefreshToken("stub-refresh-token");
+        token.setExpiresIn(3600);
+        token.setRefreshExpiresIn(3600);
+        token.setTokenType("Bearer");
+        return OBJECT_MAPPER.valueToTree(token);
+    }
+
+    private static HttpResponse json(JsonNode node) {
+        return response().withBody(node.toString(), MediaType.APPLICATION_JSON);
+    }
+}
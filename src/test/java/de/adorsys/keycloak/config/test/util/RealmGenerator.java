@@ -0,0 +1,393 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2021 adorsys GmbH & Co. KG @ https://adorsys.com
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.test.util;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.keycloak.representations.idm.AuthenticationExecutionExportRepresentation;
+import org.keycloak.representations.idm.AuthenticationFlowRepresentation;
+import org.keycloak.representations.idm.ClientRepresentation;
+import org.keycloak.representations.idm.GroupRepresentation;
+import org.keycloak.representations.idm.ProtocolMapperRepresentation;
+import org.keycloak.representations.idm.RealmRepresentation;
+import org.keycloak.representations.idm.RoleRepresentation;
+import org.keycloak.representations.idm.RolesRepresentation;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.keycloak.representations.idm.authorization.PolicyRepresentation;
+import org.keycloak.representations.idm.authorization.ResourceRepresentation;
+import org.keycloak.representations.idm.authorization.ResourceServerRepresentation;
+import org.keycloak.representations.idm.authorization.ScopeRepresentation;
+import org.yaml.snakeyaml.DumperOptions;
+import org.yaml.snakeyaml.Yaml;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Generates synthetic realm imports with a configurable number of entities for scale tests and benchmarks.
+ *
+ * <p>The output only depends on the settings:
+ * <ul>
+ *     <li>roles are chained into composites, {@code role-0} contains {@code role-1} up to the composite depth</li>
+ *     <li>groups are nested into chains of the group depth, e.g. {@code /group-0/group-1/group-2}</li>
+ *     <li>users are member of one role and one group, assigned round-robin</li>
+ *     <li>clients have protocol mappers and, if resources are set, authorization settings with one scope, policy and permission per
+ *     resource</li>
+ *     <li>flows are top-level flows with an alternative cookie execution and a sub-flow with a username password form</li>
+ * </ul>
+ *
+ * <p>Run it with <code>realm=scale users=1000 clients=100 mappers=2 resources=5 roles=100 compositeDepth=3 groups=100 groupDepth=3
+ * flows=10 output=target/realm-generator/scale.yaml</code>. The format is chosen by the extension of the output file.
+ */
+public class RealmGenerator {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+            .setSerializationInclusion(JsonInclude.Include.NON_NULL)
+            .enable(SerializationFeature.INDENT_OUTPUT, SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
+
+    private final String realm;
+    private int users;
+    private int clients;
+    private int mappers = 2;
+    private int resources;
+    private int roles;
+    private int compositeDepth;
+    private int groups;
+    private int groupDepth = 1;
+    private int flows;
+
+    public RealmGenerator(String realm) {
+        this.realm = realm;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> arguments = Arrays.stream(args)
+                .map(arg -> arg.split("=", 2))
+                .collect(Collectors.toMap(arg -> arg[0], arg -> arg.length > 1 ? arg[1] : ""));
+
+        RealmGenerator generator = new RealmGenerator(arguments.getOrDefault("realm", "scale"))
+                .users(intArgument(arguments, "users", 0))
+                .clients(intArgument(arguments, "clients", 0))
+                .mappers(intArgument(arguments, "mappers", 2))
+                .resources(intArgument(arguments, "resources", 0))
+                .roles(intArgument(arguments, "roles", 0), intArgument(arguments, "compositeDepth", 0))
+                .groups(intArgument(arguments, "groups", 0), intArgument(arguments, "groupDepth", 1))
+                .flows(intArgument(arguments, "flows", 0));
+
+        Path output = Path.of(arguments.getOrDefault("output", "target/realm-generator/realm.yaml"));
+        generator.write(output);
+
+        System.out.println("Realm import is saved to " + output.toAbsolutePath());
+    }
+
+    private static int intArgument(Map<String, String> arguments, String name, int defaultValue) {
+        String value = arguments.get(name);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    public RealmGenerator users(int users) {
+        this.users = users;
+        return this;
+    }
+
+    public RealmGenerator clients(int clients) {
+        this.clients = clients;
+        return this;
+    }
+
+    public RealmGenerator mappers(int mappers) {
+        this.mappers = mappers;
+        return this;
+    }
+
+    public RealmGenerator resources(int resources) {
+        this.resources = resources;
+        return this;
+    }
+
+    public RealmGenerator roles(int roles, int compositeDepth) {
+        this.roles = roles;
+        this.compositeDepth = compositeDepth;
+        return this;
+    }
+
+    public RealmGenerator groups(int groups, int groupDepth) {
+        if (groupDepth < 1) {
+            throw new IllegalArgumentException("The group depth must be at least 1");
+        }
+
+        this.groups = groups;
+        this.groupDepth = groupDepth;
+        return this;
+    }
+
+    public RealmGenerator flows(int flows) {
+        this.flows = flows;
+        return this;
+    }
+
+    public RealmRepresentation generate() {
+        RealmRepresentation realmImport = new RealmRepresentation();
+        realmImport.setRealm(realm);
+        realmImport.setEnabled(true);
+
+        if (roles > 0) realmImport.setRoles(roles());
+        if (groups > 0) realmImport.setGroups(groups());
+        if (users > 0) realmImport.setUsers(users());
+        if (clients > 0) realmImport.setClients(clients());
+        if (flows > 0) realmImport.setAuthenticationFlows(flows());
+
+        return realmImport;
+    }
+
+    /**
+     * Writes the realm import as YAML, or as JSON if the file name ends with {@code .json}.
+     */
+    public void write(Path file) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+
+        if (file.getFileName().toString().endsWith(".json")) {
+            Files.writeString(file, toJson());
+        } else {
+            Files.writeString(file, toYaml());
+        }
+    }
+
+    public String toJson() throws IOException {
+        return OBJECT_MAPPER.writeValueAsString(generate());
+    }
+
+    public String toYaml() {
+        Map<String, Object> content = OBJECT_MAPPER.convertValue(generate(), new TypeReference<>() {
+        });
+
+        DumperOptions options = new DumperOptions();
+        options.setDefaultFlowStyle(DumperOptions.FlowStyle.BLOCK);
+        return new Yaml(options).dump(content);
+    }
+
+    private RolesRepresentation roles() {
+        int chainLength = compositeDepth + 1;
+
+        List<RoleRepresentation> realmRoles = IntStream.range(0, roles).mapToObj(i -> {
+            RoleRepresentation role = new RoleRepresentation();
+            role.setName(roleName(i));
+            role.setDescription("Role " + i);
+
+            boolean hasChild = i % chainLength < compositeDepth && i + 1 < roles;
+            if (hasChild) {
+                RoleRepresentation.Composites composites = new RoleRepresentation.Composites();
+                composites.setRealm(Set.of(roleName(i + 1)));
+                role.setComposite(true);
+                role.setComposites(composites);
+            }
+
+            return role;
+        }).collect(Collectors.toList());
+
+        RolesRepresentation rolesRepresentation = new RolesRepresentation();
+        rolesRepresentation.setRealm(realmRoles);
+        return rolesRepresentation;
+    }
+
+    private List<GroupRepresentation> groups() {
+        List<GroupRepresentation> topLevelGroups = new ArrayList<>();
+
+        for (int i = 0; i < groups; i += groupDepth) {
+            GroupRepresentation parent = null;
+
+            for (int j = i; j < Math.min(i + groupDepth, groups); j++) {
+                GroupRepresentation group = new GroupRepresentation();
+                group.setName(groupName(j));
+                group.setAttributes(Map.of("index", List.of(String.valueOf(j))));
+                group.setSubGroups(new ArrayList<>());
+                if (roles > 0) group.setRealmRoles(List.of(roleName(j % roles)));
+
+                if (parent == null) {
+                    topLevelGroups.add(group);
+                } else {
+                    parent.getSubGroups().add(group);
+                }
+                parent = group;
+            }
+        }
+
+        return topLevelGroups;
+    }
+
+    private List<UserRepresentation> users() {
+        return IntStream.range(0, users).mapToObj(i -> {
+            UserRepresentation user = new UserRepresentation();
+            user.setUsername("user-" + i);
+            user.setEmail("user-" + i + "@" + realm + ".example.com");
+            user.setFirstName("User");
+            user.setLastName(String.valueOf(i));
+            user.setEnabled(true);
+            if (roles > 0) user.setRealmRoles(List.of(roleName(i % roles)));
+            if (groups > 0) user.setGroups(List.of(groupPath(i % groups)));
+            return user;
+        }).collect(Collectors.toList());
+    }
+
+    private List<ClientRepresentation> clients() {
+        return IntStream.range(0, clients).mapToObj(i -> {
+            String clientId = "client-" + i;
+
+            ClientRepresentation client = new ClientRepresentation();
+            client.setClientId(clientId);
+            client.setEnabled(true);
+            client.setRedirectUris(List.of("https://" + clientId + "." + realm + ".example.com/*"));
+            client.setProtocolMappers(IntStream.range(0, mappers)
+                    .mapToObj(j -> protocolMapper(clientId, j))
+                    .collect(Collectors.toList()));
+
+            if (resources > 0) {
+                client.setPublicClient(false);
+                client.setServiceAccountsEnabled(true);
+                client.setAuthorizationServicesEnabled(true);
+                client.setAuthorizationSettings(authorizationSettings());
+            }
+
+            return client;
+        }).collect(Collectors.toList());
+    }
+
+    private static ProtocolMapperRepresentation protocolMapper(String clientId, int index) {
+        ProtocolMapperRepresentation mapper = new ProtocolMapperRepresentation();
+        mapper.setName("audience-" + index);
+        mapper.setProtocol("openid-connect");
+        mapper.setProtocolMapper("oidc-audience-mapper");
+        mapper.setConfig(Map.of(
+                "included.custom.audience", clientId + "-" + index,
+                "access.token.claim", "true",
+                "id.token.claim", "false"
+        ));
+        return mapper;
+    }
+
+    private ResourceServerRepresentation authorizationSettings() {
+        ResourceServerRepresentation settings = new ResourceServerRepresentation();
+        settings.setAllowRemoteResourceManagement(false);
+        settings.setResources(new ArrayList<>());
+        settings.setScopes(new ArrayList<>());
+        settings.setPolicies(new ArrayList<>());
+
+        for (int i = 0; i < resources; i++) {
+            String scopeName = "scope-" + i;
+            settings.getScopes().add(new ScopeRepresentation(scopeName));
+
+            ResourceRepresentation resource = new ResourceRepresentation("resource-" + i, scopeName);
+            resource.setUris(Set.of("/resource-" + i + "/*"));
+            settings.getResources().add(resource);
+
+            PolicyRepresentation policy = new PolicyRepresentation();
+            policy.setName("policy-" + i);
+            policy.setType("role");
+            String roleName = roles > 0 ? roleName(i % roles) : "offline_access";
+            policy.setConfig(Map.of("roles", "[{\"id\":\"" + roleName + "\",\"required\":false}]"));
+            settings.getPolicies().add(policy);
+
+            PolicyRepresentation permission = new PolicyRepresentation();
+            permission.setName("permission-" + i);
+            permission.setType("scope");
+            permission.setConfig(Map.of(
+                    "resources", "[\"resource-" + i + "\"]",
+                    "scopes", "[\"" + scopeName + "\"]",
+                    "applyPolicies", "[\"policy-" + i + "\"]"
+            ));
+            settings.getPolicies().add(permission);
+        }
+
+        return settings;
+    }
+
+    private List<AuthenticationFlowRepresentation> flows() {
+        List<AuthenticationFlowRepresentation> authenticationFlows = new ArrayList<>();
+
+        for (int i = 0; i < flows; i++) {
+            String alias = "flow-" + i;
+            String formsAlias = alias + " forms";
+
+            AuthenticationFlowRepresentation flow = flow(alias, true);
+            flow.setAuthenticationExecutions(List.of(
+                    execution("auth-cookie", null, "ALTERNATIVE", 10),
+                    execution(null, formsAlias, "ALTERNATIVE", 20)
+            ));
+
+            AuthenticationFlowRepresentation forms = flow(formsAlias, false);
+            forms.setAuthenticationExecutions(List.of(
+                    execution("auth-username-password-form", null, "REQUIRED", 10)
+            ));
+
+            authenticationFlows.add(flow);
+            authenticationFlows.add(forms);
+        }
+
+        return authenticationFlows;
+    }
+
+    private static AuthenticationFlowRepresentation flow(String alias, boolean topLevel) {
+        AuthenticationFlowRepresentation flow = new AuthenticationFlowRepresentation();
+        flow.setAlias(alias);
+        flow.setDescription("Generated flow " + alias);
+        flow.setProviderId("basic-flow");
+        flow.setTopLevel(topLevel);
+        flow.setBuiltIn(false);
+        return flow;
+    }
+
+    private static AuthenticationExecutionExportRepresentation execution(String authenticator, String flowAlias, String requirement, int priority) {
+        AuthenticationExecutionExportRepresentation execution = new AuthenticationExecutionExportRepresentation();
+        execution.setAuthenticator(authenticator);
+        execution.setFlowAlias(flowAlias);
+        execution.setAuthenticatorFlow(flowAlias != null);
+        execution.setRequirement(requirement);
+        execution.setPriority(priority);
+        execution.setUserSetupAllowed(false);
+        return execution;
+    }
+
+    private static String roleName(int index) {
+        return "role-" + index;
+    }
+
+    private static String groupName(int index) {
+        return "group-" + index;
+    }
+
+    private String groupPath(int index) {
+        int chainStart = index - index % groupDepth;
+
+        return IntStream.rangeClosed(chainStart, index)
+                .mapToObj(RealmGenerator::groupName)
+                .collect(Collectors.joining("/", "/", ""));
+    }
+}
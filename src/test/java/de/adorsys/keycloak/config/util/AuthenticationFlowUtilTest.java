@@ -23,7 +23,13 @@ package de.adorsys.keycloak.config.util;
 import de.adorsys.keycloak.config.extensions.GithubActionsExtension;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.keycloak.representations.idm.AuthenticationExecutionExportRepresentation;
+import org.keycloak.representations.idm.AuthenticationFlowRepresentation;
 
+import java.util.Arrays;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 @ExtendWith(GithubActionsExtension.class)
@@ -32,4 +38,51 @@ class AuthenticationFlowUtilTest {
     void shouldThrowOnNew() {
         assertThrows(IllegalStateException.class, AuthenticationFlowUtil::new);
     }
+
+    @Test
+    void shouldBeSameFlowWithDifferentPrioritiesInSameOrder() {
+        AuthenticationFlowRepresentation flow = flow(execution("auth-cookie", 0), execution("auth-spnego", 1));
+        AuthenticationFlowRepresentation otherFlow = flow(execution("auth-spnego", 40), execution("auth-cookie", 20));
+        otherFlow.setId("other-id");
+
+        assertThat(AuthenticationFlowUtil.isSameFlow(flow, otherFlow), is(true));
+    }
+
+    @Test
+    void shouldNotBeSameFlowWithDifferentOrder() {
+        AuthenticationFlowRepresentation flow = flow(execution("auth-cookie", 0), execution("auth-spnego", 1));
+        AuthenticationFlowRepresentation otherFlow = flow(execution("auth-cookie", 20), execution("auth-spnego", 10));
+
+        assertThat(AuthenticationFlowUtil.isSameFlow(flow, otherFlow), is(false));
+    }
+
+    @Test
+    void shouldNotBeSameFlowWithDifferentExecutions() {
+        AuthenticationFlowRepresentation flow = flow(execution("auth-cookie", 0), execution("auth-spnego", 1));
+        AuthenticationFlowRepresentation otherFlow = flow(execution("auth-cookie", 0));
+
+        assertThat(AuthenticationFlowUtil.isSameFlow(flow, otherFlow), is(false));
+
+        otherFlow = flow(execution("auth-cookie", 0), execution("auth-spnego", 1));
+        otherFlow.getAuthenticationExecutions().get(1).setRequirement("REQUIRED");
+
+        assertThat(AuthenticationFlowUtil.isSameFlow(flow, otherFlow), is(false));
+    }
+
+    private AuthenticationFlowRepresentation flow(AuthenticationExecutionExportRepresentation... executions) {
+        AuthenticationFlowRepresentation flow = new AuthenticationFlowRepresentation();
+        flow.setAlias("my flow");
+        flow.setProviderId("basic-flow");
+        flow.setTopLevel(true);
+        flow.setAuthenticationExecutions(Arrays.asList(executions));
+        return flow;
+    }
+
+    private AuthenticationExecutionExportRepresentation execution(String authenticator, int priority) {
+        AuthenticationExecutionExportRepresentation execution = new AuthenticationExecutionExportRepresentation();
+        execution.setAuthenticator(authenticator);
+        execution.setRequirement("ALTERNATIVE");
+        execution.setPriority(priority);
+        return execution;
+    }
 }
@@ -0,0 +1,66 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2021 adorsys GmbH & Co. KG @ https://adorsys.com
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.util;
+
+import de.adorsys.keycloak.config.extensions.GithubActionsExtension;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import javax.ws.rs.NotFoundException;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@ExtendWith(GithubActionsExtension.class)
+class FutureUtilTest {
+    @Test
+    void shouldThrowOnNew() {
+        assertThrows(IllegalStateException.class, FutureUtil::new);
+    }
+
+    @Test
+    void shouldReturnResult() {
+        assertThat(FutureUtil.join(CompletableFuture.completedFuture("result")), is("result"));
+    }
+
+    @Test
+    void shouldRethrowRuntimeException() {
+        CompletableFuture<Object> future = CompletableFuture.failedFuture(new NotFoundException("HTTP 404 Not Found"));
+
+        NotFoundException thrown = assertThrows(NotFoundException.class, () -> FutureUtil.join(future));
+
+        assertThat(thrown.getMessage(), is("HTTP 404 Not Found"));
+    }
+
+    @Test
+    void shouldKeepCompletionExceptionForCheckedException() {
+        CompletableFuture<Object> future = CompletableFuture.failedFuture(new IOException("failed"));
+
+        CompletionException thrown = assertThrows(CompletionException.class, () -> FutureUtil.join(future));
+
+        assertThat(thrown.getCause(), instanceOf(IOException.class));
+    }
+}
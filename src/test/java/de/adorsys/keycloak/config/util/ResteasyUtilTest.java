@@ -20,16 +20,374 @@
 
 package de.adorsys.keycloak.config.util;
 
+import com.sun.net.httpserver.HttpServer;
 import de.adorsys.keycloak.config.extensions.GithubActionsExtension;
+import de.adorsys.keycloak.config.properties.KeycloakConfigProperties.KeycloakHttpClient;
+import de.adorsys.keycloak.config.properties.KeycloakConfigProperties.KeycloakHttpClient.HttpEngine;
+import de.adorsys.keycloak.config.service.metrics.AdminApiMetricsService;
+import de.adorsys.keycloak.config.util.resteasy.AimdConcurrencyLimiter;
+import de.adorsys.keycloak.config.util.resteasy.CompressionClientFilter;
+import de.adorsys.keycloak.config.util.resteasy.JdkHttpClientEngine;
+import de.adorsys.keycloak.config.util.resteasy.PooledClientHttpEngineBuilder;
+import de.adorsys.keycloak.config.util.resteasy.RetryInterceptor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import org.jboss.resteasy.client.jaxrs.ResteasyClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.util.unit.DataSize;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.nullValue;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 @ExtendWith(GithubActionsExtension.class)
 class ResteasyUtilTest {
+    private final AtomicInteger unavailableCalls = new AtomicInteger();
+    private final List<String> upgradeHeaders = new CopyOnWriteArrayList<>();
+
+    private HttpServer server;
+    private String url;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        // echoes the method, content type and body of the request
+        server.createContext("/echo", exchange -> {
+            String upgrade = exchange.getRequestHeaders().getFirst("Upgrade");
+            if (upgrade != null) {
+                upgradeHeaders.add(upgrade);
+            }
+
+            byte[] request;
+            try (InputStream body = exchange.getRequestBody()) {
+                request = body.readAllBytes();
+            }
+
+            String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+            byte[] response = (exchange.getRequestMethod() + " " + contentType + " " + new String(request, StandardCharsets.UTF_8))
+                    .getBytes(StandardCharsets.UTF_8);
+
+            exchange.getResponseHeaders().add("Content-Type", MediaType.TEXT_PLAIN);
+            exchange.sendResponseHeaders(200, response.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(response);
+            }
+        });
+        // answers with the content encoding and the decoded body of the request, gzip compressed if accepted
+        server.createContext("/gzip", exchange -> {
+            String requestEncoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+            byte[] request;
+            try (InputStream body = "gzip".equals(requestEncoding)
+                    ? new GZIPInputStream(exchange.getRequestBody())
+                    : exchange.getRequestBody()) {
+                request = body.readAllBytes();
+            }
+
+            byte[] response = (requestEncoding + " " + new String(request, StandardCharsets.UTF_8)).repeat(100)
+                    .getBytes(StandardCharsets.UTF_8);
+
+            exchange.getResponseHeaders().add("Content-Type", MediaType.TEXT_PLAIN);
+            if ("gzip".equals(exchange.getRequestHeaders().getFirst("Accept-Encoding"))) {
+                exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+                exchange.sendResponseHeaders(200, 0);
+                try (OutputStream body = new GZIPOutputStream(exchange.getResponseBody())) {
+                    body.write(response);
+                }
+            } else {
+                exchange.sendResponseHeaders(200, response.length);
+                try (OutputStream body = exchange.getResponseBody()) {
+                    body.write(response);
+                }
+            }
+        });
+        // answers the first two calls with 503, like a load balancer while keycloak restarts, and echoes the method afterwards
+        server.createContext("/unavailable", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+
+            byte[] response = exchange.getRequestMethod().getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(unavailableCalls.incrementAndGet() <= 2 ? 503 : 200, response.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(response);
+            }
+        });
+        server.start();
+
+        url = "http://localhost:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
     @Test
     void shouldThrowOnNew() {
         assertThrows(IllegalStateException.class, ResteasyUtil::new);
     }
+
+    @Test
+    void shouldReuseConnectionsOfApacheEngine() {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        ResteasyClient client = getClient(HttpEngine.APACHE, meterRegistry);
+        assertEcho(client);
+        assertEcho(client);
+        assertEcho(client);
+
+        assertThat(meterRegistry.get(PooledClientHttpEngineBuilder.CONNECTIONS_METRIC).tag("reused", "false").counter().count(), is(1.0));
+        assertThat(meterRegistry.get(PooledClientHttpEngineBuilder.CONNECTIONS_METRIC).tag("reused", "true").counter().count(), is(5.0));
+        assertThat(meterRegistry.get("httpcomponents.httpclient.pool.total.max").gauge().value(), is(4.0));
+        assertThat(meterRegistry.get("httpcomponents.httpclient.pool.route.max.default").gauge().value(), is(2.0));
+
+        client.close();
+    }
+
+    @Test
+    void shouldCallWithJdkEngine() {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        ResteasyClient client = getClient(HttpEngine.JDK, meterRegistry);
+        assertEcho(client);
+        client.close();
+
+        assertThat(meterRegistry.get(JdkHttpClientEngine.PROTOCOL_METRIC).tag("version", "HTTP_1_1").counter().count(), is(2.0));
+        // no h2c upgrade is requested over plain http
+        assertThat(upgradeHeaders, is(empty()));
+    }
+
+    @ParameterizedTest
+    @EnumSource(HttpEngine.class)
+    void shouldLimitConcurrentCalls(HttpEngine engine) {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        AimdConcurrencyLimiter limiter = new AimdConcurrencyLimiter(1, 1, 2, 0.5, 2, meterRegistry);
+        KeycloakHttpClient httpClient = new KeycloakHttpClient(engine, 4, 2, Duration.ofSeconds(30), Duration.ofSeconds(30), true,
+                true, false, DataSize.ofKilobytes(64), false);
+
+        ResteasyClient client = ResteasyUtil.getClient(false, null, Duration.ofSeconds(10), Duration.ofSeconds(10),
+                httpClient, 4, limiter, UnaryOperator.identity(), meterRegistry, null, null);
+        assertEcho(client);
+        client.close();
+
+        assertThat(limiter.getInFlight(), is(0));
+        assertThat(limiter.getLimit(), is(2));
+    }
+
+    @ParameterizedTest
+    @EnumSource(HttpEngine.class)
+    void shouldRetryIdempotentCalls(HttpEngine engine) {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        AimdConcurrencyLimiter limiter = new AimdConcurrencyLimiter(1, 1, 1, 0.5, 2, meterRegistry);
+        RetryInterceptor retry = new RetryInterceptor(3, Duration.ofMillis(10), Duration.ofMillis(100), 0.5, Set.of(503), meterRegistry);
+        KeycloakHttpClient httpClient = new KeycloakHttpClient(engine, 1, 1, Duration.ofSeconds(30), Duration.ofSeconds(30), true,
+                true, false, DataSize.ofKilobytes(64), false);
+
+        ResteasyClient client = ResteasyUtil.getClient(false, null, Duration.ofSeconds(10), Duration.ofSeconds(10),
+                httpClient, 1, retry.andThen(limiter), UnaryOperator.identity(), meterRegistry, null, null);
+
+        // the discarded responses have to be released, otherwise the single pooled connection would be exhausted
+        try (Response response = client.target(url + "/unavailable").request().put(Entity.text("value"))) {
+            assertThat(response.getStatus(), is(200));
+            assertThat(response.readEntity(String.class), is("PUT"));
+        }
+
+        unavailableCalls.set(0);
+        try (Response response = client.target(url + "/unavailable").request().post(Entity.text("value"))) {
+            assertThat(response.getStatus(), is(503));
+        }
+        client.close();
+
+        assertThat(unavailableCalls.get(), is(1));
+        assertThat(meterRegistry.get(RetryInterceptor.RETRIES_METRIC).tag("method", "PUT").tag("reason", "503").counter().count(), is(2.0));
+        assertThat(limiter.getInFlight(), is(0));
+    }
+
+    @ParameterizedTest
+    @EnumSource(HttpEngine.class)
+    void shouldCompressRequestsAndResponses(HttpEngine engine) {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        KeycloakHttpClient httpClient = new KeycloakHttpClient(engine, 4, 2, Duration.ofSeconds(30), Duration.ofSeconds(30), true,
+                true, true, DataSize.ofBytes(10), false);
+
+        ResteasyClient client = getClient(httpClient, meterRegistry);
+
+        try (Response response = client.target(url + "/gzip").request().post(Entity.text("small"))) {
+            assertThat(response.readEntity(String.class), is("null small".repeat(100)));
+            assertThat(response.getHeaderString("Content-Encoding"), is(nullValue()));
+        }
+
+        try (Response response = client.target(url + "/gzip").request().post(Entity.text("large enough"))) {
+            assertThat(response.readEntity(String.class), is("gzip large enough".repeat(100)));
+        }
+        client.close();
+
+        assertThat(compressedBytes(meterRegistry, "request", "uncompressed"), is(12.0));
+        assertThat(compressedBytes(meterRegistry, "response", "uncompressed"), is(2700.0));
+        assertThat(compressedBytes(meterRegistry, "response", "compressed"), is(lessThan(100.0)));
+        assertThat(new AdminApiMetricsService(meterRegistry).getCompressionSavedBytes("response"), is(greaterThan(2600L)));
+    }
+
+    @ParameterizedTest
+    @EnumSource(HttpEngine.class)
+    void shouldDecorateAsyncCalls(HttpEngine engine) {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        KeycloakHttpClient httpClient = new KeycloakHttpClient(engine, 4, 2, Duration.ofSeconds(30), Duration.ofSeconds(30), true,
+                true, false, DataSize.ofKilobytes(64), false);
+        ThreadLocal<String> context = new ThreadLocal<>();
+        List<String> contexts = new CopyOnWriteArrayList<>();
+
+        // the decorator is applied on the calling thread and hands over its context to the thread sending the call
+        ResteasyClient client = ResteasyUtil.getClient(false, null, Duration.ofSeconds(10), Duration.ofSeconds(10),
+                httpClient, 4, null, task -> {
+                    String callingContext = context.get();
+                    return () -> {
+                        contexts.add(callingContext + " " + Thread.currentThread().getName().startsWith("kcc-admin-async-"));
+                        task.run();
+                    };
+                }, meterRegistry, null, null);
+
+        context.set("entity");
+        String echo = client.target(url + "/echo").request().rx().get(String.class).toCompletableFuture().join();
+        client.close();
+
+        assertThat(echo, is("GET null "));
+        assertThat(contexts, contains("entity true"));
+    }
+
+    @ParameterizedTest
+    @EnumSource(HttpEngine.class)
+    void shouldPropagateTraceContextToAsyncCalls(HttpEngine engine) {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        KeycloakHttpClient httpClient = new KeycloakHttpClient(engine, 4, 2, Duration.ofSeconds(30), Duration.ofSeconds(30), true,
+                true, false, DataSize.ofKilobytes(64), false);
+        InMemorySpanExporter spanExporter = InMemorySpanExporter.create();
+        OpenTelemetrySdk openTelemetry = OpenTelemetrySdk.builder()
+                .setTracerProvider(SdkTracerProvider.builder().addSpanProcessor(SimpleSpanProcessor.create(spanExporter)).build())
+                .build();
+
+        ResteasyClient client = ResteasyUtil.getClient(false, null, Duration.ofSeconds(10), Duration.ofSeconds(10),
+                httpClient, 4, null, UnaryOperator.identity(), meterRegistry, null, openTelemetry);
+
+        Span parent = openTelemetry.getTracer("test").spanBuilder("entity").startSpan();
+        try (Scope ignored = parent.makeCurrent()) {
+            client.target(url + "/echo").request().rx().get(String.class).toCompletableFuture().join();
+        } finally {
+            parent.end();
+        }
+        client.close();
+
+        SpanData span = spanExporter.getFinishedSpanItems().get(0);
+        assertThat(span.getKind(), is(SpanKind.CLIENT));
+        assertThat(span.getParentSpanId(), is(parent.getSpanContext().getSpanId()));
+    }
+
+    @Test
+    void shouldBlockAsyncCallsBeyondQueueSize() throws Exception {
+        ExecutorService executor = ResteasyUtil.getAsyncExecutor(1, UnaryOperator.identity());
+        CountDownLatch release = new CountDownLatch(1);
+
+        // one running and a full queue of waiting calls
+        for (int i = 0; i <= ResteasyUtil.ASYNC_QUEUE_SIZE_PER_CONNECTION; i++) {
+            executor.execute(() -> awaitUninterruptibly(release));
+        }
+
+        CompletableFuture<Void> blocked = CompletableFuture.runAsync(() -> executor.execute(() -> { }));
+        assertThrows(TimeoutException.class, () -> blocked.get(200, TimeUnit.MILLISECONDS));
+
+        release.countDown();
+        blocked.get(5, TimeUnit.SECONDS);
+
+        executor.shutdown();
+        assertThat(executor.awaitTermination(5, TimeUnit.SECONDS), is(true));
+        assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> { }));
+    }
+
+    @Test
+    void shouldNotAcceptCompressedResponsesIfDisabled() {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        KeycloakHttpClient httpClient = new KeycloakHttpClient(HttpEngine.APACHE, 4, 2, Duration.ofSeconds(30), Duration.ofSeconds(30), true,
+                false, false, DataSize.ofBytes(10), false);
+
+        ResteasyClient client = getClient(httpClient, meterRegistry);
+
+        try (Response response = client.target(url + "/gzip").request().post(Entity.text("large enough"))) {
+            assertThat(response.readEntity(String.class), is("null large enough".repeat(100)));
+        }
+        client.close();
+
+        assertThat(meterRegistry.find(CompressionClientFilter.COMPRESSION_METRIC).counters(), is(empty()));
+    }
+
+    private ResteasyClient getClient(HttpEngine engine, MeterRegistry meterRegistry) {
+        return getClient(new KeycloakHttpClient(engine, 4, 2, Duration.ofSeconds(30), Duration.ofSeconds(30), true,
+                true, false, DataSize.ofKilobytes(64), false), meterRegistry);
+    }
+
+    private ResteasyClient getClient(KeycloakHttpClient httpClient, MeterRegistry meterRegistry) {
+        return ResteasyUtil.getClient(false, null, Duration.ofSeconds(10), Duration.ofSeconds(10),
+                httpClient, 4, null, UnaryOperator.identity(), meterRegistry, null, null);
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static double compressedBytes(MeterRegistry meterRegistry, String direction, String size) {
+        return meterRegistry.get(CompressionClientFilter.COMPRESSION_METRIC).tag("direction", direction).tag("size", size).counter().count();
+    }
+
+    private void assertEcho(ResteasyClient client) {
+        try (Response response = client.target(url + "/echo").request().get()) {
+            assertThat(response.readEntity(String.class), is("GET null "));
+        }
+
+        try (Response response = client.target(url + "/echo").request().post(Entity.json("{\"key\":\"value\"}"))) {
+            assertThat(response.getStatus(), is(200));
+            assertThat(response.readEntity(String.class), is("POST application/json {\"key\":\"value\"}"));
+        }
+    }
 }
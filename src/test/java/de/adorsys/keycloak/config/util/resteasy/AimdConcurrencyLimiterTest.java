@@ -0,0 +1,148 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2021 adorsys GmbH & Co. KG @ https://adorsys.com
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.util.resteasy;
+
+import de.adorsys.keycloak.config.extensions.GithubActionsExtension;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@ExtendWith(GithubActionsExtension.class)
+class AimdConcurrencyLimiterTest {
+    private static final String ENDPOINT = "GET /admin/realms/{realm}/users";
+    private static final long LATENCY = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void shouldIncreaseLimitWhileInUse() throws InterruptedException {
+        AimdConcurrencyLimiter limiter = new AimdConcurrencyLimiter(2, 1, 3, 0.5, 2, meterRegistry);
+
+        limiter.acquire();
+        limiter.acquire();
+        limiter.release(ENDPOINT, LATENCY, 200);
+        assertThat(limiter.getLimit(), is(3));
+
+        limiter.release(ENDPOINT, LATENCY, 200);
+        assertThat(limiter.getLimit(), is(3));
+        assertThat(meterRegistry.get(AimdConcurrencyLimiter.LIMIT_METRIC).gauge().value(), is(3.0));
+        assertThat(meterRegistry.get(AimdConcurrencyLimiter.IN_FLIGHT_METRIC).gauge().value(), is(0.0));
+    }
+
+    @Test
+    void shouldNotIncreaseLimitIfUnused() throws InterruptedException {
+        AimdConcurrencyLimiter limiter = new AimdConcurrencyLimiter(4, 1, 10, 0.5, 2, meterRegistry);
+
+        limiter.acquire();
+        limiter.release(ENDPOINT, LATENCY, 200);
+
+        assertThat(limiter.getLimit(), is(4));
+    }
+
+    @Test
+    void shouldBackoffOnOverload() throws InterruptedException {
+        AimdConcurrencyLimiter limiter = new AimdConcurrencyLimiter(8, 2, 10, 0.5, 2, meterRegistry);
+
+        limiter.acquire();
+        limiter.release(ENDPOINT, 0, 503);
+        assertThat(limiter.getLimit(), is(4));
+
+        limiter.acquire();
+        limiter.release(ENDPOINT, 0, -1);
+        assertThat(limiter.getLimit(), is(2));
+
+        limiter.acquire();
+        limiter.release(ENDPOINT, 0, 429);
+        assertThat(limiter.getLimit(), is(2));
+
+        assertThat(meterRegistry.get(AimdConcurrencyLimiter.BACKOFF_METRIC).tag("reason", "status").counter().count(), is(2.0));
+        assertThat(meterRegistry.get(AimdConcurrencyLimiter.BACKOFF_METRIC).tag("reason", "error").counter().count(), is(1.0));
+    }
+
+    @Test
+    void shouldBackoffOncePerWindow() throws InterruptedException {
+        AimdConcurrencyLimiter limiter = new AimdConcurrencyLimiter(8, 1, 10, 0.5, 2, meterRegistry);
+
+        limiter.acquire();
+        limiter.acquire();
+        limiter.acquire();
+        limiter.release(ENDPOINT, LATENCY, 503);
+        assertThat(limiter.getLimit(), is(4));
+
+        // sent before the decrease
+        limiter.release(ENDPOINT, LATENCY, 503);
+        limiter.release(ENDPOINT, LATENCY, -1);
+        assertThat(limiter.getLimit(), is(4));
+
+        limiter.acquire();
+        limiter.release(ENDPOINT, 0, 503);
+        assertThat(limiter.getLimit(), is(2));
+        assertThat(meterRegistry.get(AimdConcurrencyLimiter.BACKOFF_METRIC).tag("reason", "status").counter().count(), is(2.0));
+        assertThat(meterRegistry.find(AimdConcurrencyLimiter.BACKOFF_METRIC).tag("reason", "error").counter(), is(nullValue()));
+    }
+
+    @Test
+    void shouldBackoffOnRisingLatency() throws InterruptedException {
+        AimdConcurrencyLimiter limiter = new AimdConcurrencyLimiter(8, 1, 10, 0.5, 2, meterRegistry);
+
+        limiter.acquire();
+        limiter.release(ENDPOINT, LATENCY, 200);
+        limiter.acquire();
+        limiter.release("GET /admin/realms/{realm}/partial-export", LATENCY * 10, 200);
+        assertThat(limiter.getLimit(), is(8));
+
+        limiter.acquire();
+        limiter.release(ENDPOINT, LATENCY * 3, 200);
+        assertThat(limiter.getLimit(), is(4));
+        assertThat(meterRegistry.get(AimdConcurrencyLimiter.BACKOFF_METRIC).tag("reason", "latency").counter().count(), is(1.0));
+    }
+
+    @Test
+    void shouldBlockAtLimit() throws Exception {
+        AimdConcurrencyLimiter limiter = new AimdConcurrencyLimiter(1, 1, 1, 0.5, 2, meterRegistry);
+        limiter.acquire();
+
+        CompletableFuture<Void> blocked = CompletableFuture.runAsync(() -> {
+            try {
+                limiter.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        assertThrows(TimeoutException.class, () -> blocked.get(200, TimeUnit.MILLISECONDS));
+
+        limiter.release(ENDPOINT, LATENCY, 200);
+        blocked.get(10, TimeUnit.SECONDS);
+
+        assertThat(limiter.getInFlight(), is(1));
+    }
+}
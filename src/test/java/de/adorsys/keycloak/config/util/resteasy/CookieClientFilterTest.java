@@ -0,0 +1,155 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2021 adorsys GmbH & Co. KG @ https://adorsys.com
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.util.resteasy;
+
+import de.adorsys.keycloak.config.extensions.GithubActionsExtension;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientResponseContext;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.NewCookie;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(GithubActionsExtension.class)
+class CookieClientFilterTest {
+    private static final Instant NOW = Instant.parse("2022-01-01T00:00:00Z");
+
+    private final MutableClock clock = new MutableClock(NOW);
+
+    @Test
+    void shouldSendReceivedCookies() {
+        CookieClientFilter filter = new CookieClientFilter(false, clock);
+
+        receive(filter, new NewCookie("AUTH_SESSION_ID", "node1"), new NewCookie("route", "a"));
+        receive(filter, new NewCookie("route", "b"));
+
+        assertThat(send(filter), containsInAnyOrder("AUTH_SESSION_ID=node1", "route=b"));
+    }
+
+    @Test
+    void shouldNotSendExpiredOrRemovedCookies() {
+        CookieClientFilter filter = new CookieClientFilter(false, clock);
+
+        receive(filter,
+                cookie("max-age", 60, null),
+                cookie("expires", NewCookie.DEFAULT_MAX_AGE, Date.from(NOW.plusSeconds(120))),
+                new NewCookie("session", "value")
+        );
+        assertThat(send(filter), containsInAnyOrder("max-age=value", "expires=value", "session=value"));
+
+        clock.now = NOW.plusSeconds(90);
+        assertThat(send(filter), containsInAnyOrder("expires=value", "session=value"));
+
+        receive(filter, cookie("session", 0, null), cookie("expires", NewCookie.DEFAULT_MAX_AGE, Date.from(NOW)));
+        assertThat(send(filter), is(nullValue()));
+    }
+
+    @Test
+    void shouldKeepFirstCookieInStrictAffinityMode() {
+        CookieClientFilter filter = new CookieClientFilter(true, clock);
+
+        receive(filter, new NewCookie("route", "a"));
+        receive(filter, new NewCookie("route", "b"), new NewCookie("other", "value"));
+        receive(filter, cookie("route", 0, null));
+
+        assertThat(send(filter), containsInAnyOrder("route=a", "other=value"));
+    }
+
+    @Test
+    void shouldHandleConcurrentRequests() {
+        CookieClientFilter filter = new CookieClientFilter(false, clock);
+
+        List<List<Object>> sent = IntStream.range(0, 1000).parallel()
+                .mapToObj(i -> {
+                    receive(filter, new NewCookie("cookie" + (i % 10), String.valueOf(i)));
+                    return send(filter);
+                })
+                .collect(Collectors.toList());
+
+        assertThat(sent, hasSize(1000));
+        assertThat(send(filter), hasSize(10));
+    }
+
+    private static NewCookie cookie(String name, int maxAge, Date expiry) {
+        return new NewCookie(name, "value", null, null, NewCookie.DEFAULT_VERSION, null, maxAge, expiry, false, false);
+    }
+
+    private static void receive(CookieClientFilter filter, NewCookie... cookies) {
+        ClientResponseContext responseContext = mock(ClientResponseContext.class);
+        when(responseContext.getCookies()).thenReturn(
+                Arrays.stream(cookies).collect(Collectors.toMap(NewCookie::getName, cookie -> cookie))
+        );
+
+        filter.filter(mock(ClientRequestContext.class), responseContext);
+    }
+
+    private static List<Object> send(CookieClientFilter filter) {
+        MultivaluedMap<String, Object> headers = new MultivaluedHashMap<>();
+        ClientRequestContext requestContext = mock(ClientRequestContext.class);
+        when(requestContext.getHeaders()).thenReturn(headers);
+
+        filter.filter(requestContext);
+
+        return headers.get("Cookie");
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2021 adorsys GmbH & Co. KG @ https://adorsys.com
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.util.resteasy;
+
+import de.adorsys.keycloak.config.extensions.GithubActionsExtension;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientResponseContext;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(GithubActionsExtension.class)
+class MetricsClientFilterTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void shouldNormalizeEndpointTemplates() {
+        assertThat(MetricsClientFilter.getEndpointTemplate("/admin/realms/test/users/6d5b3c63-49b4-4fc2-a88b-5e7a4d0e6e1f/groups"),
+                is("/admin/realms/{realm}/users/{id}/groups"));
+        assertThat(MetricsClientFilter.getEndpointTemplate("/admin/realms/test/users/count"),
+                is("/admin/realms/{realm}/users/count"));
+        assertThat(MetricsClientFilter.getEndpointTemplate("/admin/realms/test/roles/my-role/composites"),
+                is("/admin/realms/{realm}/roles/{role}/composites"));
+        assertThat(MetricsClientFilter.getEndpointTemplate("/admin/realms/test/groups/1234/role-mappings/realm"),
+                is("/admin/realms/{realm}/groups/{id}/role-mappings/realm"));
+        assertThat(MetricsClientFilter.getEndpointTemplate("/admin/realms/test/authentication/flows/my%20flow/executions/execution"),
+                is("/admin/realms/{realm}/authentication/flows/{flow}/executions/execution"));
+        assertThat(MetricsClientFilter.getEndpointTemplate("/admin/realms/test/identity-provider/instances/github/mappers"),
+                is("/admin/realms/{realm}/identity-provider/instances/{alias}/mappers"));
+        assertThat(MetricsClientFilter.getEndpointTemplate("/auth/realms/master/protocol/openid-connect/token"),
+                is("/auth/realms/{realm}/protocol/openid-connect/token"));
+        assertThat(MetricsClientFilter.getEndpointTemplate("/admin/realms"), is("/admin/realms"));
+        assertThat(MetricsClientFilter.getEndpointTemplate(""), is("/"));
+    }
+
+    @Test
+    void shouldRecordCallsAndResponseSize() throws IOException {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        assertThat(call(new MetricsClientFilter(meterRegistry)), is("[{}]"));
+
+        Timer timer = meterRegistry.find(MetricsClientFilter.REQUESTS_METRIC)
+                .tags("method", "GET", "uri", "/admin/realms/{realm}/clients", "status", "200")
+                .timer();
+        assertThat(timer, notNullValue());
+        assertThat(timer.count(), is(1L));
+
+        DistributionSummary responseSize = meterRegistry.find(MetricsClientFilter.RESPONSE_SIZE_METRIC).summary();
+        assertThat(responseSize, notNullValue());
+        assertThat(responseSize.count(), is(1L));
+        assertThat(responseSize.totalAmount(), is(4.0));
+    }
+
+    @Test
+    void shouldEmitFlightRecorderEvents() throws IOException {
+        Path recordingFile = tempDir.resolve("recording.jfr");
+
+        try (Recording recording = new Recording()) {
+            recording.enable("de.adorsys.keycloak.config.AdminApiCall");
+            recording.start();
+
+            call(new MetricsClientFilter(new SimpleMeterRegistry()));
+
+            recording.stop();
+            recording.dump(recordingFile);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(recordingFile);
+        assertThat(events, hasSize(1));
+        assertThat(events.get(0).getString("method"), is("GET"));
+        assertThat(events.get(0).getString("endpoint"), is("/admin/realms/{realm}/clients"));
+        assertThat(events.get(0).getString("path"), is("/admin/realms/test/clients"));
+        assertThat(events.get(0).getInt("status"), is(200));
+        assertThat(events.get(0).getLong("responseSize"), is(4L));
+    }
+
+    private static String call(MetricsClientFilter filter) throws IOException {
+        Map<String, Object> properties = new HashMap<>();
+        ClientRequestContext requestContext = mock(ClientRequestContext.class);
+        when(requestContext.getMethod()).thenReturn("GET");
+        when(requestContext.getUri()).thenReturn(URI.create("http://localhost:8080/admin/realms/test/clients"));
+        when(requestContext.getProperty(anyString())).thenAnswer(invocation -> properties.get(invocation.<String>getArgument(0)));
+        doAnswer(invocation -> properties.put(invocation.getArgument(0), invocation.getArgument(1)))
+                .when(requestContext).setProperty(anyString(), any());
+
+        InputStream[] entityStream = {new ByteArrayInputStream("[{}]".getBytes(StandardCharsets.UTF_8))};
+        ClientResponseContext responseContext = mock(ClientResponseContext.class);
+        when(responseContext.getStatus()).thenReturn(200);
+        when(responseContext.hasEntity()).thenReturn(true);
+        when(responseContext.getEntityStream()).thenAnswer(invocation -> entityStream[0]);
+        doAnswer(invocation -> entityStream[0] = invocation.getArgument(0)).when(responseContext).setEntityStream(any());
+
+        filter.filter(requestContext);
+        filter.filter(requestContext, responseContext);
+
+        try (InputStream inputStream = entityStream[0]) {
+            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2021 adorsys GmbH & Co. KG @ https://adorsys.com
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.util.resteasy;
+
+import de.adorsys.keycloak.config.extensions.GithubActionsExtension;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.jboss.resteasy.client.jaxrs.internal.ClientInvocation;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.core.Response;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(GithubActionsExtension.class)
+class RetryInterceptorTest {
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final RetryInterceptor retry = new RetryInterceptor(
+            3, Duration.ofMillis(1), Duration.ofMillis(10), 0.5, Set.of(409, 503), meterRegistry
+    );
+
+    @Test
+    void shouldRetryCallsFailedWithoutResponse() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        Response response = retry.invoke(invocation("GET"), invocation -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new ProcessingException(new SocketException("Connection reset"));
+            }
+            return Response.ok().build();
+        });
+
+        assertThat(response.getStatus(), is(200));
+        assertThat(attempts.get(), is(2));
+        assertThat(retries("SocketException"), is(1.0));
+    }
+
+    @Test
+    void shouldThrowLastFailureIfAttemptsAreExhausted() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        ProcessingException exception = assertThrows(ProcessingException.class, () -> retry.invoke(invocation("DELETE"), invocation -> {
+            attempts.incrementAndGet();
+            throw new ProcessingException(new ConnectException("Connection refused"));
+        }));
+
+        assertThat(exception.getCause().getMessage(), is("Connection refused"));
+        assertThat(attempts.get(), is(3));
+        assertThat(retries("ConnectException"), is(2.0));
+    }
+
+    @Test
+    void shouldReturnLastResponseIfAttemptsAreExhausted() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        Response response = retry.invoke(invocation("PUT"), invocation -> {
+            attempts.incrementAndGet();
+            return Response.status(Response.Status.CONFLICT).build();
+        });
+
+        assertThat(response.getStatus(), is(409));
+        assertThat(attempts.get(), is(3));
+        assertThat(retries("409"), is(2.0));
+    }
+
+    @Test
+    void shouldNotRetryOtherStatusesOrPostCalls() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        Response notFound = retry.invoke(invocation("GET"), invocation -> {
+            attempts.incrementAndGet();
+            return Response.status(Response.Status.NOT_FOUND).build();
+        });
+        Response unavailable = retry.invoke(invocation("POST"), invocation -> {
+            attempts.incrementAndGet();
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE).build();
+        });
+
+        assertThat(notFound.getStatus(), is(404));
+        assertThat(unavailable.getStatus(), is(503));
+        assertThat(attempts.get(), is(2));
+        assertThat(meterRegistry.find(RetryInterceptor.RETRIES_METRIC).counters().isEmpty(), is(true));
+    }
+
+    @Test
+    void shouldCallNextInterceptorForEachAttempt() {
+        List<String> calls = new ArrayList<>();
+        AtomicInteger attempts = new AtomicInteger();
+
+        InvocationInterceptor next = (invocation, call) -> {
+            calls.add("next");
+            return call.apply(invocation);
+        };
+
+        Response response = retry.andThen(next).invoke(invocation("GET"), invocation -> {
+            calls.add("call");
+            return Response.status(attempts.incrementAndGet() == 1 ? 503 : 200).build();
+        });
+
+        assertThat(response.getStatus(), is(200));
+        assertThat(calls, contains("next", "call", "next", "call"));
+    }
+
+    private double retries(String reason) {
+        return meterRegistry.get(RetryInterceptor.RETRIES_METRIC).tag("reason", reason).counter().count();
+    }
+
+    private static ClientInvocation invocation(String method) {
+        ClientInvocation invocation = mock(ClientInvocation.class);
+        when(invocation.getMethod()).thenReturn(method);
+        when(invocation.getUri()).thenReturn(URI.create("http://localhost/admin/realms/master/users"));
+
+        return invocation;
+    }
+}
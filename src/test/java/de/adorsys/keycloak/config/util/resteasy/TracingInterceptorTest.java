@@ -0,0 +1,121 @@
+/*-
+ * ---license-start
+ * keycloak-config-cli
+ * ---
+ * Copyright (C) 2017 - 2021 adorsys GmbH & Co. KG @ https://adorsys.com
+ * ---
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ---license-end
+ */
+
+package de.adorsys.keycloak.config.util.resteasy;
+
+import de.adorsys.keycloak.config.extensions.GithubActionsExtension;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.context.propagation.ContextPropagators;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import org.jboss.resteasy.client.jaxrs.internal.ClientInvocation;
+import org.jboss.resteasy.client.jaxrs.internal.ClientRequestHeaders;
+import org.jboss.resteasy.util.CaseInsensitiveMap;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.net.URI;
+import java.util.List;
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.core.Response;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(GithubActionsExtension.class)
+class TracingInterceptorTest {
+    private final InMemorySpanExporter spanExporter = InMemorySpanExporter.create();
+
+    private final OpenTelemetrySdk openTelemetry = OpenTelemetrySdk.builder()
+            .setTracerProvider(SdkTracerProvider.builder().addSpanProcessor(SimpleSpanProcessor.create(spanExporter)).build())
+            .setPropagators(ContextPropagators.create(W3CTraceContextPropagator.getInstance()))
+            .build();
+
+    @Test
+    void shouldCreateClientSpanAndPropagateTraceContext() {
+        CaseInsensitiveMap<Object> headers = new CaseInsensitiveMap<>();
+        ClientInvocation invocation = invocation(headers);
+
+        Tracer tracer = openTelemetry.getTracer("test");
+        Span parent = tracer.spanBuilder("entity").startSpan();
+        try (Scope ignored = parent.makeCurrent()) {
+            new TracingInterceptor(openTelemetry).invoke(invocation, call -> Response.status(404).build());
+        } finally {
+            parent.end();
+        }
+
+        List<SpanData> spans = spanExporter.getFinishedSpanItems();
+        assertThat(spans, hasSize(2));
+
+        SpanData span = spans.get(0);
+        assertThat(span.getName(), is("GET /admin/realms/{realm}/users"));
+        assertThat(span.getKind(), is(SpanKind.CLIENT));
+        assertThat(span.getParentSpanId(), is(parent.getSpanContext().getSpanId()));
+        assertThat(span.getAttributes().get(TracingInterceptor.HTTP_METHOD), is("GET"));
+        assertThat(span.getAttributes().get(TracingInterceptor.HTTP_URL), is("http://localhost:8080/admin/realms/test/users"));
+        assertThat(span.getAttributes().get(TracingInterceptor.HTTP_ROUTE), is("/admin/realms/{realm}/users"));
+        assertThat(span.getAttributes().get(TracingInterceptor.HTTP_STATUS_CODE), is(404L));
+        assertThat(span.getStatus().getStatusCode(), is(StatusCode.ERROR));
+
+        assertThat(headers.getFirst("traceparent"), is("00-" + span.getTraceId() + "-" + span.getSpanId() + "-01"));
+    }
+
+    @Test
+    void shouldEndSpanOfCallFailingWithoutResponse() {
+        ClientInvocation invocation = invocation(new CaseInsensitiveMap<>());
+        TracingInterceptor interceptor = new TracingInterceptor(openTelemetry);
+
+        assertThrows(ProcessingException.class, () -> interceptor.invoke(invocation, call -> {
+            throw new ProcessingException("Connection refused");
+        }));
+
+        List<SpanData> spans = spanExporter.getFinishedSpanItems();
+        assertThat(spans, hasSize(1));
+
+        SpanData span = spans.get(0);
+        assertThat(span.getStatus().getStatusCode(), is(StatusCode.ERROR));
+        assertThat(span.getStatus().getDescription(), is("Connection refused"));
+        assertThat(span.getEvents().get(0).getName(), is("exception"));
+        assertThat(span.getAttributes().get(TracingInterceptor.HTTP_STATUS_CODE), is((Long) null));
+    }
+
+    private static ClientInvocation invocation(CaseInsensitiveMap<Object> headers) {
+        ClientRequestHeaders requestHeaders = mock(ClientRequestHeaders.class);
+        when(requestHeaders.getHeaders()).thenReturn(headers);
+
+        ClientInvocation invocation = mock(ClientInvocation.class);
+        when(invocation.getMethod()).thenReturn("GET");
+        when(invocation.getUri()).thenReturn(URI.create("http://localhost:8080/admin/realms/test/users?username=jdoe&exact=true"));
+        when(invocation.getHeaders()).thenReturn(requestHeaders);
+        return invocation;
+    }
+}